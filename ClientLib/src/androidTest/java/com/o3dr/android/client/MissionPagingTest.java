@@ -0,0 +1,238 @@
+package com.o3dr.android.client;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.IBinder;
+
+import com.o3dr.services.android.lib.coordinate.LatLongAlt;
+import com.o3dr.services.android.lib.drone.mission.Mission;
+import com.o3dr.services.android.lib.drone.mission.MissionPaging;
+import com.o3dr.services.android.lib.drone.mission.action.MissionActions;
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+import com.o3dr.services.android.lib.drone.mission.item.spatial.Waypoint;
+import com.o3dr.services.android.lib.model.ICommandListener;
+import com.o3dr.services.android.lib.model.IDroneApi;
+import com.o3dr.services.android.lib.model.IMavlinkObserver;
+import com.o3dr.services.android.lib.model.IObserver;
+import com.o3dr.services.android.lib.model.action.Action;
+
+import junit.framework.Assert;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowApplication;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Tests the split of large missions in pages, and their reassembly by the client.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = com.o3dr.android.client.BuildConfig.class, sdk = 18)
+public class MissionPagingTest {
+
+    private static final int PAGE_ITEMS = 5;
+
+    private static Mission createMission(int itemsCount, double altitude) {
+        Mission mission = new Mission();
+        for (int i = 0; i < itemsCount; i++) {
+            Waypoint waypoint = new Waypoint();
+            waypoint.setCoordinate(new LatLongAlt(37.0 + i * 1e-4, -122.0, altitude));
+            mission.addMissionItem(waypoint);
+        }
+        return mission;
+    }
+
+    /**
+     * @return size of a page holding {@link #PAGE_ITEMS} mission items of the given mission.
+     */
+    private static int getPageSize(Mission mission) {
+        int pageSize = 0;
+        for (int i = 0; i < PAGE_ITEMS; i++) {
+            pageSize += MissionPaging.getParcelledSize(mission.getMissionItem(i));
+        }
+        return pageSize;
+    }
+
+    /**
+     * Service side of the paged mission retrieval. The mission it serves can be replaced after a given count
+     * of page requests.
+     */
+    private static class PagingDroneApi implements IDroneApi {
+
+        private Mission mission;
+        private int version;
+        private final int pageSize;
+
+        private Mission nextMission;
+        private int requestsBeforeChange = -1;
+        private int requestsCount;
+
+        PagingDroneApi(Mission mission, int pageSize) {
+            this.mission = mission;
+            this.pageSize = pageSize;
+        }
+
+        void changeMissionAfter(int requestsCount, Mission nextMission) {
+            this.requestsBeforeChange = requestsCount;
+            this.nextMission = nextMission;
+        }
+
+        /**
+         * @return the first page of the mission, with the extras the service adds to the mission attribute.
+         */
+        Mission getFirstPage(Bundle carrier) {
+            Mission firstPage = getPage(0);
+            carrier.putInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL, mission.getMissionItems().size());
+            carrier.putInt(MissionActions.EXTRA_MISSION_VERSION, version);
+            return firstPage;
+        }
+
+        private Mission getPage(int offset) {
+            List<MissionItem> missionItems = mission.getMissionItems();
+            int pageEnd = MissionPaging.getPageEnd(missionItems, offset, pageSize);
+
+            Mission page = new Mission();
+            page.getMissionItems().addAll(missionItems.subList(offset, pageEnd));
+            page.setCurrentMissionItem(mission.getCurrentMissionItem());
+            return page;
+        }
+
+        int getRequestsCount() {
+            return requestsCount;
+        }
+
+        @Override
+        public void executeAction(Action action, ICommandListener listener) {
+            Assert.assertEquals(MissionActions.ACTION_GET_MISSION_ITEMS, action.getType());
+
+            if (requestsCount++ == requestsBeforeChange) {
+                mission = nextMission;
+                version++;
+            }
+
+            Bundle data = action.getData();
+            int offset = data.getInt(MissionActions.EXTRA_MISSION_ITEMS_OFFSET, 0);
+            data.putParcelable(MissionActions.EXTRA_MISSION, getPage(offset));
+            data.putInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL, mission.getMissionItems().size());
+            data.putInt(MissionActions.EXTRA_MISSION_VERSION, version);
+        }
+
+        @Override
+        public Bundle getAttribute(String attributeType) {
+            return null;
+        }
+
+        @Override
+        public void performAction(Action action) {
+        }
+
+        @Override
+        public void performAsyncAction(Action action) {
+        }
+
+        @Override
+        public void addAttributesObserver(IObserver observer) {
+        }
+
+        @Override
+        public void removeAttributesObserver(IObserver observer) {
+        }
+
+        @Override
+        public void addMavlinkObserver(IMavlinkObserver observer) {
+        }
+
+        @Override
+        public void removeMavlinkObserver(IMavlinkObserver observer) {
+        }
+
+        @Override
+        public void executeAsyncAction(Action action, ICommandListener listener) {
+        }
+
+        @Override
+        public IBinder asBinder() {
+            return null;
+        }
+    }
+
+    @Test
+    public void testPagesCoverTheMission() throws Exception {
+        Mission mission = createMission(23, 20);
+        List<MissionItem> missionItems = mission.getMissionItems();
+        int pageSize = getPageSize(mission);
+
+        int pagesCount = 0;
+        for (int start = 0; start < missionItems.size(); pagesCount++) {
+            int end = MissionPaging.getPageEnd(missionItems, start, pageSize);
+            Assert.assertTrue(end > start);
+
+            int size = 0;
+            for (int i = start; i < end; i++) {
+                size += MissionPaging.getParcelledSize(missionItems.get(i));
+            }
+            Assert.assertTrue(size <= pageSize);
+            start = end;
+        }
+        Assert.assertEquals(5, pagesCount);
+
+        //A page holds at least one item, however large.
+        Assert.assertEquals(1, MissionPaging.getPageEnd(missionItems, 0, 1));
+        Assert.assertEquals(missionItems.size(), MissionPaging.getPageEnd(missionItems, 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testPagesAreReassembled() throws Exception {
+        final Context context = ShadowApplication.getInstance().getApplicationContext();
+        Mission mission = createMission(23, 20);
+        mission.setCurrentMissionItem(7);
+        PagingDroneApi droneApi = new PagingDroneApi(mission, getPageSize(mission));
+
+        Bundle carrier = new Bundle();
+        Mission firstPage = droneApi.getFirstPage(carrier);
+        Assert.assertEquals(PAGE_ITEMS, firstPage.getMissionItems().size());
+
+        Mission readMission = new Drone(context).readMissionPages(droneApi, firstPage, carrier);
+        Assert.assertEquals(mission, readMission);
+        Assert.assertEquals(4, droneApi.getRequestsCount());
+    }
+
+    @Test
+    public void testRetrievalRestartsWhenTheMissionChanges() throws Exception {
+        final Context context = ShadowApplication.getInstance().getApplicationContext();
+        Mission mission = createMission(23, 20);
+        Mission updatedMission = createMission(12, 50);
+        PagingDroneApi droneApi = new PagingDroneApi(mission, getPageSize(mission));
+
+        Bundle carrier = new Bundle();
+        Mission firstPage = droneApi.getFirstPage(carrier);
+
+        //The mission is replaced while its second page is requested.
+        droneApi.changeMissionAfter(0, updatedMission);
+        Mission readMission = new Drone(context).readMissionPages(droneApi, firstPage, carrier);
+
+        //None of the items of the previous mission are kept.
+        Assert.assertEquals(updatedMission, readMission);
+    }
+
+    @Test
+    public void testRetrievalGivesUpWhenTheMissionKeepsChanging() throws Exception {
+        final Context context = ShadowApplication.getInstance().getApplicationContext();
+        final Mission mission = createMission(23, 20);
+        PagingDroneApi droneApi = new PagingDroneApi(mission, getPageSize(mission)) {
+            @Override
+            public void executeAction(Action action, ICommandListener listener) {
+                changeMissionAfter(getRequestsCount(), mission);
+                super.executeAction(action, listener);
+            }
+        };
+
+        Bundle carrier = new Bundle();
+        Mission firstPage = droneApi.getFirstPage(carrier);
+        Assert.assertNull(new Drone(context).readMissionPages(droneApi, firstPage, carrier));
+    }
+}
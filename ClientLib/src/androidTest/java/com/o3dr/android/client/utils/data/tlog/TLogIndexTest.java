@@ -0,0 +1,195 @@
+package com.o3dr.android.client.utils.data.tlog;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.ardupilotmega.CRC;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_heartbeat;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Iterator;
+
+public class TLogIndexTest extends TestCase {
+
+    private static final int EVENT_COUNT = 100;
+    private static final long START_TIME = 1500000000000L; //ms
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("index", ".tlog");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        file.delete();
+        super.tearDown();
+    }
+
+    /**
+     * @return a heartbeat for even indexes, and an attitude for odd ones. They're 10 ms apart.
+     */
+    private static MAVLinkMessage createMessage(int index) {
+        if (index % 2 == 0) {
+            msg_heartbeat heartbeat = new msg_heartbeat();
+            heartbeat.custom_mode = index;
+            return heartbeat;
+        }
+
+        msg_attitude attitude = new msg_attitude();
+        attitude.time_boot_ms = index;
+        attitude.roll = index * 0.01f;
+        return attitude;
+    }
+
+    private static long getTimestamp(int index) {
+        return START_TIME + index * 10;
+    }
+
+    private static byte[] createRecord(long timestamp, MAVLinkMessage message) {
+        final byte[] frame = message.pack().encodePacket();
+        return ByteBuffer.allocate(TLogIndex.TIMESTAMP_LENGTH + frame.length)
+                .putLong(timestamp * 1000)
+                .put(frame)
+                .array();
+    }
+
+    /**
+     * @return the log, with the offset of each record in the given array.
+     */
+    private static byte[] createLog(int[] recordOffsets) throws IOException {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        for (int i = 0; i < EVENT_COUNT; i++) {
+            recordOffsets[i] = log.size();
+            log.write(createRecord(getTimestamp(i), createMessage(i)));
+        }
+        return log.toByteArray();
+    }
+
+    private TLogIndex openIndex(byte[] log) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(log);
+        } finally {
+            out.close();
+        }
+        return TLogIndex.open(file);
+    }
+
+    private static void assertEvent(int index, TLogParser.Event event) {
+        assertEquals(getTimestamp(index), event.getTimestamp());
+        assertTrue(Arrays.equals(createMessage(index).pack().encodePacket(),
+                event.getMavLinkMessage().pack().encodePacket()));
+    }
+
+    public void testIndexIsBuilt() throws Exception {
+        int[] recordOffsets = new int[EVENT_COUNT];
+        TLogIndex index = openIndex(createLog(recordOffsets));
+        try {
+            assertEquals(EVENT_COUNT, index.size());
+            assertEquals(0, index.getSkippedBytes());
+            for (int i = 0; i < EVENT_COUNT; i++) {
+                assertEquals(getTimestamp(i), index.getTimestamp(i));
+                assertEquals(i % 2 == 0 ? msg_heartbeat.MAVLINK_MSG_ID_HEARTBEAT : msg_attitude.MAVLINK_MSG_ID_ATTITUDE,
+                        index.getMessageId(i));
+                assertEquals(recordOffsets[i] + TLogIndex.TIMESTAMP_LENGTH, index.getFrameOffset(i));
+                assertEquals(createMessage(i).pack().encodePacket().length, index.getFrameLength(i));
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    public void testRandomAccess() throws Exception {
+        TLogIndex index = openIndex(createLog(new int[EVENT_COUNT]));
+        try {
+            for (int i : new int[]{57, 3, 99, 0, 42}) {
+                assertEvent(i, index.getEvent(i));
+
+                byte[] frame = new byte[index.getFrameLength(i)];
+                assertEquals(frame.length, index.copyFrame(i, frame, 0));
+                assertTrue(Arrays.equals(createMessage(i).pack().encodePacket(), frame));
+            }
+
+            assertEquals(0, index.indexOf(0));
+            assertEquals(42, index.indexOf(getTimestamp(42)));
+            assertEquals(43, index.indexOf(getTimestamp(42) + 1));
+            assertEquals(EVENT_COUNT, index.indexOf(Long.MAX_VALUE));
+
+            //Attitudes only, from the 20th to the 30th event.
+            Iterator<TLogParser.Event> iterator = index.iterator(getTimestamp(20), getTimestamp(30),
+                    msg_attitude.MAVLINK_MSG_ID_ATTITUDE);
+            for (int i = 21; i < 30; i += 2) {
+                assertTrue(iterator.hasNext());
+                assertEvent(i, iterator.next());
+            }
+            assertFalse(iterator.hasNext());
+
+            try {
+                index.getEvent(EVENT_COUNT);
+                fail("Out of range event returned.");
+            } catch (IndexOutOfBoundsException e) {
+                //Expected
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    public void testTruncatedLastRecordIsSkipped() throws Exception {
+        byte[] log = createLog(new int[EVENT_COUNT]);
+        TLogIndex index = openIndex(Arrays.copyOf(log, log.length - 3));
+        try {
+            assertEquals(EVENT_COUNT - 1, index.size());
+            assertEvent(EVENT_COUNT - 2, index.getEvent(EVENT_COUNT - 2));
+        } finally {
+            index.close();
+        }
+    }
+
+    public void testCorruptRecordIsSkipped() throws Exception {
+        final int corrupted = 50;
+        int[] recordOffsets = new int[EVENT_COUNT];
+        byte[] log = createLog(recordOffsets);
+
+        //Flip a payload byte, the crc no longer matches.
+        log[recordOffsets[corrupted] + TLogIndex.TIMESTAMP_LENGTH + TLogIndex.HEADER_LENGTH] ^= 0x5A;
+
+        TLogIndex index = openIndex(log);
+        try {
+            assertEquals(EVENT_COUNT - 1, index.size());
+            assertEquals(recordOffsets[corrupted + 1] - recordOffsets[corrupted], index.getSkippedBytes());
+            for (int i = 0; i < EVENT_COUNT - 1; i++) {
+                assertEvent(i < corrupted ? i : i + 1, index.getEvent(i));
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    public void testFrameValidation() throws Exception {
+        final byte[] frame = createMessage(1).pack().encodePacket();
+        final ByteBuffer buffer = ByteBuffer.wrap(frame);
+        final CRC crc = new CRC();
+
+        assertEquals(frame.length, TLogIndex.validateFrame(buffer, crc, 0, frame.length));
+        assertEquals(-1, TLogIndex.validateFrame(buffer, crc, 1, frame.length));
+        assertEquals(-1, TLogIndex.validateFrame(buffer, crc, 0, frame.length - 1));
+
+        MAVLinkPacket packet = TLogIndex.readPacket(buffer, 0);
+        assertEquals(msg_attitude.MAVLINK_MSG_ID_ATTITUDE, packet.msgid);
+        assertTrue(Arrays.equals(frame, packet.encodePacket()));
+
+        frame[frame.length - 1] ^= 0x01;
+        assertEquals(-1, TLogIndex.validateFrame(buffer, crc, 0, frame.length));
+    }
+}
@@ -0,0 +1,124 @@
+package com.o3dr.android.client.utils.data.tlog;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_encapsulated_data;
+import com.MAVLink.common.msg_heartbeat;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+public class TLogParserTest extends TestCase {
+
+    private static final long START_TIME = 1500000000000L; //ms
+
+    private static final TLogParserFilter ALL_EVENTS = new TLogParserFilter() {
+        @Override
+        public boolean includeEvent(TLogParser.Event e) {
+            return true;
+        }
+
+        @Override
+        public boolean shouldIterate() {
+            return true;
+        }
+    };
+
+    private static byte[] createRecord(long timestamp, MAVLinkMessage message) {
+        final byte[] frame = message.pack().encodePacket();
+        return ByteBuffer.allocate(TLogIndex.TIMESTAMP_LENGTH + frame.length)
+                .putLong(timestamp * 1000)
+                .put(frame)
+                .array();
+    }
+
+    /**
+     * @return a message whose payload holds a whole valid record, which a decoder resynchronizing within
+     * the message would take for a real one.
+     */
+    private static msg_encapsulated_data createRecordCarrier(int index) {
+        msg_heartbeat heartbeat = new msg_heartbeat();
+        heartbeat.custom_mode = 0xBAD;
+        final byte[] record = createRecord(START_TIME - 1000, heartbeat);
+
+        msg_encapsulated_data carrier = new msg_encapsulated_data();
+        carrier.seqnr = index;
+        for (int i = 0; i < carrier.data.length; i++) {
+            carrier.data[i] = (short) (i * 7 & 0xFF);
+        }
+        for (int i = 0; i < record.length; i++) {
+            carrier.data[100 + i] = (short) (record[i] & 0xFF);
+        }
+        return carrier;
+    }
+
+    private static byte[] createLog() throws Exception {
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        for (int i = 0; i < 90; i++) {
+            final MAVLinkMessage message;
+            switch (i % 3) {
+                case 0:
+                    msg_heartbeat heartbeat = new msg_heartbeat();
+                    heartbeat.custom_mode = i;
+                    message = heartbeat;
+                    break;
+
+                case 1:
+                    msg_attitude attitude = new msg_attitude();
+                    attitude.time_boot_ms = i;
+                    attitude.yaw = i * 0.01f;
+                    message = attitude;
+                    break;
+
+                default:
+                    message = createRecordCarrier(i);
+                    break;
+            }
+            log.write(createRecord(START_TIME + i * 10, message));
+        }
+        return log.toByteArray();
+    }
+
+    private static void assertSameEvents(List<TLogParser.Event> expected, List<TLogParser.Event> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getTimestamp(), actual.get(i).getTimestamp());
+            assertTrue(Arrays.equals(expected.get(i).getMavLinkMessage().pack().encodePacket(),
+                    actual.get(i).getMavLinkMessage().pack().encodePacket()));
+        }
+    }
+
+    public void testParallelDecodingMatchesSequentialDecoding() throws Exception {
+        final byte[] log = createLog();
+        final List<TLogParser.Event> expected = TLogParser.getAllEvents(new ByteArrayInputStream(log), ALL_EVENTS);
+        assertEquals(90, expected.size());
+
+        //Most chunk boundaries fall inside records, many of them before a record carried in a payload.
+        for (int chunkCount = 1; chunkCount <= 64; chunkCount++) {
+            assertSameEvents(expected, TLogParser.decodeParallel(ByteBuffer.wrap(log), chunkCount, null));
+        }
+    }
+
+    public void testParallelDecodingAppliesTheFilter() throws Exception {
+        final byte[] log = createLog();
+        final TLogIteratorFilter attitudes = new TLogIteratorFilter() {
+            @Override
+            public boolean acceptEvent(TLogParser.Event event) {
+                return event.getMavLinkMessage().msgid == msg_attitude.MAVLINK_MSG_ID_ATTITUDE;
+            }
+        };
+
+        for (int chunkCount = 1; chunkCount <= 16; chunkCount++) {
+            List<TLogParser.Event> events = TLogParser.decodeParallel(ByteBuffer.wrap(log), chunkCount, attitudes);
+            assertEquals(30, events.size());
+            for (int i = 0; i < events.size(); i++) {
+                assertEquals(START_TIME + (i * 3 + 1) * 10, events.get(i).getTimestamp());
+            }
+        }
+    }
+}
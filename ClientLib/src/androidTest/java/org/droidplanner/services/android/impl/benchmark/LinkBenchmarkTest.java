@@ -0,0 +1,428 @@
+package org.droidplanner.services.android.impl.benchmark;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_command_ack;
+import com.MAVLink.common.msg_command_long;
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+import com.o3dr.android.client.BuildConfig;
+import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
+import com.o3dr.services.android.lib.drone.property.Parameter;
+import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+
+import org.droidplanner.services.android.impl.communication.model.DataLink;
+import org.droidplanner.services.android.impl.core.MAVLink.WaypointManager;
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnection;
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionListener;
+import org.droidplanner.services.android.impl.core.drone.DroneInterfaces;
+import org.droidplanner.services.android.impl.core.drone.LogMessageListener;
+import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
+import org.droidplanner.services.android.impl.core.drone.autopilot.apm.ArduCopter;
+import org.droidplanner.services.android.impl.core.firmware.FirmwareType;
+import org.droidplanner.services.android.impl.mock.LoopbackMAVLinkClient;
+import org.droidplanner.services.android.impl.mock.LoopbackMavLinkConnection;
+import org.droidplanner.services.android.impl.mock.MockAutopilot;
+import org.droidplanner.services.android.impl.utils.AndroidApWarningParser;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * End to end throughput and latency benchmarks of the mavlink link, run against a {@link MockAutopilot}.
+ * Each measurement is appended to a csv file (build/benchmarks/link-benchmarks.csv by default, or the
+ * path set in the 'benchmark.output' system property) so regressions can be tracked across builds.
+ * <p/>
+ * They take a while, so they're skipped unless the 'benchmark' system property is true, e.g. with
+ * {@code ./gradlew test -Dbenchmark=true}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class LinkBenchmarkTest {
+
+    private static final String ENABLED_PROPERTY = "benchmark";
+    private static final String OUTPUT_PROPERTY = "benchmark.output";
+    private static final String DEFAULT_OUTPUT = "build/benchmarks/link-benchmarks.csv";
+
+    private static final int THROUGHPUT_FRAME_COUNT = 100000;
+    private static final int PARAM_COUNT = 800;
+    private static final int MISSION_ITEM_COUNT = 200;
+    private static final int COMMAND_COUNT = 200;
+
+    private static final double LOSSY_LINK_LOSS_RATE = 0.1;
+
+    private static final long BENCHMARK_TIMEOUT = 60000L; //ms
+
+    private final LinkedBlockingQueue<MAVLinkPacket> receivedPackets = new LinkedBlockingQueue<>();
+
+    private final DataLink.DataLinkListener<MAVLinkPacket> inputStreamListener = new DataLink.DataLinkListener<MAVLinkPacket>() {
+        @Override
+        public void notifyReceivedData(MAVLinkPacket packet) {
+            receivedPackets.offer(packet);
+        }
+
+        @Override
+        public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
+        }
+    };
+
+    private Context context;
+    private MockAutopilot autopilot;
+
+    @Before
+    public void setUp() {
+        Assume.assumeTrue(Boolean.getBoolean(ENABLED_PROPERTY));
+
+        context = RuntimeEnvironment.application.getApplicationContext();
+        autopilot = new MockAutopilot(PARAM_COUNT, 0);
+    }
+
+    @After
+    public void tearDown() {
+        if (autopilot != null) {
+            autopilot.stop();
+        }
+    }
+
+    /**
+     * Measures how many packets per second go through the connection reader and parser.
+     */
+    @Test
+    public void testConnectionThroughput() throws Exception {
+        final CountDownLatch receiptLatch = new CountDownLatch(THROUGHPUT_FRAME_COUNT);
+        final LoopbackMavLinkConnection connection = new LoopbackMavLinkConnection(context, autopilot);
+        connection.addMavLinkConnectionListener("benchmark", new MavLinkConnectionListener() {
+            @Override
+            public void onReceivePacket(MAVLinkPacket packet) {
+                receiptLatch.countDown();
+            }
+
+            @Override
+            public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
+            }
+        });
+
+        connection.connect(null);
+        waitForConnection(connection);
+
+        final long start = System.nanoTime();
+        autopilot.sendTelemetryBurst(THROUGHPUT_FRAME_COUNT);
+        Assert.assertTrue(receiptLatch.await(BENCHMARK_TIMEOUT, TimeUnit.MILLISECONDS));
+        final long elapsed = System.nanoTime() - start;
+
+        connection.disconnect();
+
+        final double packetsPerSecond = THROUGHPUT_FRAME_COUNT * 1e9 / elapsed;
+        record("connection_throughput", "packets_per_s", packetsPerSecond);
+    }
+
+    /**
+     * Measures the duration of a full parameters download through the parameter manager.
+     */
+    @Test
+    public void testParametersDownload() throws Exception {
+        record("parameters_download", "ms", downloadParameters());
+    }
+
+    /**
+     * Measures the duration of a full parameters download over a link dropping 10% of the vehicle
+     * packets, so the recovery of the missing parameters is exercised.
+     */
+    @Test
+    public void testParametersDownloadWithLoss() throws Exception {
+        autopilot.setLossRate(LOSSY_LINK_LOSS_RATE);
+        record("parameters_download_loss10", "ms", downloadParameters());
+    }
+
+    /**
+     * @return duration of the parameters download, in milliseconds.
+     */
+    private double downloadParameters() throws Exception {
+        final MavLinkDrone drone = connectDrone();
+
+        final AtomicBoolean isDone = new AtomicBoolean(false);
+        drone.getParameterManager().setParameterListener(new DroneInterfaces.OnParameterManagerListener() {
+            @Override
+            public void onBeginReceivingParameters() {
+            }
+
+            @Override
+            public void onParameterReceived(Parameter parameter, int index, int count) {
+            }
+
+            @Override
+            public void onParametersDownloadProgress(int receivedCount, int count, long eta) {
+            }
+
+            @Override
+            public void onEndReceivingParameters() {
+                isDone.set(true);
+            }
+        });
+
+        final long start = System.nanoTime();
+        drone.getParameterManager().refreshParameters();
+        dispatchUntil(drone, isDone);
+        final long elapsed = System.nanoTime() - start;
+
+        Assert.assertEquals(PARAM_COUNT, drone.getParameterManager().getParameters().size());
+        return elapsed / 1e6;
+    }
+
+    /**
+     * Measures the duration of a mission upload through the waypoint manager.
+     */
+    @Test
+    public void testMissionUpload() throws Exception {
+        final MavLinkDrone drone = connectDrone();
+        final List<msg_mission_item> mission = createMission();
+
+        final double elapsed = transferMission(drone, WaypointManager.WaypointEvent_Type.WP_UPLOAD, mission).elapsed;
+
+        Assert.assertEquals(MISSION_ITEM_COUNT, autopilot.getMission().size());
+        record("mission_upload", "ms", elapsed);
+        record("mission_upload", "items_per_s", MISSION_ITEM_COUNT * 1e3 / elapsed);
+    }
+
+    /**
+     * Measures the duration of a mission re-upload, after a single item was modified.
+     */
+    @Test
+    public void testMissionPartialUpload() throws Exception {
+        final MavLinkDrone drone = connectDrone();
+        final List<msg_mission_item> mission = createMission();
+        transferMission(drone, WaypointManager.WaypointEvent_Type.WP_UPLOAD, mission);
+
+        final int modifiedIndex = MISSION_ITEM_COUNT / 2;
+        mission.get(modifiedIndex).z = 40;
+        final MissionTransfer transfer = transferMission(drone, WaypointManager.WaypointEvent_Type.WP_UPLOAD, mission);
+
+        Assert.assertEquals(1, transfer.progress.getCount());
+        Assert.assertEquals(40f, autopilot.getMission().get(modifiedIndex).z, 0f);
+        record("mission_partial_upload", "ms", transfer.elapsed);
+    }
+
+    /**
+     * Measures the duration of a mission download over a link dropping 10% of the frames.
+     */
+    @Test
+    public void testMissionDownloadWithLoss() throws Exception {
+        final MavLinkDrone drone = connectDrone();
+        transferMission(drone, WaypointManager.WaypointEvent_Type.WP_UPLOAD, createMission());
+
+        autopilot.setLossRate(LOSSY_LINK_LOSS_RATE);
+        final MissionTransfer transfer = transferMission(drone, WaypointManager.WaypointEvent_Type.WP_DOWNLOAD, null);
+
+        Assert.assertEquals(MISSION_ITEM_COUNT, transfer.progress.getTransferredCount());
+        record("mission_download_loss10", "ms", transfer.elapsed);
+        record("mission_download_loss10", "retries", transfer.progress.getRetries());
+    }
+
+    private static List<msg_mission_item> createMission() {
+        final List<msg_mission_item> mission = new ArrayList<>(MISSION_ITEM_COUNT);
+        for (int i = 0; i < MISSION_ITEM_COUNT; i++) {
+            msg_mission_item item = new msg_mission_item();
+            item.seq = i;
+            item.command = MAV_CMD.MAV_CMD_NAV_WAYPOINT;
+            item.frame = MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT;
+            item.x = 37.7749f + i * 1e-4f;
+            item.y = -122.4194f;
+            item.z = 20;
+            item.autocontinue = 1;
+            mission.add(item);
+        }
+        return mission;
+    }
+
+    private static class MissionTransfer {
+        double elapsed;
+        WaypointManager.TransferProgress progress;
+    }
+
+    /**
+     * Uploads the given mission, or downloads the vehicle mission if null, and waits for the transfer to end.
+     */
+    private MissionTransfer transferMission(MavLinkDrone drone, final WaypointManager.WaypointEvent_Type type,
+                                            List<msg_mission_item> mission) throws Exception {
+        final MissionTransfer transfer = new MissionTransfer();
+        final AtomicBoolean isDone = new AtomicBoolean(false);
+        drone.getWaypointManager().setWaypointManagerListener(new DroneInterfaces.OnWaypointManagerListener() {
+            @Override
+            public void onBeginWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent) {
+            }
+
+            @Override
+            public void onWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent, int index, int count) {
+            }
+
+            @Override
+            public void onWaypointTransferProgress(WaypointManager.WaypointEvent_Type wpEvent, WaypointManager.TransferProgress progress) {
+                transfer.progress = progress;
+            }
+
+            @Override
+            public void onEndWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent) {
+                if (wpEvent == type) {
+                    isDone.set(true);
+                }
+            }
+        });
+
+        final long start = System.nanoTime();
+        if (mission == null) {
+            drone.getWaypointManager().getWaypoints();
+        } else {
+            drone.getWaypointManager().writeWaypoints(mission);
+        }
+        dispatchUntil(drone, isDone);
+        transfer.elapsed = (System.nanoTime() - start) / 1e6;
+        return transfer;
+    }
+
+    /**
+     * Measures the round trip latency between a command submission and the receipt of its ack.
+     */
+    @Test
+    public void testCommandAckLatency() throws Exception {
+        final AtomicInteger ackCount = new AtomicInteger();
+        final LinkedBlockingQueue<Long> ackTimes = new LinkedBlockingQueue<>();
+        final LoopbackMavLinkConnection connection = new LoopbackMavLinkConnection(context, autopilot);
+        connection.addMavLinkConnectionListener("benchmark", new MavLinkConnectionListener() {
+            @Override
+            public void onReceivePacket(MAVLinkPacket packet) {
+                if (packet.msgid == msg_command_ack.MAVLINK_MSG_ID_COMMAND_ACK) {
+                    ackCount.incrementAndGet();
+                    ackTimes.offer(System.nanoTime());
+                }
+            }
+
+            @Override
+            public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
+            }
+        });
+
+        connection.connect(null);
+        waitForConnection(connection);
+
+        final long[] latencies = new long[COMMAND_COUNT];
+        final msg_command_long command = new msg_command_long();
+        command.command = MAV_CMD.MAV_CMD_DO_SET_MODE;
+        command.target_system = MockAutopilot.SYSTEM_ID;
+        command.target_component = MockAutopilot.COMPONENT_ID;
+
+        for (int i = 0; i < COMMAND_COUNT; i++) {
+            final long sendTime = System.nanoTime();
+            connection.sendMavPacket(command.pack());
+
+            final Long ackTime = ackTimes.poll(BENCHMARK_TIMEOUT, TimeUnit.MILLISECONDS);
+            Assert.assertNotNull("Command ack timed out.", ackTime);
+            latencies[i] = ackTime - sendTime;
+        }
+
+        connection.disconnect();
+
+        Assert.assertEquals(COMMAND_COUNT, ackCount.get());
+        Arrays.sort(latencies);
+        record("command_ack_latency", "p50_us", latencies[COMMAND_COUNT / 2] / 1e3);
+        record("command_ack_latency", "p99_us", latencies[COMMAND_COUNT * 99 / 100] / 1e3);
+    }
+
+    private MavLinkDrone connectDrone() throws InterruptedException {
+        final ConnectionParameter connParams = ConnectionParameter.newUsbConnection(57600, null, 0L);
+        final LoopbackMAVLinkClient mavClient = new LoopbackMAVLinkClient(context, inputStreamListener, connParams, autopilot);
+
+        final MavLinkDrone drone = new ArduCopter("test:" + FirmwareType.ARDU_COPTER.getType(), context, mavClient,
+                new Handler(), new AndroidApWarningParser(), new LogMessageListener() {
+            @Override
+            public void onMessageLogged(int logLevel, String message) {
+            }
+        });
+
+        mavClient.openConnection();
+        final long deadline = System.currentTimeMillis() + BENCHMARK_TIMEOUT;
+        while (!mavClient.isConnected()) {
+            Assert.assertTrue("Loopback connection timed out.", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+
+        return drone;
+    }
+
+    /**
+     * Dispatches the received packets to the drone, and runs the posted tasks on the main looper,
+     * until the given flag is set.
+     * The main looper clock is kept in step with the wall clock, so the delayed tasks (i.e: timeouts)
+     * run as well.
+     */
+    private void dispatchUntil(MavLinkDrone drone, AtomicBoolean flag) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + BENCHMARK_TIMEOUT;
+        long lastTick = System.currentTimeMillis();
+        while (!flag.get()) {
+            Assert.assertTrue("Benchmark timed out.", System.currentTimeMillis() < deadline);
+
+            final MAVLinkPacket packet = receivedPackets.poll(1, TimeUnit.MILLISECONDS);
+            if (packet != null) {
+                final MAVLinkMessage message = packet.unpack();
+                if (message != null) {
+                    drone.onMavLinkMessageReceived(message);
+                }
+            }
+
+            final long now = System.currentTimeMillis();
+            ShadowLooper.idleMainLooper(now - lastTick);
+            lastTick = now;
+        }
+    }
+
+    private static void waitForConnection(MavLinkConnection connection) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + BENCHMARK_TIMEOUT;
+        while (connection.getConnectionStatus() != MavLinkConnection.MAVLINK_CONNECTED) {
+            Assert.assertTrue("Loopback connection timed out.", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private static void record(String benchmark, String unit, double value) throws IOException {
+        final File output = new File(System.getProperty(OUTPUT_PROPERTY, DEFAULT_OUTPUT));
+        final File parent = output.getParentFile();
+        if (parent != null && !parent.isDirectory() && !parent.mkdirs()) {
+            throw new IOException("Unable to create benchmark output directory " + parent);
+        }
+
+        final boolean isNewFile = !output.exists();
+        final PrintWriter writer = new PrintWriter(new FileWriter(output, true));
+        try {
+            if (isNewFile) {
+                writer.println("timestamp,benchmark,unit,value");
+            }
+            writer.println(String.format(Locale.US, "%d,%s,%s,%.3f", System.currentTimeMillis(), benchmark, unit, value));
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,233 @@
+package org.droidplanner.services.android.impl.communication.connection;
+
+import android.os.Bundle;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.common.msg_heartbeat;
+import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionListener;
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionTypes;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selection of the link used for sending, over two links carrying the same frames.
+ */
+public class MultiLinkConnectionTest extends TestCase {
+
+    private static final long STALE_LINK_TIMEOUT = 200L; //ms
+
+    /**
+     * How much later the slow link receives each frame.
+     */
+    private static final long SLOW_LINK_DELAY = 20L; //ms
+
+    private static final long WAIT_TIMEOUT = 2000L; //ms
+
+    /**
+     * Link whose incoming frames are supplied by the test, and which records the frames sent over it.
+     */
+    private static class FakeLink extends AndroidMavLinkConnection {
+
+        private final LinkedBlockingQueue<byte[]> incomingFrames = new LinkedBlockingQueue<>();
+        private final LinkedBlockingQueue<byte[]> sentFrames = new LinkedBlockingQueue<>();
+
+        FakeLink() {
+            super(null);
+        }
+
+        @Override
+        protected void openConnection(Bundle connectionExtras) throws IOException {
+            onConnectionOpened(connectionExtras);
+        }
+
+        @Override
+        protected int readDataBlock(byte[] buffer) throws IOException {
+            final byte[] frame;
+            try {
+                frame = incomingFrames.poll(100, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException(e.getMessage());
+            }
+
+            if (frame == null) {
+                return 0;
+            }
+
+            System.arraycopy(frame, 0, buffer, 0, frame.length);
+            return frame.length;
+        }
+
+        @Override
+        protected void sendBuffer(byte[] buffer) throws IOException {
+            sentFrames.offer(buffer);
+        }
+
+        @Override
+        protected void closeConnection() throws IOException {
+        }
+
+        @Override
+        protected void loadPreferences() {
+        }
+
+        @Override
+        public int getConnectionType() {
+            return MavLinkConnectionTypes.MAVLINK_CONNECTION_UDP;
+        }
+    }
+
+    private final LinkedBlockingQueue<MAVLinkPacket> receivedPackets = new LinkedBlockingQueue<>();
+
+    private FakeLink[] links;
+    private MultiLinkConnection connection;
+    private int sequence;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        links = new FakeLink[]{new FakeLink(), new FakeLink()};
+        connection = new MultiLinkConnection(null, Arrays.asList(links),
+                TimeUnit.MILLISECONDS.toNanos(STALE_LINK_TIMEOUT));
+        connection.addMavLinkConnectionListener("test", new MavLinkConnectionListener() {
+            @Override
+            public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
+            }
+
+            @Override
+            public void onReceivePacket(MAVLinkPacket packet) {
+                receivedPackets.offer(packet);
+            }
+        });
+
+        connection.connect(null);
+        final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (!isConnected()) {
+            assertTrue("Links didn't connect.", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        connection.disconnect();
+        super.tearDown();
+    }
+
+    private boolean isConnected() {
+        return connection.getConnectionStatus() == MultiLinkConnection.MAVLINK_CONNECTED
+                && links[0].getConnectionStatus() == MultiLinkConnection.MAVLINK_CONNECTED
+                && links[1].getConnectionStatus() == MultiLinkConnection.MAVLINK_CONNECTED;
+    }
+
+    private byte[] createFrame() {
+        msg_heartbeat heartbeat = new msg_heartbeat();
+        heartbeat.custom_mode = sequence;
+        MAVLinkPacket packet = heartbeat.pack();
+        packet.sysid = 1;
+        packet.compid = 1;
+        packet.seq = sequence++ & 0xFF;
+        return packet.encodePacket();
+    }
+
+    /**
+     * Receives a frame over the given link only.
+     */
+    private void receive(int link) throws Exception {
+        links[link].incomingFrames.offer(createFrame());
+        assertNotNull("Frame not received.", receivedPackets.poll(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+    }
+
+    /**
+     * Receives frames over both links, the slow link getting each of them {@link #SLOW_LINK_DELAY} later.
+     */
+    private void receive(int fastLink, int slowLink, int frameCount) throws Exception {
+        for (int i = 0; i < frameCount; i++) {
+            final byte[] frame = createFrame();
+            links[fastLink].incomingFrames.offer(frame);
+            assertNotNull("Frame not received.", receivedPackets.poll(WAIT_TIMEOUT, TimeUnit.MILLISECONDS));
+
+            Thread.sleep(SLOW_LINK_DELAY);
+            final long duplicateCount = connection.getDuplicateCount();
+            links[slowLink].incomingFrames.offer(frame);
+            final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+            while (connection.getDuplicateCount() == duplicateCount) {
+                assertTrue("Duplicate not received.", System.currentTimeMillis() < deadline);
+                Thread.sleep(1);
+            }
+        }
+
+        assertTrue(receivedPackets.isEmpty());
+    }
+
+    /**
+     * Sends a frame through the connection.
+     *
+     * @return index of the link the frame was sent over.
+     */
+    private int send() throws Exception {
+        final byte[] frame = createFrame();
+        connection.sendEncodedPacket(frame);
+
+        final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (System.currentTimeMillis() < deadline) {
+            for (int i = 0; i < links.length; i++) {
+                final byte[] sentFrame = links[i].sentFrames.poll();
+                if (sentFrame != null) {
+                    assertTrue(Arrays.equals(frame, sentFrame));
+                    assertEquals(i, connection.getActiveLinkIndex());
+                    return i;
+                }
+            }
+            Thread.sleep(1);
+        }
+
+        fail("Frame not sent.");
+        return -1;
+    }
+
+    public void testLowestLatencyLinkIsSelected() throws Exception {
+        //The second link is the fastest, so it's preferred over the first one.
+        receive(1, 0, 3);
+        assertEquals(1, send());
+        assertEquals(3, connection.getDuplicateCount());
+
+        receive(0, 1, 3);
+        assertEquals(0, send());
+    }
+
+    public void testSilentLinkFailsOver() throws Exception {
+        receive(1, 0, 3);
+        assertEquals(1, send());
+
+        //The fast link goes silent, while the slow one keeps receiving.
+        Thread.sleep(STALE_LINK_TIMEOUT + 50);
+        receive(0);
+        assertEquals(0, send());
+    }
+
+    public void testRecoveredLinkIsSelectedAgain() throws Exception {
+        receive(1, 0, 3);
+        Thread.sleep(STALE_LINK_TIMEOUT + 50);
+        receive(0);
+        assertEquals(0, send());
+
+        //The fast link is heard from again.
+        receive(1, 0, 3);
+        assertEquals(1, send());
+    }
+
+    public void testLastHeardLinkIsUsedWhenAllAreSilent() throws Exception {
+        receive(1, 0, 1);
+        receive(0);
+        Thread.sleep(STALE_LINK_TIMEOUT + 50);
+        assertEquals(0, send());
+    }
+}
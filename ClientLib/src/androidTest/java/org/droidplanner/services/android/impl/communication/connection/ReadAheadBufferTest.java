@@ -0,0 +1,198 @@
+package org.droidplanner.services.android.impl.communication.connection;
+
+import org.droidplanner.services.android.impl.core.MAVLink.connection.LinkMetricsRegistry;
+
+import junit.framework.TestCase;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ReadAheadBufferTest extends TestCase {
+
+    private static final long WAIT_TIMEOUT = 2000L; //ms
+
+    /**
+     * Stream returning the chunks supplied by the test, one read per chunk unless the read is shorter.
+     */
+    private static class ChunkStream extends InputStream {
+
+        private static final byte[] ERROR = new byte[0];
+
+        private final LinkedBlockingQueue<byte[]> chunks = new LinkedBlockingQueue<>();
+        private final IOException error = new IOException("Link lost.");
+
+        private byte[] chunk;
+        private int chunkPos;
+
+        void feed(byte[] data) {
+            chunks.offer(data);
+        }
+
+        void fail() {
+            chunks.offer(ERROR);
+        }
+
+        @Override
+        public int available() {
+            return chunk == null || chunk == ERROR ? 0 : chunk.length - chunkPos;
+        }
+
+        @Override
+        public int read() throws IOException {
+            final byte[] buffer = new byte[1];
+            return read(buffer, 0, 1) < 0 ? -1 : buffer[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            if (chunk == null) {
+                try {
+                    chunk = chunks.take();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException(e.getMessage());
+                }
+                chunkPos = 0;
+            }
+
+            if (chunk == ERROR) {
+                throw error;
+            }
+
+            final int readCount = Math.min(length, chunk.length - chunkPos);
+            System.arraycopy(chunk, chunkPos, buffer, offset, readCount);
+            chunkPos += readCount;
+            if (chunkPos == chunk.length) {
+                chunk = null;
+            }
+            return readCount;
+        }
+    }
+
+    private static class RecordingMetrics extends LinkMetricsRegistry {
+
+        private volatile int bufferedBytes;
+        private final AtomicInteger parsedBursts = new AtomicInteger();
+
+        @Override
+        public void onTransportBuffered(int bufferedBytes) {
+            super.onTransportBuffered(bufferedBytes);
+            this.bufferedBytes = bufferedBytes;
+        }
+
+        @Override
+        public void onTransportBurstParsed(long latency) {
+            super.onTransportBurstParsed(latency);
+            parsedBursts.incrementAndGet();
+        }
+    }
+
+    private final ChunkStream stream = new ChunkStream();
+    private final RecordingMetrics metrics = new RecordingMetrics();
+
+    private ReadAheadBuffer readAhead;
+
+    @Override
+    protected void tearDown() throws Exception {
+        if (readAhead != null) {
+            readAhead.stop();
+        }
+        super.tearDown();
+    }
+
+    private void startReadAhead(int capacity) {
+        readAhead = new ReadAheadBuffer(stream, capacity, metrics);
+        readAhead.start();
+    }
+
+    /**
+     * @return the given count of bytes, numbered from the given value.
+     */
+    private static byte[] createData(int first, int length) {
+        final byte[] data = new byte[length];
+        for (int i = 0; i < length; i++) {
+            data[i] = (byte) (first + i);
+        }
+        return data;
+    }
+
+    private void waitForBufferedBytes(int bufferedBytes) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + WAIT_TIMEOUT;
+        while (metrics.bufferedBytes != bufferedBytes) {
+            assertTrue("Data not buffered.", System.currentTimeMillis() < deadline);
+            Thread.sleep(1);
+        }
+    }
+
+    private void assertRead(byte[] expected, int bufferLength) throws IOException {
+        final byte[] buffer = new byte[bufferLength];
+        assertEquals(expected.length, readAhead.read(buffer));
+        assertTrue(Arrays.equals(expected, Arrays.copyOf(buffer, expected.length)));
+    }
+
+    public void testCopyWrapsAroundTheRing() throws Exception {
+        startReadAhead(16);
+        stream.feed(createData(0, 10));
+        waitForBufferedBytes(10);
+        assertRead(createData(0, 6), 6);
+
+        //Fills the end of the ring, then its start.
+        stream.feed(createData(10, 10));
+        waitForBufferedBytes(14);
+        assertRead(createData(6, 14), 32);
+
+        assertEquals(-1, readAhead.read(new byte[32]));
+    }
+
+    public void testBurstsBeyondTheTrackedCountAreMerged() throws Exception {
+        final int burstCount = 300;
+        startReadAhead(1024);
+        for (int i = 0; i < burstCount; i++) {
+            stream.feed(createData(i, 1));
+            waitForBufferedBytes(i + 1);
+        }
+
+        assertRead(createData(0, 100), 100);
+        assertEquals(100, metrics.parsedBursts.get());
+        assertRead(createData(100, 155), 155);
+        assertEquals(255, metrics.parsedBursts.get());
+
+        //The bursts past the tracked count were merged into the last tracked one.
+        assertRead(createData(255, 44), 44);
+        assertEquals(255, metrics.parsedBursts.get());
+        assertRead(createData(299, 1), 1);
+        assertEquals(256, metrics.parsedBursts.get());
+
+        //Tracking resumes once the bursts are parsed.
+        stream.feed(createData(0, 8));
+        stream.feed(createData(8, 8));
+        waitForBufferedBytes(16);
+        assertRead(createData(0, 8), 8);
+        assertEquals(257, metrics.parsedBursts.get());
+        assertRead(createData(8, 8), 8);
+        assertEquals(258, metrics.parsedBursts.get());
+    }
+
+    public void testReadErrorIsReportedOnceTheBufferIsDrained() throws Exception {
+        startReadAhead(64);
+        stream.feed(createData(0, 10));
+        waitForBufferedBytes(10);
+        stream.fail();
+
+        assertRead(createData(0, 4), 4);
+        assertRead(createData(4, 4), 4);
+        assertRead(createData(8, 2), 4);
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                readAhead.read(new byte[4]);
+                fail("Read error not reported.");
+            } catch (IOException e) {
+                assertSame(stream.error, e);
+            }
+        }
+    }
+}
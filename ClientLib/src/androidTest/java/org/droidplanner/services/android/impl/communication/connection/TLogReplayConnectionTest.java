@@ -0,0 +1,174 @@
+package org.droidplanner.services.android.impl.communication.connection;
+
+import com.MAVLink.common.msg_heartbeat;
+import com.o3dr.android.client.utils.data.tlog.TLogIndex;
+import com.o3dr.services.android.lib.drone.connection.ConnectionType;
+
+import junit.framework.TestCase;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Replay of a generated tlog, whose frames are {@link #FRAME_INTERVAL} ms apart.
+ */
+public class TLogReplayConnectionTest extends TestCase {
+
+    private static final int FRAME_COUNT = 11;
+    private static final long FRAME_INTERVAL = 40; //ms
+    private static final long START_TIME = 1500000000000L; //ms
+
+    /**
+     * Slack allowed on the measured pacing, for the scheduling of the test threads.
+     */
+    private static final long TOLERANCE = 150; //ms
+
+    private File file;
+    private TLogIndex index;
+    private int frameLength;
+
+    private final byte[] buffer = new byte[4096];
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        file = File.createTempFile("replay", ".tlog");
+
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            for (int i = 0; i < FRAME_COUNT; i++) {
+                msg_heartbeat heartbeat = new msg_heartbeat();
+                heartbeat.custom_mode = i;
+                byte[] frame = heartbeat.pack().encodePacket();
+                frameLength = frame.length;
+                out.write(ByteBuffer.allocate(8 + frame.length)
+                        .putLong(getTimestamp(i) * 1000)
+                        .put(frame)
+                        .array());
+            }
+        } finally {
+            out.close();
+        }
+
+        index = TLogIndex.open(file);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        index.close();
+        file.delete();
+        super.tearDown();
+    }
+
+    private static long getTimestamp(int frame) {
+        return START_TIME + frame * FRAME_INTERVAL;
+    }
+
+    private TLogReplayConnection startReplay(double speed, long startTime, boolean loop) {
+        TLogReplayConnection replay = new TLogReplayConnection(null, null, speed, startTime, loop);
+        replay.startReplay(index);
+        return replay;
+    }
+
+    /**
+     * @return the time in ms taken to read the given count of frames.
+     */
+    private long readFrames(TLogReplayConnection replay, int frameCount) throws Exception {
+        final long start = System.nanoTime();
+        final long target = replay.getReplayedFrameCount() + frameCount;
+        while (replay.getReplayedFrameCount() < target) {
+            replay.readDataBlock(buffer);
+        }
+        assertEquals(target, replay.getReplayedFrameCount());
+        return (System.nanoTime() - start) / 1000000L;
+    }
+
+    private static void assertDuration(long expected, long actual) {
+        assertTrue("Took " + actual + " ms instead of " + expected, actual >= expected - 5);
+        assertTrue("Took " + actual + " ms instead of " + expected, actual < expected + TOLERANCE);
+    }
+
+    public void testFramesArePacedByTheRecordedTime() throws Exception {
+        TLogReplayConnection replay = startReplay(1, 0, false);
+        assertDuration((FRAME_COUNT - 1) * FRAME_INTERVAL, readFrames(replay, FRAME_COUNT));
+    }
+
+    public void testSpeedFactorScalesThePacing() throws Exception {
+        TLogReplayConnection replay = startReplay(4, 0, false);
+        assertDuration((FRAME_COUNT - 1) * FRAME_INTERVAL / 4, readFrames(replay, FRAME_COUNT));
+    }
+
+    public void testMaxSpeedStreamsEveryFrameAtOnce() throws Exception {
+        TLogReplayConnection replay = startReplay(ConnectionType.TLOG_REPLAY_SPEED_MAX, 0, false);
+        assertEquals(FRAME_COUNT * frameLength, replay.readDataBlock(buffer));
+        assertEquals(FRAME_COUNT * frameLength, replay.getReplayedByteCount());
+
+        try {
+            replay.readDataBlock(buffer);
+            fail("Replay didn't end.");
+        } catch (EOFException e) {
+            //Expected
+        }
+    }
+
+    public void testSpeedChangeTakesEffectFromTheNextFrame() throws Exception {
+        TLogReplayConnection replay = startReplay(1, 0, false);
+        assertDuration(4 * FRAME_INTERVAL, readFrames(replay, 5));
+
+        //The pacing restarts from the next frame, without catching up nor waiting for the elapsed time.
+        replay.setReplaySpeed(2);
+        assertEquals(2, replay.getReplaySpeed(), 0);
+        assertDuration(5 * FRAME_INTERVAL / 2, readFrames(replay, 6));
+    }
+
+    public void testStalledReaderCatchesUpThenKeepsThePace() throws Exception {
+        TLogReplayConnection replay = startReplay(1, 0, false);
+        readFrames(replay, 1);
+
+        //The frames which became due while the reader was stalled come in a single block.
+        Thread.sleep(3 * FRAME_INTERVAL + FRAME_INTERVAL / 2);
+        assertEquals(3 * frameLength, replay.readDataBlock(buffer));
+        assertEquals(getTimestamp(4), replay.getReplayPosition());
+
+        //The following frames keep the recorded pace.
+        assertDuration((FRAME_COUNT - 4) * FRAME_INTERVAL - FRAME_INTERVAL / 2, readFrames(replay, FRAME_COUNT - 4));
+    }
+
+    public void testSeek() throws Exception {
+        TLogReplayConnection replay = startReplay(1, getTimestamp(3), false);
+        assertEquals(getTimestamp(3), replay.getReplayPosition());
+        readFrames(replay, 2);
+
+        //Forward, between two frames: the replay restarts from the next frame, without waiting for the gap.
+        replay.seekTo(getTimestamp(8) - FRAME_INTERVAL / 2);
+        assertEquals(getTimestamp(8), replay.getReplayPosition());
+        assertDuration(0, readFrames(replay, 1));
+        assertEquals(getTimestamp(9), replay.getReplayPosition());
+
+        //Backward.
+        replay.seekTo(getTimestamp(1));
+        assertEquals(getTimestamp(1), replay.getReplayPosition());
+        assertDuration(2 * FRAME_INTERVAL, readFrames(replay, 3));
+
+        //Past the end.
+        replay.seekTo(Long.MAX_VALUE);
+        assertEquals(-1, replay.getReplayPosition());
+        try {
+            replay.readDataBlock(buffer);
+            fail("Replay didn't end.");
+        } catch (EOFException e) {
+            //Expected
+        }
+    }
+
+    public void testLoopRestartsFromTheFirstFrame() throws Exception {
+        TLogReplayConnection replay = startReplay(ConnectionType.TLOG_REPLAY_SPEED_MAX, getTimestamp(9), true);
+        assertEquals(2 * frameLength, replay.readDataBlock(buffer));
+        assertEquals(-1, replay.getReplayPosition());
+
+        assertEquals(FRAME_COUNT * frameLength, replay.readDataBlock(buffer));
+        assertEquals(FRAME_COUNT + 2, replay.getReplayedFrameCount());
+    }
+}
@@ -0,0 +1,248 @@
+package org.droidplanner.services.android.impl.core.MAVLink;
+
+import android.content.Context;
+import android.os.Handler;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_mission_ack;
+import com.MAVLink.common.msg_mission_count;
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.common.msg_mission_item_int;
+import com.MAVLink.common.msg_mission_request;
+import com.MAVLink.common.msg_mission_write_partial_list;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+import com.MAVLink.enums.MAV_MISSION_RESULT;
+import com.o3dr.android.client.BuildConfig;
+import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
+import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+
+import org.droidplanner.services.android.impl.communication.model.DataLink;
+import org.droidplanner.services.android.impl.core.drone.DroneInterfaces;
+import org.droidplanner.services.android.impl.core.drone.LogMessageListener;
+import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
+import org.droidplanner.services.android.impl.core.drone.autopilot.apm.ArduCopter;
+import org.droidplanner.services.android.impl.core.firmware.FirmwareType;
+import org.droidplanner.services.android.impl.mock.MockMAVLinkClient;
+import org.droidplanner.services.android.impl.utils.AndroidApWarningParser;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Unit tests for the conversion between MISSION_ITEM and MISSION_ITEM_INT, and for the mission uploads of the
+ * {@link WaypointManager}.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class MavLinkWaypointTest {
+
+    private MavLinkDrone drone;
+    private MockMAVLinkClient mavClient;
+    private WaypointManager waypointManager;
+    private int completedUploads;
+
+    private static msg_mission_item createItem(int command, int frame, float x, float y) {
+        msg_mission_item item = new msg_mission_item();
+        item.command = command;
+        item.frame = (short) frame;
+        item.x = x;
+        item.y = y;
+        item.z = 30;
+        return item;
+    }
+
+    private static List<msg_mission_item> createMission(int itemsCount) {
+        List<msg_mission_item> mission = new ArrayList<>();
+        for (int i = 0; i < itemsCount; i++) {
+            mission.add(createItem(MAV_CMD.MAV_CMD_NAV_WAYPOINT, MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT,
+                    37.8726f + i * 1e-4f, -122.3054f));
+        }
+        return mission;
+    }
+
+    private static msg_mission_request createRequest(int seq) {
+        msg_mission_request request = new msg_mission_request();
+        request.seq = seq;
+        return request;
+    }
+
+    private static msg_mission_ack createAck(int type) {
+        msg_mission_ack ack = new msg_mission_ack();
+        ack.type = (short) type;
+        return ack;
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        final Context context = RuntimeEnvironment.application.getApplicationContext();
+        final Handler handler = new Handler();
+
+        ConnectionParameter connParams = ConnectionParameter.newUsbConnection(57600, null, 0L);
+        mavClient = new MockMAVLinkClient(context, new DataLink.DataLinkListener() {
+            @Override
+            public void notifyReceivedData(Object packet) {
+            }
+
+            @Override
+            public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
+            }
+        }, connParams);
+
+        drone = new ArduCopter("test:" + FirmwareType.ARDU_COPTER.getType(), context, mavClient, handler,
+                new AndroidApWarningParser(), new LogMessageListener() {
+            @Override
+            public void onMessageLogged(int logLevel, String message) {
+            }
+        });
+
+        completedUploads = 0;
+        waypointManager = new WaypointManager(drone, handler);
+        waypointManager.setWaypointManagerListener(new DroneInterfaces.OnWaypointManagerListener() {
+            @Override
+            public void onBeginWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent) {
+            }
+
+            @Override
+            public void onWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent, int index, int count) {
+            }
+
+            @Override
+            public void onWaypointTransferProgress(WaypointManager.WaypointEvent_Type wpEvent,
+                                                   WaypointManager.TransferProgress progress) {
+            }
+
+            @Override
+            public void onEndWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent) {
+                if (wpEvent == WaypointManager.WaypointEvent_Type.WP_UPLOAD) {
+                    completedUploads++;
+                }
+            }
+        });
+    }
+
+    private MAVLinkMessage getSentMessage() {
+        return mavClient.getData().unpack();
+    }
+
+    /**
+     * Answers the upload in progress as the vehicle would, requesting the given range of items then acking.
+     */
+    private void completeUpload(int start, int end) {
+        for (int seq = start; seq <= end; seq++) {
+            Assert.assertTrue(waypointManager.processMessage(createRequest(seq)));
+        }
+        Assert.assertTrue(waypointManager.processMessage(createAck(MAV_MISSION_RESULT.MAV_MISSION_ACCEPTED)));
+        Assert.assertEquals(WaypointManager.WaypointStates.IDLE, waypointManager.state);
+    }
+
+    private void assertFullWrite(int count) {
+        MAVLinkMessage sent = getSentMessage();
+        Assert.assertTrue(sent instanceof msg_mission_count);
+        Assert.assertEquals(count, ((msg_mission_count) sent).count);
+    }
+
+    @Test
+    public void testGlobalPositionIsScaled() {
+        msg_mission_item item = createItem(MAV_CMD.MAV_CMD_NAV_WAYPOINT, MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT,
+                37.8726f, -122.3054f);
+
+        msg_mission_item_int itemInt = MavLinkWaypoint.toMissionItemInt(item);
+        Assert.assertEquals(Math.round(37.8726f * 1e7), itemInt.x);
+        Assert.assertEquals(Math.round(-122.3054f * 1e7), itemInt.y);
+
+        msg_mission_item converted = MavLinkWaypoint.fromMissionItemInt(itemInt);
+        Assert.assertEquals(item.x, converted.x, 0);
+        Assert.assertEquals(item.y, converted.y, 0);
+        Assert.assertEquals(item.z, converted.z, 0);
+    }
+
+    @Test
+    public void testLocalPositionIsScaled() {
+        msg_mission_item item = createItem(MAV_CMD.MAV_CMD_NAV_WAYPOINT, MAV_FRAME.MAV_FRAME_LOCAL_NED, 12.5f, -3.25f);
+
+        msg_mission_item_int itemInt = MavLinkWaypoint.toMissionItemInt(item);
+        Assert.assertEquals(125000, itemInt.x);
+        Assert.assertEquals(-32500, itemInt.y);
+
+        msg_mission_item converted = MavLinkWaypoint.fromMissionItemInt(itemInt);
+        Assert.assertEquals(item.x, converted.x, 0);
+        Assert.assertEquals(item.y, converted.y, 0);
+    }
+
+    @Test
+    public void testNonPositionalValuesAreNotScaled() {
+        //Camera control in a global frame: param5 and param6 are the shoot and command identity values.
+        msg_mission_item item = createItem(MAV_CMD.MAV_CMD_DO_DIGICAM_CONTROL,
+                MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT, 1, 250);
+
+        msg_mission_item_int itemInt = MavLinkWaypoint.toMissionItemInt(item);
+        Assert.assertEquals(1, itemInt.x);
+        Assert.assertEquals(250, itemInt.y);
+
+        msg_mission_item converted = MavLinkWaypoint.fromMissionItemInt(itemInt);
+        Assert.assertEquals(1, converted.x, 0);
+        Assert.assertEquals(250, converted.y, 0);
+    }
+
+    @Test
+    public void testUnchangedMissionIsStillAcknowledgedByTheVehicle() {
+        waypointManager.writeWaypoints(createMission(3));
+        assertFullWrite(3);
+        completeUpload(0, 2);
+        Assert.assertEquals(1, completedUploads);
+
+        //Writing the same mission again writes its last item, and waits for the vehicle's ack.
+        waypointManager.writeWaypoints(createMission(3));
+        MAVLinkMessage sent = getSentMessage();
+        Assert.assertTrue(sent instanceof msg_mission_write_partial_list);
+        Assert.assertEquals(2, ((msg_mission_write_partial_list) sent).start_index);
+        Assert.assertEquals(2, ((msg_mission_write_partial_list) sent).end_index);
+        Assert.assertEquals(WaypointManager.WaypointStates.WRITING_WP_COUNT, waypointManager.state);
+        Assert.assertEquals(1, completedUploads);
+
+        completeUpload(2, 2);
+        Assert.assertEquals(2, completedUploads);
+    }
+
+    @Test
+    public void testForeignMissionTransferForcesAFullWrite() {
+        waypointManager.writeWaypoints(createMission(3));
+        completeUpload(0, 2);
+
+        //Another ground station uploads a mission of the same size through the vehicle.
+        Assert.assertFalse(waypointManager.processMessage(createRequest(0)));
+        waypointManager.writeWaypoints(createMission(3));
+        assertFullWrite(3);
+        completeUpload(0, 2);
+
+        //Another ground station's transfer ends.
+        Assert.assertFalse(waypointManager.processMessage(createAck(MAV_MISSION_RESULT.MAV_MISSION_ACCEPTED)));
+        waypointManager.writeWaypoints(createMission(3));
+        assertFullWrite(3);
+        completeUpload(0, 2);
+
+        //The link was down for a while.
+        waypointManager.onDroneEvent(DroneInterfaces.DroneEventsType.HEARTBEAT_RESTORED, drone);
+        waypointManager.writeWaypoints(createMission(3));
+        assertFullWrite(3);
+    }
+
+    @Test
+    public void testEmptyMissionWriteCompletes() {
+        waypointManager.writeWaypoints(createMission(0));
+        assertFullWrite(0);
+        Assert.assertEquals(WaypointManager.WaypointStates.WRITING_WP_COUNT, waypointManager.state);
+
+        Assert.assertTrue(waypointManager.processMessage(createAck(MAV_MISSION_RESULT.MAV_MISSION_ACCEPTED)));
+        Assert.assertEquals(WaypointManager.WaypointStates.IDLE, waypointManager.state);
+        Assert.assertEquals(1, completedUploads);
+    }
+}
@@ -0,0 +1,67 @@
+package org.droidplanner.services.android.impl.core.MAVLink.connection;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_heartbeat;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the redundant links frame de-duplication window.
+ */
+public class FrameDeduplicatorTest extends TestCase {
+
+    private static final long MS = 1000000L;
+
+    public void testDuplicateIsDetected() {
+        final FrameDeduplicator deduplicator = new FrameDeduplicator();
+
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(createPacket(10), 0));
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(createPacket(11), 5 * MS));
+
+        //Copy of the first frame, received over a slower link.
+        assertEquals(40 * MS, deduplicator.onFrameReceived(createPacket(10), 40 * MS));
+    }
+
+    public void testFramesDifferingOnlyByPayloadAreKept() {
+        final FrameDeduplicator deduplicator = new FrameDeduplicator();
+
+        final msg_attitude attitude = new msg_attitude();
+        attitude.roll = 0.1f;
+        final MAVLinkPacket first = attitude.pack();
+        first.seq = 7;
+        first.generateCRC();
+
+        attitude.roll = 0.2f;
+        final MAVLinkPacket second = attitude.pack();
+        second.seq = 7;
+        second.generateCRC();
+
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(first, 0));
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(second, MS));
+    }
+
+    public void testWindowExpiry() {
+        final FrameDeduplicator deduplicator = new FrameDeduplicator(4, 100 * MS);
+
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(createPacket(1), 0));
+
+        //Same sequence number after a wrap around.
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(createPacket(1), 200 * MS));
+
+        //Evicted by newer frames.
+        for (int seq = 2; seq < 6; seq++) {
+            deduplicator.onFrameReceived(createPacket(seq), 200 * MS + seq);
+        }
+        assertEquals(FrameDeduplicator.NEW_FRAME, deduplicator.onFrameReceived(createPacket(1), 210 * MS));
+    }
+
+    private static MAVLinkPacket createPacket(int seq) {
+        final MAVLinkPacket packet = new msg_heartbeat().pack();
+        packet.sysid = 1;
+        packet.compid = 1;
+        packet.seq = seq;
+        packet.generateCRC();
+        return packet;
+    }
+}
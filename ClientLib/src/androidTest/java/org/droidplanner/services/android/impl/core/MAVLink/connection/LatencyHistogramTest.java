@@ -0,0 +1,53 @@
+package org.droidplanner.services.android.impl.core.MAVLink.connection;
+
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the link latency histogram.
+ */
+public class LatencyHistogramTest extends TestCase {
+
+    /**
+     * Maximum relative error of the reported percentiles.
+     */
+    private static final double RELATIVE_ERROR = 1.0 / 16;
+
+    public void testBucketBounds() {
+        long previousUpperBound = -1;
+        for (long value = 0; value < 1 << 20; value++) {
+            final int index = LatencyHistogram.getBucketIndex(value);
+            final long upperBound = LatencyHistogram.getBucketUpperBound(index);
+            assertTrue(value <= upperBound);
+            assertTrue(upperBound - value <= value * RELATIVE_ERROR);
+
+            if (upperBound != previousUpperBound) {
+                //Buckets are contiguous.
+                assertEquals(previousUpperBound + 1, value);
+                previousUpperBound = upperBound;
+            }
+        }
+    }
+
+    public void testPercentiles() {
+        final LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getValueAtPercentile(50));
+
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+
+        final LinkMetrics.LatencyStats stats = histogram.getStats();
+        assertEquals(100000, stats.getCount());
+        assertEquals(50000, stats.getMean());
+        assertEquals(100000, stats.getMax());
+        assertEquals(50000, stats.getP50(), 50000 * RELATIVE_ERROR);
+        assertEquals(90000, stats.getP90(), 90000 * RELATIVE_ERROR);
+        assertEquals(99000, stats.getP99(), 99000 * RELATIVE_ERROR);
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getStats().getMax());
+    }
+}
@@ -0,0 +1,57 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.common.msg_command_long;
+import com.MAVLink.common.msg_heartbeat;
+import com.MAVLink.common.msg_mission_request;
+import com.MAVLink.common.msg_set_mode;
+
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for reading the routing targets from encoded frames.
+ */
+public class MessageTargetsTest extends TestCase {
+
+    public void testTargetedMessage() {
+        final msg_command_long command = new msg_command_long();
+        command.target_system = 7;
+        command.target_component = 9;
+        command.param1 = 1;
+
+        final byte[] frame = encode(command.pack());
+        assertEquals(7, MessageTargets.getTargetSystem(frame));
+        assertEquals(9, MessageTargets.getTargetComponent(frame));
+
+        final msg_mission_request request = new msg_mission_request();
+        request.target_system = 255;
+        request.target_component = 190;
+        request.seq = 3;
+
+        final byte[] requestFrame = encode(request.pack());
+        assertEquals(255, MessageTargets.getTargetSystem(requestFrame));
+        assertEquals(190, MessageTargets.getTargetComponent(requestFrame));
+    }
+
+    public void testSystemOnlyTarget() {
+        final msg_set_mode setMode = new msg_set_mode();
+        setMode.target_system = 4;
+        setMode.custom_mode = 5;
+
+        final byte[] frame = encode(setMode.pack());
+        assertEquals(4, MessageTargets.getTargetSystem(frame));
+        assertEquals(MessageTargets.NO_TARGET, MessageTargets.getTargetComponent(frame));
+    }
+
+    public void testBroadcastMessage() {
+        final byte[] frame = encode(new msg_heartbeat().pack());
+        assertEquals(MessageTargets.NO_TARGET, MessageTargets.getTargetSystem(frame));
+        assertEquals(MessageTargets.NO_TARGET, MessageTargets.getTargetComponent(frame));
+    }
+
+    private static byte[] encode(MAVLinkPacket packet) {
+        packet.sysid = 1;
+        packet.compid = 1;
+        return packet.encodePacket();
+    }
+}
@@ -0,0 +1,186 @@
+package org.droidplanner.services.android.impl.core.drone.profiles;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the parameters download, driven with a simulated clock.
+ */
+public class ParameterDownloadTest extends TestCase {
+
+    private final List<Integer> requests = new ArrayList<>();
+
+    private final ParameterDownload download = new ParameterDownload(new ParameterDownload.Requester() {
+        @Override
+        public void requestParameter(int index) {
+            requests.add(index);
+        }
+    });
+
+    private static long ms(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    /**
+     * Streams the parameters of the given range, one every interval, the first one arriving at the given time.
+     *
+     * @return the time the last parameter arrived at.
+     */
+    private long stream(int from, int to, int count, long firstArrival, long interval) {
+        long now = firstArrival;
+        for (int index = from; index < to; index++) {
+            assertTrue(download.onParameterReceived(index, count, now));
+            now += interval;
+        }
+        return now - interval;
+    }
+
+    /**
+     * @return the time of the next timeout, after calling {@link ParameterDownload#onTimeout(long)} at it.
+     */
+    private long timeout(long now) {
+        final long delay = download.getNextTimeout(now);
+        assertTrue(delay >= 0);
+        download.onTimeout(now + delay);
+        return now + delay;
+    }
+
+    public void testProgressAndEta() {
+        download.start(0);
+        assertEquals(0, download.getParamCount());
+        assertEquals(-1, download.getEta());
+
+        download.onParameterReceived(0, 100, ms(100));
+        assertEquals(100, download.getParamCount());
+        assertEquals(1, download.getReceivedCount());
+        assertEquals(-1, download.getEta());
+
+        stream(1, 50, 100, ms(101), ms(1));
+        assertEquals(50, download.getReceivedCount());
+        assertEquals(50, download.getEta());
+
+        //Duplicates don't count.
+        assertFalse(download.onParameterReceived(10, 100, ms(160)));
+        assertEquals(50, download.getReceivedCount());
+
+        stream(50, 100, 100, ms(150), ms(1));
+        assertTrue(download.isComplete());
+        assertEquals(0, download.getEta());
+        assertEquals(-1, download.getNextTimeout(ms(200)));
+        assertTrue(requests.isEmpty());
+    }
+
+    public void testGapsAreRequestedOnceTheStreamStops() {
+        final int count = 100;
+        final BitSet lost = new BitSet();
+        lost.set(7);
+        lost.set(42);
+        lost.set(43);
+        lost.set(99);
+
+        download.start(0);
+        long now = ms(100);
+        for (int index = 0; index < count; index++) {
+            if (!lost.get(index)) {
+                download.onParameterReceived(index, count, now);
+            }
+            now += ms(10);
+        }
+        assertTrue(requests.isEmpty());
+
+        timeout(now);
+        assertEquals(lost.cardinality(), requests.size());
+        for (int index : requests) {
+            assertTrue(lost.get(index));
+        }
+
+        for (int index : requests) {
+            assertTrue(download.onParameterReceived(index, count, now));
+        }
+        assertTrue(download.isComplete());
+    }
+
+    public void testWindowIsBoundedAbove() {
+        //Long round trip, fast stream: the bandwidth-delay product exceeds the largest window.
+        download.start(0);
+        long now = stream(0, 100, 200, ms(1000), ms(1));
+        timeout(now);
+        assertEquals(32, download.getWindowSize());
+        assertEquals(32, requests.size());
+    }
+
+    public void testWindowIsBoundedBelow() {
+        //Short round trip, slow stream.
+        download.start(0);
+        long now = stream(0, 10, 200, ms(1), ms(50));
+        now = timeout(now);
+        assertEquals(2, download.getWindowSize());
+        assertEquals(2, requests.size());
+
+        //Lost requests don't shrink it further.
+        for (int i = 0; i < 10; i++) {
+            now = timeout(now);
+            assertEquals(2, download.getWindowSize());
+        }
+    }
+
+    public void testWindowHalvesOncePerTimeoutRound() {
+        download.start(0);
+        long now = stream(0, 100, 200, ms(100), ms(1));
+        now = timeout(now);
+        assertEquals(32, download.getWindowSize());
+        assertEquals(32, requests.size());
+
+        //One answer, refilled by a request which belongs to the same round as the others.
+        now += ms(10);
+        download.onParameterReceived(requests.get(0), 200, now);
+        assertEquals(32, download.getWindowSize());
+        assertEquals(33, requests.size());
+
+        //The requests of the first round time out together.
+        now = timeout(now);
+        assertEquals(16, download.getWindowSize());
+        assertEquals(33 + 15, requests.size());
+
+        //The late request of the first round doesn't reduce the window again.
+        now = timeout(now);
+        assertEquals(16, download.getWindowSize());
+
+        //The requests sent after the reduction start a new round.
+        now = timeout(now);
+        assertEquals(8, download.getWindowSize());
+    }
+
+    public void testLostRequestsAreSentAgain() {
+        final int count = 200;
+        download.start(0);
+        long now = stream(0, 100, count, ms(100), ms(1));
+        now = timeout(now);
+
+        //The first request of every other parameter is lost.
+        final BitSet requested = new BitSet();
+        for (int round = 0; round < 100 && !download.isComplete(); round++) {
+            final List<Integer> sent = new ArrayList<>(requests);
+            requests.clear();
+            for (int index : sent) {
+                if ((index & 1) == 0 || requested.get(index)) {
+                    now += ms(1);
+                    download.onParameterReceived(index, count, now);
+                }
+                requested.set(index);
+            }
+
+            if (requests.isEmpty() && !download.isComplete()) {
+                now = timeout(now);
+            }
+        }
+
+        assertTrue(download.isComplete());
+        assertEquals(100, requested.cardinality());
+        assertEquals(100, requested.nextSetBit(0));
+    }
+}
@@ -0,0 +1,118 @@
+package org.droidplanner.services.android.impl.core.drone.profiles;
+
+import com.o3dr.services.android.lib.drone.property.Parameter;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Unit tests for the on-disk parameters cache.
+ */
+public class ParameterStoreTest extends TestCase {
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = new File(System.getProperty("java.io.tmpdir"), "param_store_test_" + System.nanoTime());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    public void testRoundTrip() throws Exception {
+        final ParameterStore store = new ParameterStore(directory);
+        final ParameterStore.VehicleKey key = new ParameterStore.VehicleKey(0x1234L, 0x03050000L, 3);
+
+        assertNull(store.load(key));
+
+        final List<Parameter> params = new ArrayList<>();
+        params.add(new Parameter("WPNAV_SPEED", 500, 9));
+        params.add(new Parameter("BATT_CAPACITY", 3300, 4));
+        params.add(new Parameter("COMPASS_OFS_X", -12.5f, 9));
+        store.save(key, params);
+
+        final List<Parameter> loaded = loadWhenWritten(store, key);
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < params.size(); i++) {
+            assertEquals(params.get(i).getName(), loaded.get(i).getName());
+            assertEquals(params.get(i).getValue(), loaded.get(i).getValue(), 0);
+            assertEquals(params.get(i).getType(), loaded.get(i).getType());
+        }
+    }
+
+    public void testStaleKeyIsRejected() throws Exception {
+        final ParameterStore store = new ParameterStore(directory);
+        final ParameterStore.VehicleKey key = new ParameterStore.VehicleKey(0x1234L, 0x03050000L, 1);
+
+        final List<Parameter> params = new ArrayList<>();
+        params.add(new Parameter("WPNAV_SPEED", 500, 9));
+        store.save(key, params);
+        loadWhenWritten(store, key);
+
+        //Firmware update.
+        assertNull(store.load(new ParameterStore.VehicleKey(0x1234L, 0x03060000L, 1)));
+        //Parameters added.
+        assertNull(store.load(new ParameterStore.VehicleKey(0x1234L, 0x03050000L, 2)));
+        //Other vehicle.
+        assertNull(store.load(new ParameterStore.VehicleKey(0x4321L, 0x03050000L, 1)));
+    }
+
+    public void testBackgroundLoadFollowsPendingWrites() throws Exception {
+        final ParameterStore store = new ParameterStore(directory);
+        final ParameterStore.VehicleKey key = new ParameterStore.VehicleKey(0x1234L, 0x03050000L, 1);
+
+        final List<Parameter> params = new ArrayList<>();
+        params.add(new Parameter("WPNAV_SPEED", 500, 9));
+        store.save(key, params);
+
+        final LinkedBlockingQueue<List<Parameter>> results = new LinkedBlockingQueue<>();
+        final ParameterStore.LoadListener listener = new ParameterStore.LoadListener() {
+            @Override
+            public void onParametersLoaded(ParameterStore.VehicleKey loadedKey, List<Parameter> parameters) {
+                assertEquals(key, loadedKey);
+                results.offer(parameters == null ? Collections.<Parameter>emptyList() : parameters);
+            }
+        };
+
+        store.load(key, listener);
+        final List<Parameter> loaded = results.poll(1, TimeUnit.SECONDS);
+        assertNotNull(loaded);
+        assertEquals(1, loaded.size());
+        assertEquals(500, loaded.get(0).getValue(), 0);
+
+        store.invalidate(0x1234L);
+        store.load(key, listener);
+        assertTrue(results.poll(1, TimeUnit.SECONDS).isEmpty());
+    }
+
+    private static List<Parameter> loadWhenWritten(ParameterStore store, ParameterStore.VehicleKey key)
+        throws InterruptedException {
+        //Writes are asynchronous.
+        for (int i = 0; i < 100; i++) {
+            final List<Parameter> loaded = store.load(key);
+            if (loaded != null) {
+                return loaded;
+            }
+            Thread.sleep(10);
+        }
+        fail("Parameters were not saved.");
+        return null;
+    }
+}
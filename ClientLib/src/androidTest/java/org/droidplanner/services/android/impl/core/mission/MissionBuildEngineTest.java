@@ -0,0 +1,124 @@
+package org.droidplanner.services.android.impl.core.mission;
+
+import junit.framework.TestCase;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class MissionBuildEngineTest extends TestCase {
+
+    public void testResultsKeepTasksOrder() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            final int value = i;
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    Thread.sleep(value % 3);
+                    return value * value;
+                }
+            });
+        }
+
+        List<Integer> results = MissionBuildEngine.invokeAll(tasks);
+        assertEquals(50, results.size());
+        for (int i = 0; i < 50; i++) {
+            assertEquals(i * i, (int) results.get(i));
+        }
+    }
+
+    public void testNestedBuildsComplete() throws Exception {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            tasks.add(new Callable<Integer>() {
+                @Override
+                public Integer call() throws Exception {
+                    List<Callable<Integer>> subTasks = new ArrayList<>();
+                    for (int j = 0; j < 4; j++) {
+                        subTasks.add(new Callable<Integer>() {
+                            @Override
+                            public Integer call() {
+                                return 1;
+                            }
+                        });
+                    }
+
+                    int sum = 0;
+                    for (int value : MissionBuildEngine.invokeAll(subTasks)) {
+                        sum += value;
+                    }
+                    return sum;
+                }
+            });
+        }
+
+        for (int result : MissionBuildEngine.invokeAll(tasks)) {
+            assertEquals(4, result);
+        }
+    }
+
+    public void testFailureIsReported() {
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() throws Exception {
+                throw new Exception("Invalid polygon");
+            }
+        });
+
+        try {
+            MissionBuildEngine.invokeAll(tasks);
+            fail("The task failure should be reported.");
+        } catch (ExecutionException e) {
+            assertEquals("Invalid polygon", e.getCause().getMessage());
+        }
+    }
+
+    public void testNewerBuildCancelsBuildInFlight() throws Exception {
+        final Object owner = new Object();
+        final CountDownLatch started = new CountDownLatch(1);
+        final AtomicReference<Throwable> firstBuildError = new AtomicReference<>();
+
+        Thread firstBuild = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                List<Callable<Integer>> tasks = new ArrayList<>();
+                tasks.add(new Callable<Integer>() {
+                    @Override
+                    public Integer call() throws Exception {
+                        started.countDown();
+                        Thread.sleep(10000);
+                        return 0;
+                    }
+                });
+
+                try {
+                    MissionBuildEngine.invokeAll(owner, tasks);
+                } catch (Throwable e) {
+                    firstBuildError.set(e);
+                }
+            }
+        });
+        firstBuild.start();
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Callable<Integer>> tasks = new ArrayList<>();
+        tasks.add(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return 1;
+            }
+        });
+        assertEquals(1, (int) MissionBuildEngine.invokeAll(owner, tasks).get(0));
+
+        firstBuild.join(5000);
+        assertFalse(firstBuild.isAlive());
+        assertTrue(firstBuildError.get() instanceof CancellationException);
+    }
+}
@@ -0,0 +1,96 @@
+package org.droidplanner.services.android.impl.core.mission;
+
+import com.o3dr.services.android.lib.coordinate.LatLongAlt;
+import com.o3dr.services.android.lib.drone.mission.Mission;
+import com.o3dr.services.android.lib.drone.mission.MissionChange;
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+import com.o3dr.services.android.lib.drone.mission.item.spatial.Waypoint;
+
+import junit.framework.TestCase;
+
+import org.droidplanner.services.android.impl.core.mission.waypoints.WaypointImpl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MissionImplTest extends TestCase {
+
+    private static WaypointImpl waypoint(MissionImpl missionImpl, int index) {
+        return new WaypointImpl(missionImpl, new LatLongAlt(index, index, 10));
+    }
+
+    public void testReplaceOnlyRepacksTheReplacedItem() {
+        MissionImpl missionImpl = new MissionImpl(null);
+        List<MissionItemImpl> items = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            items.add(waypoint(missionImpl, i));
+        }
+        missionImpl.addMissionItems(items);
+        assertEquals(10, missionImpl.getComponentItems().size());
+
+        WaypointImpl replacement = waypoint(missionImpl, 42);
+        missionImpl.replace(items.get(4), replacement);
+
+        MissionImpl.ComponentsChange change = missionImpl.getLastChange();
+        assertFalse(change.isReset());
+        assertEquals(4, change.getStart());
+        assertEquals(1, change.getRemovedCount());
+        assertEquals(1, change.getInsertedCount());
+        assertEquals(5, missionImpl.getOrder(replacement));
+        assertEquals(42.0, ((WaypointImpl) missionImpl.getComponentItems().get(4)).getCoordinate().getLatitude());
+    }
+
+    public void testChangesArePublishedOnCommit() {
+        MissionImpl missionImpl = new MissionImpl(null);
+        WaypointImpl first = waypoint(missionImpl, 0);
+        WaypointImpl last = waypoint(missionImpl, 3);
+        missionImpl.addMissionItems(Arrays.<MissionItemImpl>asList(first, last));
+
+        missionImpl.beginChanges();
+        missionImpl.addMissionItem(1, waypoint(missionImpl, 1));
+        missionImpl.addMissionItem(2, waypoint(missionImpl, 2));
+        assertEquals(2, missionImpl.getComponentItems().size());
+        missionImpl.commitChanges();
+
+        MissionImpl.ComponentsChange change = missionImpl.getLastChange();
+        assertEquals(4, missionImpl.getComponentItems().size());
+        assertEquals(1, change.getStart());
+        assertEquals(0, change.getRemovedCount());
+        assertEquals(2, change.getInsertedCount());
+        assertEquals(4, missionImpl.getOrder(last));
+
+        missionImpl.removeWaypoint(first);
+        change = missionImpl.getLastChange();
+        assertEquals(0, change.getStart());
+        assertEquals(1, change.getRemovedCount());
+        assertEquals(0, change.getInsertedCount());
+        assertFalse(missionImpl.hasItem(first));
+        assertEquals(3, missionImpl.getOrder(last));
+    }
+
+    public void testMissionChangePatchesMission() {
+        Mission mission = new Mission();
+        for (int i = 0; i < 5; i++) {
+            Waypoint waypoint = new Waypoint();
+            waypoint.setCoordinate(new LatLongAlt(i, i, 10));
+            mission.addMissionItem(waypoint);
+        }
+
+        Waypoint changed = new Waypoint();
+        changed.setCoordinate(new LatLongAlt(42, 42, 10));
+
+        MissionChange change = new MissionChange(4);
+        change.addRange(MissionChange.RANGE_CHANGED, 1, 1, Arrays.<MissionItem>asList(changed));
+        change.addRange(MissionChange.RANGE_REMOVED, 2, 1, null);
+        assertTrue(change.applyTo(mission));
+
+        assertEquals(4, mission.getMissionItems().size());
+        assertSame(changed, mission.getMissionItem(1));
+        assertEquals(3.0, ((Waypoint) mission.getMissionItem(2)).getCoordinate().getLatitude());
+
+        //Doesn't match the patched mission anymore.
+        assertFalse(change.applyTo(mission));
+        assertFalse(MissionChange.reset(4).applyTo(mission));
+    }
+}
@@ -0,0 +1,175 @@
+package org.droidplanner.services.android.impl.core.mission;
+
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+
+import junit.framework.TestCase;
+
+import org.droidplanner.services.android.impl.core.helpers.geoTools.Simplify;
+import org.droidplanner.services.android.impl.core.srtm.ElevationSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class TerrainFollowingTransformTest extends TestCase {
+
+    private static final float HEIGHT = 50;
+    private static final double TOLERANCE = 2;
+
+    /**
+     * Flat plain at 100 meters, with a 200 meters high ridge in the middle of the first leg.
+     */
+    private static final ElevationSource RIDGE = new ElevationSource() {
+        @Override
+        public double getElevation(double latitude, double longitude) {
+            return 100 + 200 * Math.max(0, 1 - Math.abs(longitude - 0.005) / 0.002);
+        }
+    };
+
+    private static msg_mission_item createItem(int command, int frame, double lat, double lon, float alt) {
+        msg_mission_item item = new msg_mission_item();
+        item.command = command;
+        item.frame = (short) frame;
+        item.x = (float) lat;
+        item.y = (float) lon;
+        item.z = alt;
+        item.autocontinue = 1;
+        return item;
+    }
+
+    /**
+     * Home, two waypoints across the ridge, a jump back to the second waypoint, and a landing.
+     */
+    private static List<msg_mission_item> createMission() {
+        List<msg_mission_item> items = new ArrayList<>();
+        items.add(createItem(MAV_CMD.MAV_CMD_NAV_WAYPOINT, MAV_FRAME.MAV_FRAME_GLOBAL, 0, 0, 100));
+        items.add(createItem(MAV_CMD.MAV_CMD_NAV_WAYPOINT, MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT, 0, 0, HEIGHT));
+        items.add(createItem(MAV_CMD.MAV_CMD_NAV_WAYPOINT, MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT, 0, 0.01, HEIGHT));
+
+        msg_mission_item jump = createItem(MAV_CMD.MAV_CMD_DO_JUMP, MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT, 0, 0, 0);
+        jump.param1 = 2;
+        jump.param2 = 3;
+        items.add(jump);
+
+        items.add(createItem(MAV_CMD.MAV_CMD_NAV_LAND, MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT, 0, 0.01, 0));
+        for (int i = 0; i < items.size(); i++) {
+            items.get(i).seq = i;
+        }
+        return items;
+    }
+
+    /**
+     * @return the altitude of the path between the waypoints at the given longitude, on the first leg.
+     */
+    private static double getPathAltitude(List<msg_mission_item> items, double longitude) {
+        for (int i = 2; i < items.size(); i++) {
+            msg_mission_item from = items.get(i - 1);
+            msg_mission_item to = items.get(i);
+            if (from.y <= longitude && longitude <= to.y) {
+                double ratio = to.y == from.y ? 0 : (longitude - from.y) / (to.y - from.y);
+                return from.z + ratio * (to.z - from.z);
+            }
+        }
+        throw new IllegalArgumentException("Longitude out of the first leg: " + longitude);
+    }
+
+    public void testWaypointsKeepTheirHeightAboveTheTerrain() {
+        TerrainFollowingTransform transform = new TerrainFollowingTransform(RIDGE);
+        transform.setAltitudeTolerance(TOLERANCE);
+        List<msg_mission_item> items = transform.transform(createMission());
+
+        msg_mission_item first = items.get(1);
+        assertEquals(MAV_FRAME.MAV_FRAME_GLOBAL, first.frame);
+        assertEquals(100 + HEIGHT, first.z, 1e-3);
+
+        for (int i = 0; i < items.size(); i++) {
+            msg_mission_item item = items.get(i);
+            assertEquals(i, item.seq);
+            if (item.command == MAV_CMD.MAV_CMD_NAV_WAYPOINT && i > 0) {
+                assertEquals(MAV_FRAME.MAV_FRAME_GLOBAL, item.frame);
+                assertEquals(RIDGE.getElevation(item.x, item.y) + HEIGHT, item.z, 1e-3);
+            }
+        }
+    }
+
+    public void testSamplesAreDroppedOverFlatTerrain() {
+        TerrainFollowingTransform transform = new TerrainFollowingTransform(RIDGE);
+        transform.setAltitudeTolerance(TOLERANCE);
+        List<msg_mission_item> items = transform.transform(createMission());
+
+        //The ridge foot and top only: the flat parts and the slopes need no sample.
+        int intermediateCount = items.size() - createMission().size();
+        assertTrue("Intermediate waypoints: " + intermediateCount, intermediateCount > 0 && intermediateCount <= 6);
+
+        //The path stays within the tolerance of the sampled terrain.
+        for (int k = 0; k <= 38; k++) {
+            double longitude = 0.01f * k / 38;
+            double expected = RIDGE.getElevation(0, longitude) + HEIGHT;
+            assertEquals(expected, getPathAltitude(items, longitude), TOLERANCE + 1e-3);
+        }
+    }
+
+    public void testJumpTargetFollowsItsItem() {
+        List<msg_mission_item> items = new TerrainFollowingTransform(RIDGE).transform(createMission());
+
+        msg_mission_item jump = null;
+        for (msg_mission_item item : items) {
+            if (item.command == MAV_CMD.MAV_CMD_DO_JUMP) {
+                jump = item;
+            }
+        }
+        assertNotNull(jump);
+        assertEquals(3, jump.param2, 0);
+
+        msg_mission_item target = items.get((int) jump.param1);
+        assertEquals(MAV_CMD.MAV_CMD_NAV_WAYPOINT, target.command);
+        assertEquals(0.01f, target.y, 0);
+        assertEquals(jump.seq - 1, target.seq);
+    }
+
+    public void testItemLimitIsHonored() {
+        List<msg_mission_item> mission = createMission();
+        TerrainFollowingTransform transform = new TerrainFollowingTransform(RIDGE);
+        transform.setAltitudeTolerance(0);
+        int unlimitedCount = transform.transform(mission).size();
+
+        transform.setMaxItemCount(mission.size() + 1);
+        List<msg_mission_item> items = transform.transform(mission);
+        assertTrue(items.size() < unlimitedCount);
+        assertTrue(items.size() <= mission.size() + 1);
+    }
+
+    public void testNegativeToleranceIsRejected() {
+        TerrainFollowingTransform transform = new TerrainFollowingTransform(RIDGE);
+        try {
+            transform.setAltitudeTolerance(-1);
+            fail("Negative tolerance accepted.");
+        } catch (IllegalArgumentException e) {
+            //Expected
+        }
+
+        //A flat profile has no point to keep, whatever the tolerance.
+        boolean[] kept = Simplify.simplifyProfile(new double[]{0, 1, 2}, new double[]{5, 5, 5}, -1);
+        assertTrue(kept[0]);
+        assertFalse(kept[1]);
+        assertTrue(kept[2]);
+    }
+
+    public void testUnknownTerrainKeepsRelativeWaypoints() {
+        ElevationSource unknown = new ElevationSource() {
+            @Override
+            public double getElevation(double latitude, double longitude) {
+                return Double.NaN;
+            }
+        };
+        List<msg_mission_item> mission = createMission();
+        List<msg_mission_item> items = new TerrainFollowingTransform(unknown).transform(mission);
+
+        assertEquals(mission.size(), items.size());
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals(mission.get(i).frame, items.get(i).frame);
+            assertEquals(mission.get(i).z, items.get(i).z, 0);
+        }
+    }
+}
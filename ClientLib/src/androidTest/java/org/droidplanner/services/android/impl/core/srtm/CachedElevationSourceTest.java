@@ -0,0 +1,56 @@
+package org.droidplanner.services.android.impl.core.srtm;
+
+import junit.framework.TestCase;
+
+public class CachedElevationSourceTest extends TestCase {
+
+    /**
+     * Source whose elevations are unknown until its tile is available, counting its lookups.
+     */
+    private static class PendingSource extends ElevationSource {
+        boolean available;
+        int lookups;
+
+        @Override
+        public double getElevation(double latitude, double longitude) {
+            lookups++;
+            return available ? 100 : Double.NaN;
+        }
+    }
+
+    private final PendingSource source = new PendingSource();
+    private final CachedElevationSource cache = new CachedElevationSource(source);
+
+    public void testKnownElevationsAreCached() {
+        source.available = true;
+        assertEquals(100, cache.getElevation(37.5, -122.5), 0);
+        assertEquals(100, cache.getElevation(37.5, -122.5), 0);
+        assertEquals(1, source.lookups);
+    }
+
+    public void testUnknownElevationsAreNotCached() {
+        assertTrue(Double.isNaN(cache.getElevation(37.5, -122.5)));
+        source.available = true;
+        assertEquals(100, cache.getElevation(37.5, -122.5), 0);
+        assertEquals(2, source.lookups);
+    }
+
+    public void testUnknownBatchElevationsAreNotCached() {
+        final double[] latitudes = {37.5, 37.6};
+        final double[] longitudes = {-122.5, -122.6};
+        final float[] out = new float[2];
+
+        cache.getElevations(latitudes, longitudes, out);
+        assertTrue(Float.isNaN(out[0]));
+        assertTrue(Float.isNaN(out[1]));
+
+        source.available = true;
+        cache.getElevations(latitudes, longitudes, out);
+        assertEquals(100, out[0], 0);
+        assertEquals(100, out[1], 0);
+        assertEquals(4, source.lookups);
+
+        cache.getElevations(latitudes, longitudes, out);
+        assertEquals(4, source.lookups);
+    }
+}
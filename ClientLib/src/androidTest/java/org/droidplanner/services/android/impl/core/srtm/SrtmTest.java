@@ -0,0 +1,118 @@
+package org.droidplanner.services.android.impl.core.srtm;
+
+import junit.framework.TestCase;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+
+public class SrtmTest extends TestCase {
+
+    private static final int SIZE = 1201;
+
+    private File directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        directory = File.createTempFile("srtm", "");
+        assertTrue(directory.delete());
+        assertTrue(directory.mkdir());
+
+        writeTile("N45E006.hgt", 1000);
+        writeTile("N45E007.hgt", 2000);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        for (File file : directory.listFiles()) {
+            file.delete();
+        }
+        directory.delete();
+        super.tearDown();
+    }
+
+    /**
+     * Tile whose samples rise by one meter per row to the north and by two meters per column to the east, with
+     * a void at its center.
+     */
+    private void writeTile(String name, int base) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(new File(directory, name))));
+        try {
+            for (int row = 0; row < SIZE; row++) {
+                for (int column = 0; column < SIZE; column++) {
+                    boolean isVoid = row == SIZE / 2 && column == SIZE / 2;
+                    out.writeShort(isVoid ? -32768 : base + (SIZE - 1 - row) + 2 * column);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    private static double sampleSpacing() {
+        return 1d / (SIZE - 1);
+    }
+
+    public void testSamplesAreReadAtTheirCoordinates() {
+        Srtm srtm = new Srtm(directory.getPath());
+
+        assertEquals(1000, srtm.getData(6, 45));
+        assertEquals(1000 + 1200, srtm.getData(6, 46 - 1e-12));
+        assertEquals(1000 + 2 * 10 + 20, srtm.getElevation(45 + 20 * sampleSpacing(), 6 + 10 * sampleSpacing()), 1e-6);
+        assertEquals(2000 + 2 * 300, srtm.getElevation(45, 7 + 300 * sampleSpacing()), 1e-6);
+    }
+
+    public void testElevationIsInterpolatedBilinearly() {
+        Srtm srtm = new Srtm(directory.getPath());
+
+        double latitude = 45 + 100.25 * sampleSpacing();
+        double longitude = 6 + 200.5 * sampleSpacing();
+        assertEquals(1000 + 100.25 + 2 * 200.5, srtm.getElevation(latitude, longitude), 1e-6);
+    }
+
+    public void testVoidsAreLeftOutOfTheInterpolation() {
+        Srtm srtm = new Srtm(directory.getPath());
+
+        double center = 600 * sampleSpacing();
+        assertTrue(Double.isNaN(srtm.getElevation(45 + center, 6 + center)));
+        assertEquals(-32768, srtm.getData(6 + center, 45 + center));
+
+        //Halfway to the next column, only the samples of that column are left.
+        double elevation = srtm.getElevation(45 + center, 6 + center + 0.5 * sampleSpacing());
+        assertEquals(1000 + 600 + 2 * 601, elevation, 1e-6);
+    }
+
+    public void testBatchMatchesSingleLookups() {
+        Srtm srtm = new Srtm(directory.getPath());
+
+        int count = 1000;
+        double[] latitudes = new double[count];
+        double[] longitudes = new double[count];
+        for (int i = 0; i < count; i++) {
+            latitudes[i] = 45.1 + 0.8 * i / count;
+            longitudes[i] = 6.5 + 1.0 * i / count;
+        }
+
+        float[] elevations = new float[count];
+        srtm.getElevations(latitudes, longitudes, elevations);
+        for (int i = 0; i < count; i++) {
+            assertEquals((float) srtm.getElevation(latitudes[i], longitudes[i]), elevations[i], 0);
+        }
+    }
+
+    public void testMappedTilesStayWithinBudget() throws Exception {
+        SrtmData data = new SrtmData(directory.getPath(), SIZE * SIZE * 2);
+
+        assertEquals(1000, data.getElevation(6, 45, null), 1e-6);
+        assertEquals(1, data.getTileCount());
+
+        assertEquals(2000, data.getElevation(7, 45, null), 1e-6);
+        assertEquals(1, data.getTileCount());
+
+        assertEquals(1000, data.getElevation(6, 45, null), 1e-6);
+    }
+}
@@ -0,0 +1,105 @@
+package org.droidplanner.services.android.impl.core.survey;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.coordinate.LatLongAlt;
+
+import junit.framework.TestCase;
+
+import org.droidplanner.services.android.impl.core.helpers.geoTools.GeoTools;
+import org.droidplanner.services.android.impl.core.polygon.Polygon;
+import org.droidplanner.services.android.impl.core.srtm.ElevationSource;
+import org.droidplanner.services.android.impl.core.survey.grid.Grid;
+import org.droidplanner.services.android.impl.core.survey.grid.GridBuilder;
+
+import java.util.Arrays;
+
+public class TerrainCoverageTest extends TestCase {
+
+    private static final double SIZE = 0.004;
+    private static final double ALTITUDE = 100;
+
+    /**
+     * Terrain rising to the east by 15 meters every 100 meters.
+     */
+    private static final ElevationSource SLOPE = new ElevationSource() {
+        @Override
+        public double getElevation(double latitude, double longitude) {
+            return 0.15 * GeoTools.latToMeters(longitude) * Math.cos(Math.toRadians(latitude));
+        }
+    };
+
+    private static final ElevationSource FLAT = new ElevationSource() {
+        @Override
+        public double getElevation(double latitude, double longitude) {
+            return 0;
+        }
+    };
+
+    private Polygon polygon;
+    private SurveyData surveyData;
+    private Grid grid;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        polygon = new Polygon();
+        polygon.addPoints(Arrays.asList(new LatLong(0, 0), new LatLong(0, SIZE), new LatLong(SIZE, SIZE),
+                new LatLong(SIZE, 0)));
+
+        surveyData = new SurveyData();
+        surveyData.update(0, ALTITUDE, 50, 60, false);
+        grid = new GridBuilder(polygon, surveyData, new LatLong(0, 0)).generate(true);
+    }
+
+    public void testFlatTerrainKeepsTheSurveyAltitude() {
+        TerrainCoverage.Result result = new TerrainCoverage(surveyData, FLAT).compute(polygon, grid, 0);
+
+        for (LatLongAlt waypoint : result.getWaypoints()) {
+            assertEquals(ALTITUDE, waypoint.getAltitude(), 1e-9);
+        }
+        assertEquals(60, result.getFlatOverlap().getMinSideOverlap(), 1e-6);
+        assertEquals(50, result.getAdjustedOverlap().getMinForwardOverlap(), 1e-6);
+        assertEquals(1, result.getRaster().getCoveredFraction(1), 1e-9);
+    }
+
+    public void testWaypointsFollowTheTerrain() {
+        TerrainCoverage.Result result = new TerrainCoverage(surveyData, SLOPE).compute(polygon, grid, 0);
+
+        for (LatLongAlt waypoint : result.getWaypoints()) {
+            double elevation = SLOPE.getElevation(waypoint.getLatitude(), waypoint.getLongitude());
+            //The terrain is sampled on an arc second grid.
+            assertEquals(elevation + ALTITUDE, waypoint.getAltitude(), 0.15 * 31);
+        }
+    }
+
+    public void testAdjustmentHoldsTheOverlaps() {
+        TerrainCoverage.Result result = new TerrainCoverage(surveyData, SLOPE).compute(polygon, grid, 0);
+
+        //Flown flat, the photos on the east side are taken too close to the ground.
+        TerrainCoverage.Overlap flat = result.getFlatOverlap();
+        assertTrue(flat.getMinSideOverlap() < 10);
+        assertTrue(flat.getMinForwardOverlap() < 10);
+
+        TerrainCoverage.Overlap adjusted = result.getAdjustedOverlap();
+        assertEquals(flat.getPhotoCount(), adjusted.getPhotoCount());
+        assertEquals(60, adjusted.getMinSideOverlap(), 5);
+        assertEquals(50, adjusted.getMinForwardOverlap(), 5);
+        assertEquals(1, result.getRaster().getCoveredFraction(1), 0.01);
+        assertTrue(result.getRaster().getCoveredFraction(2) > 0.9);
+    }
+
+    public void testUnknownTerrainIsFlownFlat() {
+        ElevationSource unknown = new ElevationSource() {
+            @Override
+            public double getElevation(double latitude, double longitude) {
+                return Double.NaN;
+            }
+        };
+        TerrainCoverage.Result result = new TerrainCoverage(surveyData, unknown).compute(polygon, grid, Double.NaN);
+
+        for (LatLongAlt waypoint : result.getWaypoints()) {
+            assertEquals(ALTITUDE, waypoint.getAltitude(), 1e-9);
+        }
+        assertEquals(60, result.getAdjustedOverlap().getMinSideOverlap(), 1e-6);
+    }
+}
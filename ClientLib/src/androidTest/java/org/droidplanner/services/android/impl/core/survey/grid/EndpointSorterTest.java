@@ -0,0 +1,60 @@
+package org.droidplanner.services.android.impl.core.survey.grid;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import junit.framework.TestCase;
+
+import org.droidplanner.services.android.impl.core.helpers.geoTools.LineLatLong;
+import org.droidplanner.services.android.impl.core.helpers.geoTools.LineTools;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class EndpointSorterTest extends TestCase {
+
+    public void testParallelLinesAreFlownBackAndForth() throws Exception {
+        List<LineLatLong> grid = new ArrayList<>();
+        for (int i = 9; i >= 0; i--) {
+            grid.add(new LineLatLong(new LatLong(i * 0.001, 0), new LatLong(i * 0.001, 0.01)));
+        }
+
+        EndpointSorter sorter = new EndpointSorter(grid, 1000.0);
+        sorter.sortGrid(new LatLong(-1, -1), true);
+
+        List<LatLong> sortedGrid = sorter.getSortedGrid();
+        assertEquals(20, sortedGrid.size());
+        for (int i = 0; i < 10; i++) {
+            LatLong first = sortedGrid.get(i * 2);
+            LatLong second = sortedGrid.get(i * 2 + 1);
+            assertEquals(i * 0.001, first.getLatitude(), 1e-9);
+            assertEquals(i % 2 == 0 ? 0 : 0.01, first.getLongitude(), 1e-9);
+            assertEquals(i % 2 == 0 ? 0.01 : 0, second.getLongitude(), 1e-9);
+        }
+    }
+
+    public void testSortMatchesNearestLineSearch() throws Exception {
+        Random random = new Random(42);
+        List<LineLatLong> grid = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            LatLong start = new LatLong(random.nextDouble(), random.nextDouble());
+            grid.add(new LineLatLong(start, new LatLong(start.getLatitude() + random.nextDouble() * 0.1,
+                start.getLongitude() + 0.1)));
+        }
+
+        EndpointSorter sorter = new EndpointSorter(grid, 1000000.0);
+        sorter.sortGrid(new LatLong(0, 0), true);
+        List<LatLong> sortedGrid = sorter.getSortedGrid();
+
+        //Reference, linear search of the closest line.
+        List<LineLatLong> remaining = new ArrayList<>(grid);
+        LatLong last = new LatLong(0, 0);
+        for (int i = 0; remaining.size() > 0; i++) {
+            LineLatLong closestLine = LineTools.findClosestLineToPoint(last, remaining);
+            remaining.remove(closestLine);
+            assertEquals(closestLine.getClosestEndpointTo(last), sortedGrid.get(i * 2));
+            last = closestLine.getFarthestEndpointTo(last);
+            assertEquals(last, sortedGrid.get(i * 2 + 1));
+        }
+    }
+}
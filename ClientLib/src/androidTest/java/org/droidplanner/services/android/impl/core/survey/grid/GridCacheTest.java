@@ -0,0 +1,103 @@
+package org.droidplanner.services.android.impl.core.survey.grid;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import junit.framework.TestCase;
+
+import org.droidplanner.services.android.impl.core.polygon.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class GridCacheTest extends TestCase {
+
+    private static final LatLong ORIGIN = new LatLong(0, 0);
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+        GridCache.clear();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        GridCache.clear();
+        super.tearDown();
+    }
+
+    private static Polygon createPolygon(double holeOffset) {
+        Polygon polygon = new Polygon();
+        polygon.addPoints(Arrays.asList(new LatLong(0, 0), new LatLong(0, 0.01), new LatLong(0.01, 0.01),
+                new LatLong(0.01, 0)));
+        polygon.addHole(Arrays.asList(new LatLong(0.004, 0.004), new LatLong(0.004, 0.006),
+                new LatLong(0.006, 0.006 + holeOffset)));
+        return polygon;
+    }
+
+    private static GridCache.Key createKey(Polygon polygon) {
+        return new GridCache.Key(polygon, 30, 20, 5, ORIGIN, true, 0, 0);
+    }
+
+    private static Grid createGrid(int pointsCount) {
+        List<LatLong> points = new ArrayList<>();
+        for (int i = 0; i < pointsCount; i++) {
+            points.add(new LatLong(i, i));
+        }
+        return new Grid(points, new ArrayList<LatLong>());
+    }
+
+    public void testEqualInputsHit() throws Exception {
+        Grid grid = GridCache.put(createKey(createPolygon(0)), createGrid(10));
+
+        GridCache.Key key = createKey(createPolygon(0));
+        assertEquals(createKey(createPolygon(0)), key);
+        assertSame(grid, GridCache.get(key));
+    }
+
+    public void testMovedVertexMisses() throws Exception {
+        GridCache.put(createKey(createPolygon(0)), createGrid(10));
+
+        Polygon polygon = createPolygon(0);
+        polygon.movePoint(new LatLong(0.01, 0.0101), 2);
+        assertNull(GridCache.get(createKey(polygon)));
+    }
+
+    public void testMovedHoleVertexMisses() throws Exception {
+        GridCache.put(createKey(createPolygon(0)), createGrid(10));
+        assertNull(GridCache.get(createKey(createPolygon(1e-6))));
+    }
+
+    public void testChangedSettingsMiss() throws Exception {
+        Polygon polygon = createPolygon(0);
+        GridCache.put(createKey(polygon), createGrid(10));
+        assertNull(GridCache.get(new GridCache.Key(polygon, 31, 20, 5, ORIGIN, true, 0, 0)));
+        assertNull(GridCache.get(new GridCache.Key(polygon, 30, 20, 5, ORIGIN, false, 0, 0)));
+    }
+
+    public void testPointsCountIsBounded() throws Exception {
+        final int gridPoints = GridCache.MAX_POINTS / 3;
+        for (int i = 0; i < 3; i++) {
+            GridCache.put(createKey(createPolygon(i * 1e-3)), createGrid(gridPoints));
+        }
+        assertEquals(3, GridCache.size());
+
+        //The least recently used grid is evicted to make room.
+        assertNotNull(GridCache.get(createKey(createPolygon(0))));
+        GridCache.put(createKey(createPolygon(3e-3)), createGrid(gridPoints));
+        assertEquals(3, GridCache.size());
+        assertTrue(GridCache.getPointCount() <= GridCache.MAX_POINTS);
+        assertNotNull(GridCache.get(createKey(createPolygon(0))));
+        assertNull(GridCache.get(createKey(createPolygon(1e-3))));
+
+        //A grid larger than the whole cache isn't kept.
+        Grid largeGrid = GridCache.put(createKey(createPolygon(4e-3)), createGrid(GridCache.MAX_POINTS + 1));
+        assertEquals(GridCache.MAX_POINTS + 1, largeGrid.gridPoints.size());
+        assertNull(GridCache.get(createKey(createPolygon(4e-3))));
+        assertEquals(3, GridCache.size());
+
+        GridCache.clear();
+        assertEquals(0, GridCache.size());
+        assertEquals(0, GridCache.getPointCount());
+    }
+}
@@ -0,0 +1,106 @@
+package org.droidplanner.services.android.impl.core.survey.grid;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import junit.framework.TestCase;
+
+import org.droidplanner.services.android.impl.core.helpers.geoTools.LineLatLong;
+import org.droidplanner.services.android.impl.core.helpers.geoTools.LineTools;
+import org.droidplanner.services.android.impl.core.helpers.geoTools.PolylineTools;
+import org.droidplanner.services.android.impl.core.polygon.Polygon;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class TrimmerTest extends TestCase {
+
+    private static final double LINE_DISTANCE = 20;
+
+    /**
+     * U shaped field, opened to the north.
+     */
+    private static Polygon createConcavePolygon() {
+        Polygon polygon = new Polygon();
+        polygon.addPoints(Arrays.asList(
+            new LatLong(0, 0), new LatLong(0, 0.01), new LatLong(0.01, 0.01), new LatLong(0.01, 0.007),
+            new LatLong(0.002, 0.007), new LatLong(0.002, 0.003), new LatLong(0.01, 0.003), new LatLong(0.01, 0)));
+        return polygon;
+    }
+
+    /**
+     * Previous trimming, which kept the outer two crossings of each grid line.
+     */
+    private static List<LineLatLong> trimToOuterCrossings(List<LineLatLong> grid, List<LineLatLong> polygon) {
+        List<LineLatLong> trimmedGrid = new ArrayList<>();
+        for (LineLatLong gridLine : grid) {
+            ArrayList<LatLong> crossings = new ArrayList<>();
+            for (LineLatLong polyLine : polygon) {
+                LatLong intersection = LineTools.FindLineIntersection(polyLine, gridLine);
+                if (intersection != null)
+                    crossings.add(intersection);
+            }
+
+            if (crossings.size() == 2) {
+                trimmedGrid.add(new LineLatLong(crossings.get(0), crossings.get(1)));
+            } else if (crossings.size() > 2) {
+                trimmedGrid.add(LineTools.findExternalPoints(crossings));
+            }
+        }
+        return trimmedGrid;
+    }
+
+    private static double getSegmentsLength(List<LineLatLong> segments) {
+        double length = 0;
+        for (LineLatLong segment : segments) {
+            length += PolylineTools.getPolylineLength(Arrays.asList(segment.getStart(), segment.getEnd()));
+        }
+        return length;
+    }
+
+    private static double getFlightPathLength(List<LineLatLong> segments) throws Exception {
+        EndpointSorter sorter = new EndpointSorter(segments, LINE_DISTANCE);
+        sorter.sortGrid(new LatLong(0, 0), true);
+        return PolylineTools.getPolylineLength(sorter.getSortedGrid());
+    }
+
+    public void testConcavePolygonIsClippedToItsArms() throws Exception {
+        Polygon polygon = createConcavePolygon();
+        List<LineLatLong> grid = new CircumscribedGrid(polygon.getPoints(), 90.0, LINE_DISTANCE).getGrid();
+
+        List<LineLatLong> trimmedGrid = new Trimmer(grid, polygon.getLines()).getTrimmedGrid();
+        List<LineLatLong> previousGrid = trimToOuterCrossings(grid, polygon.getLines());
+
+        //No segment crosses the notch of the U.
+        for (LineLatLong segment : trimmedGrid) {
+            double midLat = (segment.getStart().getLatitude() + segment.getEnd().getLatitude()) / 2;
+            double midLon = (segment.getStart().getLongitude() + segment.getEnd().getLongitude()) / 2;
+            assertFalse(midLat > 0.0021 && midLon > 0.0031 && midLon < 0.0069);
+        }
+        assertTrue(trimmedGrid.size() > previousGrid.size());
+
+        double surveyedLength = getSegmentsLength(trimmedGrid);
+        double previousSurveyedLength = getSegmentsLength(previousGrid);
+        assertTrue(surveyedLength < previousSurveyedLength * 0.75);
+
+        double flightPathLength = getFlightPathLength(trimmedGrid);
+        double previousFlightPathLength = getFlightPathLength(previousGrid);
+        assertTrue("Flight path " + flightPathLength + "m, was " + previousFlightPathLength + "m",
+            flightPathLength < previousFlightPathLength);
+    }
+
+    public void testHolesAreExcluded() throws Exception {
+        Polygon polygon = new Polygon();
+        polygon.addPoints(Arrays.asList(new LatLong(0, 0), new LatLong(0, 0.01), new LatLong(0.01, 0.01),
+            new LatLong(0.01, 0)));
+        polygon.addHole(Arrays.asList(new LatLong(0.004, 0.004), new LatLong(0.004, 0.006),
+            new LatLong(0.006, 0.006), new LatLong(0.006, 0.004)));
+
+        Grid grid = new GridBuilder(polygon, 0, LINE_DISTANCE, new LatLong(0, 0)).generate(true);
+        for (LatLong cameraLocation : grid.getCameraLocations()) {
+            boolean isInHole = cameraLocation.getLatitude() > 0.0041 && cameraLocation.getLatitude() < 0.0059
+                && cameraLocation.getLongitude() > 0.0041 && cameraLocation.getLongitude() < 0.0059;
+            assertFalse(cameraLocation.toString(), isInHole);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.droidplanner.services.android.impl.mock;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
+
+import org.droidplanner.services.android.impl.communication.connection.AndroidMavLinkConnection;
+import org.droidplanner.services.android.impl.communication.model.DataLink;
+import org.droidplanner.services.android.impl.communication.service.MAVLinkClient;
+
+/**
+ * {@link MAVLinkClient} connected to a {@link MockAutopilot} through a {@link LoopbackMavLinkConnection},
+ * regardless of the connection parameters.
+ */
+public class LoopbackMAVLinkClient extends MAVLinkClient {
+
+    private final Context context;
+    private final MockAutopilot autopilot;
+
+    public LoopbackMAVLinkClient(Context context, DataLink.DataLinkListener listener, ConnectionParameter connParams,
+                                 MockAutopilot autopilot) {
+        super(context, listener, connParams, null);
+        this.context = context;
+        this.autopilot = autopilot;
+    }
+
+    @Override
+    protected AndroidMavLinkConnection createMavLinkConnection(int connectionType, Bundle paramsBundle) {
+        return new LoopbackMavLinkConnection(context, autopilot);
+    }
+}
@@ -0,0 +1,111 @@
+package org.droidplanner.services.android.impl.mock;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import org.droidplanner.services.android.impl.communication.connection.AndroidMavLinkConnection;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Mavlink connection wired to a {@link MockAutopilot} through an in-memory pipe.
+ * The full connection stack (reader, parser, sender and logging threads) is exercised without any
+ * transport, so it can be used to measure the cost of the connection pipeline itself.
+ */
+public class LoopbackMavLinkConnection extends AndroidMavLinkConnection implements MockAutopilot.FrameSink {
+
+    private static final long READ_TIMEOUT = 100L; //ms
+
+    private final MockAutopilot autopilot;
+    private final LinkedBlockingQueue<byte[]> pendingFrames = new LinkedBlockingQueue<>();
+
+    /**
+     * Frame partially copied in a previous read, if it didn't fit in the read buffer.
+     */
+    private byte[] partialFrame;
+    private int partialFrameOffset;
+
+    public LoopbackMavLinkConnection(Context context, MockAutopilot autopilot) {
+        super(context);
+        this.autopilot = autopilot;
+    }
+
+    @Override
+    public void onFrame(byte[] frame) {
+        pendingFrames.offer(frame);
+    }
+
+    @Override
+    protected void openConnection(Bundle connectionExtras) throws IOException {
+        pendingFrames.clear();
+        partialFrame = null;
+        autopilot.addFrameSink(this);
+        onConnectionOpened(connectionExtras);
+    }
+
+    @Override
+    protected int readDataBlock(byte[] buffer) throws IOException {
+        int length = 0;
+        if (partialFrame != null) {
+            length = copyFrame(partialFrame, partialFrameOffset, buffer, 0);
+        }
+
+        if (length == 0) {
+            final byte[] frame;
+            try {
+                frame = pendingFrames.poll(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("Loopback read interrupted.");
+            }
+
+            if (frame == null) {
+                return 0;
+            }
+
+            length = copyFrame(frame, 0, buffer, 0);
+        }
+
+        //Batch the frames already available, as a real transport would.
+        byte[] frame;
+        while (partialFrame == null && length < buffer.length && (frame = pendingFrames.poll()) != null) {
+            length += copyFrame(frame, 0, buffer, length);
+        }
+
+        return length;
+    }
+
+    private int copyFrame(byte[] frame, int frameOffset, byte[] buffer, int bufferOffset) {
+        final int length = Math.min(frame.length - frameOffset, buffer.length - bufferOffset);
+        System.arraycopy(frame, frameOffset, buffer, bufferOffset, length);
+
+        if (frameOffset + length < frame.length) {
+            partialFrame = frame;
+            partialFrameOffset = frameOffset + length;
+        } else {
+            partialFrame = null;
+        }
+        return length;
+    }
+
+    @Override
+    protected void sendBuffer(byte[] buffer) throws IOException {
+        autopilot.onBytesReceived(buffer, buffer.length);
+    }
+
+    @Override
+    protected void closeConnection() throws IOException {
+        autopilot.removeFrameSink(this);
+    }
+
+    @Override
+    protected void loadPreferences() {
+    }
+
+    @Override
+    public int getConnectionType() {
+        return -1;
+    }
+}
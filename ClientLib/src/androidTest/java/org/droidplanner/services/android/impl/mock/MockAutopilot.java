@@ -0,0 +1,462 @@
+package org.droidplanner.services.android.impl.mock;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.Parser;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_command_ack;
+import com.MAVLink.common.msg_command_long;
+import com.MAVLink.common.msg_global_position_int;
+import com.MAVLink.common.msg_heartbeat;
+import com.MAVLink.common.msg_mission_ack;
+import com.MAVLink.common.msg_mission_count;
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.common.msg_mission_item_int;
+import com.MAVLink.common.msg_mission_request;
+import com.MAVLink.common.msg_mission_request_int;
+import com.MAVLink.common.msg_mission_request_list;
+import com.MAVLink.common.msg_mission_write_partial_list;
+import com.MAVLink.common.msg_param_request_list;
+import com.MAVLink.common.msg_param_request_read;
+import com.MAVLink.common.msg_param_set;
+import com.MAVLink.common.msg_param_value;
+import com.MAVLink.common.msg_vfr_hud;
+import com.MAVLink.enums.MAV_AUTOPILOT;
+import com.MAVLink.enums.MAV_MISSION_RESULT;
+import com.MAVLink.enums.MAV_PARAM_TYPE;
+import com.MAVLink.enums.MAV_RESULT;
+import com.MAVLink.enums.MAV_TYPE;
+
+import org.droidplanner.services.android.impl.core.MAVLink.MavLinkWaypoint;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Scripted stand-in for a SITL autopilot.
+ * Answers heartbeats, the parameter protocol, the mission protocol and commands, and streams
+ * telemetry at a configurable rate. Frames are exchanged as raw bytes, either through an in-memory
+ * pipe ({@link #onBytesReceived(byte[], int)} and {@link FrameSink}) or a local tcp socket.
+ */
+public class MockAutopilot {
+
+    /**
+     * Receives the frames emitted by the mock autopilot.
+     */
+    public interface FrameSink {
+        void onFrame(byte[] frame);
+    }
+
+    public static final short SYSTEM_ID = 1;
+    public static final short COMPONENT_ID = 1;
+
+    private static final long HEARTBEAT_PERIOD = 1000L; //ms
+
+    private final Parser parser = new Parser();
+    private final List<FrameSink> sinks = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean isRunning = new AtomicBoolean(false);
+    private final Random random = new Random(0);
+
+    private final String[] paramNames;
+    private final float[] paramValues;
+
+    private final List<msg_mission_item> mission = new ArrayList<>();
+
+    /*
+     * Mission items being written, from writeStart to writeEnd (inclusive).
+     */
+    private int writeStart;
+    private int writeEnd = -1;
+    private int nextWriteSeq;
+
+    private volatile int telemetryRate;
+    private volatile double lossRate;
+
+    private int sequence;
+    private long bootTime;
+
+    private Thread streamingThread;
+    private ServerSocket serverSocket;
+
+    /**
+     * @param paramCount    number of parameters exposed by the mock autopilot
+     * @param telemetryRate telemetry stream rate in Hz, or 0 to disable the telemetry stream
+     */
+    public MockAutopilot(int paramCount, int telemetryRate) {
+        this.telemetryRate = telemetryRate;
+
+        paramNames = new String[paramCount];
+        paramValues = new float[paramCount];
+        for (int i = 0; i < paramCount; i++) {
+            paramNames[i] = String.format("MOCK_PARAM_%04d", i);
+            paramValues[i] = i;
+        }
+    }
+
+    public void addFrameSink(FrameSink sink) {
+        sinks.add(sink);
+    }
+
+    public void removeFrameSink(FrameSink sink) {
+        sinks.remove(sink);
+    }
+
+    public int getParamCount() {
+        return paramNames.length;
+    }
+
+    public synchronized List<msg_mission_item> getMission() {
+        return new ArrayList<>(mission);
+    }
+
+    public void setTelemetryRate(int telemetryRate) {
+        this.telemetryRate = telemetryRate;
+    }
+
+    /**
+     * Sets the probability for each emitted frame to be dropped, to emulate a lossy link.
+     */
+    public void setLossRate(double lossRate) {
+        this.lossRate = lossRate;
+    }
+
+    /**
+     * Starts the heartbeat and telemetry stream.
+     */
+    public void start() {
+        if (!isRunning.compareAndSet(false, true)) {
+            return;
+        }
+
+        bootTime = System.currentTimeMillis();
+        streamingThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long nextHeartbeat = 0;
+                while (isRunning.get()) {
+                    final long now = System.currentTimeMillis();
+                    if (now >= nextHeartbeat) {
+                        sendHeartbeat();
+                        nextHeartbeat = now + HEARTBEAT_PERIOD;
+                    }
+
+                    final int rate = telemetryRate;
+                    if (rate > 0) {
+                        sendTelemetry(now);
+                    }
+
+                    try {
+                        Thread.sleep(rate > 0 ? Math.max(1, 1000 / rate) : HEARTBEAT_PERIOD);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "MockAutopilot-Streaming Thread");
+        streamingThread.start();
+    }
+
+    public void stop() {
+        if (!isRunning.compareAndSet(true, false)) {
+            return;
+        }
+
+        if (streamingThread != null) {
+            streamingThread.interrupt();
+            streamingThread = null;
+        }
+
+        if (serverSocket != null) {
+            try {
+                serverSocket.close();
+            } catch (IOException e) {
+                //Ignore
+            }
+            serverSocket = null;
+        }
+    }
+
+    /**
+     * Serves the mock autopilot on a local tcp socket. A single client is accepted.
+     *
+     * @return the local port the mock autopilot is listening on.
+     */
+    public int serveTcp() throws IOException {
+        serverSocket = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    final Socket socket = serverSocket.accept();
+                    socket.setTcpNoDelay(true);
+
+                    final OutputStream out = socket.getOutputStream();
+                    final FrameSink socketSink = new FrameSink() {
+                        @Override
+                        public void onFrame(byte[] frame) {
+                            try {
+                                synchronized (out) {
+                                    out.write(frame);
+                                }
+                            } catch (IOException e) {
+                                removeFrameSink(this);
+                            }
+                        }
+                    };
+                    addFrameSink(socketSink);
+
+                    final InputStream in = socket.getInputStream();
+                    final byte[] buffer = new byte[4096];
+                    int length;
+                    while ((length = in.read(buffer)) != -1) {
+                        onBytesReceived(buffer, length);
+                    }
+
+                    removeFrameSink(socketSink);
+                    socket.close();
+                } catch (IOException e) {
+                    //Server socket closed.
+                }
+            }
+        }, "MockAutopilot-Tcp Thread").start();
+
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Feeds bytes sent by the ground control station to the mock autopilot.
+     */
+    public synchronized void onBytesReceived(byte[] buffer, int length) {
+        for (int i = 0; i < length; i++) {
+            MAVLinkPacket packet = parser.mavlink_parse_char(buffer[i] & 0xFF);
+            if (packet != null) {
+                MAVLinkMessage message = packet.unpack();
+                if (message != null) {
+                    onMessageReceived(message);
+                }
+            }
+        }
+    }
+
+    private void onMessageReceived(MAVLinkMessage message) {
+        switch (message.msgid) {
+            case msg_param_request_list.MAVLINK_MSG_ID_PARAM_REQUEST_LIST:
+                for (int i = 0; i < paramNames.length; i++) {
+                    sendParam(i);
+                }
+                break;
+
+            case msg_param_request_read.MAVLINK_MSG_ID_PARAM_REQUEST_READ: {
+                msg_param_request_read request = (msg_param_request_read) message;
+                int index = request.param_index;
+                if (index < 0) {
+                    index = indexOfParam(request.getParam_Id());
+                }
+                if (index >= 0 && index < paramNames.length) {
+                    sendParam(index);
+                }
+                break;
+            }
+
+            case msg_param_set.MAVLINK_MSG_ID_PARAM_SET: {
+                msg_param_set paramSet = (msg_param_set) message;
+                int index = indexOfParam(paramSet.getParam_Id());
+                if (index >= 0) {
+                    paramValues[index] = paramSet.param_value;
+                    sendParam(index);
+                }
+                break;
+            }
+
+            case msg_mission_count.MAVLINK_MSG_ID_MISSION_COUNT: {
+                int count = ((msg_mission_count) message).count;
+                mission.clear();
+                for (int i = 0; i < count; i++) {
+                    mission.add(null);
+                }
+                startMissionWrite(0, count - 1);
+                break;
+            }
+
+            case msg_mission_write_partial_list.MAVLINK_MSG_ID_MISSION_WRITE_PARTIAL_LIST: {
+                msg_mission_write_partial_list partialList = (msg_mission_write_partial_list) message;
+                if (partialList.start_index < 0 || partialList.start_index > partialList.end_index
+                    || partialList.end_index >= mission.size()) {
+                    msg_mission_ack ack = new msg_mission_ack();
+                    ack.type = MAV_MISSION_RESULT.MAV_MISSION_ERROR;
+                    sendMessage(ack);
+                } else {
+                    startMissionWrite(partialList.start_index, partialList.end_index);
+                }
+                break;
+            }
+
+            case msg_mission_item.MAVLINK_MSG_ID_MISSION_ITEM:
+                onMissionItem((msg_mission_item) message);
+                break;
+
+            case msg_mission_item_int.MAVLINK_MSG_ID_MISSION_ITEM_INT:
+                onMissionItem(MavLinkWaypoint.fromMissionItemInt((msg_mission_item_int) message));
+                break;
+
+            case msg_mission_request_list.MAVLINK_MSG_ID_MISSION_REQUEST_LIST: {
+                msg_mission_count count = new msg_mission_count();
+                count.count = mission.size();
+                sendMessage(count);
+                break;
+            }
+
+            case msg_mission_request.MAVLINK_MSG_ID_MISSION_REQUEST: {
+                int seq = ((msg_mission_request) message).seq;
+                if (seq >= 0 && seq < mission.size()) {
+                    sendMessage(mission.get(seq));
+                }
+                break;
+            }
+
+            case msg_mission_request_int.MAVLINK_MSG_ID_MISSION_REQUEST_INT: {
+                int seq = ((msg_mission_request_int) message).seq;
+                if (seq >= 0 && seq < mission.size()) {
+                    sendMessage(MavLinkWaypoint.toMissionItemInt(mission.get(seq)));
+                }
+                break;
+            }
+
+            case msg_command_long.MAVLINK_MSG_ID_COMMAND_LONG: {
+                msg_command_ack ack = new msg_command_ack();
+                ack.command = ((msg_command_long) message).command;
+                ack.result = MAV_RESULT.MAV_RESULT_ACCEPTED;
+                sendMessage(ack);
+                break;
+            }
+
+            default:
+                break;
+        }
+    }
+
+    private int indexOfParam(String name) {
+        for (int i = 0; i < paramNames.length; i++) {
+            if (paramNames[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void sendParam(int index) {
+        msg_param_value value = new msg_param_value();
+        value.setParam_Id(paramNames[index]);
+        value.param_value = paramValues[index];
+        value.param_index = index;
+        value.param_count = paramNames.length;
+        value.param_type = MAV_PARAM_TYPE.MAV_PARAM_TYPE_REAL32;
+        sendMessage(value);
+    }
+
+    private void startMissionWrite(int start, int end) {
+        writeStart = start;
+        writeEnd = end;
+        nextWriteSeq = start;
+        if (start > end) {
+            msg_mission_ack ack = new msg_mission_ack();
+            ack.type = MAV_MISSION_RESULT.MAV_MISSION_ACCEPTED;
+            sendMessage(ack);
+        } else {
+            requestMissionItem(start);
+        }
+    }
+
+    private void onMissionItem(msg_mission_item item) {
+        if (item.seq < writeStart || item.seq > writeEnd) {
+            return;
+        }
+
+        if (item.seq == nextWriteSeq) {
+            mission.set(item.seq, item);
+            nextWriteSeq++;
+        }
+
+        if (nextWriteSeq <= writeEnd) {
+            requestMissionItem(nextWriteSeq);
+        } else {
+            msg_mission_ack ack = new msg_mission_ack();
+            ack.type = MAV_MISSION_RESULT.MAV_MISSION_ACCEPTED;
+            sendMessage(ack);
+        }
+    }
+
+    private void requestMissionItem(int seq) {
+        msg_mission_request request = new msg_mission_request();
+        request.seq = seq;
+        sendMessage(request);
+    }
+
+    private void sendHeartbeat() {
+        msg_heartbeat heartbeat = new msg_heartbeat();
+        heartbeat.type = MAV_TYPE.MAV_TYPE_QUADROTOR;
+        heartbeat.autopilot = MAV_AUTOPILOT.MAV_AUTOPILOT_ARDUPILOTMEGA;
+        heartbeat.mavlink_version = 3;
+        sendMessage(heartbeat);
+    }
+
+    private void sendTelemetry(long now) {
+        final long timeBootMs = now - bootTime;
+
+        msg_attitude attitude = new msg_attitude();
+        attitude.time_boot_ms = timeBootMs;
+        attitude.roll = (float) Math.sin(timeBootMs / 1000.0);
+        sendMessage(attitude);
+
+        msg_global_position_int position = new msg_global_position_int();
+        position.time_boot_ms = timeBootMs;
+        position.lat = 377749000;
+        position.lon = -1224194000;
+        position.relative_alt = 10000;
+        sendMessage(position);
+
+        msg_vfr_hud vfrHud = new msg_vfr_hud();
+        vfrHud.alt = 10;
+        vfrHud.groundspeed = 5;
+        sendMessage(vfrHud);
+    }
+
+    /**
+     * Emits a burst of telemetry frames as fast as possible, for throughput measurements.
+     *
+     * @param frameCount number of frames to emit
+     */
+    public void sendTelemetryBurst(int frameCount) {
+        final msg_attitude attitude = new msg_attitude();
+        for (int i = 0; i < frameCount; i++) {
+            attitude.time_boot_ms = i;
+            sendMessage(attitude);
+        }
+    }
+
+    public synchronized void sendMessage(MAVLinkMessage message) {
+        if (lossRate > 0 && random.nextDouble() < lossRate) {
+            return;
+        }
+
+        MAVLinkPacket packet = message.pack();
+        packet.sysid = SYSTEM_ID;
+        packet.compid = COMPONENT_ID;
+        packet.seq = sequence;
+        sequence = (sequence + 1) & 0xFF;
+
+        final byte[] frame = packet.encodePacket();
+        for (FrameSink sink : sinks) {
+            sink.onFrame(frame);
+        }
+    }
+}
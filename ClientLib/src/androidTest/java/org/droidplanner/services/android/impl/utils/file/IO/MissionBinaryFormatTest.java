@@ -0,0 +1,103 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MissionBinaryFormatTest extends TestCase {
+
+    private static List<msg_mission_item> createItems() {
+        List<msg_mission_item> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            msg_mission_item msg = new msg_mission_item();
+            msg.frame = MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT;
+            msg.autocontinue = 1;
+            if (i % 10 == 0) {
+                msg.command = MAV_CMD.MAV_CMD_DO_CHANGE_SPEED;
+                msg.param2 = 5.5f;
+                msg.param3 = -1;
+                msg.param4 = Float.NaN;
+            } else {
+                msg.command = MAV_CMD.MAV_CMD_NAV_WAYPOINT;
+                msg.x = 37.7f + i * 0.0001f;
+                msg.y = -122.4f - i * 0.0001f;
+                msg.z = 30;
+            }
+            items.add(msg);
+        }
+
+        //Not a coordinate, stored as is.
+        items.get(1).x = 1e-9f;
+        return items;
+    }
+
+    private static void assertSameItems(List<msg_mission_item> expected, List<msg_mission_item> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            msg_mission_item expectedMsg = expected.get(i);
+            msg_mission_item actualMsg = actual.get(i);
+            assertEquals(i, actualMsg.seq);
+            assertEquals(expectedMsg.command, actualMsg.command);
+            assertEquals(expectedMsg.frame, actualMsg.frame);
+            assertEquals(expectedMsg.autocontinue, actualMsg.autocontinue);
+            assertEquals(expectedMsg.param2, actualMsg.param2);
+            assertEquals(expectedMsg.param3, actualMsg.param3);
+            assertEquals(Float.floatToIntBits(expectedMsg.param4), Float.floatToIntBits(actualMsg.param4));
+            assertEquals(expectedMsg.x, actualMsg.x);
+            assertEquals(expectedMsg.y, actualMsg.y);
+            assertEquals(expectedMsg.z, actualMsg.z);
+        }
+    }
+
+    public void testBinaryRoundTrip() throws Exception {
+        List<msg_mission_item> items = createItems();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MissionBinaryFormat.write(out, items);
+
+        byte[] bytes = out.toByteArray();
+        assertTrue(MissionBinaryFormat.isBinaryMission(bytes, bytes.length));
+        assertSameItems(items, MissionBinaryFormat.read(new ByteArrayInputStream(bytes)));
+    }
+
+    public void testCorruptCountIsRejected() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MissionBinaryFormat.write(out, createItems());
+
+        //Overwrite the items count, after the magic and the version, with a varint decoding as negative.
+        byte[] bytes = out.toByteArray();
+        byte[] corrupt = new byte[bytes.length + 4];
+        System.arraycopy(bytes, 0, corrupt, 0, 5);
+        corrupt[5] = (byte) 0xFF;
+        corrupt[6] = (byte) 0xFF;
+        corrupt[7] = (byte) 0xFF;
+        corrupt[8] = (byte) 0xFF;
+        corrupt[9] = (byte) 0x0F;
+        System.arraycopy(bytes, 6, corrupt, 10, bytes.length - 6);
+
+        try {
+            MissionBinaryFormat.read(new ByteArrayInputStream(corrupt));
+            fail("The corrupt count was accepted.");
+        } catch (IOException e) {
+            //Expected.
+        }
+    }
+
+    public void testWaypointFileRoundTrip() throws Exception {
+        List<msg_mission_item> items = createItems();
+        items.get(1).x = 0;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        WaypointFileFormat.write(out, items);
+
+        byte[] bytes = out.toByteArray();
+        assertFalse(MissionBinaryFormat.isBinaryMission(bytes, bytes.length));
+        assertSameItems(items, WaypointFileFormat.read(new ByteArrayInputStream(bytes)));
+    }
+}
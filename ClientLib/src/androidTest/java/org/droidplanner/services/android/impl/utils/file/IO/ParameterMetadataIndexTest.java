@@ -0,0 +1,116 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import org.droidplanner.services.android.impl.core.drone.profiles.ParameterMetadata;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ParameterMetadataIndexTest extends TestCase {
+
+    private static final int MAGIC = 0x44504D31; // 'DPM1'
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    /**
+     * Name, display name, description, units, range and values of each metadata, sorted by name.
+     */
+    private static final String[][] METADATA = {
+        {"ARMING_CHECK", "Arm Checks to Perform (bitmask)", "Checks prior to arming motor.", null, null, "0:None,1:All"},
+        {"BATT_CAPACITY", "Battery capacity", "Capacity of the battery in mAh when full", "mAh", null, null},
+        {"WPNAV_SPEED", "Waypoint Horizontal Speed Target", "Défaut: 500 cm/s", "cm/s", "0 2000", null},
+    };
+
+    /**
+     * Writes the given metadata as the 'compileParameterMetadata' gradle task does.
+     */
+    private static byte[] compile(String[][] metadata) throws IOException {
+        final int headerSize = 12 + 4 * metadata.length;
+        final ByteArrayOutputStream records = new ByteArrayOutputStream();
+        final DataOutputStream recordsOut = new DataOutputStream(records);
+        final int[] offsets = new int[metadata.length];
+        for (int i = 0; i < metadata.length; i++) {
+            offsets[i] = headerSize + recordsOut.size();
+            for (String property : metadata[i]) {
+                if (property == null) {
+                    recordsOut.writeShort(NULL_LENGTH);
+                } else {
+                    final byte[] bytes = property.getBytes("UTF-8");
+                    recordsOut.writeShort(bytes.length);
+                    recordsOut.write(bytes);
+                }
+            }
+        }
+
+        final ByteArrayOutputStream file = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(file);
+        out.writeInt(MAGIC);
+        out.writeInt(1);
+        out.writeInt(metadata.length);
+        for (int offset : offsets) {
+            out.writeInt(offset);
+        }
+        records.writeTo(out);
+        return file.toByteArray();
+    }
+
+    public void testLookup() throws Exception {
+        final ParameterMetadataIndex index = new ParameterMetadataIndex(ByteBuffer.wrap(compile(METADATA)));
+        assertEquals(METADATA.length, index.size());
+
+        for (String[] expected : METADATA) {
+            final ParameterMetadata metadata = index.get(expected[0]);
+            assertNotNull(metadata);
+            assertEquals(expected[0], metadata.getName());
+            assertEquals(expected[1], metadata.getDisplayName());
+            assertEquals(expected[2], metadata.getDescription());
+            assertEquals(expected[3], metadata.getUnits());
+            assertEquals(expected[4], metadata.getRange());
+            assertEquals(expected[5], metadata.getValues());
+        }
+    }
+
+    public void testMissingMetadata() throws Exception {
+        final ParameterMetadataIndex index = new ParameterMetadataIndex(ByteBuffer.wrap(compile(METADATA)));
+
+        //Before the first name, between two names, and after the last one.
+        assertNull(index.get("AHRS_EKF_TYPE"));
+        assertNull(index.get("BATT_CAPACITZ"));
+        assertNull(index.get("ZZZ"));
+        assertNull(index.get("batt_capacity"));
+        assertNull(index.get(""));
+        assertNull(index.get(null));
+
+        final ParameterMetadataIndex emptyIndex = new ParameterMetadataIndex(ByteBuffer.wrap(compile(new String[0][])));
+        assertEquals(0, emptyIndex.size());
+        assertNull(emptyIndex.get("BATT_CAPACITY"));
+    }
+
+    public void testInvalidFormat() throws Exception {
+        final byte[] data = compile(METADATA);
+
+        final byte[] otherMagic = data.clone();
+        otherMagic[0] = 0;
+        assertInvalid(otherMagic);
+
+        final byte[] otherVersion = data.clone();
+        otherVersion[7] = 2;
+        assertInvalid(otherVersion);
+
+        //Offsets table cut short.
+        assertInvalid(Arrays.copyOf(data, 16));
+        assertInvalid(new byte[4]);
+    }
+
+    private static void assertInvalid(byte[] data) {
+        try {
+            new ParameterMetadataIndex(ByteBuffer.wrap(data));
+            fail("Invalid metadata accepted.");
+        } catch (IOException e) {
+            //Expected
+        }
+    }
+}
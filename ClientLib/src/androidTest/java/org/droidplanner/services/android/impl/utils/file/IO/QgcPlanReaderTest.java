@@ -0,0 +1,131 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+import com.o3dr.android.client.BuildConfig;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricGradleTestRunner;
+import org.robolectric.annotation.Config;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Unit tests for the QGroundControl plan reader. Robolectric provides the android json reader.
+ */
+@RunWith(RobolectricGradleTestRunner.class)
+@Config(constants = BuildConfig.class, sdk = 18)
+public class QgcPlanReaderTest {
+
+    private static List<msg_mission_item> read(String plan) throws IOException {
+        return QgcPlanReader.read(new ByteArrayInputStream(plan.replace('\'', '"').getBytes("UTF-8")));
+    }
+
+    private static void assertItem(msg_mission_item item, int seq, int command, float x, float y, float z) {
+        Assert.assertEquals(seq, item.seq);
+        Assert.assertEquals(command, item.command);
+        Assert.assertEquals(x, item.x, 1e-5);
+        Assert.assertEquals(y, item.y, 1e-5);
+        Assert.assertEquals(z, item.z, 0);
+    }
+
+    @Test
+    public void testVersion1CoordinateIsRead() throws Exception {
+        List<msg_mission_item> items = read("{'fileType': 'Plan', 'version': 1, 'mission': {'items': ["
+            + "{'autoContinue': true, 'command': 22, 'coordinate': [37.1, -122.1, 10], 'frame': 3,"
+            + " 'params': [15, 0, 0, 0], 'type': 'SimpleItem'},"
+            + "{'autoContinue': false, 'command': 16, 'coordinate': [37.2, -122.2, 20], 'frame': 3,"
+            + " 'params': [5, 2, 0, 90], 'type': 'SimpleItem'}"
+            + "]}}");
+
+        Assert.assertEquals(2, items.size());
+        assertItem(items.get(0), 0, MAV_CMD.MAV_CMD_NAV_TAKEOFF, 37.1f, -122.1f, 10);
+        Assert.assertEquals(15, items.get(0).param1, 0);
+        Assert.assertEquals(MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT, items.get(0).frame);
+        Assert.assertEquals(1, items.get(0).autocontinue);
+
+        assertItem(items.get(1), 1, MAV_CMD.MAV_CMD_NAV_WAYPOINT, 37.2f, -122.2f, 20);
+        Assert.assertEquals(5, items.get(1).param1, 0);
+        Assert.assertEquals(2, items.get(1).param2, 0);
+        Assert.assertEquals(90, items.get(1).param4, 0);
+        Assert.assertEquals(0, items.get(1).autocontinue);
+    }
+
+    @Test
+    public void testVersion2ParamsAreRead() throws Exception {
+        List<msg_mission_item> items = read("{'fileType': 'Plan', 'version': 1, 'mission': {'version': 2,"
+            + " 'plannedHomePosition': [37.0, -122.0, 0], 'items': ["
+            + "{'AMSLAltAboveTerrain': null, 'Altitude': 20, 'autoContinue': true, 'command': 16, 'doJumpId': 1,"
+            + " 'frame': 3, 'params': [0, 0, 0, null, 37.2, -122.2, 20], 'type': 'SimpleItem'},"
+            + "{'autoContinue': true, 'command': 178, 'doJumpId': 2, 'frame': 2,"
+            + " 'params': [1, 7.5, -1, 0, 0, 0, 0], 'type': 'SimpleItem'}"
+            + "]}}");
+
+        Assert.assertEquals(2, items.size());
+        assertItem(items.get(0), 0, MAV_CMD.MAV_CMD_NAV_WAYPOINT, 37.2f, -122.2f, 20);
+        Assert.assertEquals(0, items.get(0).param1, 0);
+
+        assertItem(items.get(1), 1, MAV_CMD.MAV_CMD_DO_CHANGE_SPEED, 0, 0, 0);
+        Assert.assertEquals(MAV_FRAME.MAV_FRAME_MISSION, items.get(1).frame);
+        Assert.assertEquals(1, items.get(1).param1, 0);
+        Assert.assertEquals(7.5f, items.get(1).param2, 0);
+        Assert.assertEquals(-1, items.get(1).param3, 0);
+    }
+
+    @Test
+    public void testNullValuesAreReadAsNaN() throws Exception {
+        List<msg_mission_item> items = read("{'mission': {'items': ["
+            + "{'command': 16, 'frame': 3, 'params': [null, 0, null, null, 37.2, -122.2, null],"
+            + " 'type': 'SimpleItem'},"
+            + "{'command': 16, 'coordinate': [37.3, null, 30], 'frame': 3, 'type': 'SimpleItem'}"
+            + "]}}");
+
+        Assert.assertEquals(2, items.size());
+        Assert.assertTrue(Float.isNaN(items.get(0).param1));
+        Assert.assertEquals(0, items.get(0).param2, 0);
+        Assert.assertTrue(Float.isNaN(items.get(0).param3));
+        Assert.assertTrue(Float.isNaN(items.get(0).param4));
+        Assert.assertEquals(37.2f, items.get(0).x, 1e-5);
+        Assert.assertTrue(Float.isNaN(items.get(0).z));
+
+        Assert.assertEquals(37.3f, items.get(1).x, 1e-5);
+        Assert.assertTrue(Float.isNaN(items.get(1).y));
+        Assert.assertEquals(30, items.get(1).z, 0);
+    }
+
+    @Test
+    public void testTransectStyleItemsAreFlattened() throws Exception {
+        List<msg_mission_item> items = read("{'geoFence': {'circles': [], 'polygons': [], 'version': 2},"
+            + " 'mission': {'items': ["
+            + "{'command': 22, 'frame': 3, 'params': [0, 0, 0, null, 37.1, -122.1, 10], 'type': 'SimpleItem'},"
+            + "{'TransectStyleComplexItem': {'CameraCalc': {'DistanceToSurface': 50},"
+            + " 'Items': ["
+            + "{'command': 16, 'frame': 3, 'params': [0, 0, 0, null, 37.11, -122.11, 50], 'type': 'SimpleItem'},"
+            + "{'command': 206, 'frame': 2, 'params': [25, 0, 1, 0, 0, 0, 0], 'type': 'SimpleItem'},"
+            + "{'command': 16, 'frame': 3, 'params': [0, 0, 0, null, 37.12, -122.12, 50], 'type': 'SimpleItem'}"
+            + "], 'Refly90Degrees': false}, 'complexItemType': 'survey', 'polygon': [[37.1, -122.1], [37.2, -122.2]],"
+            + " 'type': 'ComplexItem', 'version': 4},"
+            + "{'complexItemType': 'StructureScan', 'polygon': [[37.1, -122.1]], 'type': 'ComplexItem'},"
+            + "{'command': 20, 'frame': 2, 'params': [0, 0, 0, 0, 0, 0, 0], 'type': 'SimpleItem'}"
+            + "]}, 'rallyPoints': {'points': [[37.3, -122.3, 30]], 'version': 2}}");
+
+        Assert.assertEquals(5, items.size());
+        assertItem(items.get(0), 0, MAV_CMD.MAV_CMD_NAV_TAKEOFF, 37.1f, -122.1f, 10);
+        assertItem(items.get(1), 1, MAV_CMD.MAV_CMD_NAV_WAYPOINT, 37.11f, -122.11f, 50);
+        assertItem(items.get(2), 2, MAV_CMD.MAV_CMD_DO_SET_CAM_TRIGG_DIST, 0, 0, 0);
+        Assert.assertEquals(25, items.get(2).param1, 0);
+        assertItem(items.get(3), 3, MAV_CMD.MAV_CMD_NAV_WAYPOINT, 37.12f, -122.12f, 50);
+        assertItem(items.get(4), 4, MAV_CMD.MAV_CMD_NAV_RETURN_TO_LAUNCH, 0, 0, 0);
+    }
+
+    @Test
+    public void testNonPlanIsRejected() throws Exception {
+        Assert.assertNull(read("[1, 2, 3]"));
+        Assert.assertNull(read("{'mission': {'items': [{'command': 'takeoff', 'type': 'SimpleItem'}]}}"));
+    }
+}
@@ -19,6 +19,7 @@ import com.o3dr.services.android.lib.drone.calibration.magnetometer.Magnetometer
 import com.o3dr.services.android.lib.drone.companion.solo.SoloAttributes;
 import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
 import com.o3dr.services.android.lib.drone.mission.Mission;
+import com.o3dr.services.android.lib.drone.mission.action.MissionActions;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.drone.property.Altitude;
 import com.o3dr.services.android.lib.drone.property.Attitude;
@@ -36,16 +37,21 @@ import com.o3dr.services.android.lib.gcs.follow.FollowState;
 import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
 import com.o3dr.services.android.lib.gcs.link.LinkEvent;
 import com.o3dr.services.android.lib.gcs.link.LinkEventExtra;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
 import com.o3dr.services.android.lib.gcs.returnToMe.ReturnToMeState;
 import com.o3dr.services.android.lib.model.AbstractCommandListener;
 import com.o3dr.services.android.lib.model.IDroneApi;
 import com.o3dr.services.android.lib.model.IObserver;
 import com.o3dr.services.android.lib.model.action.Action;
 
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicReference;
 
 /**
@@ -55,6 +61,11 @@ public class Drone {
     private static final String CLAZZ_NAME = Drone.class.getName();
     private static final String TAG = Drone.class.getSimpleName();
 
+    /**
+     * Number of times a paged mission download is restarted when the mission changes in between pages.
+     */
+    private static final int MAX_MISSION_PAGING_ATTEMPTS = 3;
+
     public interface OnAttributeRetrievedCallback<T extends Parcelable> {
         void onRetrievalSucceed(T attribute);
 
@@ -101,6 +112,11 @@ public class Drone {
     private LinkListener linkListener;
     private ExecutorService asyncScheduler;
 
+    /**
+     * Builds in flight, by the complex mission items they're building.
+     */
+    private final Map<MissionItem.ComplexItem<?>, MissionItemsBuild> missionItemsBuilds = new IdentityHashMap<>();
+
     // flightTimer
     // ----------------
     private long startTime = 0;
@@ -277,6 +293,9 @@ public class Drone {
             try {
                 carrier.setClassLoader(contextClassLoader);
                 attribute = carrier.getParcelable(type);
+                if (attribute instanceof Mission && carrier.containsKey(MissionActions.EXTRA_MISSION_ITEMS_TOTAL)) {
+                    attribute = (T) readMissionPages(droneApi, (Mission) attribute, carrier);
+                }
             } catch (Exception e) {
                 Log.e(TAG, e.getMessage(), e);
             }
@@ -285,6 +304,59 @@ public class Drone {
         return attribute == null ? this.<T>getAttributeDefaultValue(type) : attribute;
     }
 
+    /**
+     * Retrieves the items missing from the first page of a mission too large to be sent at once.
+     *
+     * @return the complete mission, or null if it couldn't be retrieved.
+     */
+    Mission readMissionPages(IDroneApi droneApi, Mission mission, Bundle carrier) {
+        int total = carrier.getInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL);
+        int version = carrier.getInt(MissionActions.EXTRA_MISSION_VERSION);
+        int attempts = 1;
+
+        List<MissionItem> missionItems = mission.getMissionItems();
+        while (missionItems.size() < total) {
+            Bundle params = new Bundle();
+            params.putInt(MissionActions.EXTRA_MISSION_ITEMS_OFFSET, missionItems.size());
+            Action pageAction = new Action(MissionActions.ACTION_GET_MISSION_ITEMS, params);
+            try {
+                droneApi.executeAction(pageAction, null);
+            } catch (RemoteException e) {
+                handleRemoteException(e);
+                return null;
+            }
+
+            Bundle result = pageAction.getData();
+            result.setClassLoader(contextClassLoader);
+            Mission page = result.getParcelable(MissionActions.EXTRA_MISSION);
+            if (page == null) {
+                return null;
+            }
+
+            if (result.getInt(MissionActions.EXTRA_MISSION_VERSION) != version) {
+                //The mission changed since the previous page. Start over.
+                if (++attempts > MAX_MISSION_PAGING_ATTEMPTS) {
+                    Log.w(TAG, "Mission kept changing while being retrieved.");
+                    return null;
+                }
+
+                missionItems.clear();
+                total = result.getInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL);
+                version = result.getInt(MissionActions.EXTRA_MISSION_VERSION);
+                continue;
+            }
+
+            if (page.getMissionItems().isEmpty()) {
+                return null;
+            }
+
+            missionItems.addAll(page.getMissionItems());
+            mission.setCurrentMissionItem(page.getCurrentMissionItem());
+        }
+
+        return mission;
+    }
+
     public <T extends Parcelable> void getAttributeAsync(final String attributeType,
                                                          final OnAttributeRetrievedCallback<T> callback) {
         if (callback == null) {
@@ -372,6 +444,9 @@ public class Drone {
             case AttributeType.RETURN_TO_ME_STATE:
                 return (T) new ReturnToMeState();
 
+            case AttributeType.LINK_METRICS:
+                return (T) new LinkMetrics();
+
             case AttributeType.CAMERA:
             case SoloAttributes.SOLO_STATE:
             case SoloAttributes.SOLO_GOPRO_STATE:
@@ -513,6 +588,24 @@ public class Drone {
         return this.connectionParameter;
     }
 
+    /**
+     * Build of a set of complex mission items, running in the background.
+     */
+    private static final class MissionItemsBuild {
+        final MissionItem.ComplexItem<?>[] missionItems;
+        Future<?> future;
+        boolean cancelled;
+
+        MissionItemsBuild(MissionItem.ComplexItem<?>[] missionItems) {
+            this.missionItems = missionItems;
+        }
+    }
+
+    /**
+     * Builds the given complex mission items in the background. A new call cancels the builds still in flight for
+     * any of the same item instances, whose callbacks are then never invoked. Builds of other items are left
+     * running.
+     */
     public <T extends MissionItem> void buildMissionItemsAsync(final MissionItem.ComplexItem<T>[] missionItems,
                                                                final OnMissionItemsBuiltCallback<T> callback) {
         if (callback == null) {
@@ -523,20 +616,78 @@ public class Drone {
             return;
         }
 
-        asyncScheduler.execute(new Runnable() {
-            @Override
-            public void run() {
-                for (MissionItem.ComplexItem<T> missionItem : missionItems)
-                    MissionApi.getApi(Drone.this).buildMissionItem(missionItem);
+        final MissionItemsBuild build = new MissionItemsBuild(missionItems);
+        synchronized (missionItemsBuilds) {
+            for (MissionItem.ComplexItem<T> missionItem : missionItems) {
+                MissionItemsBuild previousBuild = missionItemsBuilds.get(missionItem);
+                if (previousBuild != null) {
+                    cancelMissionItemsBuild(previousBuild);
+                }
+            }
 
-                handler.post(new Runnable() {
-                    @Override
-                    public void run() {
-                        callback.onMissionItemsBuilt(missionItems);
+            for (MissionItem.ComplexItem<T> missionItem : missionItems) {
+                missionItemsBuilds.put(missionItem, build);
+            }
+
+            build.future = asyncScheduler.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for (MissionItem.ComplexItem<T> missionItem : missionItems) {
+                        if (isMissionItemsBuildCancelled(build) || Thread.currentThread().isInterrupted()) {
+                            return;
+                        }
+                        MissionApi.getApi(Drone.this).buildMissionItem(missionItem);
                     }
-                });
+
+                    handler.post(new Runnable() {
+                        @Override
+                        public void run() {
+                            if (completeMissionItemsBuild(build)) {
+                                callback.onMissionItemsBuilt(missionItems);
+                            }
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    private boolean isMissionItemsBuildCancelled(MissionItemsBuild build) {
+        synchronized (missionItemsBuilds) {
+            return build.cancelled;
+        }
+    }
+
+    /**
+     * Removes the given build from the builds in flight.
+     *
+     * @return true if the build completed without being cancelled.
+     */
+    private boolean completeMissionItemsBuild(MissionItemsBuild build) {
+        synchronized (missionItemsBuilds) {
+            if (build.cancelled) {
+                return false;
             }
-        });
+
+            removeMissionItemsBuild(build);
+            return true;
+        }
+    }
+
+    private void cancelMissionItemsBuild(MissionItemsBuild build) {
+        build.cancelled = true;
+        if (build.future != null) {
+            build.future.cancel(true);
+        }
+        removeMissionItemsBuild(build);
+    }
+
+    private void removeMissionItemsBuild(MissionItemsBuild build) {
+        for (MissionItem.ComplexItem<?> missionItem : build.missionItems) {
+            if (missionItemsBuilds.get(missionItem) == build) {
+                missionItemsBuilds.remove(missionItem);
+            }
+        }
     }
 
     public void registerDroneListener(DroneListener listener) {
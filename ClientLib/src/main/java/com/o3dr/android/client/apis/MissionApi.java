@@ -7,11 +7,14 @@ import android.support.annotation.Nullable;
 import com.o3dr.android.client.Drone;
 import com.o3dr.services.android.lib.drone.mission.Mission;
 import com.o3dr.services.android.lib.drone.mission.MissionItemType;
+import com.o3dr.services.android.lib.drone.mission.MissionPaging;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.model.AbstractCommandListener;
 import com.o3dr.services.android.lib.model.action.Action;
 
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_BUILD_COMPLEX_MISSION_ITEM;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_CHANGE_MISSION_SPEED;
@@ -21,11 +24,15 @@ import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_LOAD_WAYPOINTS;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_SAVE_MISSION;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_SET_MISSION;
+import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_SET_MISSION_ITEMS;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.ACTION_START_MISSION;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_FORCE_ARM;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_FORCE_MODE_CHANGE;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_LOAD_MISSION_URI;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_MISSION;
+import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_MISSION_ITEMS_ACCEPTED;
+import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_MISSION_ITEMS_OFFSET;
+import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_MISSION_ITEMS_TOTAL;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_MISSION_ITEM_INDEX;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_MISSION_SPEED;
 import static com.o3dr.services.android.lib.drone.mission.action.MissionActions.EXTRA_PUSH_TO_DRONE;
@@ -57,6 +64,11 @@ public class MissionApi extends Api {
 
     private final Drone drone;
 
+    /**
+     * Count of missions being sent in pages.
+     */
+    private final AtomicInteger pendingMissionPagesUploads = new AtomicInteger();
+
     private MissionApi(Drone drone){
         this.drone = drone;
     }
@@ -70,17 +82,83 @@ public class MissionApi extends Api {
 
     /**
      * Generate action to update the mission property for the drone model in memory.
+     * Missions too large for a single binder transaction are sent in pages.
      *
      * @param mission     mission to upload to the drone.
      * @param pushToDrone if true, upload the mission to the connected device.
      */
-    public void setMission(Mission mission, boolean pushToDrone) {
+    public void setMission(final Mission mission, final boolean pushToDrone) {
+        final List<MissionItem> missionItems = mission.getMissionItems();
+        final int firstPageEnd = MissionPaging.getPageEnd(missionItems, 0, MissionPaging.MAX_PAGE_SIZE);
+        if (firstPageEnd == missionItems.size() && pendingMissionPagesUploads.get() == 0) {
+            sendMission(mission, pushToDrone);
+            return;
+        }
+
+        //Too large to be sent at once. The pages are sent from the async scheduler, and so are the following
+        // missions until the upload completes, to keep the missions in order.
+        final Mission missionCopy = new Mission();
+        missionCopy.getMissionItems().addAll(missionItems);
+        missionCopy.setCurrentMissionItem(mission.getCurrentMissionItem());
+
+        pendingMissionPagesUploads.incrementAndGet();
+        drone.getAsyncScheduler().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sendMissionPages(missionCopy, pushToDrone);
+                } finally {
+                    pendingMissionPagesUploads.decrementAndGet();
+                }
+            }
+        });
+    }
+
+    private void sendMission(Mission mission, boolean pushToDrone) {
         Bundle params = new Bundle();
         params.putParcelable(EXTRA_MISSION, mission);
         params.putBoolean(EXTRA_PUSH_TO_DRONE, pushToDrone);
         drone.performAsyncAction(new Action(ACTION_SET_MISSION, params));
     }
 
+    private void sendMissionPages(Mission mission, boolean pushToDrone) {
+        final List<MissionItem> missionItems = mission.getMissionItems();
+        final int total = missionItems.size();
+        int offset = 0;
+        do {
+            int pageEnd = MissionPaging.getPageEnd(missionItems, offset, MissionPaging.MAX_PAGE_SIZE);
+            if (offset == 0 && pageEnd == total) {
+                sendMission(mission, pushToDrone);
+                return;
+            }
+
+            Mission page = new Mission();
+            page.getMissionItems().addAll(missionItems.subList(offset, pageEnd));
+            page.setCurrentMissionItem(mission.getCurrentMissionItem());
+
+            Bundle params = new Bundle();
+            params.putParcelable(EXTRA_MISSION, page);
+            params.putInt(EXTRA_MISSION_ITEMS_OFFSET, offset);
+            params.putInt(EXTRA_MISSION_ITEMS_TOTAL, total);
+            params.putBoolean(EXTRA_PUSH_TO_DRONE, pushToDrone);
+
+            Action pageAction = new Action(ACTION_SET_MISSION_ITEMS, params);
+            if (!drone.performAction(pageAction)) {
+                return;
+            }
+
+            if (!pageAction.getData().getBoolean(EXTRA_MISSION_ITEMS_ACCEPTED, false)) {
+                if (offset == 0) {
+                    //The service doesn't support paged missions. Fall back to sending it at once.
+                    sendMission(mission, pushToDrone);
+                }
+                return;
+            }
+
+            offset = pageEnd;
+        } while (offset < total);
+    }
+
     /**
      * Starts the mission. The vehicle will only accept this command if armed and in Auto mode.
      * note: This command is only supported by APM:Copter V3.3 and newer.
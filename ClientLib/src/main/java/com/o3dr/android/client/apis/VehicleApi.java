@@ -14,7 +14,11 @@ import java.util.concurrent.ConcurrentHashMap;
 
 import static com.o3dr.services.android.lib.drone.action.ConnectionActions.ACTION_CONNECT;
 import static com.o3dr.services.android.lib.drone.action.ConnectionActions.ACTION_DISCONNECT;
+import static com.o3dr.services.android.lib.drone.action.ConnectionActions.ACTION_SEEK_TLOG_REPLAY;
+import static com.o3dr.services.android.lib.drone.action.ConnectionActions.ACTION_SET_TLOG_REPLAY_SPEED;
 import static com.o3dr.services.android.lib.drone.action.ConnectionActions.EXTRA_CONNECT_PARAMETER;
+import static com.o3dr.services.android.lib.drone.action.ConnectionActions.EXTRA_TLOG_REPLAY_POSITION;
+import static com.o3dr.services.android.lib.drone.action.ConnectionActions.EXTRA_TLOG_REPLAY_SPEED;
 import static com.o3dr.services.android.lib.drone.action.ParameterActions.ACTION_REFRESH_PARAMETERS;
 import static com.o3dr.services.android.lib.drone.action.ParameterActions.ACTION_WRITE_PARAMETERS;
 import static com.o3dr.services.android.lib.drone.action.ParameterActions.EXTRA_PARAMETERS;
@@ -78,6 +82,36 @@ public class VehicleApi extends Api {
         drone.performAsyncAction(new Action(ACTION_DISCONNECT));
     }
 
+    /**
+     * Repositions the replay of a tlog replay connection.
+     *
+     * @param position tlog time (in ms) of the first frame to replay.
+     * @param listener Register a callback to receive update of the command execution state. The command fails if
+     *                 the vehicle is not connected through a tlog replay connection.
+     * @see ConnectionParameter#newTlogReplayConnection
+     */
+    public void seekTlogReplay(long position, AbstractCommandListener listener) {
+        Bundle params = new Bundle();
+        params.putLong(EXTRA_TLOG_REPLAY_POSITION, position);
+        drone.performAsyncActionOnDroneThread(new Action(ACTION_SEEK_TLOG_REPLAY, params), listener);
+    }
+
+    /**
+     * Updates the speed of a tlog replay connection.
+     *
+     * @param replaySpeed Replay speed factor relative to the recorded pace, or
+     *                    {@link com.o3dr.services.android.lib.drone.connection.ConnectionType#TLOG_REPLAY_SPEED_MAX}
+     *                    to stream the frames as fast as possible.
+     * @param listener    Register a callback to receive update of the command execution state. The command fails if
+     *                    the vehicle is not connected through a tlog replay connection.
+     * @see ConnectionParameter#newTlogReplayConnection
+     */
+    public void setTlogReplaySpeed(double replaySpeed, AbstractCommandListener listener) {
+        Bundle params = new Bundle();
+        params.putDouble(EXTRA_TLOG_REPLAY_SPEED, replaySpeed);
+        drone.performAsyncActionOnDroneThread(new Action(ACTION_SET_TLOG_REPLAY_SPEED, params), listener);
+    }
+
     /**
      * Arm or disarm the connected drone.
      *
@@ -0,0 +1,383 @@
+package com.o3dr.android.client.utils.data.tlog;
+
+import android.content.Context;
+import android.net.Uri;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.ardupilotmega.CRC;
+import com.o3dr.services.android.lib.util.UriUtils;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Random access reader for TLog files.
+ * The file is memory mapped, and a compact index of the frame offsets, timestamps and message ids
+ * is built in a single pass. Messages are only decoded when they are requested, so large logs can
+ * be filtered, searched by time and iterated without loading every event in memory.
+ * <p/>
+ * Instances are not thread-safe; open one index per thread when reading in parallel.
+ */
+public class TLogIndex implements Closeable {
+
+    static final int TIMESTAMP_LENGTH = 8;
+    static final int HEADER_LENGTH = 6;
+    static final int CRC_LENGTH = 2;
+    static final int MIN_RECORD_LENGTH = TIMESTAMP_LENGTH + HEADER_LENGTH + CRC_LENGTH;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final CRC crc = new CRC();
+
+    /**
+     * Offset of the STX byte for each indexed frame.
+     */
+    private int[] offsets = new int[INITIAL_CAPACITY];
+
+    /**
+     * Timestamp of each indexed frame in ms, relative to {@link #baseTimestamp}.
+     */
+    private int[] timestamps = new int[INITIAL_CAPACITY];
+
+    private byte[] msgIds = new byte[INITIAL_CAPACITY];
+
+    private int count;
+    private long baseTimestamp;
+    private int skippedBytes;
+
+    private TLogIndex(FileChannel channel) throws IOException {
+        this.channel = channel;
+
+        final long size = channel.size();
+        if (size > Integer.MAX_VALUE) {
+            channel.close();
+            throw new IOException("TLog file is too large to be mapped: " + size + " bytes");
+        }
+
+        this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        buildIndex();
+    }
+
+    /**
+     * Opens and indexes the tlog file at the given uri.
+     * Note: This method blocks and should not be used on the main thread.
+     *
+     * @param context
+     * @param uri     Location of the TLog file
+     * @return the tlog index. The caller is responsible for closing it.
+     * @throws IOException
+     */
+    public static TLogIndex open(Context context, Uri uri) throws IOException {
+        return new TLogIndex(UriUtils.getReadableFileChannel(context, uri));
+    }
+
+    /**
+     * Opens and indexes the given tlog file.
+     * Note: This method blocks and should not be used on the main thread.
+     *
+     * @param file TLog file
+     * @return the tlog index. The caller is responsible for closing it.
+     * @throws IOException
+     */
+    public static TLogIndex open(File file) throws IOException {
+        return new TLogIndex(new FileInputStream(file).getChannel());
+    }
+
+    private void buildIndex() {
+        final int limit = buffer.limit();
+        int position = 0;
+        while (position + MIN_RECORD_LENGTH <= limit) {
+            final int frameOffset = position + TIMESTAMP_LENGTH;
+            final int frameLength = validateFrame(buffer, crc, frameOffset, limit);
+            if (frameLength < 0) {
+                //Not a valid record start. Resynchronize on the next byte.
+                position++;
+                skippedBytes++;
+                continue;
+            }
+
+            final long timestamp = buffer.getLong(position) / 1000;
+            if (count == 0) {
+                baseTimestamp = timestamp;
+            }
+
+            ensureCapacity(count + 1);
+            offsets[count] = frameOffset;
+            timestamps[count] = (int) (timestamp - baseTimestamp);
+            msgIds[count] = buffer.get(frameOffset + 5);
+            count++;
+
+            position = frameOffset + frameLength;
+        }
+    }
+
+    /**
+     * @return the total length of the valid frame starting at the given offset, or -1 if there is
+     * no valid frame at that offset.
+     */
+    static int validateFrame(ByteBuffer buffer, CRC crc, int offset, int limit) {
+        if ((buffer.get(offset) & 0xFF) != MAVLinkPacket.MAVLINK_STX) {
+            return -1;
+        }
+
+        final int payloadLength = buffer.get(offset + 1) & 0xFF;
+        final int frameLength = HEADER_LENGTH + payloadLength + CRC_LENGTH;
+        if (offset + frameLength > limit) {
+            return -1;
+        }
+
+        crc.start_checksum();
+        final int crcOffset = offset + HEADER_LENGTH + payloadLength;
+        for (int i = offset + 1; i < crcOffset; i++) {
+            crc.update_checksum(buffer.get(i));
+        }
+        crc.finish_checksum(buffer.get(offset + 5) & 0xFF);
+
+        if ((buffer.get(crcOffset) & 0xFF) != crc.getLSB()
+                || (buffer.get(crcOffset + 1) & 0xFF) != crc.getMSB()) {
+            return -1;
+        }
+
+        return frameLength;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= offsets.length) {
+            return;
+        }
+
+        final int newCapacity = Math.max(capacity, offsets.length * 2);
+        offsets = Arrays.copyOf(offsets, newCapacity);
+        timestamps = Arrays.copyOf(timestamps, newCapacity);
+        msgIds = Arrays.copyOf(msgIds, newCapacity);
+    }
+
+    /**
+     * @return number of valid mavlink frames in the tlog file.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @return number of bytes that were skipped while resynchronizing on corrupted records.
+     */
+    public int getSkippedBytes() {
+        return skippedBytes;
+    }
+
+    /**
+     * Returns the time of the frame at the given index in ms.
+     *
+     * @param index
+     * @return
+     */
+    public long getTimestamp(int index) {
+        checkIndex(index);
+        return baseTimestamp + timestamps[index];
+    }
+
+    /**
+     * Returns the mavlink message id of the frame at the given index.
+     *
+     * @param index
+     * @return
+     */
+    public int getMessageId(int index) {
+        checkIndex(index);
+        return msgIds[index] & 0xFF;
+    }
+
+    /**
+     * Returns the byte offset of the frame at the given index within the tlog file.
+     *
+     * @param index
+     * @return
+     */
+    public int getFrameOffset(int index) {
+        checkIndex(index);
+        return offsets[index];
+    }
+
+    /**
+     * Returns the total length in bytes of the frame at the given index, including header and crc.
+     *
+     * @param index
+     * @return
+     */
+    public int getFrameLength(int index) {
+        checkIndex(index);
+        return HEADER_LENGTH + (buffer.get(offsets[index] + 1) & 0xFF) + CRC_LENGTH;
+    }
+
+    /**
+     * Copies the raw bytes of the frame at the given index into the destination array.
+     *
+     * @param index
+     * @param dst         destination array
+     * @param dstOffset   offset in the destination array
+     * @return number of copied bytes
+     */
+    public int copyFrame(int index, byte[] dst, int dstOffset) {
+        final int length = getFrameLength(index);
+        final ByteBuffer frame = buffer.duplicate();
+        frame.position(offsets[index]);
+        frame.get(dst, dstOffset, length);
+        return length;
+    }
+
+    /**
+     * Rebuilds the mavlink packet at the given index from the mapped file.
+     *
+     * @param index
+     * @return {@link MAVLinkPacket}
+     */
+    public MAVLinkPacket getPacket(int index) {
+        checkIndex(index);
+        return readPacket(buffer, offsets[index]);
+    }
+
+    /**
+     * Rebuilds the mavlink packet whose frame starts at the given offset.
+     */
+    static MAVLinkPacket readPacket(ByteBuffer buffer, int offset) {
+        final int payloadLength = buffer.get(offset + 1) & 0xFF;
+
+        final MAVLinkPacket packet = new MAVLinkPacket(payloadLength);
+        packet.seq = buffer.get(offset + 2) & 0xFF;
+        packet.sysid = buffer.get(offset + 3) & 0xFF;
+        packet.compid = buffer.get(offset + 4) & 0xFF;
+        packet.msgid = buffer.get(offset + 5) & 0xFF;
+
+        final int payloadOffset = offset + HEADER_LENGTH;
+        for (int i = 0; i < payloadLength; i++) {
+            packet.payload.add(buffer.get(payloadOffset + i));
+        }
+
+        return packet;
+    }
+
+    /**
+     * Decodes the event at the given index.
+     *
+     * @param index
+     * @return the decoded event, or null if the message type is unknown to the mavlink library.
+     */
+    public TLogParser.Event getEvent(int index) {
+        final MAVLinkMessage message = getPacket(index).unpack();
+        if (message == null) {
+            return null;
+        }
+
+        return new TLogParser.Event(getTimestamp(index), message);
+    }
+
+    /**
+     * Returns the index of the first frame whose timestamp is greater or equal to the given time.
+     * TLog timestamps are recorded in increasing order, so the lookup is a binary search.
+     *
+     * @param timestamp time in ms
+     * @return index of the first frame at or after the given time, or {@link #size()} if there is none.
+     */
+    public int indexOf(long timestamp) {
+        final long relative = timestamp - baseTimestamp;
+        int low = 0;
+        int high = count;
+        while (low < high) {
+            final int mid = (low + high) >>> 1;
+            if (timestamps[mid] < relative) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Lazily iterates over every event in the tlog file.
+     *
+     * @return
+     */
+    public Iterator<TLogParser.Event> iterator() {
+        return indexIterator(0, count, null);
+    }
+
+    /**
+     * Lazily iterates over the events with the given message ids, within the given time range.
+     * Frames with other message ids are skipped without being decoded.
+     *
+     * @param startTime start of the time range in ms, inclusive
+     * @param endTime   end of the time range in ms, exclusive
+     * @param msgIds    message ids to return. All messages are returned if empty.
+     * @return
+     */
+    public Iterator<TLogParser.Event> iterator(long startTime, long endTime, int... msgIds) {
+        boolean[] accepted = null;
+        if (msgIds != null && msgIds.length > 0) {
+            accepted = new boolean[256];
+            for (int msgId : msgIds) {
+                accepted[msgId & 0xFF] = true;
+            }
+        }
+
+        return indexIterator(indexOf(startTime), indexOf(endTime), accepted);
+    }
+
+    private Iterator<TLogParser.Event> indexIterator(final int fromIndex, final int toIndex, final boolean[] accepted) {
+        return new Iterator<TLogParser.Event>() {
+            private int nextIndex = findNext(fromIndex);
+
+            private int findNext(int index) {
+                for (; index < toIndex; index++) {
+                    if (accepted == null || accepted[msgIds[index] & 0xFF]) {
+                        return index;
+                    }
+                }
+                return toIndex;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return nextIndex < toIndex;
+            }
+
+            @Override
+            public TLogParser.Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                TLogParser.Event event = getEvent(nextIndex);
+                nextIndex = findNext(nextIndex + 1);
+                return event;
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= count) {
+            throw new IndexOutOfBoundsException("Invalid index " + index + ", size is " + count);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -8,6 +8,7 @@ import android.util.Log;
 import com.MAVLink.MAVLinkPacket;
 import com.MAVLink.Messages.MAVLinkMessage;
 import com.MAVLink.Parser;
+import com.MAVLink.ardupilotmega.CRC;
 import com.o3dr.services.android.lib.util.UriUtils;
 
 import java.io.BufferedInputStream;
@@ -17,11 +18,18 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Parse TLog file into Events
@@ -29,7 +37,12 @@ import java.util.concurrent.Executors;
 public class TLogParser {
     private static final String LOG_TAG = TLogParser.class.getSimpleName();
 
-    private static final Parser parser = new Parser();
+    /**
+     * Files smaller than this are decoded in a single chunk by the parallel parser.
+     */
+    private static final int MIN_PARALLEL_CHUNK_SIZE = 1024 * 1024;
+
+    private static final int PARALLEL_THREAD_COUNT = Math.max(1, Runtime.getRuntime().availableProcessors());
 
     //Private constructor to prevent instantiation.
     private TLogParser(){}
@@ -41,6 +54,7 @@ public class TLogParser {
         private final Context context;
         private final Uri uri;
         private DataInputStream in = null;
+        private Parser parser = null;
         private final Handler handler;
 
         private static final TLogIteratorFilter DEFAULT_FILTER = new TLogIteratorFilter() {
@@ -78,6 +92,7 @@ public class TLogParser {
          */
         public void start() throws IOException {
             in = new DataInputStream(new BufferedInputStream(UriUtils.getInputStream(context, this.uri)));
+            parser = new Parser();
         }
 
         /**
@@ -141,13 +156,13 @@ public class TLogParser {
          * @return
          * @throws IOException
          */
-        public Event blockingNext(final TLogIteratorFilter filter) throws IOException {
-            Event event = next(in);
+        public synchronized Event blockingNext(final TLogIteratorFilter filter) throws IOException {
+            Event event = next(in, parser);
             while (event != null) {
                 if (filter.acceptEvent(event)) {
                     return event;
                 }
-                event = next(in);
+                event = next(in, parser);
             }
 
             return null;
@@ -206,17 +221,24 @@ public class TLogParser {
      * @throws Exception
      */
     public static List<TLogParser.Event> getAllEvents(Context context, final Uri uri, final TLogParserFilter filter) throws Exception {
-        InputStream inputStream = UriUtils.getInputStream(context, uri);
+        return getAllEvents(UriUtils.getInputStream(context, uri), filter);
+    }
+
+    /**
+     * Decodes the events of the given tlog stream, then closes it.
+     */
+    static List<TLogParser.Event> getAllEvents(InputStream inputStream, final TLogParserFilter filter) throws IOException {
         DataInputStream in = null;
         try {
             in = new DataInputStream(new BufferedInputStream(inputStream));
+            final Parser parser = new Parser();
             ArrayList<Event> eventList = new ArrayList<>();
-            Event event = next(in);
+            Event event = next(in, parser);
             while (event != null && filter.shouldIterate()) {
                 if (filter.includeEvent(event)) {
                     eventList.add(event);
                 }
-                event = next(in);
+                event = next(in, parser);
             }
 
             return eventList;
@@ -226,7 +248,7 @@ public class TLogParser {
                 try {
                     in.close();
                 } catch (IOException e) {
-                    Log.e(LOG_TAG, "Failed to close file " + uri, e);
+                    Log.e(LOG_TAG, "Failed to close tlog stream", e);
                 }
             }
         }
@@ -252,7 +274,7 @@ public class TLogParser {
      * @param callback {@link TLogParserCallback}
      */
     public static void getAllEventsAsync(final Context context, final Handler handler, final Uri uri, final TLogParserFilter filter, final TLogParserCallback callback) {
-        getInstance().execute(new Runnable() {
+        getBulkInstance().execute(new Runnable() {
             @Override
             public void run() {
                 try {
@@ -270,6 +292,235 @@ public class TLogParser {
         });
     }
 
+    /**
+     * Returns a list of all events in specified TLog uri using the specified filter.
+     * The file is split into chunks which are decoded in parallel, then joined on the record boundaries
+     * found by the previous chunks. The events are returned in file order, as {@link #getAllEvents(Context, Uri)}
+     * does.
+     * Note: This method blocks and should not be used on the main thread.
+     *
+     * @param uri {@link Uri}
+     * @param filter {@link TLogIteratorFilter} applied to each decoded event. It may be called
+     *                                         concurrently from several threads.
+     * @return
+     * @throws Exception
+     */
+    public static List<TLogParser.Event> getAllEventsParallel(Context context, final Uri uri, final TLogIteratorFilter filter) throws Exception {
+        FileChannel channel = UriUtils.getReadableFileChannel(context, uri);
+        try {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("TLog file is too large to be mapped: " + size + " bytes");
+            }
+
+            final ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int chunkCount = (int) Math.max(1, Math.min(PARALLEL_THREAD_COUNT * 2, size / MIN_PARALLEL_CHUNK_SIZE));
+            return decodeParallel(buffer, chunkCount, filter);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                Log.e(LOG_TAG, "Failed to close file " + uri, e);
+            }
+        }
+    }
+
+    /**
+     * Asynchronously returns a list of all events in specified TLog uri using the specified filter,
+     * decoding the file in parallel.
+     *
+     * @param handler {@link Handler} Handler to specify what thread to callback on. This cannot be null.
+     * @param uri {@link Uri}
+     * @param filter {@link TLogIteratorFilter}
+     * @param callback {@link TLogParserCallback}
+     * @see #getAllEventsParallel(Context, Uri, TLogIteratorFilter)
+     */
+    public static void getAllEventsParallelAsync(final Context context, final Handler handler, final Uri uri, final TLogIteratorFilter filter, final TLogParserCallback callback) {
+        getBulkInstance().execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    List<Event> eventList = getAllEventsParallel(context, uri, filter);
+
+                    if (eventList.isEmpty()) {
+                        sendFailed(handler, callback, new NoSuchElementException());
+                    } else {
+                        sendResult(handler, callback, eventList);
+                    }
+                } catch (Exception e) {
+                    sendFailed(handler, callback, e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Decodes the given tlog records in the given count of chunks, in parallel.
+     * <p/>
+     * A chunk starts at an arbitrary byte offset, often inside the last record of the previous chunk, and
+     * resynchronizes on the first bytes passing the crc check. Those may belong to a record's payload, so
+     * the chunks are joined sequentially: each one only contributes the records from the real end of the
+     * previous chunk's last record, and is decoded again from there if it resynchronized on a false record
+     * overlapping it.
+     */
+    static List<Event> decodeParallel(ByteBuffer buffer, int chunkCount, TLogIteratorFilter filter) throws Exception {
+        final int limit = buffer.limit();
+        final int chunkSize = limit / chunkCount;
+
+        List<Future<Chunk>> chunkResults = new ArrayList<>(chunkCount);
+        for (int i = 0; i < chunkCount; i++) {
+            final int start = i * chunkSize;
+            final int end = i == chunkCount - 1 ? limit : start + chunkSize;
+            chunkResults.add(getParallelInstance().submit(new ChunkDecoder(buffer.duplicate(), start, end, filter)));
+        }
+
+        ArrayList<Event> events = new ArrayList<>();
+        int recordsEnd = 0;
+        for (Future<Chunk> chunkResult : chunkResults) {
+            Chunk chunk = chunkResult.get();
+            if (recordsEnd >= chunk.stop) {
+                //The previous chunks' records cover the whole chunk.
+                continue;
+            }
+
+            if (chunk.isInsideRecord(recordsEnd)) {
+                chunk = new ChunkDecoder(buffer.duplicate(), recordsEnd, chunk.end, filter).call();
+            }
+
+            chunk.addEvents(recordsEnd, events);
+            recordsEnd = chunk.stop;
+        }
+
+        return events;
+    }
+
+    /**
+     * Records decoded from a byte range of a tlog file.
+     */
+    private static class Chunk {
+        private static final int INITIAL_CAPACITY = 256;
+
+        final int end;
+
+        /**
+         * Offset the decoding stopped at: the end of the last record, at or past the range end.
+         */
+        int stop;
+
+        /**
+         * Start and end offsets of the decoded records, whether or not their event was kept.
+         */
+        private int[] recordStarts = new int[INITIAL_CAPACITY];
+        private int[] recordEnds = new int[INITIAL_CAPACITY];
+        private int recordCount;
+
+        private final List<Event> events = new ArrayList<>();
+        private int[] eventOffsets = new int[INITIAL_CAPACITY];
+
+        Chunk(int end) {
+            this.end = end;
+        }
+
+        void addRecord(int start, int end, Event event) {
+            if (recordCount == recordStarts.length) {
+                recordStarts = Arrays.copyOf(recordStarts, recordCount * 2);
+                recordEnds = Arrays.copyOf(recordEnds, recordCount * 2);
+            }
+            recordStarts[recordCount] = start;
+            recordEnds[recordCount] = end;
+            recordCount++;
+
+            if (event != null) {
+                if (events.size() == eventOffsets.length) {
+                    eventOffsets = Arrays.copyOf(eventOffsets, events.size() * 2);
+                }
+                eventOffsets[events.size()] = start;
+                events.add(event);
+            }
+        }
+
+        /**
+         * @return true if the given offset is within one of the decoded records, past its start.
+         */
+        boolean isInsideRecord(int offset) {
+            int low = 0;
+            int high = recordCount;
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (recordStarts[mid] < offset) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low > 0 && recordEnds[low - 1] > offset;
+        }
+
+        /**
+         * Adds the events of the records starting at or after the given offset.
+         */
+        void addEvents(int offset, List<Event> out) {
+            final int eventCount = events.size();
+            for (int i = 0; i < eventCount; i++) {
+                if (eventOffsets[i] >= offset) {
+                    out.add(events.get(i));
+                }
+            }
+        }
+    }
+
+    /**
+     * Decodes the records starting within a byte range of a mapped tlog file.
+     * The range start is resynchronized on the first valid record, and the last record may extend
+     * past the range end.
+     */
+    private static class ChunkDecoder implements Callable<Chunk> {
+
+        private final ByteBuffer buffer;
+        private final int start;
+        private final int end;
+        private final TLogIteratorFilter filter;
+
+        ChunkDecoder(ByteBuffer buffer, int start, int end, TLogIteratorFilter filter) {
+            this.buffer = buffer;
+            this.start = start;
+            this.end = end;
+            this.filter = filter;
+        }
+
+        @Override
+        public Chunk call() {
+            final CRC crc = new CRC();
+            final int limit = buffer.limit();
+            final Chunk chunk = new Chunk(end);
+
+            int position = start;
+            while (position < end && position + TLogIndex.MIN_RECORD_LENGTH <= limit) {
+                final int frameOffset = position + TLogIndex.TIMESTAMP_LENGTH;
+                final int frameLength = TLogIndex.validateFrame(buffer, crc, frameOffset, limit);
+                if (frameLength < 0) {
+                    position++;
+                    continue;
+                }
+
+                Event event = null;
+                MAVLinkMessage message = TLogIndex.readPacket(buffer, frameOffset).unpack();
+                if (message != null) {
+                    event = new Event(buffer.getLong(position) / 1000, message);
+                    if (filter != null && !filter.acceptEvent(event)) {
+                        event = null;
+                    }
+                }
+
+                chunk.addRecord(position, frameOffset + frameLength, event);
+                position = frameOffset + frameLength;
+            }
+
+            chunk.stop = position;
+            return chunk;
+        }
+    }
+
     private static void sendResult(Handler handler, final TLogParserCallback callback, final List<Event> events) {
         if (callback != null) {
             handler.post(new Runnable() {
@@ -292,7 +543,7 @@ public class TLogParser {
         }
     }
 
-    private static Event next(DataInputStream in) throws IOException {
+    private static Event next(DataInputStream in, Parser parser) throws IOException {
         try {
             long timestamp = in.readLong() / 1000;
             MAVLinkPacket packet;
@@ -316,6 +567,31 @@ public class TLogParser {
         private static final ExecutorService executorService = Executors.newSingleThreadExecutor();
     }
 
+    private static ExecutorService getBulkInstance() {
+        return InitializeBulkExecutorService.executorService;
+    }
+
+    private static class InitializeBulkExecutorService {
+        private static final ExecutorService executorService = Executors.newCachedThreadPool();
+    }
+
+    private static ExecutorService getParallelInstance() {
+        return InitializeParallelExecutorService.executorService;
+    }
+
+    private static class InitializeParallelExecutorService {
+        private static final ExecutorService executorService = Executors.newFixedThreadPool(PARALLEL_THREAD_COUNT, new ThreadFactory() {
+            private final AtomicInteger threadCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                final Thread thread = new Thread(runnable, "TLog decoder #" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
     /**
      * Mavlink message event.
      */
@@ -325,7 +601,7 @@ public class TLogParser {
         private long timestamp;
         private MAVLinkMessage mavLinkMessage;
 
-        private Event(long timestamp, MAVLinkMessage mavLinkMessage) {
+        Event(long timestamp, MAVLinkMessage mavLinkMessage) {
             this.timestamp = timestamp;
             this.mavLinkMessage = mavLinkMessage;
         }
@@ -14,4 +14,10 @@ public class ConnectionActions {
     public static final String EXTRA_CONNECT_PARAMETER = "extra_connect_parameter";
 
     public static final String ACTION_DISCONNECT = Utils.PACKAGE_NAME + ".action.DISCONNECT";
+
+    public static final String ACTION_SEEK_TLOG_REPLAY = Utils.PACKAGE_NAME + ".action.SEEK_TLOG_REPLAY";
+    public static final String EXTRA_TLOG_REPLAY_POSITION = "extra_tlog_replay_position";
+
+    public static final String ACTION_SET_TLOG_REPLAY_SPEED = Utils.PACKAGE_NAME + ".action.SET_TLOG_REPLAY_SPEED";
+    public static final String EXTRA_TLOG_REPLAY_SPEED = "extra_tlog_replay_speed";
 }
@@ -69,6 +69,8 @@ public class AttributeEvent {
 
     /**
      * Mission attribute events.
+     *
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_CHANGE}
      */
     public static final String MISSION_UPDATED = PACKAGE_NAME + ".MISSION_UPDATED";
     public static final String MISSION_DRONIE_CREATED = PACKAGE_NAME + ".MISSION_DRONIE_CREATED";
@@ -77,6 +79,20 @@ public class AttributeEvent {
     public static final String MISSION_ITEM_UPDATED = PACKAGE_NAME + ".MISSION_ITEM_UPDATED";
     public static final String MISSION_ITEM_REACHED = PACKAGE_NAME + ".MISSION_ITEM_REACHED";
 
+    /**
+     * Event to signal the progress of a mission upload to, or download from the vehicle. Fired at most every
+     * 250ms, and once the last item is transferred.
+     *
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFER_UPLOAD}
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFERRED_COUNT}
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFER_COUNT}
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFER_ELAPSED_TIME}
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFER_RETRIES}
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFER_ITEM_LATENCY}
+     * @see {@link AttributeEventExtra#EXTRA_MISSION_TRANSFER_ROUND_TRIP_TIME}
+     */
+    public static final String MISSION_TRANSFER_PROGRESS = PACKAGE_NAME + ".MISSION_TRANSFER_PROGRESS";
+
     /*
      * Parameter attribute events.
      */
@@ -109,6 +125,16 @@ public class AttributeEvent {
      */
     public static final String PARAMETER_RECEIVED = PACKAGE_NAME + ".PARAMETERS_RECEIVED";
 
+    /**
+     * Event to signal the progress of a parameters download from the vehicle. Fired at most every 250ms,
+     * and once the last parameter is received.
+     *
+     * @see {@link AttributeEventExtra#EXTRA_PARAMETERS_RECEIVED_COUNT}
+     * @see {@link AttributeEventExtra#EXTRA_PARAMETERS_COUNT}
+     * @see {@link AttributeEventExtra#EXTRA_PARAMETERS_DOWNLOAD_ETA}
+     */
+    public static final String PARAMETERS_DOWNLOAD_PROGRESS = PACKAGE_NAME + ".PARAMETERS_DOWNLOAD_PROGRESS";
+
     /**
      * Event to signal update of the vehicle type.
      */
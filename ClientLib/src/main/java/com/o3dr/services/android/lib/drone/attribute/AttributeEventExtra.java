@@ -66,10 +66,70 @@ public class AttributeEventExtra {
 
     public static final String EXTRA_MISSION_DRONIE_BEARING = PACKAGE_NAME + ".MISSION_DRONIE_BEARING";
 
+    /**
+     * Used to retrieve the {@link com.o3dr.services.android.lib.drone.mission.MissionChange} describing the
+     * mission update, so the previously retrieved mission can be patched rather than reloaded.
+     * Not set when the events dispatch is buffered, in which case the mission should be reloaded.
+     *
+     * @see {@link AttributeEvent#MISSION_UPDATED}
+     */
+    public static final String EXTRA_MISSION_CHANGE = PACKAGE_NAME + ".MISSION_CHANGE";
+
+    /**
+     * Used to check whether the mission transfer is an upload to the vehicle, or a download from it.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFER_UPLOAD = PACKAGE_NAME + ".MISSION_TRANSFER_UPLOAD";
+
+    /**
+     * Used to retrieve the count of mission items transferred so far.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFERRED_COUNT = PACKAGE_NAME + ".MISSION_TRANSFERRED_COUNT";
+
+    /**
+     * Used to retrieve the count of mission items to transfer. Only the modified items are sent when the
+     * rest of the mission is already on the vehicle.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFER_COUNT = PACKAGE_NAME + ".MISSION_TRANSFER_COUNT";
+
+    /**
+     * Used to retrieve the time since the mission transfer started, in milliseconds.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFER_ELAPSED_TIME = PACKAGE_NAME + ".MISSION_TRANSFER_ELAPSED_TIME";
+
+    /**
+     * Used to retrieve the count of requests retransmitted during the mission transfer.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFER_RETRIES = PACKAGE_NAME + ".MISSION_TRANSFER_RETRIES";
+
+    /**
+     * Used to retrieve the average time taken per mission item, in milliseconds. Set to -1 when unknown.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFER_ITEM_LATENCY = PACKAGE_NAME + ".MISSION_TRANSFER_ITEM_LATENCY";
+
+    /**
+     * Used to retrieve the round trip time with the vehicle, in milliseconds. Set to -1 when unknown.
+     *
+     * @see {@link AttributeEvent#MISSION_TRANSFER_PROGRESS}
+     */
+    public static final String EXTRA_MISSION_TRANSFER_ROUND_TRIP_TIME = PACKAGE_NAME + ".MISSION_TRANSFER_ROUND_TRIP_TIME";
+
     /**
      * Used to retrieve the count of the set of parameters being refreshed.
      *
      * @see {@link AttributeEvent#PARAMETER_RECEIVED}
+     * @see {@link AttributeEvent#PARAMETERS_DOWNLOAD_PROGRESS}
      */
     public static final String EXTRA_PARAMETERS_COUNT = PACKAGE_NAME + ".PARAMETERS_COUNT";
 
@@ -94,6 +154,21 @@ public class AttributeEventExtra {
      */
     public static final String EXTRA_PARAMETER_VALUE = PACKAGE_NAME + ".PARAMETER_VALUE";
 
+    /**
+     * Used to retrieve the count of parameters received so far in the parameters download.
+     *
+     * @see {@link AttributeEvent#PARAMETERS_DOWNLOAD_PROGRESS}
+     */
+    public static final String EXTRA_PARAMETERS_RECEIVED_COUNT = PACKAGE_NAME + ".PARAMETERS_RECEIVED_COUNT";
+
+    /**
+     * Used to retrieve the estimated time until the parameters download completes, in milliseconds.
+     * Set to -1 when unknown.
+     *
+     * @see {@link AttributeEvent#PARAMETERS_DOWNLOAD_PROGRESS}
+     */
+    public static final String EXTRA_PARAMETERS_DOWNLOAD_ETA = PACKAGE_NAME + ".PARAMETERS_DOWNLOAD_ETA";
+
     /**
      * Used to retrieve the gimbal pitch angle in degree.
      *
@@ -107,4 +107,11 @@ public class AttributeType {
      */
     public static final String RETURN_TO_ME_STATE = PACKAGE_NAME + ".RETURN_TO_ME_STATE";
 
+    /**
+     * Used to access the health metrics of the vehicle link.
+     * @see {@link com.o3dr.services.android.lib.gcs.link.LinkMetrics}
+     * @since 3.0.5
+     */
+    public static final String LINK_METRICS = PACKAGE_NAME + ".LINK_METRICS";
+
 }
@@ -7,6 +7,9 @@ import android.os.Parcelable;
 import android.support.annotation.Nullable;
 import android.text.TextUtils;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Base type used to pass the drone connection parameters over ipc.
  */
@@ -55,6 +58,27 @@ public class ConnectionParameter implements Parcelable {
         return new ConnectionParameter(ConnectionType.TYPE_USB, paramsBundle, tlogLoggingUri, eventsDispatchingPeriod);
     }
 
+    /**
+     *
+     * @param usbBaudRate Baud rate for USB connection.
+     * @param readBufferSize Size in bytes of the usb read buffers. Pass 0 to derive it from the baud rate.
+     * @param readQueueDepth Count of usb read buffers. Pass 0 to derive it from the baud rate.
+     * @param tlogLoggingUri Uri where the tlog data should be logged. Pass null if the tlog data shouldn't be logged
+     * @param eventsDispatchingPeriod Dictates how long (in milliseconds) to wait before dispatching
+     *                                buffered drone events. A value of OL means events should be
+     *                                dispatched as soon as they are received.
+     * @return Returns a new {@link ConnectionParameter} with type {@link ConnectionType#TYPE_USB}.
+     */
+    public static ConnectionParameter newUsbConnection(int usbBaudRate, int readBufferSize, int readQueueDepth,
+                                                       @Nullable Uri tlogLoggingUri, long eventsDispatchingPeriod){
+        Bundle paramsBundle = new Bundle(3);
+        paramsBundle.putInt(ConnectionType.EXTRA_USB_BAUD_RATE, usbBaudRate);
+        paramsBundle.putInt(ConnectionType.EXTRA_USB_READ_BUFFER_SIZE, readBufferSize);
+        paramsBundle.putInt(ConnectionType.EXTRA_USB_READ_QUEUE_DEPTH, readQueueDepth);
+
+        return new ConnectionParameter(ConnectionType.TYPE_USB, paramsBundle, tlogLoggingUri, eventsDispatchingPeriod);
+    }
+
     /**
      * @param tlogLoggingUri Uri where the tlog data should be logged. Pass null if the tlog data shouldn't be logged
      * @return Returns {@link ConnectionParameter} with type {@link ConnectionType#TYPE_UDP}, using
@@ -277,6 +301,80 @@ public class ConnectionParameter implements Parcelable {
             eventsDispatchingPeriod);
     }
 
+    /**
+     *
+     * @param tlogUri Uri of the tlog file to replay.
+     * @param replaySpeed Replay speed factor relative to the recorded pace (i.e: 1 for real time,
+     *                    10 for ten times faster), or {@link ConnectionType#TLOG_REPLAY_SPEED_MAX}
+     *                    to stream the frames as fast as possible.
+     * @param tlogLoggingUri Uri where the tlog data should be logged. Pass null if the tlog data shouldn't be logged.
+     * @return Returns {@link ConnectionParameter} with type {@link ConnectionType#TYPE_TLOG_REPLAY}.
+     */
+    public static ConnectionParameter newTlogReplayConnection(Uri tlogUri, double replaySpeed,
+                                                              @Nullable Uri tlogLoggingUri){
+        return newTlogReplayConnection(tlogUri, replaySpeed, 0L, false, tlogLoggingUri,
+            DEFAULT_EVENTS_DISPATCHING_PERIOD);
+    }
+
+    /**
+     *
+     * @param tlogUri Uri of the tlog file to replay.
+     * @param replaySpeed Replay speed factor relative to the recorded pace (i.e: 1 for real time,
+     *                    10 for ten times faster), or {@link ConnectionType#TLOG_REPLAY_SPEED_MAX}
+     *                    to stream the frames as fast as possible.
+     * @param startTime Tlog time (in ms) at which to start the replay. Pass 0 to start from the beginning.
+     * @param loop True to restart the replay from the beginning once the end of the tlog is reached.
+     * @param tlogLoggingUri Uri where the tlog data should be logged. Pass null if the tlog data shouldn't be logged.
+     * @param eventsDispatchingPeriod Dictates how long (in milliseconds) to wait before dispatching
+     *                                buffered drone events. A value of OL means events should be
+     *                                dispatched as soon as they are received.
+     * @return Returns {@link ConnectionParameter} with type {@link ConnectionType#TYPE_TLOG_REPLAY}.
+     */
+    public static ConnectionParameter newTlogReplayConnection(Uri tlogUri, double replaySpeed,
+                                                              long startTime, boolean loop,
+                                                              @Nullable Uri tlogLoggingUri,
+                                                              long eventsDispatchingPeriod){
+        Bundle paramsBundle = new Bundle(4);
+        paramsBundle.putParcelable(ConnectionType.EXTRA_TLOG_REPLAY_URI, tlogUri);
+        paramsBundle.putDouble(ConnectionType.EXTRA_TLOG_REPLAY_SPEED, replaySpeed);
+        paramsBundle.putLong(ConnectionType.EXTRA_TLOG_REPLAY_START_TIME, startTime);
+        paramsBundle.putBoolean(ConnectionType.EXTRA_TLOG_REPLAY_LOOP, loop);
+
+        return new ConnectionParameter(ConnectionType.TYPE_TLOG_REPLAY, paramsBundle, tlogLoggingUri,
+            eventsDispatchingPeriod);
+    }
+
+    /**
+     *
+     * @param linksParameters Connection parameters of the redundant links to the vehicle.
+     * @param tlogLoggingUri Uri where the tlog data should be logged. Pass null if the tlog data shouldn't be logged.
+     * @return Returns {@link ConnectionParameter} with type {@link ConnectionType#TYPE_MULTI_LINK}.
+     */
+    public static ConnectionParameter newMultiLinkConnection(List<ConnectionParameter> linksParameters,
+                                                             @Nullable Uri tlogLoggingUri){
+        return newMultiLinkConnection(linksParameters, tlogLoggingUri, DEFAULT_EVENTS_DISPATCHING_PERIOD);
+    }
+
+    /**
+     *
+     * @param linksParameters Connection parameters of the redundant links to the vehicle.
+     * @param tlogLoggingUri Uri where the tlog data should be logged. Pass null if the tlog data shouldn't be logged.
+     * @param eventsDispatchingPeriod Dictates how long (in milliseconds) to wait before dispatching
+     *                                buffered drone events. A value of OL means events should be
+     *                                dispatched as soon as they are received.
+     * @return Returns {@link ConnectionParameter} with type {@link ConnectionType#TYPE_MULTI_LINK}.
+     */
+    public static ConnectionParameter newMultiLinkConnection(List<ConnectionParameter> linksParameters,
+                                                             @Nullable Uri tlogLoggingUri,
+                                                             long eventsDispatchingPeriod){
+        Bundle paramsBundle = new Bundle(1);
+        paramsBundle.putParcelableArrayList(ConnectionType.EXTRA_MULTI_LINK_PARAMETERS,
+            new ArrayList<>(linksParameters));
+
+        return new ConnectionParameter(ConnectionType.TYPE_MULTI_LINK, paramsBundle, tlogLoggingUri,
+            eventsDispatchingPeriod);
+    }
+
     private ConnectionParameter(@ConnectionType.Type int connectionType, Bundle paramsBundle){
         this(connectionType, paramsBundle, null);
     }
@@ -319,6 +417,30 @@ public class ConnectionParameter implements Parcelable {
         return tlogLoggingUri;
     }
 
+    /**
+     * Sets the external endpoints (i.e: a ground control station or a logger) the vehicle mavlink
+     * traffic is forwarded to. Frames received from the endpoints are forwarded to the vehicle.
+     * @param endpoints Endpoints to forward the traffic to. Pass null to disable forwarding.
+     */
+    public void setRouterEndpoints(@Nullable List<RouterEndpoint> endpoints){
+        if(paramsBundle == null)
+            return;
+
+        if(endpoints == null || endpoints.isEmpty())
+            paramsBundle.remove(ConnectionType.EXTRA_ROUTER_ENDPOINTS);
+        else
+            paramsBundle.putParcelableArrayList(ConnectionType.EXTRA_ROUTER_ENDPOINTS, new ArrayList<>(endpoints));
+    }
+
+    /**
+     * @return the external endpoints the vehicle mavlink traffic is forwarded to, or null if none.
+     */
+    @Nullable
+    public List<RouterEndpoint> getRouterEndpoints(){
+        return paramsBundle == null ? null
+            : paramsBundle.<RouterEndpoint>getParcelableArrayList(ConnectionType.EXTRA_ROUTER_ENDPOINTS);
+    }
+
     public String getUniqueId(){
         final String uniqueId;
         switch(connectionType){
@@ -355,6 +477,30 @@ public class ConnectionParameter implements Parcelable {
                 uniqueId = "usb";
                 break;
 
+            case ConnectionType.TYPE_TLOG_REPLAY:
+                Uri tlogUri = null;
+                if(paramsBundle != null){
+                    tlogUri = paramsBundle.getParcelable(ConnectionType.EXTRA_TLOG_REPLAY_URI);
+                }
+                uniqueId = "tlog:" + tlogUri;
+                break;
+
+            case ConnectionType.TYPE_MULTI_LINK:
+                StringBuilder linksIds = new StringBuilder("multi:");
+                if(paramsBundle != null){
+                    ArrayList<ConnectionParameter> linksParameters = paramsBundle.getParcelableArrayList(
+                        ConnectionType.EXTRA_MULTI_LINK_PARAMETERS);
+                    if(linksParameters != null){
+                        for(int i = 0; i < linksParameters.size(); i++){
+                            if(i > 0)
+                                linksIds.append(',');
+                            linksIds.append(linksParameters.get(i).getUniqueId());
+                        }
+                    }
+                }
+                uniqueId = linksIds.toString();
+                break;
+
             case ConnectionType.TYPE_SOLO:
                 String soloLinkId = "";
                 if(paramsBundle != null){
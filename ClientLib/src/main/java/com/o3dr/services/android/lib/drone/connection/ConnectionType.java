@@ -15,6 +15,8 @@ public class ConnectionType {
         TYPE_UDP,
         TYPE_TCP,
         TYPE_BLUETOOTH,
+        TYPE_TLOG_REPLAY,
+        TYPE_MULTI_LINK,
         TYPE_SOLO
     })
     @Retention(RetentionPolicy.SOURCE)
@@ -32,6 +34,16 @@ public class ConnectionType {
      * Default value for the usb baud rate.
      */
     public static final int DEFAULT_USB_BAUD_RATE = 57600;
+    /**
+     * Key used to retrieve the size of the usb read buffers from the connection parameter bundle.
+     * When missing, or 0, the size is derived from the baud rate.
+     */
+    public static final String EXTRA_USB_READ_BUFFER_SIZE = "extra_usb_read_buffer_size";
+    /**
+     * Key used to retrieve the count of usb read buffers from the connection parameter bundle.
+     * When missing, or 0, the count is derived from the baud rate.
+     */
+    public static final String EXTRA_USB_READ_QUEUE_DEPTH = "extra_usb_read_queue_depth";
 
     /**
      * UDP connection type
@@ -93,6 +105,48 @@ public class ConnectionType {
      */
     public static final String EXTRA_BLUETOOTH_ADDRESS = "extra_bluetooth_address";
 
+    /**
+     * TLog replay connection type.
+     * Streams the frames of a recorded tlog file as if they were received from a live vehicle.
+     */
+    public static final int TYPE_TLOG_REPLAY = 4;
+    /**
+     * Key used to retrieve the uri of the tlog file to replay from the connection parameter bundle.
+     */
+    public static final String EXTRA_TLOG_REPLAY_URI = "extra_tlog_replay_uri";
+    /**
+     * Key used to retrieve the replay speed factor from the connection parameter bundle.
+     */
+    public static final String EXTRA_TLOG_REPLAY_SPEED = "extra_tlog_replay_speed";
+    /**
+     * Key used to retrieve the tlog time (in ms) at which to start the replay.
+     */
+    public static final String EXTRA_TLOG_REPLAY_START_TIME = "extra_tlog_replay_start_time";
+    /**
+     * Key used to retrieve whether the replay should restart from the beginning once the end of the
+     * tlog file is reached.
+     */
+    public static final String EXTRA_TLOG_REPLAY_LOOP = "extra_tlog_replay_loop";
+    /**
+     * Default value for the tlog replay speed: frames are replayed at the recorded pace.
+     */
+    public static final double DEFAULT_TLOG_REPLAY_SPEED = 1;
+    /**
+     * Replay speed value used to stream the tlog frames as fast as possible.
+     */
+    public static final double TLOG_REPLAY_SPEED_MAX = 0;
+
+    /**
+     * Multi-link connection type.
+     * Connects to a single vehicle over several redundant links, dropping the frames received more than
+     * once, and sending over the healthiest link.
+     */
+    public static final int TYPE_MULTI_LINK = 5;
+    /**
+     * Key used to retrieve the list of {@link ConnectionParameter} for the links to aggregate.
+     */
+    public static final String EXTRA_MULTI_LINK_PARAMETERS = "extra_multi_link_parameters";
+
     /**
      * Solo vehicle connection type
      * Opens a UDP connection at port 14550 once on the correct wifi network.
@@ -109,6 +163,12 @@ public class ConnectionType {
      */
     public static final String EXTRA_SOLO_LINK_PASSWORD = "extra_solo_link_password";
 
+    /**
+     * Key used to retrieve the list of {@link RouterEndpoint} the vehicle mavlink traffic is forwarded
+     * to. Applies to every connection type.
+     */
+    public static final String EXTRA_ROUTER_ENDPOINTS = "extra_router_endpoints";
+
     public static String getConnectionTypeLabel(@Type int connectionType){
         switch (connectionType) {
             case TYPE_BLUETOOTH:
@@ -123,6 +183,12 @@ public class ConnectionType {
             case TYPE_USB:
                 return "usb";
 
+            case TYPE_TLOG_REPLAY:
+                return "tlog_replay";
+
+            case TYPE_MULTI_LINK:
+                return "multi_link";
+
             case TYPE_SOLO:
                 return "solo";
 
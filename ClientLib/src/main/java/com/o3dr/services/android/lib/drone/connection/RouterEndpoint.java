@@ -0,0 +1,146 @@
+package com.o3dr.services.android.lib.drone.connection;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.support.annotation.Nullable;
+
+/**
+ * External endpoint (i.e: a ground control station or a logger) the vehicle mavlink traffic is
+ * forwarded to, and whose traffic is forwarded to the vehicle.
+ *
+ * @see ConnectionParameter#setRouterEndpoints(java.util.List)
+ */
+public class RouterEndpoint implements Parcelable {
+
+    /**
+     * Value of the maximum forwarding rate for an endpoint without rate limit.
+     */
+    public static final int UNLIMITED_RATE = 0;
+
+    private final @ConnectionType.Type int type;
+    private final String host;
+    private final int port;
+    private final int maxRate;
+
+    /**
+     * @param host    Address the frames are sent to.
+     * @param port    Port the frames are sent to.
+     * @param maxRate Maximum count of bytes per second forwarded to the endpoint, or {@link #UNLIMITED_RATE}.
+     * @return Returns a udp {@link RouterEndpoint}, i.e: for a ground control station listening on port 14550.
+     */
+    public static RouterEndpoint newUdpEndpoint(String host, int port, int maxRate) {
+        return new RouterEndpoint(ConnectionType.TYPE_UDP, host, port, maxRate);
+    }
+
+    /**
+     * @param port    Local port to listen on. Frames are sent back to the address the last frame was received from.
+     * @param maxRate Maximum count of bytes per second forwarded to the endpoint, or {@link #UNLIMITED_RATE}.
+     * @return Returns a udp {@link RouterEndpoint} waiting for a peer to connect.
+     */
+    public static RouterEndpoint newUdpServerEndpoint(int port, int maxRate) {
+        return new RouterEndpoint(ConnectionType.TYPE_UDP, null, port, maxRate);
+    }
+
+    /**
+     * @param host    Address of the tcp server.
+     * @param port    Port of the tcp server.
+     * @param maxRate Maximum count of bytes per second forwarded to the endpoint, or {@link #UNLIMITED_RATE}.
+     * @return Returns a tcp {@link RouterEndpoint}.
+     */
+    public static RouterEndpoint newTcpEndpoint(String host, int port, int maxRate) {
+        return new RouterEndpoint(ConnectionType.TYPE_TCP, host, port, maxRate);
+    }
+
+    private RouterEndpoint(@ConnectionType.Type int type, String host, int port, int maxRate) {
+        this.type = type;
+        this.host = host;
+        this.port = port;
+        this.maxRate = maxRate;
+    }
+
+    /**
+     * @return {@link ConnectionType#TYPE_UDP} or {@link ConnectionType#TYPE_TCP}.
+     */
+    public @ConnectionType.Type int getType() {
+        return type;
+    }
+
+    /**
+     * @return the endpoint address, or null for a udp endpoint listening for a peer.
+     */
+    @Nullable
+    public String getHost() {
+        return host;
+    }
+
+    public int getPort() {
+        return port;
+    }
+
+    /**
+     * @return maximum count of bytes per second forwarded to the endpoint, or {@link #UNLIMITED_RATE}.
+     */
+    public int getMaxRate() {
+        return maxRate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof RouterEndpoint)) return false;
+
+        RouterEndpoint that = (RouterEndpoint) o;
+
+        if (type != that.type) return false;
+        if (port != that.port) return false;
+        if (maxRate != that.maxRate) return false;
+        return host != null ? host.equals(that.host) : that.host == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = type;
+        result = 31 * result + (host != null ? host.hashCode() : 0);
+        result = 31 * result + port;
+        result = 31 * result + maxRate;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return ConnectionType.getConnectionTypeLabel(type) + ":" + (host == null ? "" : host) + ":" + port;
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeInt(this.type);
+        dest.writeString(this.host);
+        dest.writeInt(this.port);
+        dest.writeInt(this.maxRate);
+    }
+
+    protected RouterEndpoint(Parcel in) {
+        @ConnectionType.Type int type = in.readInt();
+        this.type = type;
+        this.host = in.readString();
+        this.port = in.readInt();
+        this.maxRate = in.readInt();
+    }
+
+    public static final Creator<RouterEndpoint> CREATOR = new Creator<RouterEndpoint>() {
+        @Override
+        public RouterEndpoint createFromParcel(Parcel source) {
+            return new RouterEndpoint(source);
+        }
+
+        @Override
+        public RouterEndpoint[] newArray(int size) {
+            return new RouterEndpoint[size];
+        }
+    };
+}
@@ -0,0 +1,240 @@
+package com.o3dr.services.android.lib.drone.mission;
+
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes an update of the vehicle mission as a sequence of inserted, removed and changed ranges of mission
+ * items, so a client holding the previous mission can patch it instead of reloading the whole mission.
+ * <p/>
+ * The ranges are listed in the order they must be applied, and their start index refer to the mission as
+ * updated by the preceding ranges.
+ */
+public class MissionChange implements Parcelable {
+
+    /**
+     * Mission items were inserted at the start of the range.
+     */
+    public static final int RANGE_INSERTED = 0;
+
+    /**
+     * Mission items were removed from the start of the range.
+     */
+    public static final int RANGE_REMOVED = 1;
+
+    /**
+     * Mission items were replaced within the range.
+     */
+    public static final int RANGE_CHANGED = 2;
+
+    private final boolean isReset;
+    private final int missionSize;
+
+    private final List<int[]> ranges = new ArrayList<>();
+    private final List<MissionItem> items = new ArrayList<>();
+
+    /**
+     * @param missionSize count of mission items once the change is applied.
+     */
+    public MissionChange(int missionSize) {
+        this(missionSize, false);
+    }
+
+    private MissionChange(int missionSize, boolean isReset) {
+        this.missionSize = missionSize;
+        this.isReset = isReset;
+    }
+
+    /**
+     * @return a change which can't be applied incrementally. The whole mission should be reloaded.
+     */
+    public static MissionChange reset(int missionSize) {
+        return new MissionChange(missionSize, true);
+    }
+
+    /**
+     * Appends a range to the change.
+     *
+     * @param type       one of {@link #RANGE_INSERTED}, {@link #RANGE_REMOVED} or {@link #RANGE_CHANGED}
+     * @param start      index of the first mission item in the range
+     * @param rangeItems the inserted or changed mission items. Ignored for a removed range.
+     * @param count      count of mission items in the range
+     */
+    public void addRange(int type, int start, int count, List<MissionItem> rangeItems) {
+        if (count <= 0) {
+            return;
+        }
+
+        if (type != RANGE_REMOVED) {
+            if (rangeItems == null || rangeItems.size() != count) {
+                throw new IllegalArgumentException("Expected " + count + " mission items for the range.");
+            }
+            items.addAll(rangeItems);
+        }
+        ranges.add(new int[]{type, start, count});
+    }
+
+    /**
+     * @return true if the mission should be reloaded, rather than patched with this change.
+     */
+    public boolean isReset() {
+        return isReset;
+    }
+
+    /**
+     * @return count of mission items once the change is applied.
+     */
+    public int getMissionSize() {
+        return missionSize;
+    }
+
+    public int getRangeCount() {
+        return ranges.size();
+    }
+
+    public int getRangeType(int rangeIndex) {
+        return ranges.get(rangeIndex)[0];
+    }
+
+    public int getRangeStart(int rangeIndex) {
+        return ranges.get(rangeIndex)[1];
+    }
+
+    public int getRangeLength(int rangeIndex) {
+        return ranges.get(rangeIndex)[2];
+    }
+
+    /**
+     * Patches the given mission with this change.
+     *
+     * @param mission mission as it was before the change
+     * @return true if the mission was patched. Otherwise, the mission is left as is, and should be reloaded.
+     */
+    public boolean applyTo(Mission mission) {
+        if (isReset || mission == null) {
+            return false;
+        }
+
+        //Check the ranges against the mission size before touching the mission.
+        int size = mission.getMissionItems().size();
+        for (int[] range : ranges) {
+            final int start = range[1];
+            final int count = range[2];
+            switch (range[0]) {
+                case RANGE_INSERTED:
+                    if (start > size) {
+                        return false;
+                    }
+                    size += count;
+                    break;
+
+                case RANGE_REMOVED:
+                case RANGE_CHANGED:
+                    if (start + count > size) {
+                        return false;
+                    }
+                    if (range[0] == RANGE_REMOVED) {
+                        size -= count;
+                    }
+                    break;
+
+                default:
+                    return false;
+            }
+        }
+        if (size != missionSize) {
+            return false;
+        }
+
+        final List<MissionItem> missionItems = mission.getMissionItems();
+        int itemIndex = 0;
+        for (int[] range : ranges) {
+            final int start = range[1];
+            final int count = range[2];
+            switch (range[0]) {
+                case RANGE_INSERTED:
+                    missionItems.addAll(start, items.subList(itemIndex, itemIndex + count));
+                    itemIndex += count;
+                    break;
+
+                case RANGE_REMOVED:
+                    missionItems.subList(start, start + count).clear();
+                    break;
+
+                case RANGE_CHANGED:
+                    for (int i = 0; i < count; i++) {
+                        missionItems.set(start + i, items.get(itemIndex++));
+                    }
+                    break;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("MissionChange{missionSize=").append(missionSize);
+        if (isReset) {
+            builder.append(", reset");
+        }
+        for (int[] range : ranges) {
+            builder.append(", ").append(range[0] == RANGE_INSERTED ? "inserted" : range[0] == RANGE_REMOVED ? "removed" : "changed")
+                .append('[').append(range[1]).append(", ").append(range[1] + range[2]).append(')');
+        }
+        return builder.append('}').toString();
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeByte(isReset ? (byte) 1 : (byte) 0);
+        dest.writeInt(missionSize);
+
+        dest.writeInt(ranges.size());
+        for (int[] range : ranges) {
+            dest.writeIntArray(range);
+        }
+
+        List<Bundle> itemsBundles = new ArrayList<>(items.size());
+        for (MissionItem item : items) {
+            itemsBundles.add(item.getType().storeMissionItem(item));
+        }
+        dest.writeTypedList(itemsBundles);
+    }
+
+    private MissionChange(Parcel in) {
+        this.isReset = in.readByte() != 0;
+        this.missionSize = in.readInt();
+
+        final int rangeCount = in.readInt();
+        for (int i = 0; i < rangeCount; i++) {
+            ranges.add(in.createIntArray());
+        }
+
+        List<Bundle> itemsBundles = new ArrayList<>();
+        in.readTypedList(itemsBundles, Bundle.CREATOR);
+        for (Bundle bundle : itemsBundles) {
+            items.add(MissionItemType.restoreMissionItemFromBundle(bundle));
+        }
+    }
+
+    public static final Creator<MissionChange> CREATOR = new Creator<MissionChange>() {
+        public MissionChange createFromParcel(Parcel source) {
+            return new MissionChange(source);
+        }
+
+        public MissionChange[] newArray(int size) {
+            return new MissionChange[size];
+        }
+    };
+}
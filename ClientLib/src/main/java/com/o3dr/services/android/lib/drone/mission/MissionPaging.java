@@ -0,0 +1,58 @@
+package com.o3dr.services.android.lib.drone.mission;
+
+import android.os.Bundle;
+import android.os.Parcel;
+
+import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
+
+import java.util.List;
+
+/**
+ * Splits large missions in pages, so they can be transferred between the client and the service without
+ * exceeding the binder transaction buffer.
+ */
+public class MissionPaging {
+
+    //Private to prevent instantiation
+    private MissionPaging(){}
+
+    /**
+     * Maximum size in bytes of a page of mission items. The binder transaction buffer is about 1MB, and
+     * shared by all the transactions in flight for the process.
+     */
+    public static final int MAX_PAGE_SIZE = 256 * 1024;
+
+    /**
+     * @return size in bytes of the mission item once parcelled.
+     */
+    public static int getParcelledSize(MissionItem missionItem) {
+        Bundle itemBundle = missionItem.getType().storeMissionItem(missionItem);
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(itemBundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    /**
+     * Finds the end of the page starting at the given index. A page holds at least one mission item.
+     *
+     * @param missionItems mission items to split in pages
+     * @param start        index of the first mission item in the page
+     * @param maxPageSize  maximum size in bytes of the page
+     * @return the index following the last mission item in the page
+     */
+    public static int getPageEnd(List<MissionItem> missionItems, int start, int maxPageSize) {
+        final int count = missionItems.size();
+        int pageSize = 0;
+        for (int i = start; i < count; i++) {
+            pageSize += getParcelledSize(missionItems.get(i));
+            if (pageSize > maxPageSize && i > start) {
+                return i;
+            }
+        }
+        return count;
+    }
+}
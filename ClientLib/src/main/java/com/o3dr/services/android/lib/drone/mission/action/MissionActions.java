@@ -14,6 +14,24 @@ public class MissionActions {
 
     public static final String ACTION_SET_MISSION = Utils.PACKAGE_NAME + ".action.SET_MISSION";
     public static final String ACTION_START_MISSION = Utils.PACKAGE_NAME + ".action.START_MISSION";
+
+    /**
+     * Retrieves a page of the vehicle mission items, starting at {@link #EXTRA_MISSION_ITEMS_OFFSET}.
+     * The page is returned in {@link #EXTRA_MISSION}, along with {@link #EXTRA_MISSION_ITEMS_TOTAL} and
+     * {@link #EXTRA_MISSION_VERSION}.
+     */
+    public static final String ACTION_GET_MISSION_ITEMS = Utils.PACKAGE_NAME + ".action.GET_MISSION_ITEMS";
+
+    /**
+     * Sends a page of the mission to set, starting at {@link #EXTRA_MISSION_ITEMS_OFFSET}. The mission is
+     * set once its {@link #EXTRA_MISSION_ITEMS_TOTAL} items have been received.
+     */
+    public static final String ACTION_SET_MISSION_ITEMS = Utils.PACKAGE_NAME + ".action.SET_MISSION_ITEMS";
+
+    public static final String EXTRA_MISSION_ITEMS_OFFSET = "extra_mission_items_offset";
+    public static final String EXTRA_MISSION_ITEMS_TOTAL = "extra_mission_items_total";
+    public static final String EXTRA_MISSION_VERSION = "extra_mission_version";
+    public static final String EXTRA_MISSION_ITEMS_ACCEPTED = "extra_mission_items_accepted";
     public static final String ACTION_GOTO_WAYPOINT = Utils.PACKAGE_NAME + ".action.GOTO_WAYPOINT";
 
     public static final String EXTRA_MISSION = "extra_mission";
@@ -0,0 +1,532 @@
+package com.o3dr.services.android.lib.gcs.link;
+
+import android.os.Parcel;
+import android.os.Parcelable;
+
+import com.o3dr.services.android.lib.drone.property.DroneAttribute;
+
+/**
+ * Snapshot of the health metrics of the vehicle link.
+ * Counters are reset every time the link (re)connects.
+ *
+ * @see {@link com.o3dr.services.android.lib.drone.attribute.AttributeType#LINK_METRICS}
+ * @since 3.0.5
+ */
+public class LinkMetrics implements DroneAttribute {
+
+    /**
+     * Number of distinct mavlink message ids.
+     */
+    public static final int MESSAGE_ID_COUNT = 256;
+
+    private long connectionTime = -1;
+    private long snapshotTime;
+
+    private long bytesReceived;
+    private long bytesSent;
+    private long packetsReceived;
+    private long packetsSent;
+    private long[] packetsPerMsgId = new long[MESSAGE_ID_COUNT];
+    private long[] bytesPerMsgId = new long[MESSAGE_ID_COUNT];
+    private float[] ratePerMsgId = new float[MESSAGE_ID_COUNT];
+
+    private long crcErrors;
+    private long sequenceGaps;
+
+    private int sendQueueDepth;
+    private int sendQueueMaxDepth;
+    private int logQueueDepth;
+    private int logQueueMaxDepth;
+
+    private LatencyStats parseLatency = new LatencyStats();
+    private LatencyStats dispatchLatency = new LatencyStats();
+
+    private TransportStats transportStats = new TransportStats();
+
+    public LinkMetrics() {
+    }
+
+    public LinkMetrics(long connectionTime, long snapshotTime, long bytesReceived, long bytesSent,
+                       long packetsReceived, long packetsSent, long[] packetsPerMsgId, long[] bytesPerMsgId,
+                       float[] ratePerMsgId, long crcErrors, long sequenceGaps, int sendQueueDepth,
+                       int sendQueueMaxDepth, int logQueueDepth, int logQueueMaxDepth, LatencyStats parseLatency,
+                       LatencyStats dispatchLatency, TransportStats transportStats) {
+        this.connectionTime = connectionTime;
+        this.snapshotTime = snapshotTime;
+        this.bytesReceived = bytesReceived;
+        this.bytesSent = bytesSent;
+        this.packetsReceived = packetsReceived;
+        this.packetsSent = packetsSent;
+        this.packetsPerMsgId = packetsPerMsgId;
+        this.bytesPerMsgId = bytesPerMsgId;
+        this.ratePerMsgId = ratePerMsgId;
+        this.crcErrors = crcErrors;
+        this.sequenceGaps = sequenceGaps;
+        this.sendQueueDepth = sendQueueDepth;
+        this.sendQueueMaxDepth = sendQueueMaxDepth;
+        this.logQueueDepth = logQueueDepth;
+        this.logQueueMaxDepth = logQueueMaxDepth;
+        this.parseLatency = parseLatency;
+        this.dispatchLatency = dispatchLatency;
+        this.transportStats = transportStats;
+    }
+
+    /**
+     * @return time (in ms since epoch) the link was connected, or -1 if the link is not connected.
+     */
+    public long getConnectionTime() {
+        return connectionTime;
+    }
+
+    /**
+     * @return time (in ms since epoch) this snapshot was taken.
+     */
+    public long getSnapshotTime() {
+        return snapshotTime;
+    }
+
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    public long getPacketsReceived() {
+        return packetsReceived;
+    }
+
+    /**
+     * @param msgId mavlink message id
+     * @return count of received packets with the given message id.
+     */
+    public long getPacketsReceived(int msgId) {
+        return packetsPerMsgId[msgId & 0xFF];
+    }
+
+    /**
+     * @param msgId mavlink message id
+     * @return count of bytes received for the given message id, including the frame header and checksum.
+     */
+    public long getBytesReceived(int msgId) {
+        return bytesPerMsgId[msgId & 0xFF];
+    }
+
+    /**
+     * @param msgId mavlink message id
+     * @return current receive rate of the given message id, in Hz.
+     */
+    public float getMessageRate(int msgId) {
+        return ratePerMsgId[msgId & 0xFF];
+    }
+
+    /**
+     * @param msgId mavlink message id
+     * @return bandwidth currently used by the given message id, in bytes per second.
+     */
+    public double getBandwidth(int msgId) {
+        msgId &= 0xFF;
+        final long packetCount = packetsPerMsgId[msgId];
+        return packetCount == 0 ? 0 : ratePerMsgId[msgId] * ((double) bytesPerMsgId[msgId] / packetCount);
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    /**
+     * @return count of frames dropped by the parser because of a checksum mismatch.
+     */
+    public long getCrcErrors() {
+        return crcErrors;
+    }
+
+    /**
+     * @return count of packets missing from the received sequence numbers.
+     */
+    public long getSequenceGaps() {
+        return sequenceGaps;
+    }
+
+    /**
+     * @return ratio of packets lost by the link, in the [0, 1] range.
+     */
+    public double getPacketLossRate() {
+        final long expectedPackets = packetsReceived + sequenceGaps;
+        return expectedPackets == 0 ? 0 : (double) sequenceGaps / expectedPackets;
+    }
+
+    /**
+     * @return average count of bytes received per second since the link was connected.
+     */
+    public double getReceiveRate() {
+        final long elapsed = snapshotTime - connectionTime;
+        return connectionTime < 0 || elapsed <= 0 ? 0 : bytesReceived * 1000.0 / elapsed;
+    }
+
+    /**
+     * @return count of packets waiting to be sent.
+     */
+    public int getSendQueueDepth() {
+        return sendQueueDepth;
+    }
+
+    public int getSendQueueMaxDepth() {
+        return sendQueueMaxDepth;
+    }
+
+    /**
+     * @return count of packets waiting to be logged.
+     */
+    public int getLogQueueDepth() {
+        return logQueueDepth;
+    }
+
+    public int getLogQueueMaxDepth() {
+        return logQueueMaxDepth;
+    }
+
+    /**
+     * @return distribution of the time spent parsing each block of data read from the link.
+     */
+    public LatencyStats getParseLatency() {
+        return parseLatency;
+    }
+
+    /**
+     * @return distribution of the time spent dispatching each received packet to the link listeners.
+     */
+    public LatencyStats getDispatchLatency() {
+        return dispatchLatency;
+    }
+
+    /**
+     * @return throughput and buffering statistics of the underlying transport. Only reported by the
+     * connections reading ahead of the parser (i.e: bluetooth).
+     */
+    public TransportStats getTransportStats() {
+        return transportStats;
+    }
+
+    @Override
+    public String toString() {
+        return "LinkMetrics{" +
+                "connectionTime=" + connectionTime +
+                ", snapshotTime=" + snapshotTime +
+                ", bytesReceived=" + bytesReceived +
+                ", bytesSent=" + bytesSent +
+                ", packetsReceived=" + packetsReceived +
+                ", packetsSent=" + packetsSent +
+                ", crcErrors=" + crcErrors +
+                ", sequenceGaps=" + sequenceGaps +
+                ", sendQueueDepth=" + sendQueueDepth +
+                ", logQueueDepth=" + logQueueDepth +
+                ", parseLatency=" + parseLatency +
+                ", dispatchLatency=" + dispatchLatency +
+                ", transportStats=" + transportStats +
+                '}';
+    }
+
+    @Override
+    public int describeContents() {
+        return 0;
+    }
+
+    @Override
+    public void writeToParcel(Parcel dest, int flags) {
+        dest.writeLong(this.connectionTime);
+        dest.writeLong(this.snapshotTime);
+        dest.writeLong(this.bytesReceived);
+        dest.writeLong(this.bytesSent);
+        dest.writeLong(this.packetsReceived);
+        dest.writeLong(this.packetsSent);
+
+        //Only the message ids that were received are written.
+        int receivedIdsCount = 0;
+        for (long count : packetsPerMsgId) {
+            if (count != 0) {
+                receivedIdsCount++;
+            }
+        }
+        dest.writeInt(receivedIdsCount);
+        for (int msgId = 0; msgId < packetsPerMsgId.length; msgId++) {
+            if (packetsPerMsgId[msgId] != 0) {
+                dest.writeInt(msgId);
+                dest.writeLong(packetsPerMsgId[msgId]);
+                dest.writeLong(bytesPerMsgId[msgId]);
+                dest.writeFloat(ratePerMsgId[msgId]);
+            }
+        }
+
+        dest.writeLong(this.crcErrors);
+        dest.writeLong(this.sequenceGaps);
+        dest.writeInt(this.sendQueueDepth);
+        dest.writeInt(this.sendQueueMaxDepth);
+        dest.writeInt(this.logQueueDepth);
+        dest.writeInt(this.logQueueMaxDepth);
+        dest.writeParcelable(this.parseLatency, flags);
+        dest.writeParcelable(this.dispatchLatency, flags);
+        dest.writeParcelable(this.transportStats, flags);
+    }
+
+    protected LinkMetrics(Parcel in) {
+        this.connectionTime = in.readLong();
+        this.snapshotTime = in.readLong();
+        this.bytesReceived = in.readLong();
+        this.bytesSent = in.readLong();
+        this.packetsReceived = in.readLong();
+        this.packetsSent = in.readLong();
+
+        final int receivedIdsCount = in.readInt();
+        for (int i = 0; i < receivedIdsCount; i++) {
+            final int msgId = in.readInt();
+            this.packetsPerMsgId[msgId] = in.readLong();
+            this.bytesPerMsgId[msgId] = in.readLong();
+            this.ratePerMsgId[msgId] = in.readFloat();
+        }
+
+        this.crcErrors = in.readLong();
+        this.sequenceGaps = in.readLong();
+        this.sendQueueDepth = in.readInt();
+        this.sendQueueMaxDepth = in.readInt();
+        this.logQueueDepth = in.readInt();
+        this.logQueueMaxDepth = in.readInt();
+        this.parseLatency = in.readParcelable(LatencyStats.class.getClassLoader());
+        this.dispatchLatency = in.readParcelable(LatencyStats.class.getClassLoader());
+        this.transportStats = in.readParcelable(TransportStats.class.getClassLoader());
+    }
+
+    public static final Creator<LinkMetrics> CREATOR = new Creator<LinkMetrics>() {
+        @Override
+        public LinkMetrics createFromParcel(Parcel source) {
+            return new LinkMetrics(source);
+        }
+
+        @Override
+        public LinkMetrics[] newArray(int size) {
+            return new LinkMetrics[size];
+        }
+    };
+
+    /**
+     * Summary of a latency distribution. All durations are in nanoseconds.
+     */
+    public static class LatencyStats implements Parcelable {
+
+        private long count;
+        private long mean;
+        private long p50;
+        private long p90;
+        private long p99;
+        private long max;
+
+        public LatencyStats() {
+        }
+
+        public LatencyStats(long count, long mean, long p50, long p90, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        /**
+         * @return number of recorded samples.
+         */
+        public long getCount() {
+            return count;
+        }
+
+        public long getMean() {
+            return mean;
+        }
+
+        public long getP50() {
+            return p50;
+        }
+
+        public long getP90() {
+            return p90;
+        }
+
+        public long getP99() {
+            return p99;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "LatencyStats{" +
+                    "count=" + count +
+                    ", mean=" + mean +
+                    ", p50=" + p50 +
+                    ", p90=" + p90 +
+                    ", p99=" + p99 +
+                    ", max=" + max +
+                    '}';
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeLong(this.count);
+            dest.writeLong(this.mean);
+            dest.writeLong(this.p50);
+            dest.writeLong(this.p90);
+            dest.writeLong(this.p99);
+            dest.writeLong(this.max);
+        }
+
+        protected LatencyStats(Parcel in) {
+            this.count = in.readLong();
+            this.mean = in.readLong();
+            this.p50 = in.readLong();
+            this.p90 = in.readLong();
+            this.p99 = in.readLong();
+            this.max = in.readLong();
+        }
+
+        public static final Creator<LatencyStats> CREATOR = new Creator<LatencyStats>() {
+            @Override
+            public LatencyStats createFromParcel(Parcel source) {
+                return new LatencyStats(source);
+            }
+
+            @Override
+            public LatencyStats[] newArray(int size) {
+                return new LatencyStats[size];
+            }
+        };
+    }
+
+    /**
+     * Throughput and buffering statistics of the transport underlying the link, as seen by the thread
+     * reading ahead of the parser.
+     */
+    public static class TransportStats implements Parcelable {
+
+        private long readCount;
+        private long bytesRead;
+        private double peakReceiveRate;
+        private int maxBufferedBytes;
+        private LatencyStats readInterval = new LatencyStats();
+        private LatencyStats bufferLatency = new LatencyStats();
+
+        public TransportStats() {
+        }
+
+        public TransportStats(long readCount, long bytesRead, double peakReceiveRate, int maxBufferedBytes,
+                              LatencyStats readInterval, LatencyStats bufferLatency) {
+            this.readCount = readCount;
+            this.bytesRead = bytesRead;
+            this.peakReceiveRate = peakReceiveRate;
+            this.maxBufferedBytes = maxBufferedBytes;
+            this.readInterval = readInterval;
+            this.bufferLatency = bufferLatency;
+        }
+
+        /**
+         * @return count of reads from the transport, i.e: count of received bursts.
+         */
+        public long getReadCount() {
+            return readCount;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        /**
+         * @return average size of the bursts delivered by the transport, in bytes.
+         */
+        public double getMeanBurstSize() {
+            return readCount == 0 ? 0 : (double) bytesRead / readCount;
+        }
+
+        /**
+         * @return highest count of bytes received over a one second window, in bytes per second.
+         */
+        public double getPeakReceiveRate() {
+            return peakReceiveRate;
+        }
+
+        /**
+         * @return highest count of bytes waiting to be parsed.
+         */
+        public int getMaxBufferedBytes() {
+            return maxBufferedBytes;
+        }
+
+        /**
+         * @return distribution of the time between consecutive bursts. Its spread is the transport jitter.
+         */
+        public LatencyStats getReadInterval() {
+            return readInterval;
+        }
+
+        /**
+         * @return distribution of the time received bursts waited before being parsed.
+         */
+        public LatencyStats getBufferLatency() {
+            return bufferLatency;
+        }
+
+        @Override
+        public String toString() {
+            return "TransportStats{" +
+                    "readCount=" + readCount +
+                    ", bytesRead=" + bytesRead +
+                    ", peakReceiveRate=" + peakReceiveRate +
+                    ", maxBufferedBytes=" + maxBufferedBytes +
+                    ", readInterval=" + readInterval +
+                    ", bufferLatency=" + bufferLatency +
+                    '}';
+        }
+
+        @Override
+        public int describeContents() {
+            return 0;
+        }
+
+        @Override
+        public void writeToParcel(Parcel dest, int flags) {
+            dest.writeLong(this.readCount);
+            dest.writeLong(this.bytesRead);
+            dest.writeDouble(this.peakReceiveRate);
+            dest.writeInt(this.maxBufferedBytes);
+            dest.writeParcelable(this.readInterval, flags);
+            dest.writeParcelable(this.bufferLatency, flags);
+        }
+
+        protected TransportStats(Parcel in) {
+            this.readCount = in.readLong();
+            this.bytesRead = in.readLong();
+            this.peakReceiveRate = in.readDouble();
+            this.maxBufferedBytes = in.readInt();
+            this.readInterval = in.readParcelable(LatencyStats.class.getClassLoader());
+            this.bufferLatency = in.readParcelable(LatencyStats.class.getClassLoader());
+        }
+
+        public static final Creator<TransportStats> CREATOR = new Creator<TransportStats>() {
+            @Override
+            public TransportStats createFromParcel(Parcel source) {
+                return new TransportStats(source);
+            }
+
+            @Override
+            public TransportStats[] newArray(int size) {
+                return new TransportStats[size];
+            }
+        };
+    }
+}
@@ -2,10 +2,13 @@ package com.o3dr.services.android.lib.util;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.ParcelFileDescriptor;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 /**
  * Created by fhuya on 8/13/2016.
@@ -36,4 +39,20 @@ public class UriUtils {
     public static InputStream getInputStream(Context context,  Uri uri) throws IOException {
         return context.getContentResolver().openInputStream(uri);
     }
+
+    /**
+     * Retrieves a read-only file channel from the given uri.
+     * Closing the channel releases the underlying file descriptor.
+     *
+     * @param uri
+     * @return
+     * @since 3.0.5
+     */
+    public static FileChannel getReadableFileChannel(Context context, Uri uri) throws IOException {
+        ParcelFileDescriptor fd = context.getContentResolver().openFileDescriptor(uri, "r");
+        if (fd == null) {
+            throw new FileNotFoundException("Unable to open " + uri);
+        }
+        return new ParcelFileDescriptor.AutoCloseInputStream(fd).getChannel();
+    }
 }
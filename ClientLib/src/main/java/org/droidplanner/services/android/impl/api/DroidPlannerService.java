@@ -22,6 +22,7 @@ import com.o3dr.services.android.lib.model.IDroidPlannerServices;
 
 import org.droidplanner.services.android.impl.core.drone.DroneManager;
 import org.droidplanner.services.android.impl.core.survey.CameraInfo;
+import org.droidplanner.services.android.impl.core.survey.grid.GridCache;
 import org.droidplanner.services.android.impl.utils.Utils;
 import org.droidplanner.services.android.impl.utils.file.IO.CameraInfoLoader;
 
@@ -153,6 +154,9 @@ public class DroidPlannerService extends Service {
             Timber.d("Destroying drone manager.");
             droneMgr.destroy();
             droneManagers.remove(droneMgr.getConnectionParameter());
+            if (droneManagers.isEmpty()) {
+                GridCache.clear();
+            }
         }
     }
 
@@ -248,6 +252,7 @@ public class DroidPlannerService extends Service {
             droneMgr.destroy();
         }
         droneManagers.clear();
+        GridCache.clear();
 
         dpServices.destroy();
 
@@ -25,6 +25,7 @@ import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.attribute.error.CommandExecutionError;
 import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
 import com.o3dr.services.android.lib.drone.mission.Mission;
+import com.o3dr.services.android.lib.drone.mission.MissionPaging;
 import com.o3dr.services.android.lib.drone.mission.action.MissionActions;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.drone.mission.item.command.ResetROI;
@@ -45,6 +46,7 @@ import com.o3dr.services.android.lib.model.IObserver;
 import com.o3dr.services.android.lib.model.action.Action;
 
 import org.droidplanner.services.android.impl.communication.connection.SoloConnection;
+import org.droidplanner.services.android.impl.core.MAVLink.WaypointManager;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces;
 import org.droidplanner.services.android.impl.core.drone.DroneManager;
 import org.droidplanner.services.android.impl.core.drone.autopilot.Drone;
@@ -78,6 +80,9 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
     //The Reset ROI mission item was introduced in version 2.6.8. Any client library older than this do not support it.
     private final static int RESET_ROI_LIB_VERSION = 206080;
 
+    //Paged mission transfers were introduced in version 3.0.5. Older client libraries expect the whole mission.
+    private final static int MISSION_PAGING_LIB_VERSION = 300500;
+
     private final Runnable eventsDispatcher = new Runnable() {
         private final LinkedHashMap<String, Bundle> eventsFilter = new LinkedHashMap<>();
 
@@ -123,6 +128,13 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
 
     private ConnectionParameter connectionParams;
 
+    /*
+     * Mission being sent in pages by the client.
+     */
+    private final Object missionUploadLock = new Object();
+    private Mission pendingMissionUpload;
+    private int pendingMissionUploadTotal;
+
     DroneApi(DroidPlannerService dpService, IApiListener listener, String ownerId) {
 
         this.service = dpService;
@@ -217,6 +229,10 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
                             }
                         }
 
+                        if (clientInfo.clientVersionCode >= MISSION_PAGING_LIB_VERSION && attribute instanceof Mission) {
+                            pageMission((Mission) attribute, carrier);
+                        }
+
                         carrier.putParcelable(type, attribute);
                     }
                 }
@@ -225,6 +241,78 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
         return carrier;
     }
 
+    /**
+     * Trims the mission down to its first page if it's too large to be sent at once. The client retrieves
+     * the remaining items through {@link MissionActions#ACTION_GET_MISSION_ITEMS}.
+     */
+    private void pageMission(Mission mission, Bundle carrier) {
+        List<MissionItem> missionItems = mission.getMissionItems();
+        int missionItemsCount = missionItems.size();
+        int pageEnd = MissionPaging.getPageEnd(missionItems, 0, MissionPaging.MAX_PAGE_SIZE);
+        if (pageEnd == missionItemsCount) {
+            return;
+        }
+
+        Drone drone = getDrone();
+        int missionVersion = drone instanceof MavLinkDrone
+            ? ((MavLinkDrone) drone).getMission().getComponentsVersion()
+            : 0;
+
+        missionItems.subList(pageEnd, missionItemsCount).clear();
+        carrier.putInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL, missionItemsCount);
+        carrier.putInt(MissionActions.EXTRA_MISSION_VERSION, missionVersion);
+    }
+
+    /**
+     * Accumulates a page of the mission sent by the client, and sets the mission once all its pages were
+     * received.
+     *
+     * @return true if the page was accepted
+     */
+    private boolean setMissionItems(Bundle data, ICommandListener listener) {
+        Mission page = data.getParcelable(EXTRA_MISSION);
+        int offset = data.getInt(MissionActions.EXTRA_MISSION_ITEMS_OFFSET, -1);
+        int total = data.getInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL, -1);
+        if (page == null || offset < 0 || total < 0) {
+            return false;
+        }
+
+        Mission mission;
+        synchronized (missionUploadLock) {
+            if (offset == 0) {
+                pendingMissionUpload = new Mission();
+                pendingMissionUploadTotal = total;
+            }
+
+            if (pendingMissionUpload == null || total != pendingMissionUploadTotal
+                || offset != pendingMissionUpload.getMissionItems().size()) {
+                //A page went missing, or the client started sending another mission.
+                Timber.w("Dropping mission page %d/%d.", offset, total);
+                pendingMissionUpload = null;
+                return false;
+            }
+
+            pendingMissionUpload.getMissionItems().addAll(page.getMissionItems());
+            pendingMissionUpload.setCurrentMissionItem(page.getCurrentMissionItem());
+            if (pendingMissionUpload.getMissionItems().size() < total) {
+                return true;
+            }
+
+            mission = pendingMissionUpload;
+            pendingMissionUpload = null;
+        }
+
+        Bundle params = new Bundle();
+        params.putParcelable(EXTRA_MISSION, mission);
+        params.putBoolean(EXTRA_PUSH_TO_DRONE, data.getBoolean(EXTRA_PUSH_TO_DRONE, false));
+        try {
+            executeAction(new Action(ACTION_SET_MISSION, params), listener);
+        } catch (RemoteException e) {
+            Timber.e(e, e.getMessage());
+        }
+        return true;
+    }
+
     public boolean isConnected() {
         return droneMgr != null && droneMgr.isConnected();
     }
@@ -413,6 +501,35 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
                 break;
             }
 
+            case MissionActions.ACTION_GET_MISSION_ITEMS: {
+                if (drone instanceof MavLinkDrone || drone == null) {
+                    MavLinkDrone mavLinkDrone = (MavLinkDrone) drone;
+                    int offset = data.getInt(MissionActions.EXTRA_MISSION_ITEMS_OFFSET, 0);
+
+                    // Going back to the caller.
+                    data.putParcelable(EXTRA_MISSION,
+                        CommonApiUtils.getMissionPage(mavLinkDrone, offset, MissionPaging.MAX_PAGE_SIZE));
+                    data.putInt(MissionActions.EXTRA_MISSION_ITEMS_TOTAL,
+                        mavLinkDrone == null ? 0 : mavLinkDrone.getMission().getComponentItems().size());
+                    data.putInt(MissionActions.EXTRA_MISSION_VERSION,
+                        mavLinkDrone == null ? 0 : mavLinkDrone.getMission().getComponentsVersion());
+                } else {
+                    CommonApiUtils.postErrorEvent(CommandExecutionError.COMMAND_UNSUPPORTED, listener);
+                }
+                break;
+            }
+
+            case MissionActions.ACTION_SET_MISSION_ITEMS: {
+                boolean accepted = setMissionItems(data, listener);
+
+                // Going back to the caller.
+                data.putBoolean(MissionActions.EXTRA_MISSION_ITEMS_ACCEPTED, accepted);
+                if (!accepted) {
+                    CommonApiUtils.postErrorEvent(CommandExecutionError.COMMAND_FAILED, listener);
+                }
+                break;
+            }
+
             case MissionActions.ACTION_LOAD_MISSION: {
                 Uri loadUri = data.getParcelable(MissionActions.EXTRA_LOAD_MISSION_URI);
                 boolean setMission = data.getBoolean(MissionActions.EXTRA_SET_LOADED_MISSION, false);
@@ -614,6 +731,11 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
                 break;
 
             case MISSION_UPDATE:
+                //Buffered events are coalesced, which would drop the intermediate changes.
+                if (drone instanceof MavLinkDrone && !isEventsBufferingEnabled()) {
+                    extrasBundle.putParcelable(AttributeEventExtra.EXTRA_MISSION_CHANGE,
+                        CommonApiUtils.getMissionChange((MavLinkDrone) drone));
+                }
                 droneEvent = AttributeEvent.MISSION_UPDATED;
                 break;
 
@@ -768,11 +890,32 @@ public final class DroneApi extends IDroneApi.Stub implements DroneInterfaces.On
         notifyAttributeUpdate(AttributeEvent.PARAMETER_RECEIVED, paramsBundle);
     }
 
+    @Override
+    public void onParametersDownloadProgress(int receivedCount, int count, long eta) {
+        Bundle progressBundle = new Bundle(3);
+        progressBundle.putInt(AttributeEventExtra.EXTRA_PARAMETERS_RECEIVED_COUNT, receivedCount);
+        progressBundle.putInt(AttributeEventExtra.EXTRA_PARAMETERS_COUNT, count);
+        progressBundle.putLong(AttributeEventExtra.EXTRA_PARAMETERS_DOWNLOAD_ETA, eta);
+        notifyAttributeUpdate(AttributeEvent.PARAMETERS_DOWNLOAD_PROGRESS, progressBundle);
+    }
+
     @Override
     public void onEndReceivingParameters() {
         notifyAttributeUpdate(AttributeEvent.PARAMETERS_REFRESH_COMPLETED, null);
     }
 
+    public void onWaypointTransferProgress(WaypointManager.WaypointEvent_Type wpEvent, WaypointManager.TransferProgress progress) {
+        Bundle progressBundle = new Bundle(7);
+        progressBundle.putBoolean(AttributeEventExtra.EXTRA_MISSION_TRANSFER_UPLOAD, wpEvent == WaypointManager.WaypointEvent_Type.WP_UPLOAD);
+        progressBundle.putInt(AttributeEventExtra.EXTRA_MISSION_TRANSFERRED_COUNT, progress.getTransferredCount());
+        progressBundle.putInt(AttributeEventExtra.EXTRA_MISSION_TRANSFER_COUNT, progress.getCount());
+        progressBundle.putLong(AttributeEventExtra.EXTRA_MISSION_TRANSFER_ELAPSED_TIME, progress.getElapsedTime());
+        progressBundle.putInt(AttributeEventExtra.EXTRA_MISSION_TRANSFER_RETRIES, progress.getRetries());
+        progressBundle.putLong(AttributeEventExtra.EXTRA_MISSION_TRANSFER_ITEM_LATENCY, progress.getItemLatency());
+        progressBundle.putLong(AttributeEventExtra.EXTRA_MISSION_TRANSFER_ROUND_TRIP_TIME, progress.getRoundTripTime());
+        notifyAttributeUpdate(AttributeEvent.MISSION_TRANSFER_PROGRESS, progressBundle);
+    }
+
     public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
         switch (connectionStatus.getStatusCode()) {
             case LinkConnectionStatus.FAILED:
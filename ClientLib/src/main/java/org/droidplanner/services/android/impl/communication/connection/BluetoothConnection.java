@@ -21,10 +21,17 @@ import java.util.UUID;
 public class BluetoothConnection extends AndroidMavLinkConnection {
     private static final String BLUE = "BLUETOOTH";
     private static final String UUID_SPP_DEVICE = "00001101-0000-1000-8000-00805F9B34FB";
+
+    /**
+     * Size of the buffer holding the data read ahead of the parser.
+     */
+    private static final int READ_AHEAD_CAPACITY = 32 * 1024;
+
     private BluetoothAdapter mBluetoothAdapter;
     private OutputStream out;
     private InputStream in;
     private BluetoothSocket bluetoothSocket;
+    private volatile ReadAheadBuffer readAheadBuffer;
 
     private final String bluetoothAddress;
 
@@ -75,6 +82,10 @@ public class BluetoothConnection extends AndroidMavLinkConnection {
         out = bluetoothSocket.getOutputStream();
         in = bluetoothSocket.getInputStream();
 
+        final ReadAheadBuffer buffer = new ReadAheadBuffer(in, READ_AHEAD_CAPACITY, getLinkMetricsRegistry());
+        buffer.start();
+        readAheadBuffer = buffer;
+
         onConnectionOpened(connectionExtras);
     }
 
@@ -107,8 +118,12 @@ public class BluetoothConnection extends AndroidMavLinkConnection {
 
     @Override
     protected int readDataBlock(byte[] buffer) throws IOException {
-        return in.read(buffer);
+        final ReadAheadBuffer readAhead = readAheadBuffer;
+        if (readAhead == null) {
+            throw new IOException("Bluetooth connection is closed.");
+        }
 
+        return readAhead.read(buffer);
     }
 
     @Override
@@ -130,6 +145,12 @@ public class BluetoothConnection extends AndroidMavLinkConnection {
     }
 
     private void resetConnection() throws IOException {
+        final ReadAheadBuffer readAhead = readAheadBuffer;
+        readAheadBuffer = null;
+        if (readAhead != null) {
+            readAhead.stop();
+        }
+
         if (in != null) {
             in.close();
             in = null;
@@ -0,0 +1,414 @@
+package org.droidplanner.services.android.impl.communication.connection;
+
+import android.content.Context;
+import android.os.Bundle;
+
+import com.MAVLink.MAVLinkPacket;
+import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
+
+import org.droidplanner.services.android.impl.core.MAVLink.connection.FrameDeduplicator;
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionListener;
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionTypes;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mavlink connection to a single vehicle over several redundant links (i.e: telemetry radio and LTE).
+ * Frames are read from every link, and the copies received over more than one link are dropped. Copies
+ * are matched by their sequence number and checksum, so the links are expected to carry the same frames
+ * (i.e: forwarded by a companion computer or a mavlink router).
+ * Outgoing frames are sent over the healthiest link, based on its relative latency and packet loss,
+ * so losing a link is transparent to the connection listeners.
+ */
+public class MultiLinkConnection extends AndroidMavLinkConnection {
+
+    private static final String TAG = MultiLinkConnection.class.getSimpleName();
+
+    /**
+     * How long to wait for a received frame before returning from {@link #readDataBlock(byte[])}.
+     */
+    private static final long READ_TIMEOUT = 100L; //ms
+
+    private static final long HEALTH_CHECK_PERIOD = 1000L; //ms
+
+    /**
+     * Delay between reconnection attempts of a disconnected link.
+     */
+    private static final long RECONNECT_DELAY = 5000L; //ms
+
+    /**
+     * A link that hasn't received anything for this long is not used for sending if another link is alive.
+     */
+    private static final long STALE_LINK_TIMEOUT = 3000000000L; //ns
+
+    /**
+     * Latency penalty (in ns) of a link losing every packet. Losing 10% of the packets makes a link
+     * as bad as one lagging by 100ms.
+     */
+    private static final double LOSS_PENALTY = 1000000000d;
+
+    /**
+     * Weight of the newest sample in the links latency and loss moving averages.
+     */
+    private static final double SMOOTHING_FACTOR = 0.1;
+
+    private final List<Link> links;
+    private final long staleLinkTimeout;
+    private final FrameDeduplicator deduplicator = new FrameDeduplicator();
+    private final LinkedBlockingQueue<byte[]> receivedFrames = new LinkedBlockingQueue<>();
+    private final AtomicLong duplicateCount = new AtomicLong();
+
+    private final Runnable healthCheckTask = new Runnable() {
+        @Override
+        public void run() {
+            checkLinksHealth();
+        }
+    };
+
+    private ScheduledExecutorService healthCheckRunner;
+    private volatile Bundle connectionExtras;
+    private volatile Link activeLink;
+
+    /**
+     * Frame that didn't fit in the previous read buffer. Only accessed from the manager thread.
+     */
+    private byte[] pendingFrame;
+
+    public MultiLinkConnection(Context context, List<? extends AndroidMavLinkConnection> connections) {
+        this(context, connections, STALE_LINK_TIMEOUT);
+    }
+
+    /**
+     * @param staleLinkTimeout time (in ns) without receiving anything after which a link is no longer
+     *                         used for sending if another link is alive
+     */
+    MultiLinkConnection(Context context, List<? extends AndroidMavLinkConnection> connections,
+                        long staleLinkTimeout) {
+        super(context);
+        if (connections == null || connections.isEmpty()) {
+            throw new IllegalArgumentException("At least one link is required.");
+        }
+
+        final List<Link> links = new ArrayList<>(connections.size());
+        for (int i = 0; i < connections.size(); i++) {
+            links.add(new Link(i, connections.get(i)));
+        }
+        this.links = links;
+        this.staleLinkTimeout = staleLinkTimeout;
+    }
+
+    @Override
+    protected void openConnection(Bundle connectionExtras) throws IOException {
+        this.connectionExtras = connectionExtras;
+        receivedFrames.clear();
+        deduplicator.reset();
+        duplicateCount.set(0);
+        activeLink = null;
+
+        for (Link link : links) {
+            link.reset();
+            link.connection.addMavLinkConnectionListener(TAG, link);
+            link.connect();
+        }
+
+        if (healthCheckRunner == null || healthCheckRunner.isShutdown()) {
+            healthCheckRunner = Executors.newSingleThreadScheduledExecutor();
+        }
+        healthCheckRunner.scheduleWithFixedDelay(healthCheckTask, HEALTH_CHECK_PERIOD, HEALTH_CHECK_PERIOD,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    protected int readDataBlock(byte[] buffer) throws IOException {
+        byte[] frame = pendingFrame;
+        pendingFrame = null;
+
+        try {
+            if (frame == null) {
+                frame = receivedFrames.poll(READ_TIMEOUT, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException(e.getMessage());
+        }
+
+        int length = 0;
+        while (frame != null) {
+            if (length + frame.length > buffer.length) {
+                if (length == 0) {
+                    //Can't happen with a mavlink sized read buffer. Drop the frame rather than looping on it.
+                    mLogger.logWarning(TAG, "Dropping frame larger than the read buffer.");
+                } else {
+                    pendingFrame = frame;
+                }
+                break;
+            }
+
+            System.arraycopy(frame, 0, buffer, length, frame.length);
+            length += frame.length;
+            frame = receivedFrames.poll();
+        }
+
+        return length;
+    }
+
+    @Override
+    protected void sendBuffer(byte[] buffer) throws IOException {
+        final Link link = selectLink();
+        if (link == null) {
+            mLogger.logVerbose(TAG, "No link available. Dropping outgoing frame.");
+            return;
+        }
+
+        link.connection.sendEncodedPacket(buffer);
+    }
+
+    @Override
+    protected void closeConnection() throws IOException {
+        if (healthCheckRunner != null) {
+            healthCheckRunner.shutdownNow();
+            healthCheckRunner = null;
+        }
+
+        for (Link link : links) {
+            link.connection.removeMavLinkConnectionListener(TAG);
+            link.connection.disconnect();
+        }
+
+        activeLink = null;
+        receivedFrames.clear();
+    }
+
+    @Override
+    protected void loadPreferences() {
+    }
+
+    @Override
+    public int getConnectionType() {
+        return MavLinkConnectionTypes.MAVLINK_CONNECTION_MULTI_LINK;
+    }
+
+    public int getLinkCount() {
+        return links.size();
+    }
+
+    /**
+     * @param index index of the link, in the order the links were supplied
+     * @return a snapshot of the health metrics of the given link.
+     */
+    public LinkMetrics getLinkMetrics(int index) {
+        return links.get(index).connection.getLinkMetrics();
+    }
+
+    /**
+     * @return index of the link currently used for sending, or -1 if no link is available.
+     */
+    public int getActiveLinkIndex() {
+        final Link link = activeLink;
+        return link == null ? -1 : link.index;
+    }
+
+    /**
+     * @return count of frames dropped because they had already been received over another link.
+     */
+    public long getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * Selects the link outgoing frames should be sent over.
+     */
+    private Link selectLink() {
+        final long now = System.nanoTime();
+
+        Link bestLink = null;
+        double bestScore = Double.MAX_VALUE;
+        Link freshestLink = null;
+        for (Link link : links) {
+            if (link.connection.getConnectionStatus() != MAVLINK_CONNECTED) {
+                continue;
+            }
+
+            if (freshestLink == null || link.lastReceiveTime - freshestLink.lastReceiveTime > 0) {
+                freshestLink = link;
+            }
+
+            if (link.lastReceiveTime == 0 || now - link.lastReceiveTime > staleLinkTimeout) {
+                continue;
+            }
+
+            final double score = link.getScore();
+            if (score < bestScore) {
+                bestScore = score;
+                bestLink = link;
+            }
+        }
+
+        if (bestLink == null) {
+            //No live link. Fall back to the one that was last heard from.
+            bestLink = freshestLink;
+        }
+
+        final Link previousLink = activeLink;
+        if (bestLink != previousLink) {
+            activeLink = bestLink;
+            mLogger.logInfo(TAG, "Sending over link " + (bestLink == null ? "none" : bestLink));
+        }
+
+        return bestLink;
+    }
+
+    /**
+     * Updates the links packet loss, and reconnects the disconnected links.
+     */
+    private void checkLinksHealth() {
+        final boolean isConnected = getConnectionStatus() == MAVLINK_CONNECTED;
+        final long now = System.currentTimeMillis();
+        for (Link link : links) {
+            switch (link.connection.getConnectionStatus()) {
+                case MAVLINK_CONNECTED:
+                    link.updatePacketLoss();
+                    break;
+
+                case MAVLINK_DISCONNECTED:
+                    if (isConnected && now - link.lastConnectAttempt >= RECONNECT_DELAY) {
+                        mLogger.logInfo(TAG, "Reconnecting link " + link);
+                        link.connect();
+                    }
+                    break;
+            }
+        }
+    }
+
+    private void onLinkDisconnected(Link link) {
+        mLogger.logInfo(TAG, "Link " + link + " disconnected.");
+        if (getConnectionStatus() != MAVLINK_CONNECTING) {
+            return;
+        }
+
+        //Fail the connection attempt only once none of the links can connect.
+        for (Link otherLink : links) {
+            if (otherLink.connection.getConnectionStatus() != MAVLINK_DISCONNECTED) {
+                return;
+            }
+        }
+
+        onConnectionStatus(LinkConnectionStatus.newFailedConnectionStatus(LinkConnectionStatus.UNKNOWN,
+                "Unable to connect any of the links."));
+    }
+
+    private class Link implements MavLinkConnectionListener {
+
+        private final int index;
+        private final AndroidMavLinkConnection connection;
+
+        /**
+         * Moving average of the delay (in ns) between the receipt of a frame over the fastest link and
+         * over this link. Only updated from this link manager thread.
+         */
+        private volatile double latency;
+
+        /**
+         * Moving average of the ratio of packets lost by this link.
+         */
+        private volatile double packetLoss;
+
+        private volatile long lastReceiveTime;
+        private volatile long lastConnectAttempt;
+
+        private long lastPacketsReceived;
+        private long lastSequenceGaps;
+
+        private Link(int index, AndroidMavLinkConnection connection) {
+            this.index = index;
+            this.connection = connection;
+        }
+
+        private void reset() {
+            latency = 0;
+            packetLoss = 0;
+            lastReceiveTime = 0;
+            lastPacketsReceived = 0;
+            lastSequenceGaps = 0;
+        }
+
+        private void connect() {
+            lastConnectAttempt = System.currentTimeMillis();
+            if (connection.getConnectionStatus() == MAVLINK_DISCONNECTED) {
+                connection.connect(null);
+            }
+        }
+
+        private double getScore() {
+            return latency + packetLoss * LOSS_PENALTY;
+        }
+
+        private void updatePacketLoss() {
+            final LinkMetrics metrics = connection.getLinkMetrics();
+            final long packetsReceived = metrics.getPacketsReceived();
+            final long sequenceGaps = metrics.getSequenceGaps();
+
+            if (packetsReceived < lastPacketsReceived || sequenceGaps < lastSequenceGaps) {
+                //The link metrics were reset by a reconnection.
+                lastPacketsReceived = 0;
+                lastSequenceGaps = 0;
+            }
+
+            final long receivedDelta = packetsReceived - lastPacketsReceived;
+            final long lostDelta = sequenceGaps - lastSequenceGaps;
+            lastPacketsReceived = packetsReceived;
+            lastSequenceGaps = sequenceGaps;
+
+            if (receivedDelta + lostDelta > 0) {
+                final double loss = (double) lostDelta / (receivedDelta + lostDelta);
+                packetLoss += SMOOTHING_FACTOR * (loss - packetLoss);
+            }
+        }
+
+        @Override
+        public void onConnectionStatus(LinkConnectionStatus connectionStatus) {
+            switch (connectionStatus.getStatusCode()) {
+                case LinkConnectionStatus.CONNECTED:
+                    mLogger.logInfo(TAG, "Link " + this + " connected.");
+                    onConnectionOpened(connectionExtras);
+                    break;
+
+                case LinkConnectionStatus.DISCONNECTED:
+                    onLinkDisconnected(this);
+                    break;
+
+                case LinkConnectionStatus.FAILED:
+                    mLogger.logWarning(TAG, "Link " + this + " failed: " + connectionStatus.getExtras());
+                    break;
+            }
+        }
+
+        @Override
+        public void onReceivePacket(MAVLinkPacket packet) {
+            final long now = System.nanoTime();
+            lastReceiveTime = now;
+
+            final long delay = deduplicator.onFrameReceived(packet, now);
+            if (delay == FrameDeduplicator.NEW_FRAME) {
+                latency -= SMOOTHING_FACTOR * latency;
+                receivedFrames.offer(packet.encodePacket());
+            } else {
+                latency += SMOOTHING_FACTOR * (delay - latency);
+                duplicateCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return index + " (" + connection.getClass().getSimpleName() + ")";
+        }
+    }
+}
@@ -0,0 +1,220 @@
+package org.droidplanner.services.android.impl.communication.connection;
+
+import org.droidplanner.services.android.impl.core.MAVLink.connection.LinkMetricsRegistry;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Reads a stream ahead of the parser on a dedicated thread, so a burst of data is pulled off the
+ * transport as soon as it arrives, even while the previous burst is still being parsed.
+ * Each read is sized after {@link InputStream#available()} to take the whole burst at once. The data
+ * is kept in a ring buffer until the connection manager thread drains it.
+ */
+class ReadAheadBuffer {
+
+    private static final String THREAD_NAME = "ReadAheadBuffer";
+
+    /**
+     * How long {@link #read(byte[])} waits for data before returning.
+     */
+    private static final long POLL_TIMEOUT = 200L; //ms
+
+    /**
+     * Count of bursts tracked for the buffer latency metric. Older bursts are merged when full.
+     */
+    private static final int MAX_PENDING_BURSTS = 256;
+
+    private final InputStream in;
+    private final LinkMetricsRegistry metrics;
+
+    private final byte[] ring;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+
+    /*
+     * The fields below are guarded by the lock. The reader thread only writes the free region of the
+     * ring, and the consumer only reads the filled region.
+     */
+    private int readPos;
+    private int count;
+    private long producedBytes;
+    private long consumedBytes;
+    private IOException readError;
+
+    /*
+     * End offset (in produced bytes) and receive time of the bursts waiting to be parsed.
+     */
+    private final long[] burstEnds = new long[MAX_PENDING_BURSTS];
+    private final long[] burstTimes = new long[MAX_PENDING_BURSTS];
+    private int burstHead;
+    private int burstCount;
+
+    private volatile boolean isRunning;
+    private Thread readerThread;
+
+    private final Runnable readerTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                while (isRunning) {
+                    final int writePos;
+                    final int free;
+                    lock.lockInterruptibly();
+                    try {
+                        while (count == ring.length) {
+                            notFull.await();
+                        }
+                        writePos = (readPos + count) % ring.length;
+                        free = Math.min(ring.length - count, ring.length - writePos);
+                    } finally {
+                        lock.unlock();
+                    }
+
+                    final int available = in.available();
+                    final int length = available > 0 ? Math.min(available, free) : free;
+                    final int readCount = in.read(ring, writePos, length);
+                    if (readCount < 0) {
+                        throw new EOFException("End of stream reached.");
+                    }
+                    if (readCount == 0) {
+                        continue;
+                    }
+
+                    final long now = System.nanoTime();
+                    metrics.onTransportRead(readCount, now);
+
+                    final int bufferedBytes;
+                    lock.lock();
+                    try {
+                        count += readCount;
+                        producedBytes += readCount;
+                        addBurst(producedBytes, now);
+                        bufferedBytes = count;
+                        notEmpty.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                    metrics.onTransportBuffered(bufferedBytes);
+                }
+            } catch (IOException e) {
+                if (isRunning) {
+                    lock.lock();
+                    try {
+                        readError = e;
+                        notEmpty.signal();
+                    } finally {
+                        lock.unlock();
+                    }
+                }
+            } catch (InterruptedException e) {
+                //Stopped.
+            }
+        }
+    };
+
+    /**
+     * @param in       stream to read from
+     * @param capacity size of the ring buffer
+     * @param metrics  registry the transport metrics are recorded to
+     */
+    ReadAheadBuffer(InputStream in, int capacity, LinkMetricsRegistry metrics) {
+        this.in = in;
+        this.ring = new byte[capacity];
+        this.metrics = metrics;
+    }
+
+    synchronized void start() {
+        if (isRunning) {
+            return;
+        }
+
+        isRunning = true;
+        readerThread = new Thread(readerTask, THREAD_NAME);
+        readerThread.start();
+    }
+
+    /**
+     * Stops the reader thread. The underlying stream should be closed as well to unblock a pending read.
+     */
+    synchronized void stop() {
+        if (!isRunning) {
+            return;
+        }
+
+        isRunning = false;
+        readerThread.interrupt();
+        readerThread = null;
+    }
+
+    private void addBurst(long end, long time) {
+        if (burstCount == MAX_PENDING_BURSTS) {
+            //Extend the latest burst.
+            burstEnds[(burstHead + burstCount - 1) % MAX_PENDING_BURSTS] = end;
+            return;
+        }
+
+        final int index = (burstHead + burstCount) % MAX_PENDING_BURSTS;
+        burstEnds[index] = end;
+        burstTimes[index] = time;
+        burstCount++;
+    }
+
+    /**
+     * Copies the buffered data into the given buffer, waiting for data if none is available.
+     * Errors from the stream are only reported once the buffered data has been drained.
+     *
+     * @return count of bytes copied, or -1 if no data was received before the poll timeout.
+     */
+    int read(byte[] buffer) throws IOException {
+        lock.lock();
+        try {
+            if (count == 0) {
+                if (readError != null) {
+                    throw readError;
+                }
+
+                try {
+                    notEmpty.await(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException(e.getMessage());
+                }
+
+                if (count == 0) {
+                    if (readError != null) {
+                        throw readError;
+                    }
+                    return -1;
+                }
+            }
+
+            final int length = Math.min(count, buffer.length);
+            final int firstPart = Math.min(length, ring.length - readPos);
+            System.arraycopy(ring, readPos, buffer, 0, firstPart);
+            System.arraycopy(ring, 0, buffer, firstPart, length - firstPart);
+
+            readPos = (readPos + length) % ring.length;
+            count -= length;
+            consumedBytes += length;
+
+            final long now = System.nanoTime();
+            while (burstCount > 0 && burstEnds[burstHead] <= consumedBytes) {
+                metrics.onTransportBurstParsed(now - burstTimes[burstHead]);
+                burstHead = (burstHead + 1) % MAX_PENDING_BURSTS;
+                burstCount--;
+            }
+
+            notFull.signal();
+            return length;
+        } finally {
+            lock.unlock();
+        }
+    }
+}
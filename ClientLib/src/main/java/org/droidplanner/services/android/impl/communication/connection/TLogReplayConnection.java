@@ -0,0 +1,260 @@
+package org.droidplanner.services.android.impl.communication.connection;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+
+import com.o3dr.android.client.utils.data.tlog.TLogIndex;
+import com.o3dr.services.android.lib.drone.connection.ConnectionType;
+
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionTypes;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Mavlink connection streaming the frames of a recorded tlog file, paced by their recorded timestamps.
+ * Outgoing packets are dropped since there's no vehicle on the other end.
+ */
+public class TLogReplayConnection extends AndroidMavLinkConnection {
+
+    private static final String TAG = TLogReplayConnection.class.getSimpleName();
+
+    /**
+     * Upper bound on a single pacing sleep, so seek and speed updates are applied promptly.
+     */
+    private static final long MAX_PACING_SLEEP = 100L; //ms
+
+    private final Uri tlogUri;
+    private final boolean loop;
+    private final long startTime;
+
+    private final Object replayLock = new Object();
+
+    private TLogIndex tlogIndex;
+
+    private int nextIndex;
+    private double replaySpeed;
+
+    /**
+     * Wall clock time (in ns) and tlog time (in ms) the replay pacing is anchored to.
+     */
+    private long anchorRealTime;
+    private long anchorTimestamp;
+    private boolean isAnchorValid;
+
+    private long replayedFrameCount;
+    private long replayedByteCount;
+
+    public TLogReplayConnection(Context context, Uri tlogUri, double replaySpeed, long startTime, boolean loop) {
+        super(context);
+        this.tlogUri = tlogUri;
+        this.replaySpeed = replaySpeed;
+        this.startTime = startTime;
+        this.loop = loop;
+    }
+
+    @Override
+    protected void openConnection(Bundle connectionExtras) throws IOException {
+        if (tlogUri == null) {
+            throw new IOException("Invalid tlog uri.");
+        }
+
+        final TLogIndex index = TLogIndex.open(context, tlogUri);
+        mLogger.logInfo(TAG, "Replaying " + index.size() + " frames from " + tlogUri);
+        startReplay(index);
+        onConnectionOpened(connectionExtras);
+    }
+
+    /**
+     * Starts replaying the frames of the given index, from the start time.
+     */
+    void startReplay(TLogIndex index) {
+        synchronized (replayLock) {
+            tlogIndex = index;
+            nextIndex = startTime > 0 ? index.indexOf(startTime) : 0;
+            isAnchorValid = false;
+            replayedFrameCount = 0;
+            replayedByteCount = 0;
+        }
+    }
+
+    @Override
+    protected int readDataBlock(byte[] buffer) throws IOException {
+        final TLogIndex index;
+        int frameIndex;
+        synchronized (replayLock) {
+            index = tlogIndex;
+            if (index == null) {
+                throw new IOException("TLog replay is not open.");
+            }
+
+            if (nextIndex >= index.size()) {
+                if (!loop || index.size() == 0) {
+                    throw new EOFException("End of tlog replay.");
+                }
+
+                nextIndex = 0;
+                isAnchorValid = false;
+            }
+
+            frameIndex = nextIndex;
+        }
+
+        waitUntilDue(index, frameIndex);
+
+        synchronized (replayLock) {
+            if (frameIndex != nextIndex) {
+                //The replay was repositioned while waiting.
+                return 0;
+            }
+
+            int length = 0;
+            final int frameCount = index.size();
+            while (frameIndex < frameCount && length + index.getFrameLength(frameIndex) <= buffer.length) {
+                if (length > 0 && getDelay(index, frameIndex) > 0) {
+                    break;
+                }
+
+                length += index.copyFrame(frameIndex, buffer, length);
+                frameIndex++;
+                replayedFrameCount++;
+            }
+
+            nextIndex = frameIndex;
+            replayedByteCount += length;
+            return length;
+        }
+    }
+
+    private void waitUntilDue(TLogIndex index, int frameIndex) throws InterruptedIOException {
+        long delay;
+        while (true) {
+            synchronized (replayLock) {
+                if (frameIndex != nextIndex) {
+                    return;
+                }
+
+                delay = getDelay(index, frameIndex);
+            }
+
+            if (delay <= 0) {
+                return;
+            }
+
+            try {
+                Thread.sleep(Math.min(delay, MAX_PACING_SLEEP));
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException("TLog replay interrupted.");
+            }
+        }
+    }
+
+    /**
+     * @return how long (in ms) to wait before the given frame is due. Must be called with the replay lock held.
+     */
+    private long getDelay(TLogIndex index, int frameIndex) {
+        if (replaySpeed <= ConnectionType.TLOG_REPLAY_SPEED_MAX) {
+            return 0;
+        }
+
+        final long frameTimestamp = index.getTimestamp(frameIndex);
+        if (!isAnchorValid) {
+            anchorRealTime = System.nanoTime();
+            anchorTimestamp = frameTimestamp;
+            isAnchorValid = true;
+            return 0;
+        }
+
+        final long dueTime = anchorRealTime + (long) ((frameTimestamp - anchorTimestamp) * 1000000L / replaySpeed);
+        return (dueTime - System.nanoTime()) / 1000000L;
+    }
+
+    /**
+     * Repositions the replay to the first frame recorded at or after the given time.
+     *
+     * @param timestamp tlog time in ms
+     */
+    public void seekTo(long timestamp) {
+        synchronized (replayLock) {
+            if (tlogIndex == null) {
+                return;
+            }
+
+            nextIndex = tlogIndex.indexOf(timestamp);
+            isAnchorValid = false;
+        }
+    }
+
+    /**
+     * Updates the replay speed.
+     *
+     * @param replaySpeed speed factor relative to the recorded pace, or {@link ConnectionType#TLOG_REPLAY_SPEED_MAX}
+     *                    to stream the frames as fast as possible.
+     */
+    public void setReplaySpeed(double replaySpeed) {
+        synchronized (replayLock) {
+            this.replaySpeed = replaySpeed;
+            isAnchorValid = false;
+        }
+    }
+
+    public double getReplaySpeed() {
+        synchronized (replayLock) {
+            return replaySpeed;
+        }
+    }
+
+    /**
+     * @return the tlog time (in ms) of the next frame to be replayed, or -1 if the replay is not running.
+     */
+    public long getReplayPosition() {
+        synchronized (replayLock) {
+            if (tlogIndex == null || nextIndex >= tlogIndex.size()) {
+                return -1;
+            }
+
+            return tlogIndex.getTimestamp(nextIndex);
+        }
+    }
+
+    public long getReplayedFrameCount() {
+        synchronized (replayLock) {
+            return replayedFrameCount;
+        }
+    }
+
+    public long getReplayedByteCount() {
+        synchronized (replayLock) {
+            return replayedByteCount;
+        }
+    }
+
+    @Override
+    protected void sendBuffer(byte[] buffer) throws IOException {
+        //Nothing to send to.
+    }
+
+    @Override
+    protected void closeConnection() throws IOException {
+        final TLogIndex index;
+        synchronized (replayLock) {
+            index = tlogIndex;
+            tlogIndex = null;
+        }
+
+        if (index != null) {
+            index.close();
+        }
+    }
+
+    @Override
+    protected void loadPreferences() {
+    }
+
+    @Override
+    public int getConnectionType() {
+        return MavLinkConnectionTypes.MAVLINK_CONNECTION_TLOG_REPLAY;
+    }
+}
@@ -0,0 +1,161 @@
+package org.droidplanner.services.android.impl.communication.connection.usb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Reads from a usb device on a dedicated thread, so bulk transfers keep being submitted while the
+ * received data is parsed.
+ * A fixed pool of buffers circulates between the reader thread, which fills them, and the connection
+ * manager thread, which drains them. When every buffer is waiting to be parsed, the reader thread
+ * blocks and the data backs up in the device.
+ */
+class UsbBulkReader {
+
+    /**
+     * Blocking read from the usb device.
+     */
+    interface Source {
+        /**
+         * @return count of bytes read into the buffer, or a value <= 0 if no data was received before
+         * the read timeout.
+         */
+        int read(byte[] buffer) throws IOException;
+    }
+
+    private static final String THREAD_NAME = "UsbBulkReader";
+
+    /**
+     * How long {@link #read(byte[])} waits for data before returning.
+     */
+    private static final long POLL_TIMEOUT = 200L; //ms
+
+    private static final class Chunk {
+        final byte[] data;
+        int length;
+        int offset;
+
+        Chunk(int size) {
+            data = new byte[size];
+        }
+    }
+
+    private final Source source;
+
+    private final ArrayBlockingQueue<Chunk> freeChunks;
+    private final ArrayBlockingQueue<Chunk> filledChunks;
+    private final AtomicReference<IOException> readError = new AtomicReference<>();
+
+    /**
+     * Chunk being drained. Only accessed from the consumer thread.
+     */
+    private Chunk currentChunk;
+
+    private volatile boolean isRunning;
+    private Thread readerThread;
+
+    private final Runnable readerTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                while (isRunning) {
+                    final Chunk chunk = freeChunks.take();
+                    boolean isQueued = false;
+                    try {
+                        final int length = source.read(chunk.data);
+                        if (length > 0) {
+                            chunk.length = length;
+                            chunk.offset = 0;
+                            isQueued = filledChunks.offer(chunk);
+                        }
+                    } finally {
+                        if (!isQueued) {
+                            freeChunks.offer(chunk);
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                if (isRunning) {
+                    readError.set(e);
+                }
+            } catch (InterruptedException e) {
+                //Stopped.
+            }
+        }
+    };
+
+    /**
+     * @param source     usb device to read from
+     * @param bufferSize size of each read buffer, i.e: the largest bulk transfer to request
+     * @param queueDepth count of read buffers
+     */
+    UsbBulkReader(Source source, int bufferSize, int queueDepth) {
+        this.source = source;
+        this.freeChunks = new ArrayBlockingQueue<>(queueDepth);
+        this.filledChunks = new ArrayBlockingQueue<>(queueDepth);
+        for (int i = 0; i < queueDepth; i++) {
+            freeChunks.add(new Chunk(bufferSize));
+        }
+    }
+
+    synchronized void start() {
+        if (isRunning) {
+            return;
+        }
+
+        isRunning = true;
+        readerThread = new Thread(readerTask, THREAD_NAME);
+        readerThread.start();
+    }
+
+    synchronized void stop() {
+        if (!isRunning) {
+            return;
+        }
+
+        isRunning = false;
+        readerThread.interrupt();
+        readerThread = null;
+    }
+
+    /**
+     * Copies the received data into the given buffer, waiting for data if none is available.
+     *
+     * @return count of bytes copied, or -1 if no data was received before the poll timeout.
+     */
+    int read(byte[] buffer) throws IOException {
+        Chunk chunk = currentChunk;
+        if (chunk == null) {
+            final IOException error = readError.get();
+            if (error != null) {
+                throw error;
+            }
+
+            try {
+                chunk = filledChunks.poll(POLL_TIMEOUT, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException(e.getMessage());
+            }
+
+            if (chunk == null) {
+                return -1;
+            }
+        }
+
+        final int length = Math.min(buffer.length, chunk.length - chunk.offset);
+        System.arraycopy(chunk.data, chunk.offset, buffer, 0, length);
+        chunk.offset += length;
+
+        if (chunk.offset < chunk.length) {
+            currentChunk = chunk;
+        } else {
+            currentChunk = null;
+            freeChunks.offer(chunk);
+        }
+
+        return length;
+    }
+}
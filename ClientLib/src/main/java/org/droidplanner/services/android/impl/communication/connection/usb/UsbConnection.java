@@ -23,22 +23,89 @@ public class UsbConnection extends AndroidMavLinkConnection {
 
     private static final int FTDI_DEVICE_VENDOR_ID = 0x0403;
 
+    /**
+     * Duration of data held by a read buffer, and by the whole read queue, at the connection baud rate.
+     */
+    private static final int READ_BUFFER_DURATION = 100; //ms
+    private static final int READ_QUEUE_DURATION = 1000; //ms
+
+    private static final int MIN_READ_BUFFER_SIZE = 4096;
+    private static final int MAX_READ_BUFFER_SIZE = 65536;
+    private static final int MIN_READ_QUEUE_DEPTH = 4;
+    private static final int MAX_READ_QUEUE_DEPTH = 32;
+
     protected final int mBaudRate;
+    protected final int mReadBufferSize;
+    protected final int mReadQueueDepth;
 
     private UsbConnectionImpl mUsbConnection;
+    private volatile UsbBulkReader mBulkReader;
 
     public UsbConnection(Context parentContext, int baudRate) {
+        this(parentContext, baudRate, 0, 0);
+    }
+
+    /**
+     * @param baudRate       serial baud rate
+     * @param readBufferSize size of the usb read buffers, or 0 to derive it from the baud rate
+     * @param readQueueDepth count of usb read buffers, or 0 to derive it from the baud rate
+     */
+    public UsbConnection(Context parentContext, int baudRate, int readBufferSize, int readQueueDepth) {
         super(parentContext);
         mBaudRate = baudRate;
+        mReadBufferSize = readBufferSize > 0 ? readBufferSize : getDefaultReadBufferSize(baudRate);
+        mReadQueueDepth = readQueueDepth > 0 ? readQueueDepth : getDefaultReadQueueDepth(baudRate, mReadBufferSize);
+    }
+
+    /**
+     * @return a read buffer size holding about {@link #READ_BUFFER_DURATION} of data at the given baud rate.
+     */
+    static int getDefaultReadBufferSize(int baudRate) {
+        //10 bits per byte on the wire (8N1).
+        final int bytesPerDuration = baudRate / 10 * READ_BUFFER_DURATION / 1000;
+        int bufferSize = MIN_READ_BUFFER_SIZE;
+        while (bufferSize < bytesPerDuration && bufferSize < MAX_READ_BUFFER_SIZE) {
+            bufferSize <<= 1;
+        }
+        return bufferSize;
+    }
+
+    /**
+     * @return a read queue depth holding about {@link #READ_QUEUE_DURATION} of data at the given baud rate.
+     */
+    static int getDefaultReadQueueDepth(int baudRate, int bufferSize) {
+        final int bytesPerDuration = baudRate / 10 * READ_QUEUE_DURATION / 1000;
+        final int queueDepth = (bytesPerDuration + bufferSize - 1) / bufferSize;
+        return Math.max(MIN_READ_QUEUE_DEPTH, Math.min(MAX_READ_QUEUE_DEPTH, queueDepth));
     }
 
     @Override
     protected void closeConnection() throws IOException {
+        final UsbBulkReader bulkReader = mBulkReader;
+        mBulkReader = null;
+        if (bulkReader != null) {
+            bulkReader.stop();
+        }
+
         if (mUsbConnection != null) {
             mUsbConnection.closeUsbConnection();
         }
     }
 
+    private void onUsbConnectionOpened(final UsbConnectionImpl usbConnection, Bundle extras) {
+        final UsbBulkReader bulkReader = new UsbBulkReader(new UsbBulkReader.Source() {
+            @Override
+            public int read(byte[] buffer) throws IOException {
+                return usbConnection.readDataBlock(buffer);
+            }
+        }, mReadBufferSize, mReadQueueDepth);
+        bulkReader.start();
+        mBulkReader = bulkReader;
+
+        Log.d(TAG, "Reading with " + mReadQueueDepth + " buffers of " + mReadBufferSize + " bytes.");
+        onConnectionOpened(extras);
+    }
+
     @Override
     protected void loadPreferences() {
     }
@@ -96,13 +163,19 @@ public class UsbConnection extends AndroidMavLinkConnection {
         return false;
     }
 
+    @Override
+    protected int getReadBufferSize() {
+        return mReadBufferSize;
+    }
+
     @Override
     protected int readDataBlock(byte[] buffer) throws IOException {
-        if (mUsbConnection == null) {
+        final UsbBulkReader bulkReader = mBulkReader;
+        if (bulkReader == null) {
             throw new IOException("Uninitialized usb connection.");
         }
 
-        return mUsbConnection.readDataBlock(buffer);
+        return bulkReader.read(buffer);
     }
 
     @Override
@@ -140,8 +213,22 @@ public class UsbConnection extends AndroidMavLinkConnection {
             mBaudRate = baudRate;
         }
 
+        /**
+         * @return size of the buffers passed to {@link #readDataBlock(byte[])}.
+         */
+        protected int getReadBufferSize() {
+            return parentConnection.mReadBufferSize;
+        }
+
+        /**
+         * @return count of read buffers queued between the usb reader thread and the parser.
+         */
+        protected int getReadQueueDepth() {
+            return parentConnection.mReadQueueDepth;
+        }
+
         protected void onUsbConnectionOpened(Bundle extras) {
-            parentConnection.onConnectionOpened(extras);
+            parentConnection.onUsbConnectionOpened(this, extras);
         }
 
         protected void onUsbConnectionStatus(LinkConnectionStatus connectionStatus) {
@@ -152,6 +239,11 @@ public class UsbConnection extends AndroidMavLinkConnection {
 
         protected abstract void openUsbConnection(Bundle extras) throws IOException;
 
+        /**
+         * Blocking read from the usb device, called from the usb reader thread.
+         *
+         * @return count of bytes read, or -1 if no data was received before the read timeout.
+         */
         protected abstract int readDataBlock(byte[] readData) throws IOException;
 
         protected abstract void sendBuffer(byte[] buffer);
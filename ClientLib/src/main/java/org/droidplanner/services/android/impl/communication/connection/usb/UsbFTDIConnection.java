@@ -16,6 +16,23 @@ class UsbFTDIConnection extends UsbConnection.UsbConnectionImpl {
 
 	private static final byte LATENCY_TIMER = 32;
 
+	/**
+	 * How long a driver transfer waits for data from the device.
+	 */
+	private static final long READ_TIMEOUT = 200L; //ms
+
+	/**
+	 * How long a read waits for its buffer to fill up. The device flushes its data at least once per
+	 * latency timer period, so whatever arrived by then is returned rather than waiting for a full buffer.
+	 */
+	private static final long BULK_READ_WAIT = 2L * LATENCY_TIMER; //ms
+
+	/**
+	 * Bounds enforced by the d2xx driver on its transfer parameters.
+	 */
+	private static final int MAX_TRANSFER_SIZE = 16384;
+	private static final int MAX_DRIVER_BUFFERS = 16;
+
 	private final AtomicReference<FT_Device> ftDevRef = new AtomicReference<>();
 
 	protected UsbFTDIConnection(Context context, UsbConnection parentConn, int baudRate) {
@@ -45,7 +62,7 @@ class UsbFTDIConnection extends UsbConnection.UsbConnectionImpl {
 		try {
 			// FIXME: The NPE is coming from the library. Investigate if it's
 			// possible to fix there.
-			ftDev = ftD2xx.openByIndex(mContext, 0);
+			ftDev = ftD2xx.openByIndex(mContext, 0, getDriverParameters());
 		} catch (NullPointerException e) {
 			Log.e(TAG, e.getMessage(), e);
 		} finally {
@@ -74,6 +91,19 @@ class UsbFTDIConnection extends UsbConnection.UsbConnectionImpl {
         onUsbConnectionOpened(extras);
 	}
 
+	/**
+	 * Sizes the driver's bulk transfers and receive buffers after the connection read buffers.
+	 */
+	private D2xxManager.DriverParameters getDriverParameters() {
+		final int readBufferSize = getReadBufferSize();
+		final D2xxManager.DriverParameters params = new D2xxManager.DriverParameters();
+		params.setMaxBufferSize(readBufferSize);
+		params.setMaxTransferSize(Math.min(readBufferSize, MAX_TRANSFER_SIZE));
+		params.setBufferNumber(Math.min(getReadQueueDepth(), MAX_DRIVER_BUFFERS));
+		params.setReadTimeout((int) READ_TIMEOUT);
+		return params;
+	}
+
 	@Override
 	protected int readDataBlock(byte[] readData) throws IOException {
         final FT_Device ftDev = ftDevRef.get();
@@ -81,22 +111,19 @@ class UsbFTDIConnection extends UsbConnection.UsbConnectionImpl {
 			throw new IOException("Device is unavailable.");
 		}
 
-		int iavailable = ftDev.getQueueStatus();
-		if (iavailable > 0) {
-			if (iavailable > 4096)
-				iavailable = 4096;
-			try {
-				ftDev.read(readData, iavailable);
-
-			} catch (NullPointerException e) {
-				final String errorMsg = "Error Reading: " + e.getMessage()
-						+ "\nAssuming inaccessible USB device.  Closing connection.";
-				Log.e(TAG, errorMsg, e);
-				throw new IOException(errorMsg, e);
-			}
+		// Request a full buffer. This call returns as soon as the buffer is filled, or with whatever
+		// was received once the wait is over.
+		int iavailable;
+		try {
+			iavailable = ftDev.read(readData, readData.length, BULK_READ_WAIT);
+		} catch (NullPointerException e) {
+			final String errorMsg = "Error Reading: " + e.getMessage()
+					+ "\nAssuming inaccessible USB device.  Closing connection.";
+			Log.e(TAG, errorMsg, e);
+			throw new IOException(errorMsg, e);
 		}
 
-		if (iavailable == 0) {
+		if (iavailable <= 0) {
 			iavailable = -1;
 		}
 		return iavailable;
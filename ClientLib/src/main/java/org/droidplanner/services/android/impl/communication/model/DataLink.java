@@ -3,6 +3,7 @@ package org.droidplanner.services.android.impl.communication.model;
 import android.os.Bundle;
 
 import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
 import com.o3dr.services.android.lib.model.ICommandListener;
 
 public class DataLink {
@@ -19,6 +20,8 @@ public class DataLink {
 
         Bundle getConnectionExtras();
 
+        LinkMetrics getLinkMetrics();
+
     }
 
     public interface DataLinkListener<T> {
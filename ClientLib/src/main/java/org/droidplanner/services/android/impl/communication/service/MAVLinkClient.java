@@ -9,23 +9,30 @@ import com.MAVLink.MAVLinkPacket;
 import com.MAVLink.Messages.MAVLinkMessage;
 import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
 import com.o3dr.services.android.lib.drone.connection.ConnectionType;
+import com.o3dr.services.android.lib.drone.connection.RouterEndpoint;
 import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
 import com.o3dr.services.android.lib.model.ICommandListener;
 
 import org.droidplanner.services.android.impl.communication.connection.AndroidMavLinkConnection;
 import org.droidplanner.services.android.impl.communication.connection.AndroidTcpConnection;
 import org.droidplanner.services.android.impl.communication.connection.AndroidUdpConnection;
 import org.droidplanner.services.android.impl.communication.connection.BluetoothConnection;
+import org.droidplanner.services.android.impl.communication.connection.MultiLinkConnection;
 import org.droidplanner.services.android.impl.communication.connection.SoloConnection;
+import org.droidplanner.services.android.impl.communication.connection.TLogReplayConnection;
 import org.droidplanner.services.android.impl.communication.connection.usb.UsbConnection;
 import org.droidplanner.services.android.impl.communication.model.DataLink;
 import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnection;
 import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnectionListener;
+import org.droidplanner.services.android.impl.core.MAVLink.routing.MavLinkRouter;
 import org.droidplanner.services.android.impl.core.drone.manager.DroneCommandTracker;
 import org.droidplanner.services.android.impl.utils.connection.WifiConnectionHandler;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
+import java.util.List;
 
 import timber.log.Timber;
 
@@ -105,75 +112,143 @@ public class MAVLinkClient implements DataLink.DataLinkProvider<MAVLinkMessage>
         final Bundle paramsBundle = connParams.getParamsBundle();
 
         if(mavlinkConn == null) {
-            switch (connectionType) {
-                case ConnectionType.TYPE_USB:
-                    final int baudRate = paramsBundle.getInt(ConnectionType.EXTRA_USB_BAUD_RATE,
-                            ConnectionType.DEFAULT_USB_BAUD_RATE);
-                    mavlinkConn = new UsbConnection(context, baudRate);
-                    Timber.i("Connecting over usb.");
-                    break;
+            mavlinkConn = createMavLinkConnection(connectionType, paramsBundle);
+            if (mavlinkConn == null) {
+                Timber.e("Unrecognized connection type: %s", connectionType);
+                return;
+            }
+        }
 
-                case ConnectionType.TYPE_BLUETOOTH:
-                    //Retrieve the bluetooth address to connect to
-                    final String bluetoothAddress = paramsBundle.getString(ConnectionType.EXTRA_BLUETOOTH_ADDRESS);
-                    mavlinkConn = new BluetoothConnection(context, bluetoothAddress);
-                    Timber.i("Connecting over bluetooth.");
-                    break;
+        mavlinkConn.addMavLinkConnectionListener(tag, mConnectionListener);
 
-                case ConnectionType.TYPE_TCP:
-                    //Retrieve the server ip and port
-                    final String tcpServerIp = paramsBundle.getString(ConnectionType.EXTRA_TCP_SERVER_IP);
-                    final int tcpServerPort = paramsBundle.getInt(ConnectionType
-                            .EXTRA_TCP_SERVER_PORT, ConnectionType.DEFAULT_TCP_SERVER_PORT);
-                    mavlinkConn = new AndroidTcpConnection(context, tcpServerIp, tcpServerPort, new WifiConnectionHandler(context));
-                    Timber.i("Connecting over tcp.");
-                    break;
+        final List<RouterEndpoint> routerEndpoints = connParams.getRouterEndpoints();
+        if (routerEndpoints != null && !routerEndpoints.isEmpty()
+                && mavlinkConn.getConnectionStatus() == MavLinkConnection.MAVLINK_DISCONNECTED) {
+            mavlinkConn.setRouter(new MavLinkRouter(mavlinkConn, routerEndpoints));
+        }
 
-                case ConnectionType.TYPE_UDP:
-                    final int udpServerPort = paramsBundle
-                            .getInt(ConnectionType.EXTRA_UDP_SERVER_PORT, ConnectionType.DEFAULT_UDP_SERVER_PORT);
-                    mavlinkConn = new AndroidUdpConnection(context, udpServerPort, new WifiConnectionHandler(context));
-                    Timber.i("Connecting over udp.");
-                    break;
+        if (mavlinkConn.getConnectionStatus() == MavLinkConnection.MAVLINK_DISCONNECTED) {
+            mavlinkConn.connect(null);
+        }
+    }
+
+    /**
+     * Creates the mavlink connection matching the given connection type.
+     *
+     * @param connectionType {@link ConnectionType} of the connection to create.
+     * @param paramsBundle   connection parameters
+     * @return the mavlink connection, or null if the connection type is not supported.
+     */
+    protected AndroidMavLinkConnection createMavLinkConnection(int connectionType, Bundle paramsBundle) {
+        final AndroidMavLinkConnection connection;
+        switch (connectionType) {
+            case ConnectionType.TYPE_USB:
+                final int baudRate = paramsBundle.getInt(ConnectionType.EXTRA_USB_BAUD_RATE,
+                        ConnectionType.DEFAULT_USB_BAUD_RATE);
+                final int readBufferSize = paramsBundle.getInt(ConnectionType.EXTRA_USB_READ_BUFFER_SIZE, 0);
+                final int readQueueDepth = paramsBundle.getInt(ConnectionType.EXTRA_USB_READ_QUEUE_DEPTH, 0);
+                connection = new UsbConnection(context, baudRate, readBufferSize, readQueueDepth);
+                Timber.i("Connecting over usb.");
+                break;
+
+            case ConnectionType.TYPE_BLUETOOTH:
+                //Retrieve the bluetooth address to connect to
+                final String bluetoothAddress = paramsBundle.getString(ConnectionType.EXTRA_BLUETOOTH_ADDRESS);
+                connection = new BluetoothConnection(context, bluetoothAddress);
+                Timber.i("Connecting over bluetooth.");
+                break;
+
+            case ConnectionType.TYPE_TCP:
+                //Retrieve the server ip and port
+                final String tcpServerIp = paramsBundle.getString(ConnectionType.EXTRA_TCP_SERVER_IP);
+                final int tcpServerPort = paramsBundle.getInt(ConnectionType
+                        .EXTRA_TCP_SERVER_PORT, ConnectionType.DEFAULT_TCP_SERVER_PORT);
+                connection = new AndroidTcpConnection(context, tcpServerIp, tcpServerPort, new WifiConnectionHandler(context));
+                Timber.i("Connecting over tcp.");
+                break;
+
+            case ConnectionType.TYPE_UDP:
+                final int udpServerPort = paramsBundle
+                        .getInt(ConnectionType.EXTRA_UDP_SERVER_PORT, ConnectionType.DEFAULT_UDP_SERVER_PORT);
+                final AndroidUdpConnection udpConnection = new AndroidUdpConnection(context, udpServerPort,
+                        new WifiConnectionHandler(context));
+                addUdpPingTarget(udpConnection, paramsBundle);
+                connection = udpConnection;
+                Timber.i("Connecting over udp.");
+                break;
+
+            case ConnectionType.TYPE_TLOG_REPLAY: {
+                final Uri tlogUri = paramsBundle.getParcelable(ConnectionType.EXTRA_TLOG_REPLAY_URI);
+                final double replaySpeed = paramsBundle.getDouble(ConnectionType.EXTRA_TLOG_REPLAY_SPEED,
+                        ConnectionType.DEFAULT_TLOG_REPLAY_SPEED);
+                final long startTime = paramsBundle.getLong(ConnectionType.EXTRA_TLOG_REPLAY_START_TIME, 0L);
+                final boolean loop = paramsBundle.getBoolean(ConnectionType.EXTRA_TLOG_REPLAY_LOOP, false);
+                connection = new TLogReplayConnection(context, tlogUri, replaySpeed, startTime, loop);
+                Timber.i("Replaying tlog %s at speed %s.", tlogUri, replaySpeed);
+                break;
+            }
 
-                case ConnectionType.TYPE_SOLO: {
-                    Timber.i("Creating solo connection");
-                    final String soloLinkId = paramsBundle.getString(ConnectionType.EXTRA_SOLO_LINK_ID, null);
-                    final String linkPassword = paramsBundle.getString(ConnectionType.EXTRA_SOLO_LINK_PASSWORD, null);
-                    mavlinkConn = new SoloConnection(context, soloLinkId, linkPassword);
+            case ConnectionType.TYPE_MULTI_LINK: {
+                final ArrayList<ConnectionParameter> linksParams = paramsBundle
+                        .getParcelableArrayList(ConnectionType.EXTRA_MULTI_LINK_PARAMETERS);
+                if (linksParams == null || linksParams.isEmpty()) {
+                    connection = null;
                     break;
                 }
 
-                default:
-                    Timber.e("Unrecognized connection type: %s", connectionType);
-                    return;
+                final List<AndroidMavLinkConnection> links = new ArrayList<>(linksParams.size());
+                for (ConnectionParameter linkParams : linksParams) {
+                    final AndroidMavLinkConnection link = createMavLinkConnection(linkParams.getConnectionType(),
+                            linkParams.getParamsBundle());
+                    if (link == null) {
+                        Timber.e("Unrecognized link connection type: %s", linkParams.getConnectionType());
+                        continue;
+                    }
+                    links.add(link);
+                }
+
+                connection = links.isEmpty() ? null : new MultiLinkConnection(context, links);
+                Timber.i("Connecting over %d links.", links.size());
+                break;
             }
+
+            case ConnectionType.TYPE_SOLO: {
+                Timber.i("Creating solo connection");
+                final String soloLinkId = paramsBundle.getString(ConnectionType.EXTRA_SOLO_LINK_ID, null);
+                final String linkPassword = paramsBundle.getString(ConnectionType.EXTRA_SOLO_LINK_PASSWORD, null);
+                connection = new SoloConnection(context, soloLinkId, linkPassword);
+                break;
+            }
+
+            default:
+                connection = null;
+                break;
         }
 
-        mavlinkConn.addMavLinkConnectionListener(tag, mConnectionListener);
+        return connection;
+    }
 
-        //Check if we need to ping a server to receive UDP data stream.
-        if (connectionType == ConnectionType.TYPE_UDP) {
-            final String pingIpAddress = paramsBundle.getString(ConnectionType.EXTRA_UDP_PING_RECEIVER_IP);
-            if (!TextUtils.isEmpty(pingIpAddress)) {
-                try {
-                    final InetAddress resolvedAddress = InetAddress.getByName(pingIpAddress);
+    /**
+     * Checks if we need to ping a server to receive the UDP data stream.
+     */
+    private void addUdpPingTarget(AndroidUdpConnection connection, Bundle paramsBundle) {
+        final String pingIpAddress = paramsBundle.getString(ConnectionType.EXTRA_UDP_PING_RECEIVER_IP);
+        if (TextUtils.isEmpty(pingIpAddress)) {
+            return;
+        }
 
-                    final int pingPort = paramsBundle.getInt(ConnectionType.EXTRA_UDP_PING_RECEIVER_PORT);
-                    final long pingPeriod = paramsBundle.getLong(ConnectionType.EXTRA_UDP_PING_PERIOD,
-                            ConnectionType.DEFAULT_UDP_PING_PERIOD);
-                    final byte[] pingPayload = paramsBundle.getByteArray(ConnectionType.EXTRA_UDP_PING_PAYLOAD);
+        try {
+            final InetAddress resolvedAddress = InetAddress.getByName(pingIpAddress);
 
-                    ((AndroidUdpConnection) mavlinkConn).addPingTarget(resolvedAddress, pingPort, pingPeriod, pingPayload);
+            final int pingPort = paramsBundle.getInt(ConnectionType.EXTRA_UDP_PING_RECEIVER_PORT);
+            final long pingPeriod = paramsBundle.getLong(ConnectionType.EXTRA_UDP_PING_PERIOD,
+                    ConnectionType.DEFAULT_UDP_PING_PERIOD);
+            final byte[] pingPayload = paramsBundle.getByteArray(ConnectionType.EXTRA_UDP_PING_PAYLOAD);
 
-                } catch (UnknownHostException e) {
-                    Timber.e(e, "Unable to resolve UDP ping server ip address.");
-                }
-            }
-        }
+            connection.addPingTarget(resolvedAddress, pingPort, pingPeriod, pingPayload);
 
-        if (mavlinkConn.getConnectionStatus() == MavLinkConnection.MAVLINK_DISCONNECTED) {
-            mavlinkConn.connect(null);
+        } catch (UnknownHostException e) {
+            Timber.e(e, "Unable to resolve UDP ping server ip address.");
         }
     }
 
@@ -265,4 +340,41 @@ public class MAVLinkClient implements DataLink.DataLinkProvider<MAVLinkMessage>
         }
     }
 
+    /**
+     * @return a snapshot of the health metrics of the mavlink connection, or null if the connection was never opened.
+     */
+    @Override
+    public synchronized LinkMetrics getLinkMetrics() {
+        return mavlinkConn == null ? null : mavlinkConn.getLinkMetrics();
+    }
+
+    /**
+     * Repositions the replay of a tlog replay connection.
+     *
+     * @param position tlog time (in ms) of the first frame to replay.
+     * @return false if the mavlink connection is not a tlog replay connection.
+     */
+    public synchronized boolean seekTlogReplay(long position) {
+        if (!(mavlinkConn instanceof TLogReplayConnection)) {
+            return false;
+        }
+
+        ((TLogReplayConnection) mavlinkConn).seekTo(position);
+        return true;
+    }
+
+    /**
+     * Updates the speed of a tlog replay connection.
+     *
+     * @return false if the mavlink connection is not a tlog replay connection.
+     */
+    public synchronized boolean setTlogReplaySpeed(double replaySpeed) {
+        if (!(mavlinkConn instanceof TLogReplayConnection)) {
+            return false;
+        }
+
+        ((TLogReplayConnection) mavlinkConn).setReplaySpeed(replaySpeed);
+        return true;
+    }
+
 }
@@ -34,6 +34,19 @@ public class MavLinkCommands {
         drone.getMavClient().sendMessage(msg, listener);
     }
 
+    /**
+     * Requests the AUTOPILOT_VERSION message, which carries the autopilot uid and firmware version.
+     */
+    public static void requestAutopilotVersion(MavLinkDrone drone) {
+        msg_command_long msg = new msg_command_long();
+        msg.target_system = drone.getSysid();
+        msg.target_component = drone.getCompid();
+        msg.command = MAV_CMD.MAV_CMD_REQUEST_AUTOPILOT_CAPABILITIES;
+        msg.param1 = 1;
+
+        drone.getMavClient().sendMessage(msg, null);
+    }
+
     public static void setGuidedMode(MavLinkDrone drone, double latitude, double longitude, double d) {
         msg_mission_item msg = new msg_mission_item();
         msg.seq = 0;
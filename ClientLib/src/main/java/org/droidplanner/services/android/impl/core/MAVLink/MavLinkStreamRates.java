@@ -22,7 +22,7 @@ public class MavLinkStreamRates {
 		requestMavlinkDataStream(MAVClient, sysid, compid, MAV_DATA_STREAM.MAV_DATA_STREAM_RC_CHANNELS, rcChannels);
 	}
 
-	private static void requestMavlinkDataStream(DataLinkProvider mAVClient, short sysid,
+	public static void requestMavlinkDataStream(DataLinkProvider mAVClient, short sysid,
 			short compid, int stream_id, int rate) {
 		msg_request_data_stream msg = new msg_request_data_stream();
 		msg.target_system = sysid;
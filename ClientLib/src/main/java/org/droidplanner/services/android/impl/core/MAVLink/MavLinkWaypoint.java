@@ -2,9 +2,15 @@ package org.droidplanner.services.android.impl.core.MAVLink;
 
 import com.MAVLink.common.msg_mission_ack;
 import com.MAVLink.common.msg_mission_count;
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.common.msg_mission_item_int;
 import com.MAVLink.common.msg_mission_request;
+import com.MAVLink.common.msg_mission_request_int;
 import com.MAVLink.common.msg_mission_request_list;
 import com.MAVLink.common.msg_mission_set_current;
+import com.MAVLink.common.msg_mission_write_partial_list;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
 import com.MAVLink.enums.MAV_MISSION_RESULT;
 
 import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
@@ -28,6 +34,14 @@ public class MavLinkWaypoint {
 		drone.getMavClient().sendMessage(msg, null);
 	}
 
+	public static void requestWayPointInt(MavLinkDrone drone, int index) {
+		msg_mission_request_int msg = new msg_mission_request_int();
+		msg.target_system = drone.getSysid();
+		msg.target_component = drone.getCompid();
+		msg.seq = index;
+		drone.getMavClient().sendMessage(msg, null);
+	}
+
 	public static void requestWaypointsList(MavLinkDrone drone) {
 		msg_mission_request_list msg = new msg_mission_request_list();
 		msg.target_system = drone.getSysid();
@@ -43,6 +57,127 @@ public class MavLinkWaypoint {
 		drone.getMavClient().sendMessage(msg, null);
 	}
 
+	/**
+	 * Starts the upload of the mission items from startIndex to endIndex, both inclusive, replacing the
+	 * items in that range without changing the mission size.
+	 */
+	public static void sendWritePartialList(MavLinkDrone drone, int startIndex, int endIndex) {
+		msg_mission_write_partial_list msg = new msg_mission_write_partial_list();
+		msg.target_system = drone.getSysid();
+		msg.target_component = drone.getCompid();
+		msg.start_index = (short) startIndex;
+		msg.end_index = (short) endIndex;
+		drone.getMavClient().sendMessage(msg, null);
+	}
+
+	/**
+	 * Converts a mission item to its MISSION_ITEM_INT form. The x and y fields of the positional commands
+	 * are scaled by 1e4 for the local frames, and by 1e7 for the other frames. The other commands' x and y
+	 * are plain values, and are passed through unscaled.
+	 */
+	public static msg_mission_item_int toMissionItemInt(msg_mission_item item) {
+		msg_mission_item_int itemInt = new msg_mission_item_int();
+		itemInt.target_system = item.target_system;
+		itemInt.target_component = item.target_component;
+		itemInt.seq = item.seq;
+		itemInt.frame = item.frame;
+		itemInt.command = item.command;
+		itemInt.current = item.current;
+		itemInt.autocontinue = item.autocontinue;
+		itemInt.param1 = item.param1;
+		itemInt.param2 = item.param2;
+		itemInt.param3 = item.param3;
+		itemInt.param4 = item.param4;
+
+		final double scale = getPositionScale(item.command, item.frame);
+		itemInt.x = (int) Math.round(item.x * scale);
+		itemInt.y = (int) Math.round(item.y * scale);
+		itemInt.z = item.z;
+		return itemInt;
+	}
+
+	public static msg_mission_item fromMissionItemInt(msg_mission_item_int itemInt) {
+		msg_mission_item item = new msg_mission_item();
+		item.sysid = itemInt.sysid;
+		item.compid = itemInt.compid;
+		item.target_system = itemInt.target_system;
+		item.target_component = itemInt.target_component;
+		item.seq = itemInt.seq;
+		item.frame = itemInt.frame;
+		item.command = itemInt.command;
+		item.current = itemInt.current;
+		item.autocontinue = itemInt.autocontinue;
+		item.param1 = itemInt.param1;
+		item.param2 = itemInt.param2;
+		item.param3 = itemInt.param3;
+		item.param4 = itemInt.param4;
+
+		final double scale = getPositionScale(itemInt.command, itemInt.frame);
+		item.x = (float) (itemInt.x / scale);
+		item.y = (float) (itemInt.y / scale);
+		item.z = itemInt.z;
+		return item;
+	}
+
+	private static double getPositionScale(int command, int frame) {
+		if (!isPositional(command)) {
+			return 1;
+		}
+
+		switch (frame) {
+			case MAV_FRAME.MAV_FRAME_LOCAL_NED:
+			case MAV_FRAME.MAV_FRAME_LOCAL_ENU:
+			case MAV_FRAME.MAV_FRAME_LOCAL_OFFSET_NED:
+			case MAV_FRAME.MAV_FRAME_BODY_NED:
+			case MAV_FRAME.MAV_FRAME_BODY_OFFSET_NED:
+				return 1e4;
+
+			default:
+				return 1e7;
+		}
+	}
+
+	/**
+	 * @return true if the x and y fields of the given command hold a position.
+	 */
+	private static boolean isPositional(int command) {
+		switch (command) {
+			case MAV_CMD.MAV_CMD_NAV_WAYPOINT:
+			case MAV_CMD.MAV_CMD_NAV_LOITER_UNLIM:
+			case MAV_CMD.MAV_CMD_NAV_LOITER_TURNS:
+			case MAV_CMD.MAV_CMD_NAV_LOITER_TIME:
+			case MAV_CMD.MAV_CMD_NAV_LAND:
+			case MAV_CMD.MAV_CMD_NAV_TAKEOFF:
+			case MAV_CMD.MAV_CMD_NAV_LAND_LOCAL:
+			case MAV_CMD.MAV_CMD_NAV_TAKEOFF_LOCAL:
+			case MAV_CMD.MAV_CMD_NAV_FOLLOW:
+			case MAV_CMD.MAV_CMD_NAV_LOITER_TO_ALT:
+			case MAV_CMD.MAV_CMD_NAV_ROI:
+			case MAV_CMD.MAV_CMD_NAV_PATHPLANNING:
+			case MAV_CMD.MAV_CMD_NAV_SPLINE_WAYPOINT:
+			case MAV_CMD.MAV_CMD_NAV_VTOL_TAKEOFF:
+			case MAV_CMD.MAV_CMD_NAV_VTOL_LAND:
+			case MAV_CMD.MAV_CMD_DO_LAND_START:
+			case MAV_CMD.MAV_CMD_DO_SET_HOME:
+			case MAV_CMD.MAV_CMD_DO_SET_ROI:
+			case MAV_CMD.MAV_CMD_DO_REPOSITION:
+			case MAV_CMD.MAV_CMD_PAYLOAD_PREPARE_DEPLOY:
+			case MAV_CMD.MAV_CMD_NAV_FENCE_RETURN_POINT:
+			case MAV_CMD.MAV_CMD_NAV_FENCE_POLYGON_VERTEX_INCLUSION:
+			case MAV_CMD.MAV_CMD_NAV_FENCE_POLYGON_VERTEX_EXCLUSION:
+			case MAV_CMD.MAV_CMD_NAV_RALLY_POINT:
+			case MAV_CMD.MAV_CMD_WAYPOINT_USER_1:
+			case MAV_CMD.MAV_CMD_WAYPOINT_USER_2:
+			case MAV_CMD.MAV_CMD_WAYPOINT_USER_3:
+			case MAV_CMD.MAV_CMD_WAYPOINT_USER_4:
+			case MAV_CMD.MAV_CMD_WAYPOINT_USER_5:
+				return true;
+
+			default:
+				return false;
+		}
+	}
+
 	public static void sendSetCurrentWaypoint(MavLinkDrone drone, short i) {
 		msg_mission_set_current msg = new msg_mission_set_current();
 		msg.target_system = drone.getSysid();
@@ -0,0 +1,103 @@
+package org.droidplanner.services.android.impl.core.MAVLink;
+
+/**
+ * Estimates the round trip time of a request / response exchange with the vehicle, and derives the
+ * retransmit timeout from it as in rfc 6298.
+ * <p/>
+ * The timeout is backed off exponentially while requests go unanswered, and reset once a response
+ * comes through. Times are expressed in nanoseconds.
+ */
+public class RoundTripTimeEstimator {
+
+    private static final int MAX_BACKOFF = 8;
+
+    private final long initialTimeout;
+    private final long minTimeout;
+    private final long maxTimeout;
+
+    private boolean hasSample;
+    private long smoothedRtt;
+    private long rttVariation;
+    private long timeout;
+    private int backoff = 1;
+
+    /**
+     * @param initialTimeout timeout used until the first round trip time sample
+     * @param minTimeout     lower bound of the timeout
+     * @param maxTimeout     upper bound of the timeout, backoff included
+     */
+    public RoundTripTimeEstimator(long initialTimeout, long minTimeout, long maxTimeout) {
+        this.initialTimeout = initialTimeout;
+        this.minTimeout = minTimeout;
+        this.maxTimeout = maxTimeout;
+        this.timeout = initialTimeout;
+    }
+
+    public void reset() {
+        hasSample = false;
+        smoothedRtt = 0;
+        rttVariation = 0;
+        timeout = initialTimeout;
+        backoff = 1;
+    }
+
+    /**
+     * Records a round trip time sample. Only exchanges whose request wasn't retransmitted should be
+     * sampled, as the response to a retransmitted request can't be matched to its request.
+     */
+    public void addSample(long rtt) {
+        if (rtt < 0) {
+            return;
+        }
+
+        if (!hasSample) {
+            hasSample = true;
+            smoothedRtt = rtt;
+            rttVariation = rtt / 2;
+        } else {
+            rttVariation = (3 * rttVariation + Math.abs(smoothedRtt - rtt)) / 4;
+            smoothedRtt = (7 * smoothedRtt + rtt) / 8;
+        }
+
+        timeout = Math.max(minTimeout, Math.min(maxTimeout, smoothedRtt + 4 * rttVariation));
+    }
+
+    /**
+     * Doubles the timeout, after a request went unanswered.
+     */
+    public void backOff() {
+        backoff = Math.min(backoff * 2, MAX_BACKOFF);
+    }
+
+    /**
+     * Restores the timeout to its estimated value, after a response came through.
+     */
+    public void resetBackoff() {
+        backoff = 1;
+    }
+
+    public boolean hasSample() {
+        return hasSample;
+    }
+
+    /**
+     * @return the smoothed round trip time, or -1 if no sample was recorded.
+     */
+    public long getSmoothedRtt() {
+        return hasSample ? smoothedRtt : -1;
+    }
+
+    /**
+     * @return the estimated timeout, without backoff.
+     */
+    public long getBaseTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @return the timeout to wait for a response before retransmitting the request.
+     */
+    public long getTimeout() {
+        return Math.min(maxTimeout, timeout * backoff);
+    }
+}
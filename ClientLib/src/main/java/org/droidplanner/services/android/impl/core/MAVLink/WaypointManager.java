@@ -3,19 +3,30 @@ package org.droidplanner.services.android.impl.core.MAVLink;
 import android.os.Handler;
 
 import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_autopilot_version;
 import com.MAVLink.common.msg_mission_ack;
 import com.MAVLink.common.msg_mission_count;
 import com.MAVLink.common.msg_mission_current;
 import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.common.msg_mission_item_int;
 import com.MAVLink.common.msg_mission_item_reached;
 import com.MAVLink.common.msg_mission_request;
+import com.MAVLink.common.msg_mission_request_int;
+import com.MAVLink.enums.MAV_MISSION_RESULT;
+import com.MAVLink.enums.MAV_PROTOCOL_CAPABILITY;
 
+import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.DroneEventsType;
+import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.OnDroneListener;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.OnWaypointManagerListener;
 import org.droidplanner.services.android.impl.core.drone.DroneVariable;
 import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
 
 /**
  * Class to manage the communication of waypoints to the MAV.
@@ -23,8 +34,13 @@ import java.util.List;
  * Should be initialized with a MAVLink Object, so the manager can send messages
  * via the MAV link. The function processMessage must be called with every new
  * MAV Message.
+ * <p/>
+ * Downloads keep several MISSION_REQUEST in flight. Uploads only send the range of items which changed
+ * since the last mission known to be on the vehicle, using MISSION_WRITE_PARTIAL_LIST. An unchanged mission
+ * still has its last item written, so the upload always completes with the vehicle's own ack. Timeouts follow
+ * the measured round trip time, and MISSION_ITEM_INT is used when the vehicle supports it.
  */
-public class WaypointManager extends DroneVariable {
+public class WaypointManager extends DroneVariable<MavLinkDrone> implements OnDroneListener<MavLinkDrone> {
     enum WaypointStates {
         IDLE, READ_REQUEST, READING_WP, WRITING_WP_COUNT, WRITING_WP, WAITING_WRITE_ACK
     }
@@ -33,35 +49,169 @@ public class WaypointManager extends DroneVariable {
         WP_UPLOAD, WP_DOWNLOAD, WP_RETRY, WP_CONTINUE, WP_TIMED_OUT
     }
 
-    private static final long TIMEOUT = 15000; //ms
-    private static final int RETRY_LIMIT = 3;
+    /**
+     * Progress of a mission transfer.
+     */
+    public static final class TransferProgress {
+        private final int transferredCount;
+        private final int count;
+        private final long elapsedTime;
+        private final int retries;
+        private final long itemLatency;
+        private final long roundTripTime;
+
+        TransferProgress(int transferredCount, int count, long elapsedTime, int retries, long itemLatency,
+                         long roundTripTime) {
+            this.transferredCount = transferredCount;
+            this.count = count;
+            this.elapsedTime = elapsedTime;
+            this.retries = retries;
+            this.itemLatency = itemLatency;
+            this.roundTripTime = roundTripTime;
+        }
+
+        /**
+         * @return count of items transferred so far.
+         */
+        public int getTransferredCount() {
+            return transferredCount;
+        }
+
+        /**
+         * @return count of items to transfer. Only the changed items are counted for a partial upload.
+         */
+        public int getCount() {
+            return count;
+        }
+
+        /**
+         * @return time since the transfer started, in milliseconds.
+         */
+        public long getElapsedTime() {
+            return elapsedTime;
+        }
+
+        /**
+         * @return count of requests retransmitted since the transfer started.
+         */
+        public int getRetries() {
+            return retries;
+        }
+
+        /**
+         * @return smoothed time taken per item, in milliseconds, or -1 if unknown.
+         */
+        public long getItemLatency() {
+            return itemLatency;
+        }
+
+        /**
+         * @return smoothed round trip time with the vehicle, in milliseconds, or -1 if unknown.
+         */
+        public long getRoundTripTime() {
+            return roundTripTime;
+        }
+
+        public boolean isComplete() {
+            return transferredCount >= count;
+        }
+    }
+
+    private static final long INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1500);
+    private static final long MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(300);
+    private static final long MAX_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(15000);
+
+    /**
+     * Count of consecutive timeouts, without any progress, before the transfer is abandoned.
+     */
+    private static final int RETRY_LIMIT = 6;
+
+    /*
+     * Bounds of the count of MISSION_REQUEST in flight during a download.
+     */
+    private static final int MIN_READ_WINDOW = 1;
+    private static final int INITIAL_READ_WINDOW = 4;
+    private static final int MAX_READ_WINDOW = 16;
+
+    /**
+     * Minimum interval between two transfer progress notifications.
+     */
+    private static final long PROGRESS_INTERVAL = 250; //ms
+
+    private static final int UNKNOWN = -1;
 
     private int retryTracker = 0;
 
-    private int readIndex;
-    private int writeIndex;
     private int retryIndex;
     private OnWaypointManagerListener wpEventListener;
 
     WaypointStates state = WaypointStates.IDLE;
 
-    /**
-     * waypoint witch is currently being written
-     */
-
     private final Handler watchdog;
 
     private final Runnable watchdogCallback = new Runnable() {
         @Override
         public void run() {
             if (processTimeOut(++retryTracker))
-                watchdog.postDelayed(this, TIMEOUT);
+                resetWatchdog();
         }
     };
 
+    private final RoundTripTimeEstimator rtt = new RoundTripTimeEstimator(INITIAL_TIMEOUT, MIN_TIMEOUT, MAX_TIMEOUT);
+
+    /**
+     * True if the vehicle advertised the MISSION_INT protocol capability.
+     */
+    private boolean isMissionIntSupported;
+
+    /**
+     * Last mission known to be on the vehicle, or null if unknown. Uploads are diffed against it. It's
+     * forgotten as soon as the vehicle is seen transferring a mission with another ground station.
+     */
+    private List<msg_mission_item> vehicleMission;
+
+    /**
+     * list of waypoints used when writing or receiving
+     */
+    private final List<msg_mission_item> mission = new ArrayList<msg_mission_item>();
+
+    /*
+     * Upload state. The items from writeStart to writeEnd (inclusive) are written, and writeIndex is the
+     * last item sent to the vehicle.
+     */
+    private boolean isPartialWrite;
+    private int writeStart;
+    private int writeEnd;
+    private int writeIndex;
+    private boolean isWriteIndexInt;
+    private long lastSendTime;
+    private boolean isRetransmission;
+
+    /*
+     * Download state. The received items are kept in place until the whole mission is received.
+     */
+    private int waypointCount;
+    private msg_mission_item[] readItems = new msg_mission_item[0];
+    private int readCount;
+    private int nextReadIndex;
+    private int readWindow = INITIAL_READ_WINDOW;
+    private final List<Integer> inFlightReads = new ArrayList<>();
+    private long[] readRequestTimes = new long[0];
+    private byte[] readAttempts = new byte[0];
+
+    /*
+     * Transfer statistics.
+     */
+    private long transferStartTime;
+    private long lastItemTime;
+    private long itemLatency = UNKNOWN;
+    private int transferRetries;
+    private long lastProgressTime;
+
     public WaypointManager(MavLinkDrone drone, Handler handler) {
         super(drone);
         this.watchdog = handler;
+        drone.addDroneListener(this);
     }
 
     public void setWaypointManagerListener(OnWaypointManagerListener wpEventListener) {
@@ -69,16 +219,35 @@ public class WaypointManager extends DroneVariable {
     }
 
     private void startWatchdog() {
-        stopWatchdog();
-
         retryTracker = 0;
-        this.watchdog.postDelayed(watchdogCallback, TIMEOUT);
+        resetWatchdog();
+    }
+
+    private void resetWatchdog() {
+        stopWatchdog();
+        this.watchdog.postDelayed(watchdogCallback, TimeUnit.NANOSECONDS.toMillis(getNextTimeout()) + 1);
     }
 
     private void stopWatchdog() {
         this.watchdog.removeCallbacks(watchdogCallback);
     }
 
+    /**
+     * @return delay until the oldest pending request times out.
+     */
+    private long getNextTimeout() {
+        final long timeout = rtt.getTimeout();
+        if (state != WaypointStates.READING_WP || inFlightReads.isEmpty()) {
+            return Math.max(0, lastSendTime + timeout - System.nanoTime());
+        }
+
+        long oldestRequest = Long.MAX_VALUE;
+        for (int index : inFlightReads) {
+            oldestRequest = Math.min(oldestRequest, readRequestTimes[index]);
+        }
+        return Math.max(0, oldestRequest + timeout - System.nanoTime());
+    }
+
     /**
      * Try to receive all waypoints from the MAV.
      * <p/>
@@ -90,8 +259,9 @@ public class WaypointManager extends DroneVariable {
             return;
 
         doBeginWaypointEvent(WaypointEvent_Type.WP_DOWNLOAD);
-        readIndex = -1;
         state = WaypointStates.READ_REQUEST;
+        lastSendTime = System.nanoTime();
+        isRetransmission = false;
         MavLinkWaypoint.requestWaypointsList(myDrone);
 
         startWatchdog();
@@ -104,21 +274,52 @@ public class WaypointManager extends DroneVariable {
      *
      * @param data waypoints to be written
      */
-
     public void writeWaypoints(List<msg_mission_item> data) {
         // ensure that WPManager is not doing anything else
         if (state != WaypointStates.IDLE)
             return;
 
-        if ((mission != null)) {
-            doBeginWaypointEvent(WaypointEvent_Type.WP_UPLOAD);
-            mission.clear();
-            mission.addAll(data);
-            writeIndex = 0;
-            state = WaypointStates.WRITING_WP_COUNT;
-            MavLinkWaypoint.sendWaypointCount(myDrone, mission.size());
+        doBeginWaypointEvent(WaypointEvent_Type.WP_UPLOAD);
+        mission.clear();
+        mission.addAll(data);
+
+        //Only write the items which changed, if the mission on the vehicle is known and has the same size.
+        int firstChange = 0;
+        int lastChange = mission.size() - 1;
+        isPartialWrite = false;
+        if (vehicleMission != null && vehicleMission.size() == mission.size() && !mission.isEmpty()) {
+            while (firstChange <= lastChange && isSameItem(vehicleMission.get(firstChange), mission.get(firstChange)))
+                firstChange++;
+            while (lastChange >= firstChange && isSameItem(vehicleMission.get(lastChange), mission.get(lastChange)))
+                lastChange--;
+
+            if (firstChange > lastChange) {
+                Timber.i("Mission unchanged, only writing its last item.");
+                firstChange = lastChange = mission.size() - 1;
+            }
+            isPartialWrite = true;
+        }
+
+        startWrite(firstChange, lastChange);
+    }
+
+    private void startWrite(int start, int end) {
+        writeStart = start;
+        writeEnd = end;
+        writeIndex = start - 1;
+        state = WaypointStates.WRITING_WP_COUNT;
+        sendWriteStart();
 
-            startWatchdog();
+        startWatchdog();
+    }
+
+    private void sendWriteStart() {
+        lastSendTime = System.nanoTime();
+        if (isPartialWrite) {
+            Timber.i("Writing mission items %d to %d of %d.", writeStart, writeEnd, mission.size());
+            MavLinkWaypoint.sendWritePartialList(myDrone, writeStart, writeEnd);
+        } else {
+            MavLinkWaypoint.sendWaypointCount(myDrone, mission.size());
         }
     }
 
@@ -128,9 +329,7 @@ public class WaypointManager extends DroneVariable {
      * The callback will return the status of this operation
      */
     public void setCurrentWaypoint(int i) {
-        if ((mission != null)) {
-            MavLinkWaypoint.sendSetCurrentWaypoint(myDrone, (short) i);
-        }
+        MavLinkWaypoint.sendSetCurrentWaypoint(myDrone, (short) i);
     }
 
     /**
@@ -149,14 +348,33 @@ public class WaypointManager extends DroneVariable {
     private void onCurrentWaypointUpdate(int seq) {
     }
 
-    /**
-     * number of waypoints to be received, used when reading waypoints
-     */
-    private int waypointCount;
-    /**
-     * list of waypoints used when writing or receiving
-     */
-    private List<msg_mission_item> mission = new ArrayList<msg_mission_item>();
+    @Override
+    public void onDroneEvent(DroneEventsType event, MavLinkDrone drone) {
+        switch (event) {
+            case HEARTBEAT_FIRST:
+                //Possibly a different vehicle.
+                vehicleMission = null;
+                isMissionIntSupported = false;
+                rtt.reset();
+                break;
+
+            case HEARTBEAT_RESTORED:
+                //The mission may have changed while the link was down.
+                vehicleMission = null;
+                break;
+
+            case DISCONNECTED:
+                vehicleMission = null;
+                if (state != WaypointStates.IDLE) {
+                    stopWatchdog();
+                    state = WaypointStates.IDLE;
+                }
+                break;
+
+            default:
+                break;
+        }
+    }
 
     /**
      * Try to process a Mavlink message if it is a mission related message
@@ -165,70 +383,72 @@ public class WaypointManager extends DroneVariable {
      * @return Returns true if the message has been processed
      */
     public boolean processMessage(MAVLinkMessage msg) {
+        switch (msg.msgid) {
+            case msg_autopilot_version.MAVLINK_MSG_ID_AUTOPILOT_VERSION:
+                isMissionIntSupported = (((msg_autopilot_version) msg).capabilities
+                    & MAV_PROTOCOL_CAPABILITY.MAV_PROTOCOL_CAPABILITY_MISSION_INT) != 0;
+                return false;
+
+            case msg_mission_item_reached.MAVLINK_MSG_ID_MISSION_ITEM_REACHED:
+                onWaypointReached(((msg_mission_item_reached) msg).seq);
+                return true;
+
+            case msg_mission_current.MAVLINK_MSG_ID_MISSION_CURRENT:
+                onCurrentWaypointUpdate(((msg_mission_current) msg).seq);
+                return true;
+        }
+
         switch (state) {
             default:
             case IDLE:
+                if (msg.msgid == msg_mission_count.MAVLINK_MSG_ID_MISSION_COUNT
+                    || msg.msgid == msg_mission_request.MAVLINK_MSG_ID_MISSION_REQUEST
+                    || msg.msgid == msg_mission_request_int.MAVLINK_MSG_ID_MISSION_REQUEST_INT
+                    || msg.msgid == msg_mission_ack.MAVLINK_MSG_ID_MISSION_ACK) {
+                    //The vehicle is transferring a mission with another ground station.
+                    vehicleMission = null;
+                }
                 break;
 
             case READ_REQUEST:
                 if (msg.msgid == msg_mission_count.MAVLINK_MSG_ID_MISSION_COUNT) {
-                    waypointCount = ((msg_mission_count) msg).count;
-                    mission.clear();
-                    startWatchdog();
-                    MavLinkWaypoint.requestWayPoint(myDrone, mission.size());
-                    state = WaypointStates.READING_WP;
+                    if (!isRetransmission) {
+                        rtt.addSample(System.nanoTime() - lastSendTime);
+                    }
+                    startReading(((msg_mission_count) msg).count);
                     return true;
                 }
                 break;
 
             case READING_WP:
                 if (msg.msgid == msg_mission_item.MAVLINK_MSG_ID_MISSION_ITEM) {
-                    startWatchdog();
                     processReceivedWaypoint((msg_mission_item) msg);
-                    doWaypointEvent(WaypointEvent_Type.WP_DOWNLOAD, readIndex + 1, waypointCount);
-                    if (mission.size() < waypointCount) {
-                        MavLinkWaypoint.requestWayPoint(myDrone, mission.size());
-                    } else {
-                        stopWatchdog();
-                        state = WaypointStates.IDLE;
-                        MavLinkWaypoint.sendAck(myDrone);
-                        myDrone.getMission().onMissionReceived(mission);
-                        doEndWaypointEvent(WaypointEvent_Type.WP_DOWNLOAD);
-                    }
+                    return true;
+                }
+                if (msg.msgid == msg_mission_item_int.MAVLINK_MSG_ID_MISSION_ITEM_INT) {
+                    processReceivedWaypoint(MavLinkWaypoint.fromMissionItemInt((msg_mission_item_int) msg));
                     return true;
                 }
                 break;
 
             case WRITING_WP_COUNT:
-                state = WaypointStates.WRITING_WP;
             case WRITING_WP:
+            case WAITING_WRITE_ACK:
                 if (msg.msgid == msg_mission_request.MAVLINK_MSG_ID_MISSION_REQUEST) {
-                    startWatchdog();
-                    processWaypointToSend((msg_mission_request) msg);
-                    doWaypointEvent(WaypointEvent_Type.WP_UPLOAD, writeIndex + 1, mission.size());
+                    processWaypointToSend(((msg_mission_request) msg).seq, false);
+                    return true;
+                }
+                if (msg.msgid == msg_mission_request_int.MAVLINK_MSG_ID_MISSION_REQUEST_INT) {
+                    processWaypointToSend(((msg_mission_request_int) msg).seq, true);
                     return true;
                 }
-                break;
-
-            case WAITING_WRITE_ACK:
                 if (msg.msgid == msg_mission_ack.MAVLINK_MSG_ID_MISSION_ACK) {
-                    stopWatchdog();
-                    myDrone.getMission().onWriteWaypoints((msg_mission_ack) msg);
-                    state = WaypointStates.IDLE;
-                    doEndWaypointEvent(WaypointEvent_Type.WP_UPLOAD);
+                    processWriteAck((msg_mission_ack) msg);
                     return true;
                 }
                 break;
         }
 
-        if (msg.msgid == msg_mission_item_reached.MAVLINK_MSG_ID_MISSION_ITEM_REACHED) {
-            onWaypointReached(((msg_mission_item_reached) msg).seq);
-            return true;
-        }
-        if (msg.msgid == msg_mission_current.MAVLINK_MSG_ID_MISSION_CURRENT) {
-            onCurrentWaypointUpdate(((msg_mission_current) msg).seq);
-            return true;
-        }
         return false;
     }
 
@@ -236,12 +456,16 @@ public class WaypointManager extends DroneVariable {
 
         // If max retry is reached, set state to IDLE. No more retry.
         if (mTimeOutCount >= RETRY_LIMIT) {
+            Timber.w("Mission transfer timed out in state %s.", state);
             state = WaypointStates.IDLE;
             doWaypointEvent(WaypointEvent_Type.WP_TIMED_OUT, retryIndex, RETRY_LIMIT);
             return false;
         }
 
+        final long timeout = rtt.getTimeout();
         retryIndex++;
+        transferRetries++;
+        rtt.backOff();
         doWaypointEvent(WaypointEvent_Type.WP_RETRY, retryIndex, RETRY_LIMIT);
 
         switch (state) {
@@ -250,65 +474,281 @@ public class WaypointManager extends DroneVariable {
                 break;
 
             case READ_REQUEST:
+                isRetransmission = true;
+                lastSendTime = System.nanoTime();
                 MavLinkWaypoint.requestWaypointsList(myDrone);
                 break;
 
             case READING_WP:
-                if (mission.size() < waypointCount) { // request last lost WP
-                    MavLinkWaypoint.requestWayPoint(myDrone, mission.size());
-                }
+                retryExpiredReads(timeout);
                 break;
 
             case WRITING_WP_COUNT:
-                MavLinkWaypoint.sendWaypointCount(myDrone, mission.size());
+                isRetransmission = true;
+                sendWriteStart();
                 break;
 
             case WRITING_WP:
-                // Log.d("TIMEOUT", "re Write Msg: " + String.valueOf(writeIndex));
-                if (writeIndex < mission.size()) {
-                    myDrone.getMavClient().sendMessage(mission.get(writeIndex), null);
-                }
-                break;
-
             case WAITING_WRITE_ACK:
-                myDrone.getMavClient().sendMessage(mission.get(mission.size() - 1), null);
+                if (writeIndex >= writeStart && writeIndex <= writeEnd) {
+                    isRetransmission = true;
+                    sendItem(writeIndex, isWriteIndexInt);
+                }
                 break;
         }
 
         return true;
     }
 
-    private void processWaypointToSend(msg_mission_request msg) {
-        /*
-         * Log.d("TIMEOUT", "Write Msg: " + String.valueOf(msg.seq));
-		 */
-        writeIndex = msg.seq;
-        msg_mission_item item = mission.get(writeIndex);
-        item.target_system = myDrone.getSysid();
-        item.target_component = myDrone.getCompid();
-        myDrone.getMavClient().sendMessage(item, null);
+    private void startReading(int count) {
+        waypointCount = count;
+        readItems = new msg_mission_item[count];
+        readRequestTimes = new long[count];
+        readAttempts = new byte[count];
+        readCount = 0;
+        nextReadIndex = 0;
+        inFlightReads.clear();
+        readWindow = INITIAL_READ_WINDOW;
+        state = WaypointStates.READING_WP;
+
+        if (count == 0) {
+            onReadComplete();
+            return;
+        }
 
-        if (writeIndex + 1 >= mission.size()) {
-            state = WaypointStates.WAITING_WRITE_ACK;
+        fillReadWindow();
+        startWatchdog();
+    }
+
+    /**
+     * Requests the next items, until the window is full.
+     */
+    private void fillReadWindow() {
+        final long now = System.nanoTime();
+        while (inFlightReads.size() < readWindow && nextReadIndex < waypointCount) {
+            final int index = nextReadIndex++;
+            if (readItems[index] == null) {
+                requestItem(index, now);
+            }
+        }
+    }
+
+    private void requestItem(int index, long now) {
+        inFlightReads.add(index);
+        readRequestTimes[index] = now;
+        if (readAttempts[index] < Byte.MAX_VALUE)
+            readAttempts[index]++;
+
+        if (isMissionIntSupported) {
+            MavLinkWaypoint.requestWayPointInt(myDrone, index);
+        } else {
+            MavLinkWaypoint.requestWayPoint(myDrone, index);
+        }
+    }
+
+    /**
+     * Requests the items whose requests timed out again, and halves the window.
+     */
+    private void retryExpiredReads(long timeout) {
+        final long now = System.nanoTime();
+        final List<Integer> expired = new ArrayList<>();
+        for (int index : inFlightReads) {
+            if (now - readRequestTimes[index] >= timeout) {
+                expired.add(index);
+            }
+        }
+
+        inFlightReads.removeAll(expired);
+        readWindow = Math.max(MIN_READ_WINDOW, readWindow / 2);
+        for (int index : expired) {
+            requestItem(index, now);
         }
     }
 
     private void processReceivedWaypoint(msg_mission_item msg) {
-		/*
-		 * Log.d("TIMEOUT", "Read Last/Curr: " + String.valueOf(readIndex) + "/"
-		 * + String.valueOf(msg.seq));
-		 */
+        final int index = msg.seq;
         // in case of we receive the same WP again after retry
-        if (msg.seq <= readIndex)
+        if (index < 0 || index >= waypointCount || readItems[index] != null)
             return;
 
-        readIndex = msg.seq;
+        final long now = System.nanoTime();
+        if (inFlightReads.remove(Integer.valueOf(index)) && readAttempts[index] == 1) {
+            rtt.addSample(now - readRequestTimes[index]);
+        }
+        rtt.resetBackoff();
+        readWindow = Math.min(readWindow + 1, MAX_READ_WINDOW);
 
-        mission.add(msg);
+        readItems[index] = msg;
+        readCount++;
+        retryTracker = 0;
+        onItemTransferred(now);
+        doWaypointEvent(WaypointEvent_Type.WP_DOWNLOAD, readCount, waypointCount);
+        notifyTransferProgress(WaypointEvent_Type.WP_DOWNLOAD, readCount, waypointCount);
+
+        if (readCount < waypointCount) {
+            fillReadWindow();
+            resetWatchdog();
+        } else {
+            onReadComplete();
+        }
+    }
+
+    private void onReadComplete() {
+        stopWatchdog();
+        state = WaypointStates.IDLE;
+        MavLinkWaypoint.sendAck(myDrone);
+
+        mission.clear();
+        mission.addAll(Arrays.asList(readItems));
+        vehicleMission = copyOf(mission);
+        myDrone.getMission().onMissionReceived(mission);
+        doEndWaypointEvent(WaypointEvent_Type.WP_DOWNLOAD);
+    }
+
+    private void processWaypointToSend(int seq, boolean isIntRequested) {
+        if (seq < writeStart || seq > writeEnd) {
+            return;
+        }
+
+        final long now = System.nanoTime();
+        if (seq == writeIndex) {
+            //The vehicle didn't get the item, and is requesting it again.
+            transferRetries++;
+            isRetransmission = true;
+        } else {
+            if (!isRetransmission) {
+                rtt.addSample(now - lastSendTime);
+            }
+            rtt.resetBackoff();
+            isRetransmission = false;
+            retryTracker = 0;
+
+            if (state != WaypointStates.WRITING_WP_COUNT) {
+                onItemTransferred(now);
+                notifyTransferProgress(WaypointEvent_Type.WP_UPLOAD, seq - writeStart, writeEnd - writeStart + 1);
+            }
+        }
+
+        state = seq >= writeEnd ? WaypointStates.WAITING_WRITE_ACK : WaypointStates.WRITING_WP;
+        writeIndex = seq;
+        isWriteIndexInt = isIntRequested;
+        sendItem(seq, isIntRequested);
+        doWaypointEvent(WaypointEvent_Type.WP_UPLOAD, seq + 1, mission.size());
+        resetWatchdog();
+    }
+
+    private void sendItem(int seq, boolean isIntRequested) {
+        msg_mission_item item = mission.get(seq);
+        item.seq = seq;
+        item.target_system = myDrone.getSysid();
+        item.target_component = myDrone.getCompid();
+
+        lastSendTime = System.nanoTime();
+        if (isIntRequested || isMissionIntSupported) {
+            myDrone.getMavClient().sendMessage(MavLinkWaypoint.toMissionItemInt(item), null);
+        } else {
+            myDrone.getMavClient().sendMessage(item, null);
+        }
+    }
+
+    private void processWriteAck(msg_mission_ack ack) {
+        final boolean isAccepted = ack.type == MAV_MISSION_RESULT.MAV_MISSION_ACCEPTED;
+        if (state == WaypointStates.WRITING_WP_COUNT && isPartialWrite && !isAccepted) {
+            //The vehicle doesn't support partial writes, fall back to writing the whole mission.
+            Timber.i("Partial mission write rejected (%d), writing the whole mission.", ack.type);
+            isPartialWrite = false;
+            startWrite(0, mission.size() - 1);
+            return;
+        }
+
+        if (state == WaypointStates.WRITING_WP_COUNT && mission.isEmpty()) {
+            //No item to request, the vehicle acks the count of an empty mission directly.
+            state = WaypointStates.WAITING_WRITE_ACK;
+        }
+
+        if (state != WaypointStates.WAITING_WRITE_ACK) {
+            if (!isAccepted) {
+                //The vehicle aborted the transfer.
+                Timber.w("Mission write aborted with error %d.", ack.type);
+                stopWatchdog();
+                state = WaypointStates.IDLE;
+                vehicleMission = null;
+                doWaypointEvent(WaypointEvent_Type.WP_TIMED_OUT, retryIndex, RETRY_LIMIT);
+            }
+            //Otherwise a late ack from a previous transfer.
+            return;
+        }
+
+        stopWatchdog();
+        state = WaypointStates.IDLE;
+        if (isAccepted) {
+            final long now = System.nanoTime();
+            onItemTransferred(now);
+            notifyTransferProgress(WaypointEvent_Type.WP_UPLOAD, writeEnd - writeStart + 1, writeEnd - writeStart + 1);
+            vehicleMission = copyOf(mission);
+        } else {
+            Timber.w("Mission write failed with error %d.", ack.type);
+            vehicleMission = null;
+        }
+
+        myDrone.getMission().onWriteWaypoints(ack);
+        doEndWaypointEvent(WaypointEvent_Type.WP_UPLOAD);
+    }
+
+    private void onItemTransferred(long now) {
+        final long latency = now - lastItemTime;
+        itemLatency = itemLatency == UNKNOWN ? latency : (7 * itemLatency + latency) / 8;
+        lastItemTime = now;
+    }
+
+    /**
+     * @return a copy of the given items, unaffected by later changes to the items themselves.
+     */
+    private static List<msg_mission_item> copyOf(List<msg_mission_item> items) {
+        final List<msg_mission_item> copy = new ArrayList<>(items.size());
+        for (msg_mission_item item : items) {
+            msg_mission_item itemCopy = new msg_mission_item();
+            itemCopy.seq = item.seq;
+            itemCopy.command = item.command;
+            itemCopy.frame = item.frame;
+            itemCopy.current = item.current;
+            itemCopy.autocontinue = item.autocontinue;
+            itemCopy.param1 = item.param1;
+            itemCopy.param2 = item.param2;
+            itemCopy.param3 = item.param3;
+            itemCopy.param4 = item.param4;
+            itemCopy.x = item.x;
+            itemCopy.y = item.y;
+            itemCopy.z = item.z;
+            copy.add(itemCopy);
+        }
+        return copy;
+    }
+
+    /**
+     * @return true if both items describe the same mission command. The sequence number, target and
+     * current flag aren't compared.
+     */
+    private static boolean isSameItem(msg_mission_item first, msg_mission_item second) {
+        return first.command == second.command
+            && first.frame == second.frame
+            && first.autocontinue == second.autocontinue
+            && Float.compare(first.param1, second.param1) == 0
+            && Float.compare(first.param2, second.param2) == 0
+            && Float.compare(first.param3, second.param3) == 0
+            && Float.compare(first.param4, second.param4) == 0
+            && Float.compare(first.x, second.x) == 0
+            && Float.compare(first.y, second.y) == 0
+            && Float.compare(first.z, second.z) == 0;
     }
 
     private void doBeginWaypointEvent(WaypointEvent_Type wpEvent) {
         retryIndex = 0;
+        transferRetries = 0;
+        transferStartTime = System.nanoTime();
+        lastItemTime = transferStartTime;
+        itemLatency = UNKNOWN;
+        lastProgressTime = 0;
 
         if (wpEventListener == null)
             return;
@@ -337,4 +777,19 @@ public class WaypointManager extends DroneVariable {
         wpEventListener.onWaypointEvent(wpEvent, index, count);
     }
 
+    private void notifyTransferProgress(WaypointEvent_Type wpEvent, int transferredCount, int count) {
+        if (wpEventListener == null)
+            return;
+
+        final long now = System.currentTimeMillis();
+        if (transferredCount < count && now - lastProgressTime < PROGRESS_INTERVAL)
+            return;
+        lastProgressTime = now;
+
+        final long smoothedRtt = rtt.getSmoothedRtt();
+        wpEventListener.onWaypointTransferProgress(wpEvent, new TransferProgress(transferredCount, count,
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - transferStartTime), transferRetries,
+            itemLatency == UNKNOWN ? UNKNOWN : TimeUnit.NANOSECONDS.toMillis(itemLatency),
+            smoothedRtt == UNKNOWN ? UNKNOWN : TimeUnit.NANOSECONDS.toMillis(smoothedRtt)));
+    }
 }
@@ -0,0 +1,97 @@
+package org.droidplanner.services.android.impl.core.MAVLink.connection;
+
+import com.MAVLink.MAVLinkPacket;
+
+/**
+ * Sliding window of the most recently received frames, used to drop the copies of a frame received
+ * over redundant links.
+ * A frame is identified by its (sysid, compid, seq, msgid, crc) tuple. Since the sequence number wraps
+ * around every 256 frames, entries also expire after {@link #getWindowDuration()}.
+ */
+public class FrameDeduplicator {
+
+    /**
+     * Returned by {@link #onFrameReceived(MAVLinkPacket, long)} for the first copy of a frame.
+     */
+    public static final long NEW_FRAME = -1;
+
+    public static final int DEFAULT_WINDOW_SIZE = 128;
+    public static final long DEFAULT_WINDOW_DURATION = 2000000000L; //ns
+
+    private final long[] frameKeys;
+    private final long[] arrivalTimes;
+    private final long windowDuration;
+
+    private int nextEntry;
+    private int entryCount;
+
+    public FrameDeduplicator() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_WINDOW_DURATION);
+    }
+
+    /**
+     * @param windowSize     count of frames kept in the window
+     * @param windowDuration time (in ns) after which a frame is no longer considered for de-duplication
+     */
+    public FrameDeduplicator(int windowSize, long windowDuration) {
+        this.frameKeys = new long[windowSize];
+        this.arrivalTimes = new long[windowSize];
+        this.windowDuration = windowDuration;
+    }
+
+    public long getWindowDuration() {
+        return windowDuration;
+    }
+
+    /**
+     * Records the receipt of a frame.
+     *
+     * @param packet      received frame
+     * @param arrivalTime receipt time in ns, from {@link System#nanoTime()}
+     * @return {@link #NEW_FRAME} if this is the first copy of the frame, otherwise the delay (in ns)
+     * since the first copy was received.
+     */
+    public synchronized long onFrameReceived(MAVLinkPacket packet, long arrivalTime) {
+        final long frameKey = getFrameKey(packet);
+
+        //Most duplicates arrive shortly after the original, so scan from the newest entry.
+        final int windowSize = frameKeys.length;
+        for (int i = 1; i <= entryCount; i++) {
+            final int entry = (nextEntry - i + windowSize) % windowSize;
+            final long delay = arrivalTime - arrivalTimes[entry];
+            if (delay > windowDuration) {
+                break;
+            }
+
+            if (frameKeys[entry] == frameKey) {
+                return Math.max(delay, 0);
+            }
+        }
+
+        frameKeys[nextEntry] = frameKey;
+        arrivalTimes[nextEntry] = arrivalTime;
+        nextEntry = (nextEntry + 1) % windowSize;
+        if (entryCount < windowSize) {
+            entryCount++;
+        }
+
+        return NEW_FRAME;
+    }
+
+    public synchronized void reset() {
+        nextEntry = 0;
+        entryCount = 0;
+    }
+
+    /**
+     * Packs the frame identifying fields in a single value.
+     */
+    static long getFrameKey(MAVLinkPacket packet) {
+        final int crc = packet.crc == null ? 0 : (packet.crc.getMSB() << 8) | packet.crc.getLSB();
+        return ((long) (packet.sysid & 0xFF) << 40)
+                | ((long) (packet.compid & 0xFF) << 32)
+                | ((long) (packet.seq & 0xFF) << 24)
+                | ((packet.msgid & 0xFF) << 16)
+                | (crc & 0xFFFF);
+    }
+}
@@ -0,0 +1,214 @@
+package org.droidplanner.services.android.impl.core.MAVLink.connection;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkStats;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Collects the health metrics of a mavlink connection.
+ * The receive counters are updated from the connection manager thread, and the send counters from
+ * the sending thread. Snapshots can be taken from any thread.
+ */
+public class LinkMetricsRegistry {
+
+    /**
+     * Length of the mavlink frame header (6 bytes) and checksum (2 bytes).
+     */
+    private static final int FRAME_OVERHEAD = 8;
+
+    /**
+     * Window over which the transport peak receive rate is measured.
+     */
+    private static final long RATE_WINDOW = 1000000000L; //ns
+
+    private final AtomicLong connectionTime = new AtomicLong(-1);
+
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private final AtomicLong packetsReceived = new AtomicLong();
+    private final AtomicLong packetsSent = new AtomicLong();
+    private final MessageRateTracker messageRates = new MessageRateTracker();
+
+    private final AtomicLong crcErrors = new AtomicLong();
+    private final AtomicLong sequenceGaps = new AtomicLong();
+
+    private final AtomicInteger sendQueueMaxDepth = new AtomicInteger();
+    private final AtomicInteger logQueueMaxDepth = new AtomicInteger();
+
+    private final LatencyHistogram parseLatency = new LatencyHistogram();
+    private final LatencyHistogram dispatchLatency = new LatencyHistogram();
+
+    private final AtomicLong transportReads = new AtomicLong();
+    private final AtomicLong transportBytes = new AtomicLong();
+    private final AtomicLong lastTransportRead = new AtomicLong();
+    private final AtomicLong rateWindowStart = new AtomicLong();
+    private final AtomicLong rateWindowBytes = new AtomicLong();
+    private final AtomicLong peakReceiveRate = new AtomicLong();
+    private final AtomicInteger maxBufferedBytes = new AtomicInteger();
+    private final LatencyHistogram transportReadInterval = new LatencyHistogram();
+    private final LatencyHistogram bufferLatency = new LatencyHistogram();
+
+    /**
+     * Clears the metrics for a new connection session.
+     *
+     * @param connectionTime time (in ms since epoch) the connection was established
+     */
+    public void reset(long connectionTime) {
+        bytesReceived.set(0);
+        bytesSent.set(0);
+        packetsReceived.set(0);
+        packetsSent.set(0);
+        messageRates.reset();
+
+        crcErrors.set(0);
+        sequenceGaps.set(0);
+        sendQueueMaxDepth.set(0);
+        logQueueMaxDepth.set(0);
+
+        parseLatency.reset();
+        dispatchLatency.reset();
+
+        transportReads.set(0);
+        transportBytes.set(0);
+        lastTransportRead.set(0);
+        rateWindowStart.set(0);
+        rateWindowBytes.set(0);
+        peakReceiveRate.set(0);
+        maxBufferedBytes.set(0);
+        transportReadInterval.reset();
+        bufferLatency.reset();
+
+        this.connectionTime.set(connectionTime);
+    }
+
+    public void onDisconnected() {
+        connectionTime.set(-1);
+    }
+
+    /**
+     * Records a block of data read from the link.
+     *
+     * @param byteCount   size of the block
+     * @param parseTime   time (in ns) spent parsing the block, excluding the packets dispatch
+     * @param parserStats statistics of the parser the block went through
+     */
+    public void onDataReceived(int byteCount, long parseTime, MAVLinkStats parserStats) {
+        bytesReceived.addAndGet(byteCount);
+        parseLatency.record(parseTime);
+
+        //The parser statistics are cumulative for the session.
+        crcErrors.set(parserStats.crcErrorCount);
+        sequenceGaps.set(parserStats.lostPacketCount);
+    }
+
+    /**
+     * Records a packet received from the link.
+     *
+     * @param packet       received packet
+     * @param dispatchTime time (in ns) spent dispatching the packet to the connection listeners
+     */
+    public void onPacketReceived(MAVLinkPacket packet, long dispatchTime) {
+        packetsReceived.incrementAndGet();
+        messageRates.onPacketReceived(packet.msgid, FRAME_OVERHEAD + packet.len, System.nanoTime());
+        dispatchLatency.record(dispatchTime);
+    }
+
+    /**
+     * Records a read from the transport underlying the link. Called by the connections reading ahead
+     * of the parser, from their reader thread.
+     *
+     * @param byteCount size of the read
+     * @param timestamp time (in ns) of the read
+     */
+    public void onTransportRead(int byteCount, long timestamp) {
+        transportReads.incrementAndGet();
+        transportBytes.addAndGet(byteCount);
+
+        final long lastRead = lastTransportRead.getAndSet(timestamp);
+        if (lastRead != 0) {
+            transportReadInterval.record(timestamp - lastRead);
+        }
+
+        final long windowStart = rateWindowStart.get();
+        final long windowDuration = timestamp - windowStart;
+        if (windowStart == 0) {
+            rateWindowStart.set(timestamp);
+            rateWindowBytes.set(byteCount);
+        } else if (windowDuration >= RATE_WINDOW) {
+            final long windowBytes = rateWindowBytes.getAndSet(byteCount);
+            updateMax(peakReceiveRate, windowBytes * RATE_WINDOW / windowDuration);
+            rateWindowStart.set(timestamp);
+        } else {
+            rateWindowBytes.addAndGet(byteCount);
+        }
+    }
+
+    /**
+     * @param bufferedBytes count of bytes read from the transport and waiting to be parsed
+     */
+    public void onTransportBuffered(int bufferedBytes) {
+        updateMax(maxBufferedBytes, bufferedBytes);
+    }
+
+    /**
+     * Records a burst read from the transport being handed to the parser.
+     *
+     * @param latency time (in ns) the burst waited in the read-ahead buffer
+     */
+    public void onTransportBurstParsed(long latency) {
+        bufferLatency.record(latency);
+    }
+
+    public void onPacketSent(int byteCount) {
+        bytesSent.addAndGet(byteCount);
+        packetsSent.incrementAndGet();
+    }
+
+    public void onSendQueueDepth(int depth) {
+        updateMax(sendQueueMaxDepth, depth);
+    }
+
+    public void onLogQueueDepth(int depth) {
+        updateMax(logQueueMaxDepth, depth);
+    }
+
+    private static void updateMax(AtomicInteger max, int value) {
+        int currentMax;
+        while (value > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, value)) {
+                return;
+            }
+        }
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+        long currentMax;
+        while (value > (currentMax = max.get())) {
+            if (max.compareAndSet(currentMax, value)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @param sendQueueDepth current count of packets waiting to be sent
+     * @param logQueueDepth  current count of packets waiting to be logged
+     * @return a snapshot of the link metrics.
+     */
+    public LinkMetrics snapshot(int sendQueueDepth, int logQueueDepth) {
+        final long[] packetsPerMsgId = new long[LinkMetrics.MESSAGE_ID_COUNT];
+        final long[] bytesPerMsgId = new long[LinkMetrics.MESSAGE_ID_COUNT];
+        final float[] ratePerMsgId = new float[LinkMetrics.MESSAGE_ID_COUNT];
+        messageRates.copyTo(packetsPerMsgId, bytesPerMsgId, ratePerMsgId, System.nanoTime());
+
+        return new LinkMetrics(connectionTime.get(), System.currentTimeMillis(), bytesReceived.get(),
+                bytesSent.get(), packetsReceived.get(), packetsSent.get(), packetsPerMsgId, bytesPerMsgId,
+                ratePerMsgId, crcErrors.get(), sequenceGaps.get(), sendQueueDepth, sendQueueMaxDepth.get(),
+                logQueueDepth, logQueueMaxDepth.get(), parseLatency.getStats(), dispatchLatency.getStats(),
+                new LinkMetrics.TransportStats(transportReads.get(), transportBytes.get(), peakReceiveRate.get(),
+                        maxBufferedBytes.get(), transportReadInterval.getStats(), bufferLatency.getStats()));
+    }
+}
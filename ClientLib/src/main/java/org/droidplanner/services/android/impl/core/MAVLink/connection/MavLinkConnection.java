@@ -8,8 +8,10 @@ import android.support.v4.util.Pair;
 import com.MAVLink.MAVLinkPacket;
 import com.MAVLink.Parser;
 import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
 import com.o3dr.services.android.lib.util.UriUtils;
 
+import org.droidplanner.services.android.impl.core.MAVLink.routing.MavLinkRouter;
 import org.droidplanner.services.android.impl.core.model.Logger;
 
 import java.io.BufferedOutputStream;
@@ -77,6 +79,16 @@ public abstract class MavLinkConnection {
     private final AtomicLong mConnectionTime = new AtomicLong(-1);
     private final AtomicReference<Bundle> extrasHolder = new AtomicReference<>();
 
+    /**
+     * Health metrics of this connection.
+     */
+    private final LinkMetricsRegistry linkMetrics = new LinkMetricsRegistry();
+
+    /**
+     * Forwards the link traffic to external endpoints, if set.
+     */
+    private volatile MavLinkRouter router;
+
     /**
      * Start the connection process.
      */
@@ -125,8 +137,14 @@ public abstract class MavLinkConnection {
             try {
                 final long connectionTime = System.currentTimeMillis();
                 mConnectionTime.set(connectionTime);
+                linkMetrics.reset(connectionTime);
                 reportConnect(connectionTime);
 
+                final MavLinkRouter currentRouter = router;
+                if (currentRouter != null) {
+                    currentRouter.start();
+                }
+
                 // Launch the 'Sending' thread
                 mLogger.logInfo(TAG, "Starting sender thread.");
                 sendingThread = new Thread(mSendingTask, "MavLinkConnection-Sending Thread");
@@ -140,7 +158,7 @@ public abstract class MavLinkConnection {
                 final Parser parser = new Parser();
                 parser.stats.resetStats();
 
-                final byte[] readBuffer = new byte[READ_BUFFER_SIZE];
+                final byte[] readBuffer = new byte[getReadBufferSize()];
 
                 while (mConnectionStatus.get() == MAVLINK_CONNECTED) {
                     int bufferSize = readDataBlock(readBuffer);
@@ -161,6 +179,11 @@ public abstract class MavLinkConnection {
                     loggingThread.interrupt();
                 }
 
+                final MavLinkRouter currentRouter = router;
+                if (currentRouter != null) {
+                    currentRouter.stop();
+                }
+
                 disconnect();
                 mLogger.logInfo(TAG, "Exiting manager thread.");
             }
@@ -171,13 +194,30 @@ public abstract class MavLinkConnection {
                 return;
             }
 
+            final long parseStart = System.nanoTime();
+            long dispatchTime = 0;
+
             for (int i = 0; i < bufferSize; i++) {
                 MAVLinkPacket receivedPacket = parser.mavlink_parse_char(buffer[i] & 0x00ff);
                 if (receivedPacket != null) {
-                    queueToLog(receivedPacket);
+                    final long dispatchStart = System.nanoTime();
+                    final byte[] frame = receivedPacket.encodePacket();
+                    queueToLog(frame);
+
+                    final MavLinkRouter currentRouter = router;
+                    if (currentRouter != null) {
+                        currentRouter.onVehicleFrame(frame);
+                    }
+
                     reportReceivedPacket(receivedPacket);
+
+                    final long packetDispatchTime = System.nanoTime() - dispatchStart;
+                    dispatchTime += packetDispatchTime;
+                    linkMetrics.onPacketReceived(receivedPacket, packetDispatchTime);
                 }
             }
+
+            linkMetrics.onDataReceived(bufferSize, System.nanoTime() - parseStart - dispatchTime, parser.stats);
         }
     };
 
@@ -193,6 +233,7 @@ public abstract class MavLinkConnection {
 
                     try {
                         sendBuffer(buffer);
+                        linkMetrics.onPacketSent(buffer.length);
                         queueToLog(buffer);
                     } catch (IOException e) {
                         reportIOException(e);
@@ -317,6 +358,7 @@ public abstract class MavLinkConnection {
         try {
             mConnectionStatus.set(MAVLINK_DISCONNECTED);
             mConnectionTime.set(-1);
+            linkMetrics.onDisconnected();
             extrasHolder.set(null);
 
             if (mConnectThread != null && mConnectThread.isAlive() && !mConnectThread.isInterrupted()) {
@@ -340,16 +382,19 @@ public abstract class MavLinkConnection {
     }
 
     public void sendMavPacket(MAVLinkPacket packet) {
-        final byte[] packetData = packet.encodePacket();
-        if (!mPacketsToSend.offer(packetData)) {
-            mLogger.logErr(TAG, "Unable to send mavlink packet. Packet queue is full!");
-        }
+        sendEncodedPacket(packet.encodePacket());
     }
 
-    private void queueToLog(MAVLinkPacket packet) {
-        if (packet != null) {
-            queueToLog(packet.encodePacket());
+    /**
+     * Queues an already encoded mavlink frame for sending.
+     *
+     * @param packetData encoded mavlink frame
+     */
+    public void sendEncodedPacket(byte[] packetData) {
+        if (!mPacketsToSend.offer(packetData)) {
+            mLogger.logErr(TAG, "Unable to send mavlink packet. Packet queue is full!");
         }
+        linkMetrics.onSendQueueDepth(mPacketsToSend.size());
     }
 
     private void queueToLog(byte[] packetData) {
@@ -357,6 +402,7 @@ public abstract class MavLinkConnection {
             if (!mPacketsToLog.offer(packetData)) {
                 mLogger.logErr(TAG, "Unable to log mavlink packet. Queue is full!");
             }
+            linkMetrics.onLogQueueDepth(mPacketsToLog.size());
         }
     }
 
@@ -411,10 +457,35 @@ public abstract class MavLinkConnection {
         return mListeners.size();
     }
 
+    /**
+     * Sets the router forwarding this connection traffic to external endpoints. Must be set before
+     * the connection is opened.
+     *
+     * @param router Router to use, or null to disable forwarding.
+     */
+    public void setRouter(MavLinkRouter router) {
+        this.router = router;
+    }
+
     public Bundle getConnectionExtras() {
         return extrasHolder.get();
     }
 
+    /**
+     * @return a snapshot of the health metrics of this connection.
+     */
+    public LinkMetrics getLinkMetrics() {
+        return linkMetrics.snapshot(mPacketsToSend.size(), mPacketsToLog.size());
+    }
+
+    /**
+     * @return the registry collecting the health metrics of this connection, so subclasses can record
+     * transport specific metrics.
+     */
+    protected LinkMetricsRegistry getLinkMetricsRegistry() {
+        return linkMetrics;
+    }
+
     /**
      * Used to query the presence of a connection listener.
      *
@@ -443,6 +514,13 @@ public abstract class MavLinkConnection {
 
     protected abstract Logger initLogger();
 
+    /**
+     * @return size of the buffer passed to {@link #readDataBlock(byte[])}.
+     */
+    protected int getReadBufferSize() {
+        return READ_BUFFER_SIZE;
+    }
+
     protected abstract void openConnection(Bundle connectionExtras) throws IOException;
 
     protected abstract int readDataBlock(byte[] buffer) throws IOException;
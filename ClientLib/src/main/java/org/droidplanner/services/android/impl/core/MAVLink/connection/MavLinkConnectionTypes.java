@@ -25,6 +25,16 @@ public class MavLinkConnectionTypes {
 	 */
 	public static final int MAVLINK_CONNECTION_TCP = 2;
 
+	/**
+	 * TLog replay mavlink connection.
+	 */
+	public static final int MAVLINK_CONNECTION_TLOG_REPLAY = 4;
+
+	/**
+	 * Composite mavlink connection over several redundant links.
+	 */
+	public static final int MAVLINK_CONNECTION_MULTI_LINK = 5;
+
 	// Not instantiable
 	private MavLinkConnectionTypes() {
 	}
@@ -0,0 +1,92 @@
+package org.droidplanner.services.android.impl.core.MAVLink.connection;
+
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
+
+/**
+ * Tracks the receive rate and byte count of each mavlink message id.
+ * The rate is derived from an exponentially weighted moving average of the packets inter-arrival
+ * time. State is kept in primitive arrays indexed by message id, so updates don't allocate.
+ */
+public class MessageRateTracker {
+
+    /**
+     * Weight of the newest inter-arrival sample in the moving average.
+     */
+    private static final double SMOOTHING_FACTOR = 0.125;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final long[] packetCounts = new long[LinkMetrics.MESSAGE_ID_COUNT];
+    private final long[] byteCounts = new long[LinkMetrics.MESSAGE_ID_COUNT];
+    private final long[] lastArrivalTimes = new long[LinkMetrics.MESSAGE_ID_COUNT];
+    private final double[] averageIntervals = new double[LinkMetrics.MESSAGE_ID_COUNT];
+
+    /**
+     * Records the receipt of a packet.
+     *
+     * @param msgId       message id of the packet
+     * @param frameLength length of the packet on the wire, in bytes
+     * @param arrivalTime receipt time in ns, from {@link System#nanoTime()}
+     */
+    public synchronized void onPacketReceived(int msgId, int frameLength, long arrivalTime) {
+        msgId &= 0xFF;
+
+        final long count = packetCounts[msgId]++;
+        byteCounts[msgId] += frameLength;
+
+        if (count > 0) {
+            final long interval = arrivalTime - lastArrivalTimes[msgId];
+            if (count == 1) {
+                averageIntervals[msgId] = interval;
+            } else {
+                averageIntervals[msgId] += SMOOTHING_FACTOR * (interval - averageIntervals[msgId]);
+            }
+        }
+        lastArrivalTimes[msgId] = arrivalTime;
+    }
+
+    /**
+     * @param msgId message id
+     * @param now   current time in ns, from {@link System#nanoTime()}
+     * @return the current receive rate of the given message id, in Hz.
+     */
+    public synchronized double getRate(int msgId, long now) {
+        msgId &= 0xFF;
+        return getRateLocked(msgId, now);
+    }
+
+    private double getRateLocked(int msgId, long now) {
+        if (packetCounts[msgId] < 2) {
+            return 0;
+        }
+
+        //Decay the rate when the message stops arriving.
+        final double interval = Math.max(averageIntervals[msgId], now - lastArrivalTimes[msgId]);
+        return interval <= 0 ? 0 : NANOS_PER_SECOND / interval;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < LinkMetrics.MESSAGE_ID_COUNT; i++) {
+            packetCounts[i] = 0;
+            byteCounts[i] = 0;
+            lastArrivalTimes[i] = 0;
+            averageIntervals[i] = 0;
+        }
+    }
+
+    /**
+     * Copies the tracked state into the given arrays, indexed by message id.
+     *
+     * @param packetCountsOut count of received packets
+     * @param byteCountsOut   count of received bytes
+     * @param ratesOut        current receive rates in Hz
+     * @param now             current time in ns, from {@link System#nanoTime()}
+     */
+    public synchronized void copyTo(long[] packetCountsOut, long[] byteCountsOut, float[] ratesOut, long now) {
+        System.arraycopy(packetCounts, 0, packetCountsOut, 0, LinkMetrics.MESSAGE_ID_COUNT);
+        System.arraycopy(byteCounts, 0, byteCountsOut, 0, LinkMetrics.MESSAGE_ID_COUNT);
+        for (int i = 0; i < LinkMetrics.MESSAGE_ID_COUNT; i++) {
+            ratesOut[i] = (float) getRateLocked(i, now);
+        }
+    }
+}
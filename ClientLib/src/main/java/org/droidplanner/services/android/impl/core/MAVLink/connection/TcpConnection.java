@@ -7,21 +7,65 @@ import org.droidplanner.services.android.impl.utils.NetworkUtils;
 
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.Socket;
 
 /**
  * Provides support for mavlink connection via TCP.
+ * <p/>
+ * When the socket drops (i.e: wifi outage), the connection is re-established in the background with
+ * an exponential backoff, while the mavlink connection, and so the vehicle state, is kept. The
+ * connection only fails if the outage lasts longer than {@link #MAX_OUTAGE_DURATION}.
  */
 public abstract class TcpConnection extends MavLinkConnection {
 
+    private static final String TAG = TcpConnection.class.getSimpleName();
+
     private static final int CONNECTION_TIMEOUT = 20 * 1000; // 20 secs in ms
+    private static final int RECONNECTION_TIMEOUT = 3 * 1000; // 3 secs in ms
+
+    /**
+     * The vehicle sends a heartbeat every second, so a silent socket is a stalled link.
+     */
+    private static final int READ_TIMEOUT = 5 * 1000; // 5 secs in ms
+
+    private static final int RECEIVE_BUFFER_SIZE = 64 * 1024;
+    private static final int SEND_BUFFER_SIZE = 16 * 1024;
+
+    private static final long INITIAL_RECONNECT_DELAY = 250L; //ms
+    private static final long MAX_RECONNECT_DELAY = 4000L; //ms
+    private static final long MAX_OUTAGE_DURATION = 30 * 1000L; //ms
+
+    /**
+     * Socket and its streams, replaced as a whole on reconnection.
+     */
+    private static final class TcpSession {
+        final Socket socket;
+        final BufferedOutputStream mavOut;
+        final BufferedInputStream mavIn;
+
+        TcpSession(Socket socket) throws IOException {
+            this.socket = socket;
+            this.mavOut = new BufferedOutputStream(socket.getOutputStream());
+            this.mavIn = new BufferedInputStream(socket.getInputStream(), RECEIVE_BUFFER_SIZE);
+        }
+
+        void close() {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                //Already closed.
+            }
+        }
+    }
 
-    private Socket socket;
-    private BufferedOutputStream mavOut;
-    private BufferedInputStream mavIn;
+    private volatile TcpSession session;
+    private volatile boolean isClosed;
+    private Bundle connectionExtras;
 
     private String serverIP;
     private int serverPort;
@@ -32,20 +76,99 @@ public abstract class TcpConnection extends MavLinkConnection {
 
     @Override
     public final void openConnection(Bundle connectionExtras) throws IOException {
-        getTCPStream(connectionExtras);
+        this.connectionExtras = connectionExtras;
+        isClosed = false;
+        session = getTCPStream(connectionExtras, CONNECTION_TIMEOUT);
         onConnectionOpened(connectionExtras);
     }
 
     @Override
     public final int readDataBlock(byte[] buffer) throws IOException {
-        return mavIn.read(buffer);
+        while (true) {
+            final TcpSession currentSession = session;
+            if (currentSession != null) {
+                try {
+                    final int readCount = currentSession.mavIn.read(buffer);
+                    if (readCount >= 0) {
+                        return readCount;
+                    }
+                    throw new EOFException("Connection closed by the server.");
+                } catch (IOException e) {
+                    if (isClosed) {
+                        throw e;
+                    }
+                    mLogger.logWarning(TAG, "Lost tcp connection: " + e.getMessage());
+                    currentSession.close();
+                }
+            }
+
+            reconnect();
+        }
+    }
+
+    /**
+     * Re-establishes the socket, backing off exponentially between attempts.
+     *
+     * @throws IOException if the connection was closed, or couldn't be re-established within
+     *                     {@link #MAX_OUTAGE_DURATION}.
+     */
+    private void reconnect() throws IOException {
+        session = null;
+
+        final long outageStart = System.currentTimeMillis();
+        long delay = INITIAL_RECONNECT_DELAY;
+        int attempts = 0;
+        while (!isClosed) {
+            if (System.currentTimeMillis() - outageStart > MAX_OUTAGE_DURATION) {
+                throw new IOException("Unable to reconnect to " + serverIP + ":" + serverPort + " after "
+                    + attempts + " attempts.");
+            }
+
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException(e.getMessage());
+            }
+
+            attempts++;
+            try {
+                final TcpSession newSession = getTCPStream(connectionExtras, RECONNECTION_TIMEOUT);
+                if (isClosed) {
+                    newSession.close();
+                    break;
+                }
+
+                session = newSession;
+                mLogger.logInfo(TAG, "Reconnected after " + (System.currentTimeMillis() - outageStart)
+                    + " ms and " + attempts + " attempts.");
+                return;
+            } catch (IOException e) {
+                mLogger.logDebug(TAG, "Reconnection attempt " + attempts + " failed: " + e.getMessage());
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY);
+            }
+        }
+
+        throw new IOException("Connection closed.");
     }
 
     @Override
     public final void sendBuffer(byte[] buffer) throws IOException {
-        if (mavOut != null) {
-            mavOut.write(buffer);
-            mavOut.flush();
+        final TcpSession currentSession = session;
+        if (currentSession == null) {
+            //Reconnecting. The packet is dropped, as it would be on a lossy link.
+            return;
+        }
+
+        try {
+            currentSession.mavOut.write(buffer);
+            currentSession.mavOut.flush();
+        } catch (IOException e) {
+            if (isClosed) {
+                throw e;
+            }
+
+            //Let the reading side detect the outage and reconnect.
+            currentSession.close();
         }
     }
 
@@ -61,18 +184,33 @@ public abstract class TcpConnection extends MavLinkConnection {
 
     @Override
     public final void closeConnection() throws IOException {
-        if (socket != null) {
-            socket.close();
+        isClosed = true;
+        final TcpSession currentSession = session;
+        session = null;
+        if (currentSession != null) {
+            currentSession.socket.close();
         }
     }
 
-    private void getTCPStream(Bundle extras) throws IOException {
+    private TcpSession getTCPStream(Bundle extras, int connectionTimeout) throws IOException {
         InetAddress serverAddr = InetAddress.getByName(serverIP);
-        socket = new Socket();
-        NetworkUtils.bindSocketToNetwork(extras, socket);
-        socket.connect(new InetSocketAddress(serverAddr, serverPort), CONNECTION_TIMEOUT);
-        mavOut = new BufferedOutputStream((socket.getOutputStream()));
-        mavIn = new BufferedInputStream(socket.getInputStream());
+        final Socket socket = new Socket();
+        try {
+            NetworkUtils.bindSocketToNetwork(extras, socket);
+
+            //Mavlink packets are small and latency sensitive.
+            socket.setTcpNoDelay(true);
+            socket.setKeepAlive(true);
+            socket.setReceiveBufferSize(RECEIVE_BUFFER_SIZE);
+            socket.setSendBufferSize(SEND_BUFFER_SIZE);
+            socket.setSoTimeout(READ_TIMEOUT);
+
+            socket.connect(new InetSocketAddress(serverAddr, serverPort), connectionTimeout);
+            return new TcpSession(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
     }
 
     @Override
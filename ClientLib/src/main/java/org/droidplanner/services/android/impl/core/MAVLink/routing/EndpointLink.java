@@ -0,0 +1,204 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Parser;
+import com.o3dr.services.android.lib.drone.connection.RouterEndpoint;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import timber.log.Timber;
+
+/**
+ * Router link to an external endpoint. Frames are received on a reader thread, and sent from a writer
+ * thread so forwarding never blocks the vehicle link.
+ */
+abstract class EndpointLink extends RouterLink {
+
+    private static final int READ_BUFFER_SIZE = 4096;
+
+    /**
+     * Count of frames waiting to be sent before new frames are dropped.
+     */
+    private static final int SEND_QUEUE_CAPACITY = 256;
+
+    private static final long RECONNECT_DELAY = 2000L; //ms
+
+    protected final RouterEndpoint endpoint;
+    private final MavLinkRouter router;
+
+    private final ArrayBlockingQueue<byte[]> sendQueue = new ArrayBlockingQueue<>(SEND_QUEUE_CAPACITY);
+
+    private final AtomicLong receivedFrames = new AtomicLong();
+    private final AtomicLong forwardedFrames = new AtomicLong();
+    private final AtomicLong droppedFrames = new AtomicLong();
+
+    /**
+     * Token bucket enforcing the endpoint maximum rate. Holds up to one second worth of bytes.
+     */
+    private final Object rateLock = new Object();
+    private double availableBytes;
+    private long lastRefillTime;
+
+    private volatile boolean isRunning;
+    private Thread readerThread;
+    private Thread writerThread;
+
+    private final Runnable readerTask = new Runnable() {
+        @Override
+        public void run() {
+            final byte[] buffer = new byte[READ_BUFFER_SIZE];
+            while (isRunning) {
+                try {
+                    open();
+                    Timber.i("Forwarding mavlink traffic to %s", endpoint);
+
+                    final Parser parser = new Parser();
+                    while (isRunning) {
+                        final int length = read(buffer);
+                        for (int i = 0; i < length; i++) {
+                            final MAVLinkPacket packet = parser.mavlink_parse_char(buffer[i] & 0xFF);
+                            if (packet != null) {
+                                receivedFrames.incrementAndGet();
+                                router.onEndpointFrame(EndpointLink.this, packet.encodePacket());
+                            }
+                        }
+                    }
+                } catch (IOException e) {
+                    if (isRunning) {
+                        Timber.w(e, "Router endpoint %s failed.", endpoint);
+                    }
+                }
+
+                close();
+                clearRoutes();
+
+                if (isRunning) {
+                    try {
+                        Thread.sleep(RECONNECT_DELAY);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }
+    };
+
+    private final Runnable writerTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                while (isRunning) {
+                    final byte[] frame = sendQueue.take();
+                    try {
+                        write(frame);
+                        forwardedFrames.incrementAndGet();
+                    } catch (IOException e) {
+                        droppedFrames.incrementAndGet();
+                    }
+                }
+            } catch (InterruptedException e) {
+                Timber.v("Router endpoint %s writer interrupted.", endpoint);
+            }
+        }
+    };
+
+    EndpointLink(MavLinkRouter router, RouterEndpoint endpoint) {
+        this.router = router;
+        this.endpoint = endpoint;
+    }
+
+    void start() {
+        if (isRunning) {
+            return;
+        }
+
+        isRunning = true;
+        sendQueue.clear();
+        synchronized (rateLock) {
+            availableBytes = endpoint.getMaxRate();
+            lastRefillTime = System.nanoTime();
+        }
+
+        readerThread = new Thread(readerTask, "MavLinkRouter-Reader " + endpoint);
+        readerThread.start();
+        writerThread = new Thread(writerTask, "MavLinkRouter-Writer " + endpoint);
+        writerThread.start();
+    }
+
+    void stop() {
+        if (!isRunning) {
+            return;
+        }
+
+        isRunning = false;
+        readerThread.interrupt();
+        writerThread.interrupt();
+
+        //Unblocks the reader thread.
+        close();
+        sendQueue.clear();
+
+        Timber.i("Stopped forwarding to %s: %d frames received, %d forwarded, %d dropped.", endpoint,
+                receivedFrames.get(), forwardedFrames.get(), droppedFrames.get());
+    }
+
+    @Override
+    void forward(byte[] frame) {
+        if (!isRunning || !acquire(frame.length) || !sendQueue.offer(frame)) {
+            droppedFrames.incrementAndGet();
+        }
+    }
+
+    private boolean acquire(int byteCount) {
+        final int maxRate = endpoint.getMaxRate();
+        if (maxRate == RouterEndpoint.UNLIMITED_RATE) {
+            return true;
+        }
+
+        synchronized (rateLock) {
+            final long now = System.nanoTime();
+            availableBytes = Math.min(maxRate, availableBytes + (now - lastRefillTime) * maxRate / 1e9);
+            lastRefillTime = now;
+
+            if (availableBytes < byteCount) {
+                return false;
+            }
+
+            availableBytes -= byteCount;
+            return true;
+        }
+    }
+
+    long getReceivedFrames() {
+        return receivedFrames.get();
+    }
+
+    long getForwardedFrames() {
+        return forwardedFrames.get();
+    }
+
+    /**
+     * @return count of frames dropped because of the endpoint rate limit, a full send queue, or a send failure.
+     */
+    long getDroppedFrames() {
+        return droppedFrames.get();
+    }
+
+    /**
+     * Opens the link to the endpoint. Called from the reader thread.
+     */
+    protected abstract void open() throws IOException;
+
+    /**
+     * Blocks until data is received from the endpoint.
+     *
+     * @return count of bytes read into the buffer.
+     */
+    protected abstract int read(byte[] buffer) throws IOException;
+
+    protected abstract void write(byte[] frame) throws IOException;
+
+    protected abstract void close();
+}
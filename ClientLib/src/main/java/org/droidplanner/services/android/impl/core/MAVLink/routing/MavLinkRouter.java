@@ -0,0 +1,137 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import com.o3dr.services.android.lib.drone.connection.ConnectionType;
+import com.o3dr.services.android.lib.drone.connection.RouterEndpoint;
+
+import org.droidplanner.services.android.impl.core.MAVLink.connection.MavLinkConnection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Forwards raw mavlink frames between the vehicle link and external endpoints (i.e: a ground control
+ * station or a logger), following the mavlink routing rules:
+ * <ul>
+ * <li>the source system and component of each received frame are learned for the link it came from,</li>
+ * <li>broadcast frames are forwarded to every other link,</li>
+ * <li>targeted frames are only forwarded to the links their target was seen on.</li>
+ * </ul>
+ * Frames are forwarded without being decoded; the target fields are read straight from the frame bytes.
+ * Note that the endpoints should use a different system id than this service's ground station.
+ */
+public class MavLinkRouter {
+
+    private final MavLinkConnection vehicleConnection;
+
+    private final RouterLink vehicleLink = new RouterLink() {
+        @Override
+        void forward(byte[] frame) {
+            vehicleConnection.sendEncodedPacket(frame);
+        }
+    };
+
+    private final EndpointLink[] endpointLinks;
+
+    public MavLinkRouter(MavLinkConnection vehicleConnection, List<RouterEndpoint> endpoints) {
+        this.vehicleConnection = vehicleConnection;
+
+        final List<EndpointLink> links = new ArrayList<>(endpoints.size());
+        for (RouterEndpoint endpoint : endpoints) {
+            switch (endpoint.getType()) {
+                case ConnectionType.TYPE_UDP:
+                    links.add(new UdpEndpointLink(this, endpoint));
+                    break;
+
+                case ConnectionType.TYPE_TCP:
+                    links.add(new TcpEndpointLink(this, endpoint));
+                    break;
+
+                default:
+                    Timber.w("Unsupported router endpoint type: %s", endpoint);
+                    break;
+            }
+        }
+        this.endpointLinks = links.toArray(new EndpointLink[links.size()]);
+    }
+
+    /**
+     * Starts forwarding to the endpoints. Called once the vehicle link is connected.
+     */
+    public void start() {
+        for (EndpointLink link : endpointLinks) {
+            link.start();
+        }
+    }
+
+    public void stop() {
+        for (EndpointLink link : endpointLinks) {
+            link.stop();
+        }
+        vehicleLink.clearRoutes();
+    }
+
+    /**
+     * Routes a frame received from the vehicle link. Doesn't block.
+     *
+     * @param frame encoded mavlink frame
+     */
+    public void onVehicleFrame(byte[] frame) {
+        vehicleLink.learnRoute(frame);
+        route(vehicleLink, frame);
+    }
+
+    void onEndpointFrame(EndpointLink source, byte[] frame) {
+        source.learnRoute(frame);
+        route(source, frame);
+    }
+
+    private void route(RouterLink source, byte[] frame) {
+        final int targetSystem = MessageTargets.getTargetSystem(frame);
+        final int targetComponent = targetSystem > 0
+                ? MessageTargets.getTargetComponent(frame)
+                : MessageTargets.NO_TARGET;
+
+        if (source != vehicleLink) {
+            forward(vehicleLink, frame, targetSystem, targetComponent);
+        }
+
+        for (EndpointLink link : endpointLinks) {
+            if (link != source) {
+                forward(link, frame, targetSystem, targetComponent);
+            }
+        }
+    }
+
+    private static void forward(RouterLink link, byte[] frame, int targetSystem, int targetComponent) {
+        if (targetSystem <= 0 || link.hasRoute(targetSystem, targetComponent)) {
+            link.forward(frame);
+        }
+    }
+
+    public int getEndpointCount() {
+        return endpointLinks.length;
+    }
+
+    /**
+     * @return count of frames received from the given endpoint.
+     */
+    public long getReceivedFrames(int endpointIndex) {
+        return endpointLinks[endpointIndex].getReceivedFrames();
+    }
+
+    /**
+     * @return count of frames forwarded to the given endpoint.
+     */
+    public long getForwardedFrames(int endpointIndex) {
+        return endpointLinks[endpointIndex].getForwardedFrames();
+    }
+
+    /**
+     * @return count of frames that couldn't be forwarded to the given endpoint.
+     */
+    public long getDroppedFrames(int endpointIndex) {
+        return endpointLinks[endpointIndex].getDroppedFrames();
+    }
+}
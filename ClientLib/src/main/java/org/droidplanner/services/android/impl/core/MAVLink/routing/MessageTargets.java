@@ -0,0 +1,120 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import com.MAVLink.MAVLinkPacket;
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.Messages.MAVLinkPayload;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+
+/**
+ * Locates the target system and component fields of an encoded mavlink frame, so frames can be
+ * routed without being decoded.
+ * The payload offsets of the target fields are resolved once per message id from the generated
+ * message classes.
+ */
+final class MessageTargets {
+
+    /**
+     * Returned when a message has no target field, i.e: it's a broadcast.
+     */
+    static final int NO_TARGET = -1;
+
+    /**
+     * Offset of the payload in a mavlink frame.
+     */
+    private static final int PAYLOAD_OFFSET = 6;
+
+    private static final int MESSAGE_ID_COUNT = 256;
+
+    private static final short SYSTEM_SENTINEL = 0xA5;
+    private static final short COMPONENT_SENTINEL = 0x5A;
+
+    private static final int[] TARGET_SYSTEM_OFFSETS = new int[MESSAGE_ID_COUNT];
+    private static final int[] TARGET_COMPONENT_OFFSETS = new int[MESSAGE_ID_COUNT];
+
+    static {
+        for (int msgId = 0; msgId < MESSAGE_ID_COUNT; msgId++) {
+            resolveOffsets(msgId);
+        }
+    }
+
+    private MessageTargets() {
+    }
+
+    private static void resolveOffsets(int msgId) {
+        TARGET_SYSTEM_OFFSETS[msgId] = NO_TARGET;
+        TARGET_COMPONENT_OFFSETS[msgId] = NO_TARGET;
+
+        //Build an empty instance of the message, then locate the target fields by packing sentinel values.
+        final MAVLinkPacket emptyPacket = new MAVLinkPacket(MAVLinkPayload.MAX_PAYLOAD_SIZE);
+        emptyPacket.msgid = msgId;
+        final MAVLinkMessage message = emptyPacket.unpack();
+        if (message == null) {
+            return;
+        }
+
+        try {
+            final Field systemField = getField(message, "target_system");
+            if (systemField == null) {
+                return;
+            }
+            systemField.setShort(message, SYSTEM_SENTINEL);
+
+            final Field componentField = getField(message, "target_component");
+            if (componentField != null) {
+                componentField.setShort(message, COMPONENT_SENTINEL);
+            }
+
+            final ByteBuffer payload = message.pack().payload.getData();
+            for (int i = 0; i < payload.position(); i++) {
+                final int value = payload.get(i) & 0xFF;
+                if (value == SYSTEM_SENTINEL) {
+                    TARGET_SYSTEM_OFFSETS[msgId] = i;
+                } else if (value == COMPONENT_SENTINEL && componentField != null) {
+                    TARGET_COMPONENT_OFFSETS[msgId] = i;
+                }
+            }
+        } catch (IllegalAccessException | IllegalArgumentException e) {
+            TARGET_SYSTEM_OFFSETS[msgId] = NO_TARGET;
+            TARGET_COMPONENT_OFFSETS[msgId] = NO_TARGET;
+        }
+    }
+
+    private static Field getField(MAVLinkMessage message, String name) {
+        try {
+            final Field field = message.getClass().getField(name);
+            return field.getType() == short.class ? field : null;
+        } catch (NoSuchFieldException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param frame encoded mavlink frame
+     * @return the target system of the frame, 0 for a broadcast, or {@link #NO_TARGET} if the message
+     * has no target.
+     */
+    static int getTargetSystem(byte[] frame) {
+        return getTarget(frame, TARGET_SYSTEM_OFFSETS);
+    }
+
+    /**
+     * @param frame encoded mavlink frame
+     * @return the target component of the frame, 0 for a broadcast, or {@link #NO_TARGET} if the message
+     * has no target component.
+     */
+    static int getTargetComponent(byte[] frame) {
+        return getTarget(frame, TARGET_COMPONENT_OFFSETS);
+    }
+
+    private static int getTarget(byte[] frame, int[] offsets) {
+        final int offset = offsets[frame[5] & 0xFF];
+        final int payloadLength = frame[1] & 0xFF;
+        if (offset == NO_TARGET || offset >= payloadLength) {
+            return NO_TARGET;
+        }
+
+        return frame[PAYLOAD_OFFSET + offset] & 0xFF;
+    }
+}
@@ -0,0 +1,75 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Link attached to the {@link MavLinkRouter}. Keeps track of the systems and components seen on the
+ * link, as required by the mavlink routing rules.
+ */
+abstract class RouterLink {
+
+    /**
+     * One bit per system id.
+     */
+    private final AtomicLongArray seenSystems = new AtomicLongArray(256 / 64);
+
+    /**
+     * One bit per (system id, component id) pair.
+     */
+    private final AtomicLongArray seenComponents = new AtomicLongArray(256 * 256 / 64);
+
+    /**
+     * Records the source of a frame received over this link.
+     *
+     * @param frame encoded mavlink frame
+     */
+    void learnRoute(byte[] frame) {
+        final int sysid = frame[3] & 0xFF;
+        final int compid = frame[4] & 0xFF;
+        setBit(seenSystems, sysid);
+        setBit(seenComponents, (sysid << 8) | compid);
+    }
+
+    /**
+     * @param targetSystem    target system id
+     * @param targetComponent target component id, 0 or {@link MessageTargets#NO_TARGET} for any component
+     * @return true if the given target was seen on this link.
+     */
+    boolean hasRoute(int targetSystem, int targetComponent) {
+        if (targetComponent <= 0) {
+            return getBit(seenSystems, targetSystem);
+        }
+        return getBit(seenComponents, (targetSystem << 8) | targetComponent);
+    }
+
+    void clearRoutes() {
+        for (int i = 0; i < seenSystems.length(); i++) {
+            seenSystems.set(i, 0);
+        }
+        for (int i = 0; i < seenComponents.length(); i++) {
+            seenComponents.set(i, 0);
+        }
+    }
+
+    private static void setBit(AtomicLongArray bits, int index) {
+        final int word = index >>> 6;
+        final long mask = 1L << (index & 63);
+        long current;
+        while (((current = bits.get(word)) & mask) == 0) {
+            if (bits.compareAndSet(word, current, current | mask)) {
+                return;
+            }
+        }
+    }
+
+    private static boolean getBit(AtomicLongArray bits, int index) {
+        return (bits.get(index >>> 6) & (1L << (index & 63))) != 0;
+    }
+
+    /**
+     * Forwards a frame over this link. Must not block.
+     *
+     * @param frame encoded mavlink frame
+     */
+    abstract void forward(byte[] frame);
+}
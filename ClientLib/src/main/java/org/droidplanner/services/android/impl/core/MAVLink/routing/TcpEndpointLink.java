@@ -0,0 +1,76 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import com.o3dr.services.android.lib.drone.connection.RouterEndpoint;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+
+/**
+ * Tcp client router endpoint.
+ */
+class TcpEndpointLink extends EndpointLink {
+
+    private static final int CONNECT_TIMEOUT = 5000; //ms
+
+    private volatile Socket socket;
+    private volatile InputStream inputStream;
+    private volatile OutputStream outputStream;
+
+    TcpEndpointLink(MavLinkRouter router, RouterEndpoint endpoint) {
+        super(router, endpoint);
+    }
+
+    @Override
+    protected void open() throws IOException {
+        final Socket newSocket = new Socket();
+        socket = newSocket;
+        newSocket.setTcpNoDelay(true);
+        newSocket.connect(new InetSocketAddress(endpoint.getHost(), endpoint.getPort()), CONNECT_TIMEOUT);
+
+        inputStream = newSocket.getInputStream();
+        outputStream = newSocket.getOutputStream();
+    }
+
+    @Override
+    protected int read(byte[] buffer) throws IOException {
+        final InputStream in = inputStream;
+        if (in == null) {
+            throw new IOException("Socket is closed.");
+        }
+
+        final int length = in.read(buffer);
+        if (length < 0) {
+            throw new EOFException("Endpoint closed the connection.");
+        }
+        return length;
+    }
+
+    @Override
+    protected void write(byte[] frame) throws IOException {
+        final OutputStream out = outputStream;
+        if (out == null) {
+            throw new IOException("Not connected.");
+        }
+        out.write(frame);
+    }
+
+    @Override
+    protected void close() {
+        final Socket currentSocket = socket;
+        socket = null;
+        inputStream = null;
+        outputStream = null;
+
+        if (currentSocket != null) {
+            try {
+                currentSocket.close();
+            } catch (IOException e) {
+                //Nothing to do.
+            }
+        }
+    }
+}
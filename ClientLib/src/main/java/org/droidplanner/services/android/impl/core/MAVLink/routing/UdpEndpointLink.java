@@ -0,0 +1,80 @@
+package org.droidplanner.services.android.impl.core.MAVLink.routing;
+
+import com.o3dr.services.android.lib.drone.connection.RouterEndpoint;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Udp router endpoint. Without a host, it listens on the endpoint port and replies to the last peer
+ * it received a frame from.
+ */
+class UdpEndpointLink extends EndpointLink {
+
+    private volatile DatagramSocket socket;
+    private volatile SocketAddress peerAddress;
+
+    private DatagramPacket receivePacket;
+
+    UdpEndpointLink(MavLinkRouter router, RouterEndpoint endpoint) {
+        super(router, endpoint);
+    }
+
+    @Override
+    protected void open() throws IOException {
+        final String host = endpoint.getHost();
+        if (host == null) {
+            peerAddress = null;
+            socket = new DatagramSocket(endpoint.getPort());
+        } else {
+            final InetSocketAddress address = new InetSocketAddress(host, endpoint.getPort());
+            if (address.isUnresolved()) {
+                throw new IOException("Unable to resolve " + host);
+            }
+            peerAddress = address;
+            socket = new DatagramSocket();
+        }
+    }
+
+    @Override
+    protected int read(byte[] buffer) throws IOException {
+        final DatagramSocket currentSocket = socket;
+        if (currentSocket == null) {
+            throw new IOException("Socket is closed.");
+        }
+
+        if (receivePacket == null || receivePacket.getData() != buffer) {
+            receivePacket = new DatagramPacket(buffer, buffer.length);
+        }
+        receivePacket.setLength(buffer.length);
+        currentSocket.receive(receivePacket);
+
+        if (endpoint.getHost() == null) {
+            peerAddress = receivePacket.getSocketAddress();
+        }
+        return receivePacket.getLength();
+    }
+
+    @Override
+    protected void write(byte[] frame) throws IOException {
+        final DatagramSocket currentSocket = socket;
+        final SocketAddress address = peerAddress;
+        if (currentSocket == null || address == null) {
+            throw new IOException("No udp peer.");
+        }
+
+        currentSocket.send(new DatagramPacket(frame, frame.length, address));
+    }
+
+    @Override
+    protected void close() {
+        final DatagramSocket currentSocket = socket;
+        socket = null;
+        if (currentSocket != null) {
+            currentSocket.close();
+        }
+    }
+}
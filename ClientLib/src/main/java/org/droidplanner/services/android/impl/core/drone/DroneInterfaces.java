@@ -211,6 +211,13 @@ public class DroneInterfaces {
 
         public void onParameterReceived(Parameter parameter, int index, int count);
 
+        /**
+         * @param receivedCount count of parameters received so far
+         * @param count         count of parameters being downloaded
+         * @param eta           estimated time until the download completes in milliseconds, or -1 if unknown
+         */
+        public void onParametersDownloadProgress(int receivedCount, int count, long eta);
+
         public void onEndReceivingParameters();
     }
 
@@ -219,6 +226,12 @@ public class DroneInterfaces {
 
         public void onWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent, int index, int count);
 
+        /**
+         * @param wpEvent  type of the transfer, upload or download
+         * @param progress items transferred so far, and the transfer statistics
+         */
+        public void onWaypointTransferProgress(WaypointManager.WaypointEvent_Type wpEvent, WaypointManager.TransferProgress progress);
+
         public void onEndWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent);
     }
 
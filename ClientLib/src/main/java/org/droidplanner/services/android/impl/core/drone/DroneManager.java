@@ -18,6 +18,7 @@ import com.o3dr.services.android.lib.model.ICommandListener;
 import com.o3dr.services.android.lib.model.action.Action;
 
 import org.droidplanner.services.android.impl.api.DroneApi;
+import org.droidplanner.services.android.impl.core.MAVLink.WaypointManager;
 import org.droidplanner.services.android.impl.communication.model.DataLink;
 import org.droidplanner.services.android.impl.core.drone.autopilot.Drone;
 import org.droidplanner.services.android.impl.core.drone.autopilot.apm.solo.ArduSolo;
@@ -31,7 +32,8 @@ import java.util.concurrent.ConcurrentHashMap;
  * Bridge between the communication channel, the drone instance(s), and the connected client(s).
  */
 public class DroneManager<T extends Drone, D> implements DataLink.DataLinkListener<D>, DroneInterfaces.OnDroneListener,
-    DroneInterfaces.OnParameterManagerListener, LogMessageListener, DroneInterfaces.AttributeEventListener {
+    DroneInterfaces.OnParameterManagerListener, DroneInterfaces.OnWaypointManagerListener, LogMessageListener,
+    DroneInterfaces.AttributeEventListener {
 
     private static final String TAG = DroneManager.class.getSimpleName();
 
@@ -270,6 +272,17 @@ public class DroneManager<T extends Drone, D> implements DataLink.DataLinkListen
         }
     }
 
+    @Override
+    public void onParametersDownloadProgress(int receivedCount, int count, long eta) {
+        if (connectedApps.isEmpty()) {
+            return;
+        }
+
+        for (DroneApi droneEventsListener : connectedApps.values()) {
+            droneEventsListener.onParametersDownloadProgress(receivedCount, count, eta);
+        }
+    }
+
     @Override
     public void onEndReceivingParameters() {
         if (connectedApps.isEmpty()) {
@@ -281,6 +294,32 @@ public class DroneManager<T extends Drone, D> implements DataLink.DataLinkListen
         }
     }
 
+    @Override
+    public void onBeginWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent) {
+        //Reported to the clients through the mission drone events.
+    }
+
+    @Override
+    public void onWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent, int index, int count) {
+        //Reported to the clients through the mission transfer progress.
+    }
+
+    @Override
+    public void onWaypointTransferProgress(WaypointManager.WaypointEvent_Type wpEvent, WaypointManager.TransferProgress progress) {
+        if (connectedApps.isEmpty()) {
+            return;
+        }
+
+        for (DroneApi droneEventsListener : connectedApps.values()) {
+            droneEventsListener.onWaypointTransferProgress(wpEvent, progress);
+        }
+    }
+
+    @Override
+    public void onEndWaypointEvent(WaypointManager.WaypointEvent_Type wpEvent) {
+        //Reported to the clients through the mission drone events.
+    }
+
     public ConnectionParameter getConnectionParameter() {
         return connectionParameter;
     }
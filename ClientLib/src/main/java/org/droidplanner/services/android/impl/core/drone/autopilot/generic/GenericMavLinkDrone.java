@@ -129,7 +129,7 @@ public class GenericMavLinkDrone implements MavLinkDrone {
         heartbeat = initHeartBeat(handler);
         this.type = new Type(this);
         this.missionStats = new MissionStats(this);
-        this.streamRates = new StreamRates(this);
+        this.streamRates = new StreamRates(this, handler);
         this.state = new State(this, handler, warningParser);
         parameterManager = new ParameterManager(this, context, handler);
 
@@ -193,6 +193,10 @@ public class GenericMavLinkDrone implements MavLinkDrone {
         if (parameterManager != null)
             parameterManager.setParameterListener(null);
 
+        WaypointManager waypointManager = getWaypointManager();
+        if (waypointManager != null)
+            waypointManager.setWaypointManagerListener(null);
+
         MagnetometerCalibrationImpl magnetometer = getMagnetometerCalibration();
         if (magnetometer != null)
             magnetometer.setListener(null);
@@ -11,16 +11,19 @@ import com.MAVLink.ardupilotmega.msg_mag_cal_report;
 import com.MAVLink.common.msg_command_ack;
 import com.google.android.gms.location.LocationRequest;
 import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.drone.action.ConnectionActions;
 import com.o3dr.services.android.lib.drone.action.GimbalActions;
 import com.o3dr.services.android.lib.drone.action.StateActions;
 import com.o3dr.services.android.lib.drone.attribute.AttributeType;
 import com.o3dr.services.android.lib.drone.attribute.error.CommandExecutionError;
 import com.o3dr.services.android.lib.drone.connection.ConnectionParameter;
+import com.o3dr.services.android.lib.drone.connection.ConnectionType;
 import com.o3dr.services.android.lib.drone.property.DroneAttribute;
 import com.o3dr.services.android.lib.gcs.action.FollowMeActions;
 import com.o3dr.services.android.lib.gcs.follow.FollowLocationSource;
 import com.o3dr.services.android.lib.gcs.follow.FollowType;
 import com.o3dr.services.android.lib.gcs.link.LinkConnectionStatus;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
 import com.o3dr.services.android.lib.gcs.returnToMe.ReturnToMeState;
 import com.o3dr.services.android.lib.model.ICommandListener;
 import com.o3dr.services.android.lib.model.action.Action;
@@ -28,6 +31,7 @@ import com.o3dr.services.android.lib.model.action.Action;
 import org.droidplanner.services.android.impl.api.DroneApi;
 import org.droidplanner.services.android.impl.communication.service.MAVLinkClient;
 import org.droidplanner.services.android.impl.core.MAVLink.MavLinkMsgHandler;
+import org.droidplanner.services.android.impl.core.MAVLink.WaypointManager;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces;
 import org.droidplanner.services.android.impl.core.drone.DroneManager;
 import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
@@ -149,6 +153,11 @@ public class MavLinkDroneManager extends DroneManager<MavLinkDrone, MAVLinkPacke
             parameterManager.setParameterListener(this);
         }
 
+        WaypointManager waypointManager = drone.getWaypointManager();
+        if (waypointManager != null) {
+            waypointManager.setWaypointManagerListener(this);
+        }
+
         MagnetometerCalibrationImpl magnetometer = drone.getMagnetometerCalibration();
         if (magnetometer != null) {
             magnetometer.setListener(this);
@@ -284,6 +293,10 @@ public class MavLinkDroneManager extends DroneManager<MavLinkDrone, MAVLinkPacke
             case AttributeType.RETURN_TO_ME_STATE:
                 return returnToMe == null ? new ReturnToMeState() : returnToMe.getState();
 
+            case AttributeType.LINK_METRICS:
+                final LinkMetrics linkMetrics = mavClient.getLinkMetrics();
+                return linkMetrics == null ? new LinkMetrics() : linkMetrics;
+
             default:
                 return super.getAttribute(clientInfo, attributeType);
         }
@@ -360,11 +373,31 @@ public class MavLinkDroneManager extends DroneManager<MavLinkDrone, MAVLinkPacke
                 }
                 return true;
 
+            //************ TLOG REPLAY ACTIONS *********//
+            case ConnectionActions.ACTION_SEEK_TLOG_REPLAY:
+                long position = data.getLong(ConnectionActions.EXTRA_TLOG_REPLAY_POSITION, 0L);
+                postTlogReplayResult(mavClient.seekTlogReplay(position), listener);
+                return true;
+
+            case ConnectionActions.ACTION_SET_TLOG_REPLAY_SPEED:
+                double replaySpeed = data.getDouble(ConnectionActions.EXTRA_TLOG_REPLAY_SPEED,
+                        ConnectionType.DEFAULT_TLOG_REPLAY_SPEED);
+                postTlogReplayResult(mavClient.setTlogReplaySpeed(replaySpeed), listener);
+                return true;
+
             default:
                 return super.executeAsyncAction(action, listener);
         }
     }
 
+    private static void postTlogReplayResult(boolean isReplaying, ICommandListener listener) {
+        if (isReplaying) {
+            CommonApiUtils.postSuccessEvent(listener);
+        } else {
+            CommonApiUtils.postErrorEvent(CommandExecutionError.COMMAND_UNSUPPORTED, listener);
+        }
+    }
+
     private void enableFollowMe(FollowType followType, FollowLocationSource source, ICommandListener listener) {
         Timber.d("enableFollowMe(): followType=%s source=%s", followType, source);
 
@@ -0,0 +1,397 @@
+package org.droidplanner.services.android.impl.core.drone.profiles;
+
+import org.droidplanner.services.android.impl.core.MAVLink.RoundTripTimeEstimator;
+
+import java.util.BitSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tracks a parameters download, and recovers the parameters lost on the link.
+ * <p/>
+ * The vehicle streams the whole parameters list in response to PARAM_REQUEST_LIST. Once the stream
+ * stops, the missing indices are re-requested one at a time, with a bounded count of requests in
+ * flight. The window follows the bandwidth-delay product of the link, estimated from the measured
+ * round trip time and the parameters arrival rate, and is halved when requests time out so the
+ * re-requests don't overflow a lossy radio.
+ * <p/>
+ * Times are expressed in nanoseconds, as returned by {@link System#nanoTime()}.
+ */
+class ParameterDownload {
+
+    /**
+     * Sends the request for a single parameter.
+     */
+    interface Requester {
+        void requestParameter(int index);
+    }
+
+    private static final int MIN_WINDOW = 2;
+    private static final int INITIAL_WINDOW = 4;
+    private static final int MAX_WINDOW = 32;
+
+    private static final long INITIAL_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1000);
+    private static final long MIN_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(200);
+    private static final long MAX_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(3000);
+
+    /**
+     * The stream is considered stopped after that many times the usual spacing between parameters,
+     * bounded by the retransmit timeout and {@link #MAX_STREAM_TIMEOUT}.
+     */
+    private static final int STREAM_STALL_INTERVALS = 10;
+    private static final long MAX_STREAM_TIMEOUT = TimeUnit.MILLISECONDS.toNanos(1000);
+
+    private static final int UNKNOWN = -1;
+
+    private final Requester requester;
+
+    private int paramCount;
+    private int receivedCount;
+
+    /**
+     * Indices of the parameters not received yet.
+     */
+    private BitSet missing = new BitSet();
+
+    /**
+     * Count of requests sent per index, so the round trip time is only sampled from requests which
+     * weren't retransmitted.
+     */
+    private byte[] attempts = new byte[0];
+
+    /*
+     * Requests in flight, in sending order.
+     */
+    private final int[] inFlightIndices = new int[MAX_WINDOW];
+    private final long[] inFlightTimes = new long[MAX_WINDOW];
+    private int inFlightCount;
+    private final BitSet inFlight = new BitSet();
+
+    private boolean isFillingGaps;
+    private int cursor;
+    private int window = INITIAL_WINDOW;
+
+    private boolean isListRequestPending;
+    private long listRequestTime;
+    private long lastArrivalTime;
+    private boolean hasArrival;
+
+    private final RoundTripTimeEstimator rtt = new RoundTripTimeEstimator(INITIAL_TIMEOUT, MIN_TIMEOUT, MAX_TIMEOUT);
+
+    /**
+     * Send time of the oldest request the window was reduced for. Requests sent earlier belong to the
+     * same round and don't reduce the window again.
+     */
+    private long lastReductionTime;
+    private boolean hasReduction;
+
+    /*
+     * Smoothed spacing between parameters while the vehicle streams the list, and through the whole
+     * download.
+     */
+    private long streamInterval = UNKNOWN;
+    private long arrivalInterval = UNKNOWN;
+
+    ParameterDownload(Requester requester) {
+        this.requester = requester;
+    }
+
+    /**
+     * Resets the download state, after the parameters list was requested.
+     *
+     * @param now time the list was requested at
+     */
+    void start(long now) {
+        paramCount = 0;
+        receivedCount = 0;
+        missing = new BitSet();
+        attempts = new byte[0];
+        clearInFlight();
+
+        isFillingGaps = false;
+        cursor = 0;
+        window = INITIAL_WINDOW;
+        rtt.resetBackoff();
+        hasReduction = false;
+
+        isListRequestPending = true;
+        listRequestTime = now;
+        lastArrivalTime = now;
+        hasArrival = false;
+        arrivalInterval = UNKNOWN;
+    }
+
+    /**
+     * Resumes an interrupted download by re-requesting the missing parameters. The requests in flight
+     * are assumed lost.
+     */
+    void resume(long now) {
+        clearInFlight();
+        isListRequestPending = false;
+        lastArrivalTime = now;
+        hasArrival = false;
+        arrivalInterval = UNKNOWN;
+
+        if (paramCount > 0) {
+            startFillingGaps(now);
+        }
+    }
+
+    /**
+     * Records the receipt of a parameter, and sends the next gap requests if the stream stopped.
+     *
+     * @return true if the parameter wasn't received before in this download.
+     */
+    boolean onParameterReceived(int index, int count, long now) {
+        if (count != paramCount) {
+            setParamCount(count);
+        }
+
+        if (index < 0 || index >= paramCount) {
+            return false;
+        }
+
+        if (isListRequestPending) {
+            //The first streamed parameter answers the list request.
+            rtt.addSample(now - listRequestTime);
+            isListRequestPending = false;
+        }
+
+        final int position = indexOfInFlight(index);
+        if (position != -1) {
+            if (attempts[index] == 1) {
+                rtt.addSample(now - inFlightTimes[position]);
+            }
+            removeInFlight(position);
+            rtt.resetBackoff();
+            window = Math.min(window + 1, getTargetWindow());
+        }
+
+        if (!missing.get(index)) {
+            return false;
+        }
+
+        missing.clear(index);
+        receivedCount++;
+
+        if (hasArrival) {
+            final long interval = now - lastArrivalTime;
+            if (!isFillingGaps) {
+                streamInterval = smooth(streamInterval, interval);
+            }
+            arrivalInterval = smooth(arrivalInterval, interval);
+        }
+        hasArrival = true;
+        lastArrivalTime = now;
+
+        if (isFillingGaps) {
+            fillWindow(now);
+        }
+        return true;
+    }
+
+    /**
+     * Called once the deadline returned by {@link #getNextTimeout(long)} is reached. Switches to the gaps
+     * recovery if the stream stopped, and re-requests the parameters whose requests timed out.
+     */
+    void onTimeout(long now) {
+        if (paramCount == 0) {
+            return;
+        }
+
+        if (!isFillingGaps) {
+            if (now - lastArrivalTime >= getStreamTimeout()) {
+                startFillingGaps(now);
+            }
+            return;
+        }
+
+        //Drop the expired requests. They're sent again by the window refill.
+        final long timeout = rtt.getTimeout();
+        int kept = 0;
+        boolean isNewRound = false;
+        for (int i = 0; i < inFlightCount; i++) {
+            final int index = inFlightIndices[i];
+            final long requestTime = inFlightTimes[i];
+            if (now - requestTime >= timeout) {
+                inFlight.clear(index);
+                if (!hasReduction || requestTime >= lastReductionTime) {
+                    isNewRound = true;
+                }
+            } else {
+                inFlightIndices[kept] = index;
+                inFlightTimes[kept] = inFlightTimes[i];
+                kept++;
+            }
+        }
+        inFlightCount = kept;
+
+        //Reduce the window once per round of lost requests, rather than once per lost request.
+        if (isNewRound) {
+            window = Math.max(MIN_WINDOW, window / 2);
+            rtt.backOff();
+            hasReduction = true;
+            lastReductionTime = now;
+        }
+
+        fillWindow(now);
+    }
+
+    /**
+     * @return delay until {@link #onTimeout(long)} should be called, or -1 if the download isn't
+     * waiting on anything.
+     */
+    long getNextTimeout(long now) {
+        if (paramCount == 0 || isComplete()) {
+            return UNKNOWN;
+        }
+
+        final long deadline;
+        if (!isFillingGaps) {
+            deadline = lastArrivalTime + getStreamTimeout();
+        } else if (inFlightCount > 0) {
+            deadline = inFlightTimes[0] + rtt.getTimeout();
+        } else {
+            return UNKNOWN;
+        }
+        return Math.max(0, deadline - now);
+    }
+
+    boolean isComplete() {
+        return paramCount > 0 && receivedCount >= paramCount;
+    }
+
+    int getParamCount() {
+        return paramCount;
+    }
+
+    int getReceivedCount() {
+        return receivedCount;
+    }
+
+    int getWindowSize() {
+        return window;
+    }
+
+    /**
+     * @return estimated time until all the parameters are received, in milliseconds, or -1 if unknown.
+     */
+    long getEta() {
+        if (isComplete()) {
+            return 0;
+        }
+
+        if (paramCount == 0 || arrivalInterval == UNKNOWN) {
+            return UNKNOWN;
+        }
+
+        return TimeUnit.NANOSECONDS.toMillis((paramCount - receivedCount) * arrivalInterval);
+    }
+
+    /**
+     * Sets the count of parameters to download. The received indices are forgotten if the vehicle
+     * reports a different count mid-download, as they may no longer map to the same parameters.
+     */
+    private void setParamCount(int count) {
+        paramCount = Math.max(count, 0);
+        receivedCount = 0;
+        missing = new BitSet(paramCount);
+        missing.set(0, paramCount);
+        attempts = new byte[paramCount];
+        clearInFlight();
+        cursor = 0;
+    }
+
+    private void startFillingGaps(long now) {
+        isFillingGaps = true;
+        window = getTargetWindow();
+        fillWindow(now);
+    }
+
+    /**
+     * Requests missing parameters, scanning from where the previous requests stopped, until the window
+     * is full.
+     */
+    private void fillWindow(long now) {
+        while (inFlightCount < window && inFlightCount < paramCount - receivedCount) {
+            int index = nextRequestable(cursor);
+            if (index == -1) {
+                index = nextRequestable(0);
+                if (index == -1) {
+                    return;
+                }
+            }
+
+            cursor = index + 1;
+            inFlight.set(index);
+            inFlightIndices[inFlightCount] = index;
+            inFlightTimes[inFlightCount] = now;
+            inFlightCount++;
+            if (attempts[index] < Byte.MAX_VALUE) {
+                attempts[index]++;
+            }
+
+            requester.requestParameter(index);
+        }
+    }
+
+    private int nextRequestable(int from) {
+        for (int index = missing.nextSetBit(from); index >= 0; index = missing.nextSetBit(index + 1)) {
+            if (index >= paramCount) {
+                return -1;
+            }
+            if (!inFlight.get(index)) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return position of the request for the given index in the in flight list, or -1 if none.
+     */
+    private int indexOfInFlight(int index) {
+        if (inFlight.get(index)) {
+            for (int i = 0; i < inFlightCount; i++) {
+                if (inFlightIndices[i] == index) {
+                    return i;
+                }
+            }
+        }
+        return -1;
+    }
+
+    private void removeInFlight(int position) {
+        inFlight.clear(inFlightIndices[position]);
+        System.arraycopy(inFlightIndices, position + 1, inFlightIndices, position, inFlightCount - position - 1);
+        System.arraycopy(inFlightTimes, position + 1, inFlightTimes, position, inFlightCount - position - 1);
+        inFlightCount--;
+    }
+
+    private void clearInFlight() {
+        inFlight.clear();
+        inFlightCount = 0;
+    }
+
+    private static long smooth(long average, long sample) {
+        return average == UNKNOWN ? sample : (7 * average + sample) / 8;
+    }
+
+    /**
+     * @return count of requests matching the bandwidth-delay product of the link.
+     */
+    private int getTargetWindow() {
+        if (!rtt.hasSample() || streamInterval == UNKNOWN) {
+            return INITIAL_WINDOW;
+        }
+
+        final long target = rtt.getSmoothedRtt() / Math.max(streamInterval, 1) + 1;
+        return (int) Math.max(MIN_WINDOW, Math.min(MAX_WINDOW, target));
+    }
+
+    private long getStreamTimeout() {
+        final long timeout = streamInterval == UNKNOWN
+            ? MAX_STREAM_TIMEOUT
+            : Math.max(rtt.getBaseTimeout(), STREAM_STALL_INTERVALS * streamInterval);
+        return Math.min(timeout, MAX_STREAM_TIMEOUT);
+    }
+}
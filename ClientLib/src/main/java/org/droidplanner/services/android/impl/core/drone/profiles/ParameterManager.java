@@ -3,24 +3,31 @@ package org.droidplanner.services.android.impl.core.drone.profiles;
 import android.content.Context;
 import android.os.Handler;
 import android.text.TextUtils;
-import android.util.SparseBooleanArray;
 
 import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_autopilot_version;
 import com.MAVLink.common.msg_param_value;
 import com.o3dr.services.android.lib.drone.property.Parameter;
 
+import org.droidplanner.services.android.impl.core.MAVLink.MavLinkCommands;
 import org.droidplanner.services.android.impl.core.MAVLink.MavLinkParameters;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.DroneEventsType;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.OnDroneListener;
 import org.droidplanner.services.android.impl.core.drone.DroneVariable;
 import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
+import org.droidplanner.services.android.impl.utils.file.DirectoryPath;
+import org.droidplanner.services.android.impl.utils.file.IO.ParameterMetadataIndex;
 import org.droidplanner.services.android.impl.utils.file.IO.ParameterMetadataLoader;
 
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import timber.log.Timber;
@@ -31,11 +38,28 @@ import timber.log.Timber;
  * Should be initialized with a MAVLink Object, so the manager can send messages
  * via the MAV link. The function processMessage must be called with every new
  * MAV Message.
+ * <p/>
+ * The parameters of a vehicle are cached on disk, keyed by its autopilot uid, firmware version and
+ * parameters count. When a known vehicle connects, the cached parameters are used right away and are
+ * verified against the vehicle in the background. Only the values that changed are then reported.
+ * <p/>
+ * The parameters lost during a download are recovered by {@link ParameterDownload}, which re-requests
+ * them with a bounded count of requests in flight.
  */
 public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnDroneListener<MavLinkDrone> {
 
     private static final long TIMEOUT = 1000l; //milliseconds
 
+    /**
+     * Minimum interval between two download progress notifications.
+     */
+    private static final long PROGRESS_INTERVAL = 250l; //milliseconds
+
+    /**
+     * How long to wait for the vehicle identity before falling back to a full parameters download.
+     */
+    private static final long IDENTITY_TIMEOUT = 3000l; //milliseconds
+
     private final Runnable parametersReceiptStartNotification = new Runnable() {
         @Override
         public void run() {
@@ -50,6 +74,17 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
             onParameterStreamStopped();
         }
     };
+    private final Runnable identityTimeoutCallback = new Runnable() {
+        @Override
+        public void run() {
+            if (isCheckingCache) {
+                Timber.i("Vehicle identity unavailable, downloading all parameters.");
+                isCheckingCache = false;
+                refreshParameters();
+            }
+        }
+    };
+
     private final Runnable parametersReceiptEndNotification = new Runnable() {
         @Override
         public void run() {
@@ -63,8 +98,21 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
 
     private int expectedParams;
 
-    private final SparseBooleanArray paramsRollCall = new SparseBooleanArray();
+    private final ParameterDownload download = new ParameterDownload(new ParameterDownload.Requester() {
+        @Override
+        public void requestParameter(int index) {
+            MavLinkParameters.readParameter(myDrone, index);
+        }
+    });
+    private long lastProgressTime;
     private final ConcurrentHashMap<String, Parameter> parameters = new ConcurrentHashMap<>();
+
+    /*
+     * Metadata of the vehicle parameters, looked up in the compiled metadata asset. The xml metadata is
+     * only parsed in the parametersMetadata map if the compiled asset is missing.
+     */
+    private String metadataGroup;
+    private volatile ParameterMetadataIndex metadataIndex;
     private final ConcurrentHashMap<String, ParameterMetadata> parametersMetadata = new ConcurrentHashMap<>();
 
     private DroneInterfaces.OnParameterManagerListener parameterListener;
@@ -72,28 +120,183 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
     private final Handler watchdog;
     private final Context context;
 
+    private final ParameterStore parameterStore;
+
+    /*
+     * Identity of the connected vehicle, used as the parameters cache key.
+     */
+    private boolean isCheckingCache;
+    private boolean hasAutopilotVersion;
+    private long autopilotUid;
+    private long flightSwVersion;
+    private int vehicleParamCount;
+
+    /**
+     * Key of the cached parameters being loaded in the background, or null if none are.
+     */
+    private volatile ParameterStore.VehicleKey pendingCacheKey;
+
+    /**
+     * True while the cached parameters are being verified against the vehicle. Cancelled by an explicit
+     * refresh.
+     */
+    private volatile boolean isVerifyingCache;
+    private int changedCachedParams;
+
     public ParameterManager(MavLinkDrone myDrone, Context context, Handler handler) {
         super(myDrone);
         this.context = context;
         this.watchdog = handler;
+        this.parameterStore = context == null
+            ? null
+            : new ParameterStore(new File(DirectoryPath.getParameterCachePath(context)));
         myDrone.addDroneListener(this);
         refreshParametersMetadata();
     }
 
+    /**
+     * Loads the vehicle parameters, from the cache if the vehicle is known, or from the vehicle otherwise.
+     */
+    private void syncParameters() {
+        if (parameterStore == null) {
+            refreshParameters();
+            return;
+        }
+
+        isCheckingCache = true;
+        pendingCacheKey = null;
+        hasAutopilotVersion = false;
+        autopilotUid = 0;
+        flightSwVersion = 0;
+        vehicleParamCount = 0;
+
+        //The parameters count is read from the first parameter.
+        MavLinkCommands.requestAutopilotVersion(myDrone);
+        MavLinkParameters.readParameter(myDrone, 0);
+
+        watchdog.removeCallbacks(identityTimeoutCallback);
+        watchdog.postDelayed(identityTimeoutCallback, IDENTITY_TIMEOUT);
+    }
+
+    private void onAutopilotVersion(msg_autopilot_version version) {
+        //Recorded even when late, so the downloaded parameters can still be cached.
+        hasAutopilotVersion = true;
+        autopilotUid = version.uid;
+        flightSwVersion = version.flight_sw_version;
+
+        if (isCheckingCache) {
+            loadCachedParameters();
+        }
+    }
+
+    private void loadCachedParameters() {
+        if (!hasAutopilotVersion || vehicleParamCount <= 0) {
+            return;
+        }
+
+        isCheckingCache = false;
+        watchdog.removeCallbacks(identityTimeoutCallback);
+
+        if (autopilotUid == 0) {
+            Timber.i("Vehicle has no uid, downloading all parameters.");
+            refreshParameters();
+            return;
+        }
+
+        //Read on the store I/O thread rather than the message processing one.
+        final ParameterStore.VehicleKey key = getCacheKey(vehicleParamCount);
+        pendingCacheKey = key;
+        parameterStore.load(key, new ParameterStore.LoadListener() {
+            @Override
+            public void onParametersLoaded(final ParameterStore.VehicleKey loadedKey,
+                                           final List<Parameter> cachedParams) {
+                watchdog.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        onCachedParametersLoaded(loadedKey, cachedParams);
+                    }
+                });
+            }
+        });
+    }
+
+    private void onCachedParametersLoaded(ParameterStore.VehicleKey key, List<Parameter> cachedParams) {
+        if (key != pendingCacheKey) {
+            //Disconnected, or synced again, while loading.
+            return;
+        }
+        pendingCacheKey = null;
+
+        if (cachedParams == null || cachedParams.size() != key.getParamCount()) {
+            Timber.i("No cached parameters for %s, downloading all parameters.", key);
+            refreshParameters();
+            return;
+        }
+
+        Timber.i("Loaded %d cached parameters for %s", cachedParams.size(), key);
+        if (isRefreshing.compareAndSet(false, true)) {
+            paramsToReadFromVehicle.clear();
+            parameters.clear();
+            expectedParams = key.getParamCount();
+
+            notifyParametersReceiptStart();
+            for (Parameter param : cachedParams) {
+                loadParameterMetadata(param);
+                parameters.put(param.getName().toLowerCase(Locale.US), param);
+            }
+            notifyParametersReceiptEnd();
+
+            //Verify the cached values in the background. Only the changed values are reported.
+            isVerifyingCache = true;
+            changedCachedParams = 0;
+            requestParametersList();
+        }
+    }
+
+    private ParameterStore.VehicleKey getCacheKey(int paramCount) {
+        return new ParameterStore.VehicleKey(autopilotUid, flightSwVersion, paramCount);
+    }
+
+    private void saveParameters() {
+        if (parameterStore != null && autopilotUid != 0 && expectedParams > 0
+            && parameters.size() >= expectedParams) {
+            parameterStore.save(getCacheKey(expectedParams), parameters.values());
+        }
+    }
+
+    /**
+     * @return count of parameters received from the vehicle in the current download.
+     */
+    private int getReceivedParamsCount() {
+        return isVerifyingCache ? download.getReceivedCount() : parameters.size();
+    }
+
     public void refreshParameters() {
+        if (isVerifyingCache) {
+            //The cached parameters were already reported, and are only being verified. Cancel the check so
+            //the full download can start.
+            Timber.i("Cancelling the cached parameters check for a full download.");
+            isVerifyingCache = false;
+            isRefreshing.set(false);
+        }
+
         if (isRefreshing.compareAndSet(false, true)) {
             paramsToReadFromVehicle.clear();
             expectedParams = 0;
             parameters.clear();
-            paramsRollCall.clear();
 
             notifyParametersReceiptStart();
-
-            MavLinkParameters.requestParametersList(myDrone);
-            resetWatchdog();
+            requestParametersList();
         }
     }
 
+    private void requestParametersList() {
+        lastProgressTime = 0;
+        download.start(System.nanoTime());
+        MavLinkParameters.requestParametersList(myDrone);
+        resetWatchdog();
+    }
+
     public Map<String, Parameter> getParameters() {
         //Update the cache if it's stale. Parameters download is expensive, but we assume the caller knows what it's
         // doing.
@@ -114,49 +317,100 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
             processReceivedParam((msg_param_value) msg);
             return true;
         }
+
+        if (msg.msgid == msg_autopilot_version.MAVLINK_MSG_ID_AUTOPILOT_VERSION) {
+            onAutopilotVersion((msg_autopilot_version) msg);
+            //Also read by the waypoint manager, for the mission protocol capabilities.
+            return false;
+        }
         return false;
     }
 
     protected void processReceivedParam(msg_param_value m_value) {
+        if (isCheckingCache) {
+            vehicleParamCount = m_value.param_count;
+            loadCachedParameters();
+            return;
+        }
+
         String paramName = m_value.getParam_Id();
-        if(!paramsToReadFromVehicle.remove(paramName) && !isRefreshing.get())
+        final boolean isRequested = paramsToReadFromVehicle.remove(paramName);
+        if(!isRequested && !isRefreshing.get())
             return;
         // collect params in parameter list
         Parameter param = new Parameter(paramName, m_value.param_value, m_value.param_type);
         loadParameterMetadata(param);
 
         int paramIndex = m_value.param_index;
-        parameters.put(param.getName().toLowerCase(Locale.US), param);
+        final Parameter previousParam = parameters.put(param.getName().toLowerCase(Locale.US), param);
         if (paramIndex == -1) {
             // update listener
             notifyParameterReceipt(param, 0, 1);
 
             notifyParametersReceiptEnd();
+            if (isRequested) {
+                saveParameters();
+            }
             return;
         }
 
-        paramsRollCall.append(paramIndex, true);
         expectedParams = m_value.param_count;
+        if (isRefreshing.get() && download.onParameterReceived(paramIndex, m_value.param_count, System.nanoTime())) {
+            notifyDownloadProgress();
+        }
 
-        // update listener
-        notifyParameterReceipt(param, paramIndex, m_value.param_count);
+        final boolean isChanged = previousParam == null || previousParam.getValue() != param.getValue()
+            || previousParam.getType() != param.getType();
+        if (isVerifyingCache && !isRequested) {
+            if (isChanged) {
+                changedCachedParams++;
+                notifyParameterReceipt(param, paramIndex, m_value.param_count);
+            }
+        } else {
+            // update listener
+            notifyParameterReceipt(param, paramIndex, m_value.param_count);
+        }
 
         // Are all parameters here? Notify the listener with the parameters
-        if (parameters.size() >= m_value.param_count) {
-            if(isRefreshing.compareAndSet(true, false)) {
+        if (getReceivedParamsCount() >= m_value.param_count) {
+            final boolean wasRefreshing = isRefreshing.compareAndSet(true, false);
+            if(wasRefreshing) {
                 killWatchdog();
             }
-            notifyParametersReceiptEnd();
+
+            if (isVerifyingCache) {
+                isVerifyingCache = false;
+                Timber.i("Cached parameters verified, %d changed.", changedCachedParams);
+                if (changedCachedParams > 0) {
+                    saveParameters();
+                    notifyParametersReceiptEnd();
+                }
+            } else {
+                if (wasRefreshing || (isRequested && isChanged)) {
+                    saveParameters();
+                }
+                notifyParametersReceiptEnd();
+            }
         } else {
             resetWatchdog();
         }
     }
 
-    private void reRequestMissingParams(int howManyParams) {
-        for (int i = 0; i < howManyParams; i++) {
-            if (!paramsRollCall.get(i)) {
-                MavLinkParameters.readParameter(myDrone, i);
-            }
+    /**
+     * Resumes a parameters download interrupted by a link outage, only requesting the missing parameters.
+     */
+    private void resumeParametersDownload() {
+        if (parameters.isEmpty() && !isRefreshing.get()) {
+            //Interrupted before the download started.
+            syncParameters();
+            return;
+        }
+
+        final int receivedCount = getReceivedParamsCount();
+        if (expectedParams > 0 && receivedCount < expectedParams && isRefreshing.compareAndSet(false, true)) {
+            Timber.i("Resuming parameters download: %d/%d received.", receivedCount, expectedParams);
+            download.resume(System.nanoTime());
+            resetWatchdog();
         }
     }
 
@@ -178,17 +432,27 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
     }
 
     private void onParameterStreamStopped() {
+        if (!isRefreshing.get()) {
+            return;
+        }
+
         if (expectedParams > 0) {
-            reRequestMissingParams(expectedParams);
+            download.onTimeout(System.nanoTime());
             resetWatchdog();
         } else {
             isRefreshing.set(false);
         }
     }
 
+    /**
+     * Schedules the watchdog for the next download deadline, i.e: the parameters stream stalling or a
+     * parameter request timing out.
+     */
     private void resetWatchdog() {
+        final long timeout = download.getNextTimeout(System.nanoTime());
+        final long delay = timeout < 0 ? TIMEOUT : Math.max(1, TimeUnit.NANOSECONDS.toMillis(timeout));
         watchdog.removeCallbacks(watchdogCallback);
-        watchdog.postDelayed(watchdogCallback, TIMEOUT);
+        watchdog.postDelayed(watchdogCallback, delay);
     }
 
     private void killWatchdog() {
@@ -200,11 +464,18 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
     public void onDroneEvent(DroneEventsType event, MavLinkDrone drone) {
         switch (event) {
             case HEARTBEAT_FIRST:
-                refreshParameters();
+                syncParameters();
+                break;
+
+            case HEARTBEAT_RESTORED:
+                resumeParametersDownload();
                 break;
 
             case DISCONNECTED:
             case HEARTBEAT_TIMEOUT:
+                isCheckingCache = false;
+                pendingCacheKey = null;
+                watchdog.removeCallbacks(identityTimeoutCallback);
                 killWatchdog();
                 break;
 
@@ -221,15 +492,27 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
     private void refreshParametersMetadata() {
         //Reload the vehicle parameters metadata
         String metadataType = myDrone.getFirmwareType().getParameterMetadataGroup();
-        if (!TextUtils.isEmpty(metadataType)) {
+        if (TextUtils.isEmpty(metadataType) || metadataType.equals(metadataGroup)) {
+            return;
+        }
+
+        metadataGroup = metadataType;
+        metadataIndex = null;
+        parametersMetadata.clear();
+        try {
+            metadataIndex = ParameterMetadataIndex.open(context, metadataType);
+        } catch (FileNotFoundException e) {
+            Timber.w("No compiled parameters metadata for %s, parsing the xml metadata.", metadataType);
             try {
                 ParameterMetadataLoader.load(context, metadataType, this.parametersMetadata);
-            } catch (Exception e) {
-                Timber.e(e, e.getMessage());
+            } catch (Exception xmlException) {
+                Timber.e(xmlException, xmlException.getMessage());
             }
+        } catch (Exception e) {
+            Timber.e(e, e.getMessage());
         }
 
-        if (parametersMetadata.isEmpty() || parameters.isEmpty())
+        if ((metadataIndex == null && parametersMetadata.isEmpty()) || parameters.isEmpty())
             return;
 
         for (Parameter parameter : parameters.values()) {
@@ -238,7 +521,10 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
     }
 
     private void loadParameterMetadata(Parameter parameter){
-        ParameterMetadata metadata = parametersMetadata.get(parameter.getName());
+        final ParameterMetadataIndex index = metadataIndex;
+        ParameterMetadata metadata = index == null
+            ? parametersMetadata.get(parameter.getName())
+            : index.get(parameter.getName());
         if (metadata != null) {
             parameter.setDisplayName(metadata.getDisplayName());
             parameter.setDescription(metadata.getDescription());
@@ -262,6 +548,31 @@ public class ParameterManager extends DroneVariable<MavLinkDrone> implements OnD
             watchdog.post(parametersReceiptEndNotification);
     }
 
+    private void notifyDownloadProgress() {
+        //The cached parameters were already reported, their verification is not a download.
+        if (parameterListener == null || isVerifyingCache) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+        final boolean isComplete = download.isComplete();
+        if (!isComplete && now - lastProgressTime < PROGRESS_INTERVAL) {
+            return;
+        }
+        lastProgressTime = now;
+
+        final int receivedCount = download.getReceivedCount();
+        final int count = download.getParamCount();
+        final long eta = download.getEta();
+        watchdog.post(new Runnable() {
+            @Override
+            public void run() {
+                if (parameterListener != null)
+                    parameterListener.onParametersDownloadProgress(receivedCount, count, eta);
+            }
+        });
+    }
+
     private void notifyParameterReceipt(final Parameter parameter, final int index, final int count) {
         if (parameterListener != null) {
             watchdog.post(new Runnable() {
@@ -0,0 +1,258 @@
+package org.droidplanner.services.android.impl.core.drone.profiles;
+
+import com.o3dr.services.android.lib.drone.property.Parameter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import timber.log.Timber;
+
+/**
+ * On-disk cache of the vehicles parameters, so a known vehicle doesn't go through a full parameters
+ * download on every connection.
+ * One file is kept per vehicle, named after its autopilot uid. The cached parameters are only returned
+ * if the firmware version and parameters count still match.
+ */
+public class ParameterStore {
+
+    private static final int MAGIC = 0x44504331; // 'DPC1'
+    private static final int FORMAT_VERSION = 1;
+
+    private static final String FILE_EXTENSION = ".params";
+
+    private static final long IO_THREAD_KEEP_ALIVE = 5L; //seconds
+
+    /**
+     * Identity of the vehicle a set of parameters belongs to.
+     */
+    public static final class VehicleKey {
+        private final long autopilotUid;
+        private final long flightSwVersion;
+        private final int paramCount;
+
+        public VehicleKey(long autopilotUid, long flightSwVersion, int paramCount) {
+            this.autopilotUid = autopilotUid;
+            this.flightSwVersion = flightSwVersion;
+            this.paramCount = paramCount;
+        }
+
+        public long getAutopilotUid() {
+            return autopilotUid;
+        }
+
+        public long getFlightSwVersion() {
+            return flightSwVersion;
+        }
+
+        public int getParamCount() {
+            return paramCount;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof VehicleKey)) {
+                return false;
+            }
+
+            final VehicleKey that = (VehicleKey) o;
+            return autopilotUid == that.autopilotUid
+                && flightSwVersion == that.flightSwVersion
+                && paramCount == that.paramCount;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = (int) (autopilotUid ^ (autopilotUid >>> 32));
+            result = 31 * result + (int) (flightSwVersion ^ (flightSwVersion >>> 32));
+            result = 31 * result + paramCount;
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "VehicleKey{uid=%016x, flightSwVersion=%08x, paramCount=%d}",
+                autopilotUid, flightSwVersion, paramCount);
+        }
+    }
+
+    /**
+     * Receives the result of a background load.
+     */
+    public interface LoadListener {
+        /**
+         * Called on the store I/O thread.
+         *
+         * @param key        identity of the vehicle the parameters were loaded for
+         * @param parameters the cached parameters, or null if none matched the key
+         */
+        void onParametersLoaded(VehicleKey key, List<Parameter> parameters);
+    }
+
+    private final File directory;
+
+    /**
+     * Loads and writes are done in the background, in submission order. The thread exits when idle.
+     */
+    private final ExecutorService ioExecutor = new ThreadPoolExecutor(0, 1, IO_THREAD_KEEP_ALIVE,
+        TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>());
+
+    public ParameterStore(File directory) {
+        this.directory = directory;
+    }
+
+    private File getFile(long autopilotUid) {
+        return new File(directory, String.format(Locale.US, "%016x%s", autopilotUid, FILE_EXTENSION));
+    }
+
+    /**
+     * @param key identity of the connected vehicle
+     * @return the cached parameters of the vehicle, or null if none are cached or they were saved for a
+     * different firmware version or parameters count.
+     */
+    public List<Parameter> load(VehicleKey key) {
+        final File file = getFile(key.getAutopilotUid());
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION) {
+                Timber.w("Discarding parameters cache %s with unknown format.", file.getName());
+                return null;
+            }
+
+            final VehicleKey cachedKey = new VehicleKey(in.readLong(), in.readLong(), in.readInt());
+            if (!key.equals(cachedKey)) {
+                Timber.i("Parameters cache is stale: expected %s, found %s", key, cachedKey);
+                return null;
+            }
+
+            final int count = in.readInt();
+            final List<Parameter> parameters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                final String name = in.readUTF();
+                final int type = in.readByte();
+                final double value = in.readDouble();
+                parameters.add(new Parameter(name, value, type));
+            }
+            return parameters;
+        } catch (FileNotFoundException e) {
+            return null;
+        } catch (IOException e) {
+            Timber.w(e, "Unable to read parameters cache %s", file.getName());
+            return null;
+        } finally {
+            if (in != null) {
+                try {
+                    in.close();
+                } catch (IOException e) {
+                    Timber.w(e, "Unable to close parameters cache %s", file.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads the cached parameters of the vehicle in the background, after the pending writes.
+     *
+     * @param key      identity of the connected vehicle
+     * @param listener receives the result of {@link #load(VehicleKey)}
+     */
+    public void load(final VehicleKey key, final LoadListener listener) {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                listener.onParametersLoaded(key, load(key));
+            }
+        });
+    }
+
+    /**
+     * Saves the vehicle parameters in the background, replacing the previous cache for the vehicle.
+     *
+     * @param key        identity of the connected vehicle
+     * @param parameters parameters to save. Copied before returning.
+     */
+    public void save(final VehicleKey key, Collection<Parameter> parameters) {
+        final List<Parameter> snapshot = new ArrayList<>(parameters);
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                write(key, snapshot);
+            }
+        });
+    }
+
+    private void write(VehicleKey key, List<Parameter> parameters) {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Timber.w("Unable to create parameters cache directory %s", directory);
+            return;
+        }
+
+        //Write to a temporary file first, so an interrupted write doesn't corrupt the cache.
+        final File file = getFile(key.getAutopilotUid());
+        final File tempFile = new File(directory, file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT_VERSION);
+            out.writeLong(key.getAutopilotUid());
+            out.writeLong(key.getFlightSwVersion());
+            out.writeInt(key.getParamCount());
+
+            out.writeInt(parameters.size());
+            for (Parameter parameter : parameters) {
+                out.writeUTF(parameter.getName());
+                out.writeByte(parameter.getType());
+                out.writeDouble(parameter.getValue());
+            }
+            out.close();
+            out = null;
+
+            if (!tempFile.renameTo(file)) {
+                Timber.w("Unable to replace parameters cache %s", file.getName());
+                tempFile.delete();
+            }
+        } catch (IOException e) {
+            Timber.w(e, "Unable to write parameters cache %s", file.getName());
+            tempFile.delete();
+        } finally {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    Timber.w(e, "Unable to close parameters cache %s", tempFile.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Deletes the cached parameters of the given vehicle.
+     */
+    public void invalidate(final long autopilotUid) {
+        ioExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                getFile(autopilotUid).delete();
+            }
+        });
+    }
+}
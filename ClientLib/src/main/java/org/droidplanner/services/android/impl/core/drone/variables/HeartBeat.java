@@ -27,6 +27,20 @@ public class HeartBeat extends DroneVariable implements OnDroneListener<MavLinkD
     private short sysid = 1;
     private short compid = 1;
 
+    /**
+     * Identity of the vehicle the heartbeat was first received from, checked when the heartbeat is
+     * restored after a link outage.
+     */
+    private short vehicleSysid = -1;
+    private short vehicleCompid = -1;
+    private short vehicleAutopilot = -1;
+    private short vehicleType = -1;
+
+    /**
+     * True while the first heartbeat following a link outage is awaited.
+     */
+    private boolean isIdentityCheckPending;
+
     /**
      * Stores the version of the mavlink protocol.
      */
@@ -63,6 +77,20 @@ public class HeartBeat extends DroneVariable implements OnDroneListener<MavLinkD
 
     public void onHeartbeat(MAVLinkMessage msg) {
         msg_heartbeat heartBeatMsg = msg instanceof msg_heartbeat ? (msg_heartbeat) msg : null;
+        //Only the heartbeats of the vehicle component are checked, other components (i.e: camera,
+        //gimbal) share the system id.
+        boolean isIdentityChecked = false;
+        if (heartBeatMsg != null && (heartbeatState == LOST_HEARTBEAT || isIdentityCheckPending)
+            && validateToUnsignedByteRange(heartBeatMsg.compid) == vehicleCompid) {
+            isIdentityCheckPending = false;
+            isIdentityChecked = true;
+            if (!isSameVehicle(heartBeatMsg)) {
+                //The link came back to a different vehicle. Start over as on a new connection.
+                Timber.i("Heartbeat restored from a different vehicle.");
+                heartbeatState = FIRST_HEARTBEAT;
+            }
+        }
+
         if(heartBeatMsg != null){
             sysid  = validateToUnsignedByteRange(msg.sysid);
             compid = validateToUnsignedByteRange(msg.compid);
@@ -73,6 +101,7 @@ public class HeartBeat extends DroneVariable implements OnDroneListener<MavLinkD
             case FIRST_HEARTBEAT:
                 if(heartBeatMsg != null) {
                     Timber.i("Received first heartbeat.");
+                    recordVehicleIdentity(heartBeatMsg);
 
                     heartbeatState = NORMAL_HEARTBEAT;
                     restartWatchdog(HEARTBEAT_NORMAL_TIMEOUT);
@@ -82,6 +111,8 @@ public class HeartBeat extends DroneVariable implements OnDroneListener<MavLinkD
                 break;
 
             case LOST_HEARTBEAT:
+                //Restored by another message: check the vehicle identity on the next heartbeat.
+                isIdentityCheckPending = !isIdentityChecked;
                 myDrone.notifyDroneEvent(DroneEventsType.HEARTBEAT_RESTORED);
             // FALL THROUGH
 
@@ -92,6 +123,23 @@ public class HeartBeat extends DroneVariable implements OnDroneListener<MavLinkD
         }
     }
 
+    private void recordVehicleIdentity(msg_heartbeat heartBeatMsg) {
+        vehicleSysid = validateToUnsignedByteRange(heartBeatMsg.sysid);
+        vehicleCompid = validateToUnsignedByteRange(heartBeatMsg.compid);
+        vehicleAutopilot = heartBeatMsg.autopilot;
+        vehicleType = heartBeatMsg.type;
+    }
+
+    /**
+     * Heartbeats carry no unique vehicle identifier, so the vehicle is identified by its system id,
+     * autopilot and frame type.
+     */
+    private boolean isSameVehicle(msg_heartbeat heartBeatMsg) {
+        return vehicleSysid == validateToUnsignedByteRange(heartBeatMsg.sysid)
+            && vehicleAutopilot == heartBeatMsg.autopilot
+            && vehicleType == heartBeatMsg.type;
+    }
+
     public boolean hasHeartbeat() {
         return heartbeatState != FIRST_HEARTBEAT;
     }
@@ -115,6 +163,7 @@ public class HeartBeat extends DroneVariable implements OnDroneListener<MavLinkD
     private void notifyDisconnected() {
         watchdog.removeCallbacks(watchdogCallback);
         heartbeatState = FIRST_HEARTBEAT;
+        isIdentityCheckPending = false;
         mMavlinkVersion = INVALID_MAVLINK_VERSION;
     }
 
@@ -1,17 +1,85 @@
 package org.droidplanner.services.android.impl.core.drone.variables;
 
+import android.os.Handler;
+
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_global_position_int;
+import com.MAVLink.common.msg_raw_imu;
+import com.MAVLink.common.msg_rc_channels_raw;
+import com.MAVLink.common.msg_sys_status;
+import com.MAVLink.common.msg_vfr_hud;
+import com.MAVLink.enums.MAV_DATA_STREAM;
+import com.o3dr.services.android.lib.gcs.link.LinkMetrics;
+
 import org.droidplanner.services.android.impl.core.MAVLink.MavLinkStreamRates;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.DroneEventsType;
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.OnDroneListener;
 import org.droidplanner.services.android.impl.core.drone.DroneVariable;
 import org.droidplanner.services.android.impl.core.drone.autopilot.MavLinkDrone;
 
+import timber.log.Timber;
+
 public class StreamRates extends DroneVariable<MavLinkDrone> implements OnDroneListener<MavLinkDrone> {
 
+    /**
+     * Delay after a stream rates request before checking the observed rates.
+     */
+    private static final long VERIFICATION_DELAY = 5000l; //ms
+
+    /**
+     * Fraction of the requested rate a stream must reach to be considered applied.
+     */
+    private static final double MIN_RATE_RATIO = 0.5;
+
+    private static final int MAX_REQUEST_ATTEMPTS = 3;
+
+    /**
+     * Probe of the streams whose messages are all autopilot specific. Their rate is not verified.
+     */
+    private static final int NO_PROBE = -1;
+
+    /**
+     * Streams, and the message used to measure each stream observed rate. Only messages of the common set are
+     * used as probes, so the verification completes whatever the autopilot.
+     */
+    private static final int[] STREAM_IDS = {
+            MAV_DATA_STREAM.MAV_DATA_STREAM_EXTENDED_STATUS,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_EXTRA1,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_EXTRA2,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_EXTRA3,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_POSITION,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_RC_CHANNELS,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_RAW_SENSORS,
+            MAV_DATA_STREAM.MAV_DATA_STREAM_RAW_CONTROLLER
+    };
+
+    private static final int[] PROBE_MESSAGE_IDS = {
+            msg_sys_status.MAVLINK_MSG_ID_SYS_STATUS,
+            msg_attitude.MAVLINK_MSG_ID_ATTITUDE,
+            msg_vfr_hud.MAVLINK_MSG_ID_VFR_HUD,
+            NO_PROBE,
+            msg_global_position_int.MAVLINK_MSG_ID_GLOBAL_POSITION_INT,
+            msg_rc_channels_raw.MAVLINK_MSG_ID_RC_CHANNELS_RAW,
+            msg_raw_imu.MAVLINK_MSG_ID_RAW_IMU,
+            NO_PROBE
+    };
+
+    private final Handler handler;
+
+    private final Runnable verificationTask = new Runnable() {
+        @Override
+        public void run() {
+            verifyStreamRates();
+        }
+    };
+
     private Rates rates;
+    private int requestAttempts;
+    private boolean ratesConfirmed;
 
-	public StreamRates(MavLinkDrone myDrone) {
+	public StreamRates(MavLinkDrone myDrone, Handler handler) {
 		super(myDrone);
+		this.handler = handler;
 		myDrone.addDroneListener(this);
 	}
 
@@ -24,6 +92,14 @@ public class StreamRates extends DroneVariable<MavLinkDrone> implements OnDroneL
 		}
     }
 
+    /**
+     * @return true if the vehicle was observed sending every requested stream at its requested rate. The streams
+     * without a probe message of the common set are not checked.
+     */
+    public boolean areRatesConfirmed() {
+        return ratesConfirmed;
+    }
+
     @Override
 	public void onDroneEvent(DroneEventsType event, MavLinkDrone drone) {
 		switch (event) {
@@ -32,6 +108,10 @@ public class StreamRates extends DroneVariable<MavLinkDrone> implements OnDroneL
 		case HEARTBEAT_RESTORED:
 			setupStreamRatesFromPref();
 			break;
+		case DISCONNECTED:
+		case HEARTBEAT_TIMEOUT:
+			handler.removeCallbacks(verificationTask);
+			break;
 		default:
 			break;
 		}
@@ -45,6 +125,58 @@ public class StreamRates extends DroneVariable<MavLinkDrone> implements OnDroneL
 				myDrone.getCompid(), rates.extendedStatus, rates.extra1, rates.extra2,
 				rates.extra3, rates.position, rates.rcChannels, rates.rawSensors,
 				rates.rawController);
+
+		requestAttempts = 1;
+		scheduleVerification();
+	}
+
+	private void scheduleVerification() {
+		ratesConfirmed = false;
+		handler.removeCallbacks(verificationTask);
+		handler.postDelayed(verificationTask, VERIFICATION_DELAY);
+	}
+
+	/**
+	 * Compares the observed receive rate of each stream with its requested rate, and requests again
+	 * the streams the vehicle didn't apply.
+	 */
+	private void verifyStreamRates() {
+		if (rates == null || !myDrone.isConnected())
+			return;
+
+		final LinkMetrics metrics = myDrone.getMavClient().getLinkMetrics();
+		if (metrics == null)
+			return;
+
+		final int[] requestedRates = rates.toArray();
+		boolean confirmed = true;
+		for (int i = 0; i < STREAM_IDS.length; i++) {
+			final int requestedRate = requestedRates[i];
+			if (requestedRate <= 0 || PROBE_MESSAGE_IDS[i] == NO_PROBE)
+				continue;
+
+			final float observedRate = metrics.getMessageRate(PROBE_MESSAGE_IDS[i]);
+			if (observedRate >= requestedRate * MIN_RATE_RATIO)
+				continue;
+
+			confirmed = false;
+			if (requestAttempts < MAX_REQUEST_ATTEMPTS) {
+				Timber.d("Stream %d observed at %.1f Hz instead of %d Hz. Requesting it again.", STREAM_IDS[i],
+						observedRate, requestedRate);
+				MavLinkStreamRates.requestMavlinkDataStream(myDrone.getMavClient(), myDrone.getSysid(),
+						myDrone.getCompid(), STREAM_IDS[i], requestedRate);
+			} else {
+				Timber.w("Stream %d observed at %.1f Hz instead of %d Hz.", STREAM_IDS[i], observedRate,
+						requestedRate);
+			}
+		}
+
+		if (confirmed) {
+			ratesConfirmed = true;
+		} else if (requestAttempts < MAX_REQUEST_ATTEMPTS) {
+			requestAttempts++;
+			scheduleVerification();
+		}
 	}
 
     public static class Rates {
@@ -68,6 +200,14 @@ public class StreamRates extends DroneVariable<MavLinkDrone> implements OnDroneL
 			this.rawController = rate;
 		}
 
+		/**
+		 * @return the rates ordered as {@link StreamRates#STREAM_IDS}.
+		 */
+		int[] toArray() {
+			return new int[]{extendedStatus, extra1, extra2, extra3, position, rcChannels, rawSensors,
+					rawController};
+		}
+
 		@Override
 		public boolean equals(Object o) {
 			if (this == o) {
@@ -44,4 +44,53 @@ public class Simplify {
 		// Return the result
 		return ResultList;
 	}
+
+	/**
+	 * Same algorithm, on an altitude profile. The deviation of a point is measured vertically, from the
+	 * altitude the straight line between the kept points has at its distance.
+	 *
+	 * @param distances distance of each point along the profile, in increasing order.
+	 * @return for each point, whether it's kept. The first and last points are always kept.
+	 */
+	public static boolean[] simplifyProfile(double[] distances, double[] altitudes, double tolerance) {
+		final int count = distances.length;
+		final boolean[] kept = new boolean[count];
+		if (count == 0) {
+			return kept;
+		}
+		kept[0] = true;
+		kept[count - 1] = true;
+
+		// Ranges left to simplify, as first and last index pairs
+		final int[] ranges = new int[2 * count];
+		int rangeCount = 0;
+		ranges[rangeCount++] = 0;
+		ranges[rangeCount++] = count - 1;
+
+		while (rangeCount > 0) {
+			final int last = ranges[--rangeCount];
+			final int first = ranges[--rangeCount];
+
+			int index = -1;
+			double dmax = 0;
+			final double length = distances[last] - distances[first];
+			for (int i = first + 1; i < last; i++) {
+				final double ratio = length > 0 ? (distances[i] - distances[first]) / length : 0;
+				final double d = Math.abs(altitudes[i] - (altitudes[first] + ratio * (altitudes[last] - altitudes[first])));
+				if (d > dmax) {
+					index = i;
+					dmax = d;
+				}
+			}
+
+			if (index != -1 && dmax > tolerance) {
+				kept[index] = true;
+				ranges[rangeCount++] = first;
+				ranges[rangeCount++] = index;
+				ranges[rangeCount++] = index;
+				ranges[rangeCount++] = last;
+			}
+		}
+		return kept;
+	}
 }
\ No newline at end of file
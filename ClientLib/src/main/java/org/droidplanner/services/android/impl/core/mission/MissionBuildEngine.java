@@ -0,0 +1,166 @@
+package org.droidplanner.services.android.impl.core.mission;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Computes the complex mission items (surveys, structure scans) in parallel on a shared pool of background
+ * threads.
+ * <p/>
+ * The calling thread takes part in the work: it runs the first task itself, then any task the pool hasn't
+ * started yet. Tasks can thus fork more tasks without the pool running out of threads.
+ * <p/>
+ * Builds are tied to an owner, usually the mission being edited. Starting a build for an owner cancels the
+ * build still in flight for it, if any, since its result is about to be replaced.
+ */
+public class MissionBuildEngine {
+
+    private static final int POOL_SIZE = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+
+    private static final ExecutorService executor = Executors.newFixedThreadPool(POOL_SIZE, new ThreadFactory() {
+        private final AtomicInteger threadCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            final Thread thread = new Thread(runnable, "Mission build #" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    });
+
+    private static final Map<Object, Build> buildsInFlight = new WeakHashMap<>();
+
+    //Private to prevent instantiation
+    private MissionBuildEngine() {
+    }
+
+    /**
+     * Runs the given tasks in parallel.
+     *
+     * @return the tasks results, in the tasks order.
+     * @throws ExecutionException    if one of the tasks failed.
+     * @throws CancellationException if the build was cancelled by a newer one.
+     */
+    public static <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws ExecutionException {
+        return invokeAll(null, tasks);
+    }
+
+    /**
+     * Runs the given tasks in parallel, after cancelling the build in flight for the given owner.
+     *
+     * @param owner the owner of the build, or null if it can't be replaced by a newer one.
+     * @return the tasks results, in the tasks order.
+     * @throws ExecutionException    if one of the tasks failed.
+     * @throws CancellationException if the build was cancelled by a newer one.
+     */
+    public static <T> List<T> invokeAll(Object owner, List<? extends Callable<T>> tasks) throws ExecutionException {
+        final int taskCount = tasks.size();
+        final Build build = new Build();
+        if (owner != null) {
+            synchronized (buildsInFlight) {
+                final Build previousBuild = buildsInFlight.put(owner, build);
+                if (previousBuild != null) {
+                    previousBuild.cancel();
+                }
+            }
+        }
+
+        try {
+            final List<FutureTask<T>> futures = new ArrayList<>(taskCount);
+            for (Callable<T> task : tasks) {
+                futures.add(new FutureTask<T>(task));
+            }
+            build.setFutures(futures);
+
+            for (int i = 1; i < taskCount; i++) {
+                executor.execute(futures.get(i));
+            }
+
+            //The tasks not started yet are run on the calling thread rather than waited for.
+            for (FutureTask<T> future : futures) {
+                if (build.isCancelled()) {
+                    throw new CancellationException("Mission build replaced by a newer one.");
+                }
+                future.run();
+            }
+
+            final List<T> results = new ArrayList<>(taskCount);
+            for (Future<T> future : futures) {
+                results.add(getUninterruptibly(future));
+            }
+            return results;
+        } finally {
+            if (build.isCancelled()) {
+                //Clear the interruption of the task the newer build may have cancelled on this thread.
+                Thread.interrupted();
+            }
+
+            build.cancel();
+            if (owner != null) {
+                synchronized (buildsInFlight) {
+                    if (buildsInFlight.get(owner) == build) {
+                        buildsInFlight.remove(owner);
+                    }
+                }
+            }
+        }
+    }
+
+    private static <T> T getUninterruptibly(Future<T> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static class Build {
+        private boolean cancelled;
+        private List<? extends Future<?>> futures;
+
+        synchronized void setFutures(List<? extends Future<?>> futures) {
+            this.futures = futures;
+            if (cancelled) {
+                cancelFutures();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            cancelFutures();
+        }
+
+        private void cancelFutures() {
+            if (futures != null) {
+                for (Future<?> future : futures) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+}
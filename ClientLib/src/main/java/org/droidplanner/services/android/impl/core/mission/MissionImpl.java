@@ -16,7 +16,6 @@ import com.o3dr.services.android.lib.drone.property.Parameter;
 
 import org.droidplanner.services.android.impl.core.drone.DroneInterfaces.DroneEventsType;
 import org.droidplanner.services.android.impl.core.drone.DroneVariable;
-import org.droidplanner.services.android.impl.core.drone.autopilot.apm.APMConstants;
 import org.droidplanner.services.android.impl.core.drone.autopilot.generic.GenericMavLinkDrone;
 import org.droidplanner.services.android.impl.core.helpers.geoTools.GeoTools;
 import org.droidplanner.services.android.impl.core.mission.commands.ChangeSpeedImpl;
@@ -30,32 +29,135 @@ import org.droidplanner.services.android.impl.utils.MissionUtils;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * This implements a mavlink mission. A mavlink mission is a set of
  * commands/mission items to be carried out by the drone.
+ * <p/>
+ * Edits can be grouped with {@link #beginChanges()} and {@link #commitChanges()}, so they're published as a
+ * single MISSION_UPDATE. On publication, only the range of mission items which changed since the previous
+ * publication is repacked into component items, and described by {@link #getLastChange()}.
  */
 public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
 
+    /**
+     * Describes the component items updated by the last published change, as a single range replaced by
+     * new component items.
+     */
+    public static final class ComponentsChange {
+        private final boolean isReset;
+        private final int start;
+        private final int removedCount;
+        private final int insertedCount;
+
+        ComponentsChange(boolean isReset, int start, int removedCount, int insertedCount) {
+            this.isReset = isReset;
+            this.start = start;
+            this.removedCount = removedCount;
+            this.insertedCount = insertedCount;
+        }
+
+        /**
+         * @return true if all the component items were rebuilt.
+         */
+        public boolean isReset() {
+            return isReset;
+        }
+
+        /**
+         * @return index of the first updated component item.
+         */
+        public int getStart() {
+            return start;
+        }
+
+        /**
+         * @return count of component items replaced, starting at {@link #getStart()}.
+         */
+        public int getRemovedCount() {
+            return removedCount;
+        }
+
+        /**
+         * @return count of component items replacing them.
+         */
+        public int getInsertedCount() {
+            return insertedCount;
+        }
+    }
+
     /**
      * Stores the set of mission items belonging to this mission.
      */
-    private List<MissionItemImpl> items = new ArrayList<MissionItemImpl>();
+    private final List<MissionItemImpl> items = new ArrayList<MissionItemImpl>();
     private final List<MissionItemImpl> componentItems = new ArrayList<>();
 
+    /**
+     * Position of each mission item, looked up by identity. Rebuilt lazily after the items were shifted.
+     */
+    private final Map<MissionItemImpl, Integer> itemsIndex = new IdentityHashMap<>();
+    private boolean isItemsIndexValid = true;
+
+    /*
+     * Mission items as of the last published change, and their component items.
+     */
+    private final List<MissionItemImpl> publishedItems = new ArrayList<>();
+    private final List<List<MissionItemImpl>> publishedComponents = new ArrayList<>();
+
+    private final Set<MissionItemImpl> modifiedItems = Collections.newSetFromMap(new IdentityHashMap<MissionItemImpl, Boolean>());
+
+    private int changesDepth;
+    private boolean hasPendingChanges;
+    private boolean isResetPending;
+    private ComponentsChange lastChange = new ComponentsChange(true, 0, 0, 0);
+    private int componentsVersion;
+
     public MissionImpl(GenericMavLinkDrone myDrone) {
         super(myDrone);
     }
 
+    /**
+     * Starts a group of edits. The mission update is published once the matching {@link #commitChanges()}
+     * is called. Groups can be nested.
+     */
+    public void beginChanges() {
+        changesDepth++;
+    }
+
+    /**
+     * Ends a group of edits started by {@link #beginChanges()}, and publishes the mission update if it was
+     * the outermost group.
+     */
+    public void commitChanges() {
+        if (changesDepth == 0) {
+            throw new IllegalStateException("commitChanges() called without beginChanges().");
+        }
+
+        changesDepth--;
+        if (changesDepth == 0 && hasPendingChanges) {
+            publishChanges();
+        }
+    }
+
     /**
      * Removes a waypoint from the mission's set of mission items.
      *
      * @param item waypoint to remove
      */
     public void removeWaypoint(MissionItemImpl item) {
-        items.remove(item);
-        notifyMissionUpdate();
+        final int index = indexOf(item);
+        if (index == -1) {
+            return;
+        }
+
+        items.remove(index);
+        itemsIndex.remove(item);
+        onItemsShifted(index);
     }
 
     /**
@@ -64,8 +166,28 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
      * @param toRemove list of waypoints to remove
      */
     public void removeWaypoints(List<MissionItemImpl> toRemove) {
-        items.removeAll(toRemove);
-        notifyMissionUpdate();
+        final Set<MissionItemImpl> removed = Collections.newSetFromMap(new IdentityHashMap<MissionItemImpl, Boolean>());
+        removed.addAll(toRemove);
+
+        final List<MissionItemImpl> keptItems = new ArrayList<>(items.size());
+        int firstRemoved = -1;
+        final int size = items.size();
+        for (int i = 0; i < size; i++) {
+            final MissionItemImpl item = items.get(i);
+            if (!removed.contains(item)) {
+                keptItems.add(item);
+            } else if (firstRemoved == -1) {
+                firstRemoved = i;
+            }
+        }
+
+        if (firstRemoved != -1) {
+            items.clear();
+            items.addAll(keptItems);
+            onItemsShifted(firstRemoved);
+        } else {
+            onItemsChanged();
+        }
     }
 
     /**
@@ -74,13 +196,17 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
      * @param missionItemImpls list of waypoints to add
      */
     public void addMissionItems(List<MissionItemImpl> missionItemImpls) {
-        items.addAll(missionItemImpls);
-        notifyMissionUpdate();
+        for (MissionItemImpl item : missionItemImpls) {
+            appendItem(item);
+        }
+        onItemsChanged();
     }
 
     public void clearMissionItems() {
         items.clear();
-        notifyMissionUpdate();
+        itemsIndex.clear();
+        isItemsIndexValid = true;
+        onItemsChanged();
     }
 
     /**
@@ -89,21 +215,22 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
      * @param missionItemImpl waypoint to add
      */
     public void addMissionItem(MissionItemImpl missionItemImpl) {
-        items.add(missionItemImpl);
-        notifyMissionUpdate();
+        appendItem(missionItemImpl);
+        onItemsChanged();
     }
 
     public void addMissionItem(int index, MissionItemImpl missionItemImpl) {
         items.add(index, missionItemImpl);
-        notifyMissionUpdate();
+        onItemsShifted(index);
     }
 
     /**
-     * Signals that this mission object was updated.
+     * Signals that this mission object was updated. All the component items are rebuilt, as the mission
+     * items may have been modified in place.
      */
     public void notifyMissionUpdate() {
-        updateComponentItems();
-        myDrone.notifyDroneEvent(DroneEventsType.MISSION_UPDATE);
+        isResetPending = true;
+        onItemsChanged();
     }
 
     /**
@@ -113,14 +240,9 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
      * @param newItem new mission item
      */
     public void replace(MissionItemImpl oldItem, MissionItemImpl newItem) {
-        final int index = items.indexOf(oldItem);
-        if (index == -1) {
-            return;
+        if (replaceItem(oldItem, newItem)) {
+            onItemsChanged();
         }
-
-        items.remove(index);
-        items.add(index, newItem);
-        notifyMissionUpdate();
     }
 
     public void replaceAll(List<Pair<MissionItemImpl, MissionItemImpl>> updatesList) {
@@ -130,21 +252,11 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
 
         boolean wasUpdated = false;
         for (Pair<MissionItemImpl, MissionItemImpl> updatePair : updatesList) {
-            final MissionItemImpl oldItem = updatePair.first;
-            final int index = items.indexOf(oldItem);
-            if (index == -1) {
-                continue;
-            }
-
-            final MissionItemImpl newItem = updatePair.second;
-            items.remove(index);
-            items.add(index, newItem);
-
-            wasUpdated = true;
+            wasUpdated |= replaceItem(updatePair.first, updatePair.second);
         }
 
         if (wasUpdated) {
-            notifyMissionUpdate();
+            onItemsChanged();
         }
     }
 
@@ -153,7 +265,147 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
      */
     public void reverse() {
         Collections.reverse(items);
-        notifyMissionUpdate();
+        onItemsShifted(0);
+    }
+
+    /**
+     * @return the component items updated by the last published change.
+     */
+    public ComponentsChange getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * @return a counter bumped every time a change of the component items is published.
+     */
+    public int getComponentsVersion() {
+        return componentsVersion;
+    }
+
+    private void appendItem(MissionItemImpl item) {
+        if (isItemsIndexValid && !itemsIndex.containsKey(item)) {
+            itemsIndex.put(item, items.size());
+        }
+        items.add(item);
+    }
+
+    private boolean replaceItem(MissionItemImpl oldItem, MissionItemImpl newItem) {
+        final int index = indexOf(oldItem);
+        if (index == -1) {
+            return false;
+        }
+
+        if (oldItem == newItem) {
+            //Updated in place, so it can't be told apart from the published item.
+            modifiedItems.add(newItem);
+            return true;
+        }
+
+        items.set(index, newItem);
+        itemsIndex.remove(oldItem);
+        if (!itemsIndex.containsKey(newItem)) {
+            itemsIndex.put(newItem, index);
+        } else {
+            isItemsIndexValid = false;
+        }
+        return true;
+    }
+
+    private int indexOf(MissionItemImpl item) {
+        if (!isItemsIndexValid) {
+            itemsIndex.clear();
+            final int size = items.size();
+            for (int i = size - 1; i >= 0; i--) {
+                itemsIndex.put(items.get(i), i);
+            }
+            isItemsIndexValid = true;
+        }
+
+        final Integer index = itemsIndex.get(item);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Called after the items from the given index were shifted, or reordered.
+     */
+    private void onItemsShifted(int fromIndex) {
+        if (fromIndex < items.size()) {
+            isItemsIndexValid = false;
+        }
+        onItemsChanged();
+    }
+
+    private void onItemsChanged() {
+        hasPendingChanges = true;
+        if (changesDepth == 0) {
+            publishChanges();
+        }
+    }
+
+    /**
+     * Repacks the component items of the mission items which changed since the previous publication, and
+     * signals the mission update.
+     */
+    private void publishChanges() {
+        hasPendingChanges = false;
+
+        final boolean isReset = isResetPending;
+        if (isResetPending) {
+            isResetPending = false;
+            publishedItems.clear();
+            publishedComponents.clear();
+            componentItems.clear();
+        }
+
+        //Common head and tail, by identity, between the published items and the current ones.
+        final int publishedCount = publishedItems.size();
+        final int count = items.size();
+        int head = 0;
+        while (head < publishedCount && head < count && isPublished(head, items.get(head))) {
+            head++;
+        }
+        int tail = 0;
+        while (tail < publishedCount - head && tail < count - head
+            && isPublished(publishedCount - 1 - tail, items.get(count - 1 - tail))) {
+            tail++;
+        }
+        modifiedItems.clear();
+
+        int componentStart = 0;
+        for (int i = 0; i < head; i++) {
+            componentStart += publishedComponents.get(i).size();
+        }
+        int removedComponents = 0;
+        for (int i = head; i < publishedCount - tail; i++) {
+            removedComponents += publishedComponents.get(i).size();
+        }
+
+        final List<MissionItemImpl> changedItems = items.subList(head, count - tail);
+        final List<List<MissionItemImpl>> changedComponents = new ArrayList<>(changedItems.size());
+        final List<MissionItemImpl> insertedComponents = new ArrayList<>();
+        for (MissionItemImpl item : changedItems) {
+            final List<MissionItemImpl> components = MissionUtils.processMavLinkMessages(this, item.packMissionItem());
+            changedComponents.add(components);
+            insertedComponents.addAll(components);
+        }
+
+        publishedItems.subList(head, publishedCount - tail).clear();
+        publishedItems.addAll(head, changedItems);
+        publishedComponents.subList(head, publishedCount - tail).clear();
+        publishedComponents.addAll(head, changedComponents);
+
+        componentItems.subList(componentStart, componentStart + removedComponents).clear();
+        componentItems.addAll(componentStart, insertedComponents);
+        lastChange = new ComponentsChange(isReset, componentStart, removedComponents, insertedComponents.size());
+        componentsVersion++;
+
+        if (myDrone != null) {
+            myDrone.notifyDroneEvent(DroneEventsType.MISSION_UPDATE);
+        }
+    }
+
+    private boolean isPublished(int publishedIndex, MissionItemImpl item) {
+        return publishedItems.get(publishedIndex) == item && !modifiedItems.contains(item);
     }
 
     public void onWriteWaypoints(msg_mission_ack msg) {
@@ -168,12 +420,12 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
     }
 
     public int getOrder(MissionItemImpl waypoint) {
-        return items.indexOf(waypoint) + 1; // plus one to account for the fact
+        return indexOf(waypoint) + 1; // plus one to account for the fact
         // that this is an index
     }
 
     public double getAltitudeDiffFromPreviousItem(SpatialCoordItem waypoint) throws IllegalArgumentException {
-        int i = items.indexOf(waypoint);
+        int i = indexOf(waypoint);
         if (i > 0) {
             MissionItemImpl previous = items.get(i - 1);
             if (previous instanceof SpatialCoordItem) {
@@ -186,7 +438,7 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
 
     public double getDistanceFromLastWaypoint(SpatialCoordItem waypoint)
             throws IllegalArgumentException {
-        int i = items.indexOf(waypoint);
+        int i = indexOf(waypoint);
         if (i > 0) {
             MissionItemImpl previous = items.get(i - 1);
             if (previous instanceof SpatialCoordItem) {
@@ -198,7 +450,7 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
     }
 
     public boolean hasItem(MissionItemImpl item) {
-        return items.contains(item);
+        return indexOf(item) != -1;
     }
 
     public void onMissionReceived(List<msg_mission_item> msgs) {
@@ -207,8 +459,9 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
             msgs.remove(0); // Remove Home waypoint
             items.clear();
             items.addAll(MissionUtils.processMavLinkMessages(this, msgs));
+            isItemsIndexValid = false;
             myDrone.notifyDroneEvent(DroneEventsType.MISSION_RECEIVED);
-            notifyMissionUpdate();
+            onItemsChanged();
         }
     }
 
@@ -218,8 +471,9 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
             msgs.remove(0); // Remove Home waypoint
             items.clear();
             items.addAll(MissionUtils.processMavLinkMessages(this, msgs));
+            isItemsIndexValid = false;
             myDrone.notifyDroneEvent(DroneEventsType.MISSION_RECEIVED);
-            notifyMissionUpdate();
+            onItemsChanged();
         }
     }
 
@@ -229,24 +483,6 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
     public void sendMissionToAPM() {
         List<msg_mission_item> msgMissionItems = getMsgMissionItems();
         myDrone.getWaypointManager().writeWaypoints(msgMissionItems);
-        updateComponentItems(msgMissionItems);
-    }
-
-    private void updateComponentItems(){
-        List<msg_mission_item> msgMissionItems = getMsgMissionItems();
-        updateComponentItems(msgMissionItems);
-    }
-
-    private void updateComponentItems(List<msg_mission_item> msgMissionItems) {
-        componentItems.clear();
-        if(msgMissionItems == null || msgMissionItems.isEmpty()) {
-            return;
-        }
-        msg_mission_item firstItem = msgMissionItems.get(0);
-        if(firstItem.seq == APMConstants.HOME_WAYPOINT_INDEX) {
-            msgMissionItems.remove(0); // Remove Home waypoint
-        }
-        componentItems.addAll(MissionUtils.processMavLinkMessages(this, msgMissionItems));
     }
 
     public msg_mission_item packHomeMavlink() {
@@ -305,8 +541,9 @@ public class MissionImpl extends DroneVariable<GenericMavLinkDrone> {
         items.clear();
         items.addAll(createDronie(currentPosition,
                 GeoTools.newCoordFromBearingAndDistance(currentPosition, bearing, 50.0)));
+        isItemsIndexValid = false;
         sendMissionToAPM();
-        notifyMissionUpdate();
+        onItemsChanged();
 
         return bearing;
     }
@@ -0,0 +1,316 @@
+package org.droidplanner.services.android.impl.core.mission;
+
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import org.droidplanner.services.android.impl.core.helpers.geoTools.GeoTools;
+import org.droidplanner.services.android.impl.core.helpers.geoTools.Simplify;
+import org.droidplanner.services.android.impl.core.srtm.ElevationSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the waypoints of a mission into terrain following ones.
+ * <p/>
+ * The altitude of each waypoint relative to home is taken as the height above the terrain to keep. Each leg
+ * between two waypoints is sampled at the given interval, and every sample becomes a waypoint in the
+ * {@link MAV_FRAME#MAV_FRAME_GLOBAL} frame, at the terrain elevation plus the height interpolated along the
+ * leg. The samples are then simplified away where the terrain is flat enough for the straight line between
+ * the kept ones to stay within the altitude tolerance. If the mission still has more items than the autopilot
+ * can store, the tolerance is doubled until it fits.
+ * <p/>
+ * The other mission items are kept as they are, with the do jump targets following the items they pointed to.
+ * Where the terrain is unknown, the waypoints stay relative to home.
+ */
+public class TerrainFollowingTransform {
+
+    public static final double DEFAULT_SAMPLE_INTERVAL = 30; // meters
+    public static final double DEFAULT_ALTITUDE_TOLERANCE = 2; // meters
+    public static final int DEFAULT_MAX_ITEM_COUNT = 700;
+
+    private static final double MAX_ALTITUDE_TOLERANCE = 1000; // meters
+
+    private final ElevationSource elevationSource;
+    private double sampleInterval = DEFAULT_SAMPLE_INTERVAL;
+    private double altitudeTolerance = DEFAULT_ALTITUDE_TOLERANCE;
+    private int maxItemCount = DEFAULT_MAX_ITEM_COUNT;
+
+    public TerrainFollowingTransform(ElevationSource elevationSource) {
+        this.elevationSource = elevationSource;
+    }
+
+    /**
+     * Sets the distance between the terrain samples along each leg, in meters.
+     */
+    public void setSampleInterval(double sampleInterval) {
+        if (sampleInterval <= 0) {
+            throw new IllegalArgumentException("Invalid sample interval " + sampleInterval);
+        }
+        this.sampleInterval = sampleInterval;
+    }
+
+    /**
+     * Sets how far, in meters, the path may deviate vertically from the sampled one when samples are dropped.
+     */
+    public void setAltitudeTolerance(double altitudeTolerance) {
+        if (altitudeTolerance < 0) {
+            throw new IllegalArgumentException("Invalid altitude tolerance " + altitudeTolerance);
+        }
+        this.altitudeTolerance = altitudeTolerance;
+    }
+
+    /**
+     * Sets the count of mission items, home included, the autopilot can store.
+     */
+    public void setMaxItemCount(int maxItemCount) {
+        this.maxItemCount = maxItemCount;
+    }
+
+    public List<msg_mission_item> transform(MissionImpl mission) {
+        return transform(mission.getMsgMissionItems());
+    }
+
+    /**
+     * @param items the mission items, as packed for the autopilot: the home first, then the items in sequence
+     *              order.
+     * @return new mission items, in sequence order. The given ones are left unchanged.
+     */
+    public List<msg_mission_item> transform(List<msg_mission_item> items) {
+        final List<Leg> legs = new ArrayList<>();
+        final Leg[] itemLegs = new Leg[items.size()];
+
+        //Legs ending on each waypoint, with the samples along them.
+        int sampleCount = 0;
+        Leg previousLeg = null;
+        for (int i = 1; i < items.size(); i++) {
+            final msg_mission_item item = items.get(i);
+            if (!isNavigationItem(item)) {
+                continue;
+            }
+
+            if (!isRelativeWaypoint(item)) {
+                previousLeg = null;
+                continue;
+            }
+
+            final Leg leg = new Leg(item, previousLeg, sampleInterval, sampleCount);
+            sampleCount += leg.getSampleCount();
+            legs.add(leg);
+            itemLegs[i] = leg;
+            previousLeg = leg;
+        }
+
+        final double[] latitudes = new double[sampleCount];
+        final double[] longitudes = new double[sampleCount];
+        for (Leg leg : legs) {
+            leg.fillSampleCoordinates(latitudes, longitudes);
+        }
+
+        final float[] elevations = new float[sampleCount];
+        elevationSource.getElevations(latitudes, longitudes, elevations);
+        for (Leg leg : legs) {
+            leg.setSampleElevations(elevations);
+        }
+
+        double tolerance = altitudeTolerance;
+        List<msg_mission_item> transformedItems = buildItems(items, itemLegs, tolerance);
+        while (transformedItems.size() > maxItemCount && tolerance < MAX_ALTITUDE_TOLERANCE) {
+            tolerance = Math.max(tolerance * 2, 1);
+            transformedItems = buildItems(items, itemLegs, tolerance);
+        }
+        return transformedItems;
+    }
+
+    private static List<msg_mission_item> buildItems(List<msg_mission_item> items, Leg[] itemLegs,
+                                                     double tolerance) {
+        final List<msg_mission_item> transformedItems = new ArrayList<>(items.size());
+        final int[] newIndexes = new int[items.size()];
+
+        for (int i = 0; i < items.size(); i++) {
+            final msg_mission_item item = items.get(i);
+            final Leg leg = itemLegs[i];
+            if (leg != null) {
+                leg.addIntermediateItems(transformedItems, tolerance);
+            }
+
+            newIndexes[i] = transformedItems.size();
+            final msg_mission_item copy = copy(item);
+            if (leg != null) {
+                leg.setEndAltitude(copy);
+            }
+            transformedItems.add(copy);
+        }
+
+        for (int i = 0; i < transformedItems.size(); i++) {
+            final msg_mission_item item = transformedItems.get(i);
+            item.seq = i;
+
+            if (item.command == MAV_CMD.MAV_CMD_DO_JUMP) {
+                final int target = Math.round(item.param1);
+                if (target >= 0 && target < newIndexes.length) {
+                    item.param1 = newIndexes[target];
+                }
+            }
+        }
+        return transformedItems;
+    }
+
+    private static boolean isNavigationItem(msg_mission_item item) {
+        return item.command < MAV_CMD.MAV_CMD_NAV_LAST;
+    }
+
+    private static boolean isRelativeWaypoint(msg_mission_item item) {
+        return item.command == MAV_CMD.MAV_CMD_NAV_WAYPOINT
+                && (item.frame == MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT
+                || item.frame == MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT_INT);
+    }
+
+    private static msg_mission_item copy(msg_mission_item item) {
+        final msg_mission_item copy = new msg_mission_item();
+        copy.param1 = item.param1;
+        copy.param2 = item.param2;
+        copy.param3 = item.param3;
+        copy.param4 = item.param4;
+        copy.x = item.x;
+        copy.y = item.y;
+        copy.z = item.z;
+        copy.seq = item.seq;
+        copy.command = item.command;
+        copy.target_system = item.target_system;
+        copy.target_component = item.target_component;
+        copy.frame = item.frame;
+        copy.current = item.current;
+        copy.autocontinue = item.autocontinue;
+        return copy;
+    }
+
+    /**
+     * Leg from the previous waypoint to a waypoint. Its samples are the points along it at the sample
+     * interval, the waypoint included. A leg without a previous waypoint only has the waypoint as sample.
+     */
+    private static class Leg {
+        private final msg_mission_item end;
+        private final Leg previousLeg;
+        private final double startLatitude;
+        private final double startLongitude;
+        private final double startHeight;
+        private final double length;
+        private final int sampleCount;
+        private final int sampleOffset;
+
+        private double[] distances;
+        private float[] elevations;
+
+        Leg(msg_mission_item end, Leg previousLeg, double sampleInterval, int sampleOffset) {
+            this.end = end;
+            this.previousLeg = previousLeg;
+            this.sampleOffset = sampleOffset;
+
+            if (previousLeg == null) {
+                startLatitude = end.x;
+                startLongitude = end.y;
+                startHeight = end.z;
+                length = 0;
+                sampleCount = 1;
+            } else {
+                startLatitude = previousLeg.end.x;
+                startLongitude = previousLeg.end.y;
+                startHeight = previousLeg.end.z;
+                length = GeoTools.getDistance(new LatLong(startLatitude, startLongitude), new LatLong(end.x, end.y));
+                sampleCount = Math.max(1, (int) Math.ceil(length / sampleInterval));
+            }
+        }
+
+        int getSampleCount() {
+            return sampleCount;
+        }
+
+        void fillSampleCoordinates(double[] latitudes, double[] longitudes) {
+            for (int k = 1; k <= sampleCount; k++) {
+                final double ratio = (double) k / sampleCount;
+                latitudes[sampleOffset + k - 1] = startLatitude + ratio * (end.x - startLatitude);
+                longitudes[sampleOffset + k - 1] = startLongitude + ratio * (end.y - startLongitude);
+            }
+        }
+
+        void setSampleElevations(float[] allElevations) {
+            elevations = new float[sampleCount];
+            System.arraycopy(allElevations, sampleOffset, elevations, 0, sampleCount);
+        }
+
+        double getEndElevation() {
+            return elevations == null ? Double.NaN : elevations[sampleCount - 1];
+        }
+
+        private double getHeight(int k) {
+            return startHeight + (double) k / sampleCount * (end.z - startHeight);
+        }
+
+        void setEndAltitude(msg_mission_item item) {
+            final double elevation = getEndElevation();
+            if (!Double.isNaN(elevation)) {
+                item.frame = MAV_FRAME.MAV_FRAME_GLOBAL;
+                item.z = (float) (elevation + end.z);
+            }
+        }
+
+        /**
+         * Adds the samples between the previous waypoint and this one which are needed to follow the terrain
+         * within the tolerance. The samples where the terrain is unknown are left out.
+         */
+        void addIntermediateItems(List<msg_mission_item> items, double tolerance) {
+            if (sampleCount < 2) {
+                return;
+            }
+
+            //Profile of the known samples, from the previous waypoint to this one.
+            final double[] profileDistances = new double[sampleCount + 1];
+            final double[] profileAltitudes = new double[sampleCount + 1];
+            final int[] profileSamples = new int[sampleCount + 1];
+            int profileSize = 0;
+            final double startElevation = previousLeg == null ? Double.NaN : previousLeg.getEndElevation();
+            if (!Double.isNaN(startElevation)) {
+                profileDistances[profileSize] = 0;
+                profileAltitudes[profileSize] = startElevation + startHeight;
+                profileSamples[profileSize++] = 0;
+            }
+            for (int k = 1; k <= sampleCount; k++) {
+                if (!Float.isNaN(elevations[k - 1])) {
+                    profileDistances[profileSize] = length * k / sampleCount;
+                    profileAltitudes[profileSize] = elevations[k - 1] + getHeight(k);
+                    profileSamples[profileSize++] = k;
+                }
+            }
+
+            final boolean[] kept = Simplify.simplifyProfile(trim(profileDistances, profileSize),
+                    trim(profileAltitudes, profileSize), tolerance);
+            for (int p = 0; p < profileSize; p++) {
+                final int k = profileSamples[p];
+                if (!kept[p] || k == 0 || k == sampleCount) {
+                    continue;
+                }
+
+                final double ratio = (double) k / sampleCount;
+                final msg_mission_item item = new msg_mission_item();
+                item.command = MAV_CMD.MAV_CMD_NAV_WAYPOINT;
+                item.frame = MAV_FRAME.MAV_FRAME_GLOBAL;
+                item.autocontinue = 1;
+                item.target_system = end.target_system;
+                item.target_component = end.target_component;
+                item.x = (float) (startLatitude + ratio * (end.x - startLatitude));
+                item.y = (float) (startLongitude + ratio * (end.y - startLongitude));
+                item.z = (float) profileAltitudes[p];
+                items.add(item);
+            }
+        }
+
+        private static double[] trim(double[] values, int size) {
+            final double[] trimmed = new double[size];
+            System.arraycopy(values, 0, trimmed, 0, size);
+            return trimmed;
+        }
+    }
+}
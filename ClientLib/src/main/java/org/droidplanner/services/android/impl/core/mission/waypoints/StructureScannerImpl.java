@@ -6,6 +6,7 @@ import com.o3dr.services.android.lib.coordinate.LatLong;
 import com.o3dr.services.android.lib.coordinate.LatLongAlt;
 
 import org.droidplanner.services.android.impl.core.helpers.geoTools.GeoTools;
+import org.droidplanner.services.android.impl.core.mission.MissionBuildEngine;
 import org.droidplanner.services.android.impl.core.mission.MissionImpl;
 import org.droidplanner.services.android.impl.core.mission.MissionItemImpl;
 import org.droidplanner.services.android.impl.core.mission.MissionItemType;
@@ -13,10 +14,13 @@ import org.droidplanner.services.android.impl.core.mission.survey.SurveyImpl;
 import org.droidplanner.services.android.impl.core.polygon.Polygon;
 import org.droidplanner.services.android.impl.core.survey.CameraInfo;
 import org.droidplanner.services.android.impl.core.survey.SurveyData;
+import org.droidplanner.services.android.impl.core.survey.grid.Grid;
 import org.droidplanner.services.android.impl.core.survey.grid.GridBuilder;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 
 public class StructureScannerImpl extends SpatialCoordItem {
     private double radius = 10.0;
@@ -69,19 +73,30 @@ public class StructureScannerImpl extends SpatialCoordItem {
 
         survey.setAltitude(getTopHeight());
 
-        try {
-            survey.update(0.0, survey.getAltitude(), survey.getOverlap(), survey.getSidelap(), survey.getLockOrientation());
-            GridBuilder grid = new GridBuilder(polygon, survey, corner);
-            for (LatLong point : grid.generate(false).gridPoints) {
-                list.add(SurveyImpl.packSurveyPoint(point, getTopHeight()));
-            }
+        survey.update(0.0, survey.getAltitude(), survey.getOverlap(), survey.getSidelap(), survey.getLockOrientation());
+        final GridBuilder grid = new GridBuilder(polygon, survey, corner);
+
+        survey.update(90.0, survey.getAltitude(), survey.getOverlap(), survey.getSidelap(), survey.getLockOrientation());
+        final GridBuilder grid2 = new GridBuilder(polygon, survey, corner);
+
+        //Both hatch directions are generated in parallel.
+        List<Callable<Grid>> tasks = new ArrayList<Callable<Grid>>(2);
+        for (final GridBuilder builder : new GridBuilder[]{grid, grid2}) {
+            tasks.add(new Callable<Grid>() {
+                @Override
+                public Grid call() throws Exception {
+                    return builder.generate(false);
+                }
+            });
+        }
 
-            survey.update(90.0, survey.getAltitude(), survey.getOverlap(), survey.getSidelap(), survey.getLockOrientation());
-            GridBuilder grid2 = new GridBuilder(polygon, survey, corner);
-            for (LatLong point : grid2.generate(false).gridPoints) {
-                list.add(SurveyImpl.packSurveyPoint(point, getTopHeight()));
+        try {
+            for (Grid hatch : MissionBuildEngine.invokeAll(tasks)) {
+                for (LatLong point : hatch.gridPoints) {
+                    list.add(SurveyImpl.packSurveyPoint(point, getTopHeight()));
+                }
             }
-        } catch (Exception e) { // Should never fail, since it has good polygons
+        } catch (ExecutionException e) { // Should never fail, since it has good polygons
         }
 
     }
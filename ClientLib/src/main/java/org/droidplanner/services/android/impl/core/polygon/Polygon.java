@@ -12,6 +12,7 @@ import java.util.List;
 public class Polygon {
 
 	private List<LatLong> points = new ArrayList<LatLong>();
+	private List<List<LatLong>> holes = new ArrayList<List<LatLong>>();
 
 	public void addPoints(List<LatLong> pointList) {
 		for (LatLong point : pointList) {
@@ -25,6 +26,18 @@ public class Polygon {
 
 	public void clearPolygon() {
 		points.clear();
+		holes.clear();
+	}
+
+	/**
+	 * Adds an area to exclude from the polygon.
+	 */
+	public void addHole(List<LatLong> holePoints) {
+		holes.add(new ArrayList<LatLong>(holePoints));
+	}
+
+	public List<List<LatLong>> getHoles() {
+		return holes;
 	}
 
 	public List<LatLong> getPoints() {
@@ -33,13 +46,28 @@ public class Polygon {
 
 	public List<LineLatLong> getLines() {
 		List<LineLatLong> list = new ArrayList<LineLatLong>();
-		for (int i = 0; i < points.size(); i++) {
-			int endIndex = (i == 0) ? points.size() - 1 : i - 1;
-			list.add(new LineLatLong(points.get(i), points.get(endIndex)));
+		addLines(points, list);
+		return list;
+	}
+
+	/**
+	 * @return the edges of the outline, followed by the edges of the holes.
+	 */
+	public List<LineLatLong> getLinesWithHoles() {
+		List<LineLatLong> list = getLines();
+		for (List<LatLong> hole : holes) {
+			addLines(hole, list);
 		}
 		return list;
 	}
 
+	private static void addLines(List<LatLong> ring, List<LineLatLong> list) {
+		for (int i = 0; i < ring.size(); i++) {
+			int endIndex = (i == 0) ? ring.size() - 1 : i - 1;
+			list.add(new LineLatLong(ring.get(i), ring.get(endIndex)));
+		}
+	}
+
 	public void movePoint(LatLong coord, int number) {
 		points.get(number).set(coord);
 	}
@@ -0,0 +1,139 @@
+package org.droidplanner.services.android.impl.core.srtm;
+
+import java.util.Arrays;
+
+/**
+ * Caches the elevations of another source, for callers which query the same area over and over, like the
+ * survey previews.
+ * <p/>
+ * Coordinates are snapped to a grid of the given resolution, and each grid node keeps a slot of a fixed size
+ * table picked from its hash. A node evicts the one which had its slot, so the cache never grows beyond the
+ * table.
+ * <p/>
+ * Unknown elevations aren't cached: the SRTM source reports NaN while a tile is downloading or until its
+ * download is retried, and the elevation is asked for again on the next lookup.
+ */
+public class CachedElevationSource extends ElevationSource {
+
+	/**
+	 * One arc second, the resolution of the finest SRTM data.
+	 */
+	public static final double DEFAULT_RESOLUTION = 1d / 3600d;
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+
+	private static final long EMPTY_SLOT = Long.MIN_VALUE;
+
+	private final ElevationSource source;
+	private final double resolution;
+
+	private final long[] keys;
+	private final float[] elevations;
+	private final int mask;
+
+	public CachedElevationSource(ElevationSource source) {
+		this(source, DEFAULT_RESOLUTION, DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * @param resolution grid resolution in degrees.
+	 * @param capacity   count of cached elevations, rounded up to a power of two.
+	 */
+	public CachedElevationSource(ElevationSource source, double resolution, int capacity) {
+		if (resolution <= 0 || capacity <= 0) {
+			throw new IllegalArgumentException("Invalid cache resolution or capacity.");
+		}
+
+		this.source = source;
+		this.resolution = resolution;
+
+		final int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		keys = new long[size];
+		elevations = new float[size];
+		mask = size - 1;
+		Arrays.fill(keys, EMPTY_SLOT);
+	}
+
+	@Override
+	public double getElevation(double latitude, double longitude) {
+		final long key = getKey(latitude, longitude);
+		final int slot = getSlot(key);
+		synchronized (this) {
+			if (keys[slot] == key) {
+				return elevations[slot];
+			}
+		}
+
+		final float elevation = (float) source.getElevation((key >> 32) * resolution, (int) key * resolution);
+		if (!Float.isNaN(elevation)) {
+			synchronized (this) {
+				keys[slot] = key;
+				elevations[slot] = elevation;
+			}
+		}
+		return elevation;
+	}
+
+	/**
+	 * Looks up the cached elevations, then the missing ones in a single batch from the source.
+	 */
+	@Override
+	public void getElevations(double[] latitudes, double[] longitudes, float[] out) {
+		final int count = out.length;
+		final int[] missingIndexes = new int[count];
+		final long[] missingKeys = new long[count];
+		int missingCount = 0;
+
+		synchronized (this) {
+			for (int i = 0; i < count; i++) {
+				final long key = getKey(latitudes[i], longitudes[i]);
+				final int slot = getSlot(key);
+				if (keys[slot] == key) {
+					out[i] = elevations[slot];
+				} else {
+					missingIndexes[missingCount] = i;
+					missingKeys[missingCount++] = key;
+				}
+			}
+		}
+
+		if (missingCount == 0) {
+			return;
+		}
+
+		final double[] missingLatitudes = new double[missingCount];
+		final double[] missingLongitudes = new double[missingCount];
+		for (int i = 0; i < missingCount; i++) {
+			missingLatitudes[i] = (missingKeys[i] >> 32) * resolution;
+			missingLongitudes[i] = (int) missingKeys[i] * resolution;
+		}
+
+		final float[] missingElevations = new float[missingCount];
+		source.getElevations(missingLatitudes, missingLongitudes, missingElevations);
+
+		synchronized (this) {
+			for (int i = 0; i < missingCount; i++) {
+				out[missingIndexes[i]] = missingElevations[i];
+				if (!Float.isNaN(missingElevations[i])) {
+					final int slot = getSlot(missingKeys[i]);
+					keys[slot] = missingKeys[i];
+					elevations[slot] = missingElevations[i];
+				}
+			}
+		}
+	}
+
+	private long getKey(double latitude, double longitude) {
+		final long row = Math.round(latitude / resolution);
+		final long column = Math.round(longitude / resolution);
+		return (row << 32) ^ (column & 0xFFFFFFFFL);
+	}
+
+	private int getSlot(long key) {
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	public synchronized void clear() {
+		Arrays.fill(keys, EMPTY_SLOT);
+	}
+}
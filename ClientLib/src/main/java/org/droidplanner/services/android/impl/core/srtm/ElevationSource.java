@@ -0,0 +1,25 @@
+package org.droidplanner.services.android.impl.core.srtm;
+
+/**
+ * Source of terrain elevation, such as the SRTM data or an elevation model provided by the caller.
+ */
+public abstract class ElevationSource {
+
+	/**
+	 * @return the terrain Above Sea Level (ASL) elevation in meters at the given WGS-84 coordinate, or NaN if
+	 * it's unknown.
+	 */
+	public abstract double getElevation(double latitude, double longitude);
+
+	/**
+	 * Looks up the elevations of a batch of coordinates. Sources for which a batch costs less than the single
+	 * lookups override it.
+	 *
+	 * @param out receives the elevation of each coordinate, or NaN if it's unknown.
+	 */
+	public void getElevations(double[] latitudes, double[] longitudes, float[] out) {
+		for (int i = 0; i < out.length; i++) {
+			out[i] = (float) getElevation(latitudes[i], longitudes[i]);
+		}
+	}
+}
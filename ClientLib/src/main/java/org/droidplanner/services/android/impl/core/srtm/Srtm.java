@@ -1,7 +1,7 @@
 package org.droidplanner.services.android.impl.core.srtm;
 
-public class Srtm {
-	private static final int SRTM_NaN = -32768;
+public class Srtm extends ElevationSource {
+	private static final int SRTM_NaN = SrtmTile.SRTM_NaN;
 
 	/**
 	 * Callback for progress reports
@@ -21,21 +21,83 @@ public class Srtm {
 		srtmData = new SrtmData(directory);
 	}
 
+	/**
+	 * @param directory
+	 *            Cache directory
+	 * @param mappedMemoryBudget
+	 *            Bytes of SRTM tiles to keep memory mapped
+	 */
+	public Srtm(String directory, long mappedMemoryBudget) {
+		srtmData = new SrtmData(directory, mappedMemoryBudget);
+	}
+
 	/**
 	 * Get SRTM elevation for geographic coordinate (WGS-84)
-	 * 
+	 *
 	 * Stores a cache of uncompressed SRTM data files at the default directory.
 	 * It need a Internet connection to fetch SRTM files if they are not in the
 	 * disk
-	 * 
+	 *
 	 * @return Above Sea Level (ASL) altitude in meters
 	 */
 	public int getData(double longitude, double latitude) {
+		final double elevation = getElevation(latitude, longitude);
+		return Double.isNaN(elevation) ? SRTM_NaN : (int) Math.round(elevation);
+	}
+
+	/**
+	 * Get SRTM elevation for geographic coordinate (WGS-84), interpolated
+	 * between the samples around it.
+	 *
+	 * @return Above Sea Level (ASL) altitude in meters, or NaN if unknown
+	 */
+	@Override
+	public double getElevation(double latitude, double longitude) {
 		try {
-			return srtmData.load(longitude, latitude, listner);
+			return srtmData.getElevation(longitude, latitude, listner);
 		} catch (Exception e) {
 			e.printStackTrace();
-			return SRTM_NaN; // SRTM NaN
+			return Double.NaN;
+		}
+	}
+
+	/**
+	 * Get SRTM elevations for a batch of geographic coordinates (WGS-84). The
+	 * tile lookup is only done when the coordinates move to another tile, so
+	 * batches along a path cost about one sample interpolation per point.
+	 *
+	 * @param out
+	 *            Receives the Above Sea Level (ASL) altitudes in meters, or NaN
+	 *            if unknown
+	 */
+	@Override
+	public void getElevations(double[] latitudes, double[] longitudes, float[] out) {
+		SrtmTile tile = null;
+		int tileLat = Integer.MIN_VALUE;
+		int tileLon = Integer.MIN_VALUE;
+		boolean tileFailed = false;
+
+		for (int i = 0; i < out.length; i++) {
+			final double latitude = latitudes[i];
+			final double longitude = longitudes[i];
+			final int lat = (int) Math.floor(latitude);
+			final int lon = (int) Math.floor(longitude);
+			if (lat != tileLat || lon != tileLon) {
+				tileLat = lat;
+				tileLon = lon;
+				try {
+					tile = srtmData.getTile(longitude, latitude, listner);
+					tileFailed = false;
+				} catch (Exception e) {
+					if (!tileFailed) {
+						e.printStackTrace();
+					}
+					tile = null;
+					tileFailed = true;
+				}
+			}
+
+			out[i] = tile == null ? Float.NaN : (float) tile.getElevation(latitude, longitude);
 		}
 	}
 
@@ -45,4 +107,4 @@ public class Srtm {
 	public void setListner(OnProgressListner listner) {
 		this.listner = listner;
 	}
-}
\ No newline at end of file
+}
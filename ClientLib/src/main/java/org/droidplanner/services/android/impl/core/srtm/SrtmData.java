@@ -2,63 +2,123 @@ package org.droidplanner.services.android.impl.core.srtm;
 
 import org.droidplanner.services.android.impl.core.srtm.Srtm.OnProgressListner;
 
-import java.io.BufferedInputStream;
 import java.io.File;
-import java.io.FileInputStream;
-import java.nio.ByteBuffer;
-import java.nio.ByteOrder;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
+/**
+ * Cache of the SRTM tiles, memory mapped from the files of the cache directory.
+ * <p/>
+ * The most recently used tiles are kept mapped, within a budget of mapped memory. Missing files are downloaded
+ * on first use; a tile which can't be loaded isn't tried again before some delay, so a batch over an area
+ * without data doesn't retry the download for every point.
+ */
 public class SrtmData {
-	private String path;
-	private File srtmFile;
-	private BufferedInputStream s;
+	public static final long DEFAULT_MAPPED_MEMORY_BUDGET = 64L * 1024 * 1024;
+	private static final long FAILED_TILE_RETRY_DELAY = 60 * 1000L;
+
+	private final String path;
+	private final long mappedMemoryBudget;
+	private long mappedMemory;
+
+	private final LinkedHashMap<Integer, SrtmTile> tiles = new LinkedHashMap<>(16, 0.75f, true);
+	private final Map<Integer, Long> failedTiles = new HashMap<>();
 
 	public SrtmData(String dir) {
+		this(dir, DEFAULT_MAPPED_MEMORY_BUDGET);
+	}
+
+	/**
+	 * @param mappedMemoryBudget bytes of tiles to keep mapped. The last used tile is kept even if it's larger.
+	 */
+	public SrtmData(String dir, long mappedMemoryBudget) {
 		path = dir;
+		this.mappedMemoryBudget = mappedMemoryBudget;
 	}
 
-	public int load(double lon, double lat, OnProgressListner listner) throws Exception {
-		int altitude;
+	/**
+	 * @return the elevation at the given coordinate, or NaN if it's unknown.
+	 */
+	public double getElevation(double lon, double lat, OnProgressListner listner) throws Exception {
+		final SrtmTile tile = getTile(lon, lat, listner);
+		return tile == null ? Double.NaN : tile.getElevation(lat, lon);
+	}
 
-		String fname = SrtmData.getName(lon, lat);
-		setupFilePaths(fname);
-		downloadSrtmFileIfNeeded(fname, listner);
+	/**
+	 * @return the tile covering the given coordinate, or null if it failed to load recently.
+	 */
+	SrtmTile getTile(double lon, double lat, OnProgressListner listner) throws Exception {
+		final int tileLon = (int) Math.floor(lon);
+		final int tileLat = (int) Math.floor(lat);
+		final Integer key = getTileKey(tileLon, tileLat);
 
-		s = new BufferedInputStream(new FileInputStream(srtmFile));
-		altitude = readHtgFile(s, lon, lat);
-		s.close();
-		return altitude;
-	}
+		synchronized (this) {
+			final SrtmTile tile = tiles.get(key);
+			if (tile != null) {
+				return tile;
+			}
 
-	private void downloadSrtmFileIfNeeded(String fname, OnProgressListner listner) throws Exception {
-		if (!srtmFile.exists()) {
-			new SrtmDownloader(listner).downloadSrtmFile(fname, path);
+			final Long failureTime = failedTiles.get(key);
+			if (failureTime != null && System.currentTimeMillis() - failureTime < FAILED_TILE_RETRY_DELAY) {
+				return null;
+			}
+		}
+
+		//Loaded outside the lock, since it may need a download.
+		final SrtmTile tile;
+		try {
+			tile = loadTile(tileLon, tileLat, listner);
+		} catch (Exception e) {
+			synchronized (this) {
+				failedTiles.put(key, System.currentTimeMillis());
+			}
+			throw e;
+		}
+
+		synchronized (this) {
+			failedTiles.remove(key);
+			final SrtmTile loadedTile = tiles.get(key);
+			if (loadedTile != null) {
+				//Loaded by another thread in the meantime.
+				return loadedTile;
+			}
+
+			tiles.put(key, tile);
+			mappedMemory += tile.getMappedSize();
+			trimTiles();
+			return tile;
 		}
 	}
 
-	private void setupFilePaths(String fname) {
-		srtmFile = new File(path + "/" + fname);
+	/**
+	 * Unmaps the least recently used tiles until the mapped memory fits the budget. The mappings are released
+	 * once their buffers are garbage collected.
+	 */
+	private void trimTiles() {
+		final Iterator<SrtmTile> iterator = tiles.values().iterator();
+		while (mappedMemory > mappedMemoryBudget && tiles.size() > 1) {
+			mappedMemory -= iterator.next().getMappedSize();
+			iterator.remove();
+		}
 	}
 
-	private int readHtgFile(BufferedInputStream s, double lon, double lat) throws Exception {
-		byte[] buffer = new byte[2];
-		int index = calculateFileIndex(lon, lat);
-		skipToDataPositionInFile(index);
-		s.read(buffer);
-		return ByteBuffer.wrap(buffer).order(ByteOrder.BIG_ENDIAN).getShort();
+	synchronized int getTileCount() {
+		return tiles.size();
 	}
 
-	private void skipToDataPositionInFile(int index) throws Exception {
-		if (s.skip(index) != index) {
-			throw new Exception("error when skipping");
+	private SrtmTile loadTile(int tileLon, int tileLat, OnProgressListner listner) throws Exception {
+		final String fname = getName(tileLon, tileLat);
+		final File srtmFile = new File(path + "/" + fname);
+		if (!srtmFile.exists()) {
+			new SrtmDownloader(listner).downloadSrtmFile(fname, path);
 		}
+		return new SrtmTile(srtmFile, tileLat, tileLon);
 	}
 
-	private int calculateFileIndex(double lon, double lat) {
-		int ai = (int) Math.round(1200d * (lat - Math.floor(lat)));
-		int aj = (int) Math.round(1200d * (lon - Math.floor(lon)));
-		int index = (aj + (1200 - ai) * 1201) * 2;
-		return index;
+	private static Integer getTileKey(int tileLon, int tileLat) {
+		return (tileLat + 90) * 360 + (tileLon + 180);
 	}
 
 	static String getName(double Dlon, double Dlat) {
@@ -86,4 +146,4 @@ public class SrtmData {
 		fname = fname + dirlon + st + ".hgt";
 		return fname;
 	}
-}
\ No newline at end of file
+}
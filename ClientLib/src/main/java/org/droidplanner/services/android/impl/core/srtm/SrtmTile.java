@@ -0,0 +1,85 @@
+package org.droidplanner.services.android.impl.core.srtm;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * One degree SRTM tile, memory mapped from its .hgt file.
+ * <p/>
+ * The file holds a square of big endian signed 16 bits samples, rows going south from the north edge of the
+ * tile and columns going east from its west edge. Its size tells the resolution: 1201 samples per side for the
+ * 3 arc seconds data, 3601 for the 1 arc second data.
+ */
+class SrtmTile {
+	static final int SRTM_NaN = -32768;
+
+	private final MappedByteBuffer samples;
+	private final int size;
+	private final int latitude;
+	private final int longitude;
+
+	/**
+	 * @param latitude  latitude of the south edge of the tile.
+	 * @param longitude longitude of the west edge of the tile.
+	 */
+	SrtmTile(File file, int latitude, int longitude) throws IOException {
+		this.latitude = latitude;
+		this.longitude = longitude;
+
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final long length = raf.length();
+			size = (int) Math.round(Math.sqrt(length / 2));
+			if ((long) size * size * 2 != length || size < 2) {
+				throw new IOException("Invalid SRTM file size " + length + " for " + file.getName());
+			}
+
+			//The mapping stays valid once the channel is closed.
+			samples = raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, length);
+			samples.order(ByteOrder.BIG_ENDIAN);
+		} finally {
+			raf.close();
+		}
+	}
+
+	int getMappedSize() {
+		return samples.capacity();
+	}
+
+	/**
+	 * @return the elevation at the given coordinate, interpolated between the four samples around it, or NaN if
+	 * they are all voids. Void samples are left out of the interpolation.
+	 */
+	double getElevation(double lat, double lon) {
+		final int last = size - 1;
+		final double row = Math.min(last, Math.max(0, (latitude + 1 - lat) * last));
+		final double column = Math.min(last, Math.max(0, (lon - longitude) * last));
+
+		final int row0 = Math.min((int) row, last - 1);
+		final int column0 = Math.min((int) column, last - 1);
+		final double dy = row - row0;
+		final double dx = column - column0;
+
+		double elevation = 0;
+		double weights = 0;
+		for (int i = 0; i < 4; i++) {
+			final int sampleRow = row0 + (i >> 1);
+			final int sampleColumn = column0 + (i & 1);
+			final double weight = ((i >> 1) == 0 ? 1 - dy : dy) * ((i & 1) == 0 ? 1 - dx : dx);
+			if (weight == 0) {
+				continue;
+			}
+
+			final short sample = samples.getShort((sampleRow * size + sampleColumn) * 2);
+			if (sample != SRTM_NaN) {
+				elevation += weight * sample;
+				weights += weight;
+			}
+		}
+		return weights > 0 ? elevation / weights : Double.NaN;
+	}
+}
@@ -0,0 +1,484 @@
+package org.droidplanner.services.android.impl.core.survey;
+
+import com.o3dr.services.android.lib.coordinate.LatLong;
+import com.o3dr.services.android.lib.coordinate.LatLongAlt;
+
+import org.droidplanner.services.android.impl.core.helpers.geoTools.GeoTools;
+import org.droidplanner.services.android.impl.core.helpers.geoTools.LineLatLong;
+import org.droidplanner.services.android.impl.core.polygon.Polygon;
+import org.droidplanner.services.android.impl.core.srtm.CachedElevationSource;
+import org.droidplanner.services.android.impl.core.srtm.ElevationSource;
+import org.droidplanner.services.android.impl.core.survey.grid.Grid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Fits a survey grid to the terrain.
+ * <p/>
+ * The survey altitude is taken as the height above ground to hold, since it sets the ground resolution and the
+ * footprint the overlaps were computed for. The terrain is sampled along each grid line, and each sample becomes
+ * a waypoint at that height above the terrain, relative to the home elevation. The photos are then taken
+ * between the samples, so the achieved overlaps are computed for each of them, along with a raster of the
+ * photos count covering each cell of the polygon.
+ * <p/>
+ * The same overlaps are computed for the survey flown at a constant altitude, to show what the adjustment
+ * gained.
+ */
+public class TerrainCoverage {
+
+    /**
+     * Size of the coverage raster cells, in meters.
+     */
+    public static final double DEFAULT_RASTER_CELL_SIZE = 5;
+    private static final int MAX_RASTER_CELLS = 1 << 22;
+
+    private static final double METERS_PER_DEGREE = GeoTools.latToMeters(1);
+
+    private final SurveyData surveyData;
+    private final ElevationSource elevationSource;
+    private double terrainSampleDistance;
+    private double rasterCellSize = DEFAULT_RASTER_CELL_SIZE;
+
+    public TerrainCoverage(SurveyData surveyData, ElevationSource elevationSource) {
+        this.surveyData = surveyData;
+        this.elevationSource = elevationSource instanceof CachedElevationSource
+                ? elevationSource
+                : new CachedElevationSource(elevationSource);
+        this.terrainSampleDistance = surveyData.getLongitudinalPictureDistance();
+    }
+
+    /**
+     * Sets the distance between the terrain samples along the grid lines, in meters. It defaults to the
+     * distance between the photos; a longer one yields fewer waypoints, at the cost of following the terrain
+     * more loosely.
+     */
+    public void setTerrainSampleDistance(double terrainSampleDistance) {
+        this.terrainSampleDistance = terrainSampleDistance;
+    }
+
+    public void setRasterCellSize(double rasterCellSize) {
+        this.rasterCellSize = rasterCellSize;
+    }
+
+    /**
+     * @param polygon       the surveyed polygon.
+     * @param grid          the survey grid, generated for the polygon.
+     * @param homeElevation elevation (ASL) the waypoints altitudes are relative to, or NaN to use the terrain
+     *                      elevation at the start of the grid.
+     */
+    public Result compute(Polygon polygon, Grid grid, double homeElevation) {
+        final List<LatLong> gridPoints = grid.gridPoints;
+        if (Double.isNaN(homeElevation) && !gridPoints.isEmpty()) {
+            homeElevation = elevationSource.getElevation(gridPoints.get(0).getLatitude(),
+                    gridPoints.get(0).getLongitude());
+        }
+        if (Double.isNaN(homeElevation)) {
+            homeElevation = 0;
+        }
+
+        final double targetHeight = surveyData.getAltitude();
+        final double photoDistance = surveyData.getLongitudinalPictureDistance();
+        final double sampleDistance = terrainSampleDistance > 0 ? terrainSampleDistance : photoDistance;
+
+        final CoverageRaster raster = new CoverageRaster(polygon, rasterCellSize);
+        final Overlap flatOverlap = new Overlap(surveyData);
+        final Overlap adjustedOverlap = new Overlap(surveyData);
+        final List<LatLongAlt> waypoints = new ArrayList<>();
+
+        for (int i = 0; i + 1 < gridPoints.size(); i += 2) {
+            final LatLong start = gridPoints.get(i);
+            final LatLong end = gridPoints.get(i + 1);
+            final double length = GeoTools.getDistance(start, end);
+
+            //Waypoints holding the target height above the terrain samples.
+            final int sampleCount = Math.max(1, (int) Math.ceil(length / sampleDistance));
+            final float[] sampleElevations = getElevations(start, end, getSampleRatios(sampleCount));
+            final double[] altitudes = new double[sampleCount + 1];
+            double lastElevation = homeElevation;
+            for (int k = 0; k <= sampleCount; k++) {
+                if (!Float.isNaN(sampleElevations[k])) {
+                    lastElevation = sampleElevations[k];
+                }
+
+                altitudes[k] = lastElevation - homeElevation + targetHeight;
+                waypoints.add(new LatLongAlt(interpolate(start, end, (double) k / sampleCount), altitudes[k]));
+            }
+
+            //Photos, at the same positions the camera trigger distance puts them.
+            final double[] photoRatios = getPhotoRatios(length, photoDistance);
+            final float[] photoElevations = getElevations(start, end, photoRatios);
+            final double[] direction = raster.getDirection(start, end, surveyData.getAngle());
+            for (int k = 0; k < photoRatios.length; k++) {
+                final double position = photoRatios[k] * sampleCount;
+                final int index = Math.min((int) position, sampleCount - 1);
+                final double plannedAltitude = altitudes[index]
+                        + (position - index) * (altitudes[index + 1] - altitudes[index]);
+
+                //Unknown terrain is assumed to be where the plan expects it.
+                final double elevation = Float.isNaN(photoElevations[k])
+                        ? plannedAltitude + homeElevation - targetHeight
+                        : photoElevations[k];
+
+                final double adjustedScale = (plannedAltitude + homeElevation - elevation) / targetHeight;
+                flatOverlap.add((targetHeight + homeElevation - elevation) / targetHeight);
+                adjustedOverlap.add(adjustedScale);
+                raster.addFootprint(interpolate(start, end, photoRatios[k]), direction,
+                        surveyData.getLongitudinalFootPrint() / 2 * adjustedScale,
+                        surveyData.getLateralFootPrint() / 2 * adjustedScale);
+            }
+        }
+
+        return new Result(waypoints, flatOverlap, adjustedOverlap, raster);
+    }
+
+    private static double[] getSampleRatios(int sampleCount) {
+        final double[] ratios = new double[sampleCount + 1];
+        for (int k = 0; k <= sampleCount; k++) {
+            ratios[k] = (double) k / sampleCount;
+        }
+        return ratios;
+    }
+
+    /**
+     * @return the photos positions along the line, as a ratio of its length: one every photo distance from its
+     * start, and one at its end.
+     */
+    private static double[] getPhotoRatios(double length, double photoDistance) {
+        final int photoCount = photoDistance > 0 && length > 0 ? (int) Math.ceil(length / photoDistance) + 1 : 1;
+        final double[] ratios = new double[photoCount];
+        for (int k = 0; k < photoCount - 1; k++) {
+            ratios[k] = k * photoDistance / length;
+        }
+        ratios[photoCount - 1] = 1;
+        return ratios;
+    }
+
+    private float[] getElevations(LatLong start, LatLong end, double[] ratios) {
+        final double[] latitudes = new double[ratios.length];
+        final double[] longitudes = new double[ratios.length];
+        for (int k = 0; k < ratios.length; k++) {
+            latitudes[k] = start.getLatitude() + ratios[k] * (end.getLatitude() - start.getLatitude());
+            longitudes[k] = start.getLongitude() + ratios[k] * (end.getLongitude() - start.getLongitude());
+        }
+
+        final float[] elevations = new float[ratios.length];
+        elevationSource.getElevations(latitudes, longitudes, elevations);
+        return elevations;
+    }
+
+    private static LatLong interpolate(LatLong start, LatLong end, double ratio) {
+        return new LatLong(start.getLatitude() + ratio * (end.getLatitude() - start.getLatitude()),
+                start.getLongitude() + ratio * (end.getLongitude() - start.getLongitude()));
+    }
+
+    public static class Result {
+        private final List<LatLongAlt> waypoints;
+        private final Overlap flatOverlap;
+        private final Overlap adjustedOverlap;
+        private final CoverageRaster raster;
+
+        Result(List<LatLongAlt> waypoints, Overlap flatOverlap, Overlap adjustedOverlap, CoverageRaster raster) {
+            this.waypoints = waypoints;
+            this.flatOverlap = flatOverlap;
+            this.adjustedOverlap = adjustedOverlap;
+            this.raster = raster;
+        }
+
+        /**
+         * @return the waypoints following the terrain, line after line, with their altitude relative to the
+         * home elevation.
+         */
+        public List<LatLongAlt> getWaypoints() {
+            return waypoints;
+        }
+
+        /**
+         * @return the overlaps achieved when flying the survey at a constant altitude.
+         */
+        public Overlap getFlatOverlap() {
+            return flatOverlap;
+        }
+
+        /**
+         * @return the overlaps achieved when flying the waypoints following the terrain.
+         */
+        public Overlap getAdjustedOverlap() {
+            return adjustedOverlap;
+        }
+
+        /**
+         * @return the coverage of the waypoints following the terrain.
+         */
+        public CoverageRaster getRaster() {
+            return raster;
+        }
+    }
+
+    /**
+     * Overlaps achieved by the photos, in percent. The footprint of a photo grows with its height above the
+     * terrain, while the distances between photos and between lines stay the planned ones.
+     */
+    public static class Overlap {
+        private final double longitudinalFootprint;
+        private final double lateralFootprint;
+        private final double photoDistance;
+        private final double lineDistance;
+
+        private int photoCount;
+        private double minForward = Double.MAX_VALUE;
+        private double forwardSum;
+        private double minSide = Double.MAX_VALUE;
+        private double sideSum;
+        private double minHeightRatio = Double.MAX_VALUE;
+
+        Overlap(SurveyData surveyData) {
+            longitudinalFootprint = surveyData.getLongitudinalFootPrint();
+            lateralFootprint = surveyData.getLateralFootPrint();
+            photoDistance = surveyData.getLongitudinalPictureDistance();
+            lineDistance = surveyData.getLateralPictureDistance();
+        }
+
+        /**
+         * @param heightRatio the photo height above the terrain, relative to the planned one.
+         */
+        void add(double heightRatio) {
+            final double forward = getOverlap(photoDistance, longitudinalFootprint * heightRatio);
+            final double side = getOverlap(lineDistance, lateralFootprint * heightRatio);
+
+            photoCount++;
+            minForward = Math.min(minForward, forward);
+            forwardSum += forward;
+            minSide = Math.min(minSide, side);
+            sideSum += side;
+            minHeightRatio = Math.min(minHeightRatio, heightRatio);
+        }
+
+        private static double getOverlap(double distance, double footprint) {
+            return footprint > 0 ? Math.max(0, 100 * (1 - distance / footprint)) : 0;
+        }
+
+        public int getPhotoCount() {
+            return photoCount;
+        }
+
+        public double getMinForwardOverlap() {
+            return photoCount == 0 ? 0 : minForward;
+        }
+
+        public double getMeanForwardOverlap() {
+            return photoCount == 0 ? 0 : forwardSum / photoCount;
+        }
+
+        public double getMinSideOverlap() {
+            return photoCount == 0 ? 0 : minSide;
+        }
+
+        public double getMeanSideOverlap() {
+            return photoCount == 0 ? 0 : sideSum / photoCount;
+        }
+
+        /**
+         * @return the lowest photo height above the terrain, relative to the planned one. A value at or below
+         * zero means the path goes through the terrain.
+         */
+        public double getMinHeightRatio() {
+            return photoCount == 0 ? 1 : minHeightRatio;
+        }
+    }
+
+    /**
+     * Count of photos covering each cell of a raster over the polygon bounds. Rows go north, columns go east,
+     * from the south west corner of the bounds.
+     */
+    public static class CoverageRaster {
+        private final double originLatitude;
+        private final double originLongitude;
+        private final double metersPerLongitudeDegree;
+        private final double cellSize;
+        private final int columns;
+        private final int rows;
+
+        private final int[] photoCounts;
+        private final boolean[] insidePolygon;
+        private final int insideCount;
+
+        CoverageRaster(Polygon polygon, double cellSize) {
+            double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+            double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+            for (LatLong point : polygon.getPoints()) {
+                minLat = Math.min(minLat, point.getLatitude());
+                maxLat = Math.max(maxLat, point.getLatitude());
+                minLon = Math.min(minLon, point.getLongitude());
+                maxLon = Math.max(maxLon, point.getLongitude());
+            }
+            if (minLat > maxLat) {
+                minLat = maxLat = minLon = maxLon = 0;
+            }
+
+            originLatitude = minLat;
+            originLongitude = minLon;
+            metersPerLongitudeDegree = METERS_PER_DEGREE * Math.cos(Math.toRadians((minLat + maxLat) / 2));
+
+            final double width = (maxLon - minLon) * metersPerLongitudeDegree;
+            final double height = (maxLat - minLat) * METERS_PER_DEGREE;
+            if (width * height / (cellSize * cellSize) > MAX_RASTER_CELLS) {
+                cellSize = Math.sqrt(width * height / MAX_RASTER_CELLS);
+            }
+            this.cellSize = cellSize;
+            columns = Math.max(1, (int) Math.ceil(width / cellSize));
+            rows = Math.max(1, (int) Math.ceil(height / cellSize));
+
+            photoCounts = new int[columns * rows];
+            insidePolygon = new boolean[columns * rows];
+            insideCount = fillPolygon(polygon.getLinesWithHoles());
+        }
+
+        /**
+         * Marks the cells whose center is inside the polygon, row by row with the even-odd rule.
+         *
+         * @return the count of cells inside the polygon.
+         */
+        private int fillPolygon(List<LineLatLong> edges) {
+            final int edgeCount = edges.size();
+            final double[] edgesCoordinates = new double[edgeCount * 4];
+            for (int i = 0; i < edgeCount; i++) {
+                final LineLatLong edge = edges.get(i);
+                edgesCoordinates[i * 4] = getX(edge.getStart());
+                edgesCoordinates[i * 4 + 1] = getY(edge.getStart());
+                edgesCoordinates[i * 4 + 2] = getX(edge.getEnd());
+                edgesCoordinates[i * 4 + 3] = getY(edge.getEnd());
+            }
+
+            int count = 0;
+            final double[] crossings = new double[edgeCount];
+            for (int row = 0; row < rows; row++) {
+                final double y = (row + 0.5) * cellSize;
+
+                int crossingCount = 0;
+                for (int i = 0; i < edgesCoordinates.length; i += 4) {
+                    final double y1 = edgesCoordinates[i + 1];
+                    final double y2 = edgesCoordinates[i + 3];
+                    if ((y1 > y) != (y2 > y)) {
+                        final double x1 = edgesCoordinates[i];
+                        crossings[crossingCount++] = x1 + (y - y1) / (y2 - y1) * (edgesCoordinates[i + 2] - x1);
+                    }
+                }
+                Arrays.sort(crossings, 0, crossingCount);
+
+                for (int i = 0; i + 1 < crossingCount; i += 2) {
+                    final int firstColumn = Math.max(0, (int) Math.ceil(crossings[i] / cellSize - 0.5));
+                    final int lastColumn = Math.min(columns - 1, (int) Math.floor(crossings[i + 1] / cellSize - 0.5));
+                    for (int column = firstColumn; column <= lastColumn; column++) {
+                        insidePolygon[row * columns + column] = true;
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        private double getX(LatLong point) {
+            return (point.getLongitude() - originLongitude) * metersPerLongitudeDegree;
+        }
+
+        private double getY(LatLong point) {
+            return (point.getLatitude() - originLatitude) * METERS_PER_DEGREE;
+        }
+
+        /**
+         * @return the unit vector of the flight direction along the line, east then north.
+         */
+        double[] getDirection(LatLong start, LatLong end, double angle) {
+            double dx = getX(end) - getX(start);
+            double dy = getY(end) - getY(start);
+            final double length = Math.hypot(dx, dy);
+            if (length == 0) {
+                dx = Math.sin(Math.toRadians(angle));
+                dy = Math.cos(Math.toRadians(angle));
+                return new double[]{dx, dy};
+            }
+            return new double[]{dx / length, dy / length};
+        }
+
+        /**
+         * Adds the footprint of a photo, a rectangle centered on the photo and aligned with the flight
+         * direction.
+         */
+        void addFootprint(LatLong center, double[] direction, double halfLength, double halfWidth) {
+            if (halfLength <= 0 || halfWidth <= 0) {
+                return;
+            }
+
+            final double cx = getX(center);
+            final double cy = getY(center);
+            final double ux = direction[0];
+            final double uy = direction[1];
+            final double extentX = Math.abs(ux) * halfLength + Math.abs(uy) * halfWidth;
+            final double extentY = Math.abs(uy) * halfLength + Math.abs(ux) * halfWidth;
+
+            final int firstColumn = Math.max(0, (int) Math.floor((cx - extentX) / cellSize));
+            final int lastColumn = Math.min(columns - 1, (int) Math.floor((cx + extentX) / cellSize));
+            final int firstRow = Math.max(0, (int) Math.floor((cy - extentY) / cellSize));
+            final int lastRow = Math.min(rows - 1, (int) Math.floor((cy + extentY) / cellSize));
+
+            for (int row = firstRow; row <= lastRow; row++) {
+                final double py = (row + 0.5) * cellSize - cy;
+                for (int column = firstColumn; column <= lastColumn; column++) {
+                    final double px = (column + 0.5) * cellSize - cx;
+                    if (Math.abs(px * ux + py * uy) <= halfLength && Math.abs(py * ux - px * uy) <= halfWidth) {
+                        photoCounts[row * columns + column]++;
+                    }
+                }
+            }
+        }
+
+        public int getColumns() {
+            return columns;
+        }
+
+        public int getRows() {
+            return rows;
+        }
+
+        /**
+         * @return the cells size, in meters. It's enlarged from the requested one for large polygons.
+         */
+        public double getCellSize() {
+            return cellSize;
+        }
+
+        /**
+         * @return the south west corner of the raster.
+         */
+        public LatLong getOrigin() {
+            return new LatLong(originLatitude, originLongitude);
+        }
+
+        public int getPhotoCount(int column, int row) {
+            return photoCounts[row * columns + column];
+        }
+
+        public boolean isInsidePolygon(int column, int row) {
+            return insidePolygon[row * columns + column];
+        }
+
+        /**
+         * @return the fraction of the polygon covered by at least the given count of photos.
+         */
+        public double getCoveredFraction(int minPhotoCount) {
+            if (insideCount == 0) {
+                return 0;
+            }
+
+            int covered = 0;
+            for (int i = 0; i < photoCounts.length; i++) {
+                if (insidePolygon[i] && photoCounts[i] >= minPhotoCount) {
+                    covered++;
+                }
+            }
+            return (double) covered / insideCount;
+        }
+    }
+}
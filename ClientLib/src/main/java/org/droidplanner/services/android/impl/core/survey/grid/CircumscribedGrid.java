@@ -9,15 +9,22 @@ import java.util.ArrayList;
 import java.util.List;
 
 public class CircumscribedGrid {
-	private static final int MAX_NUMBER_OF_LINES = 300;
+	public static final int DEFAULT_MAX_NUMBER_OF_LINES = 1000;
 	List<LineLatLong> grid = new ArrayList<LineLatLong>();
+	private final int maxNumberOfLines;
 	private LatLong gridLowerLeft;
 	private double extrapolatedDiag;
 	private Double angle;
 
 	public CircumscribedGrid(List<LatLong> polygonPoints, Double angle, Double lineDist)
 			throws Exception {
+		this(polygonPoints, angle, lineDist, DEFAULT_MAX_NUMBER_OF_LINES);
+	}
+
+	public CircumscribedGrid(List<LatLong> polygonPoints, Double angle, Double lineDist, int maxNumberOfLines)
+			throws Exception {
 		this.angle = angle;
+		this.maxNumberOfLines = maxNumberOfLines;
 
 		findPolygonBounds(polygonPoints);
 		drawGrid(lineDist);
@@ -35,7 +42,7 @@ public class CircumscribedGrid {
 
 			startPoint = GeoTools.newCoordFromBearingAndDistance(startPoint, angle + 90, lineDist);
 			lines++;
-			if (lines > MAX_NUMBER_OF_LINES) {
+			if (lines > maxNumberOfLines) {
 				throw new GridWithTooManyLines();
 			}
 		}
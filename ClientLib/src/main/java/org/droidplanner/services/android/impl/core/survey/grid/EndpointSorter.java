@@ -2,55 +2,87 @@ package org.droidplanner.services.android.impl.core.survey.grid;
 
 import org.droidplanner.services.android.impl.core.helpers.geoTools.LineLatLong;
 import org.droidplanner.services.android.impl.core.helpers.geoTools.LineSampler;
-import org.droidplanner.services.android.impl.core.helpers.geoTools.LineTools;
 import com.o3dr.services.android.lib.coordinate.LatLong;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class EndpointSorter {
-	private static final int MAX_NUMBER_OF_CAMERAS = 2000;
+	public static final int DEFAULT_MAX_NUMBER_OF_CAMERAS = 20000;
+
+	/*
+	 * Lines endpoints, stored as start latitude, start longitude, end latitude, end longitude for each line.
+	 */
+	private final double[] lines;
+	private final int lineCount;
 
 	private List<LatLong> gridPoints = new ArrayList<LatLong>();
-	private List<LineLatLong> grid;
 	private Double sampleDistance;
+	private final int maxNumberOfCameras;
 	private List<LatLong> cameraLocations = new ArrayList<LatLong>();
 
 	public EndpointSorter(List<LineLatLong> grid, Double sampleDistance) {
-		this.grid = grid;
+		this(grid, sampleDistance, DEFAULT_MAX_NUMBER_OF_CAMERAS);
+	}
+
+	public EndpointSorter(List<LineLatLong> grid, Double sampleDistance, int maxNumberOfCameras) {
 		this.sampleDistance = sampleDistance;
+		this.maxNumberOfCameras = maxNumberOfCameras;
+
+		lineCount = grid.size();
+		lines = new double[lineCount * 4];
+		for (int i = 0; i < lineCount; i++) {
+			LineLatLong line = grid.get(i);
+			lines[i * 4] = line.getStart().getLatitude();
+			lines[i * 4 + 1] = line.getStart().getLongitude();
+			lines[i * 4 + 2] = line.getEnd().getLatitude();
+			lines[i * 4 + 3] = line.getEnd().getLongitude();
+		}
 	}
 
+	/**
+	 * Orders the lines in flight order, starting from the given point.
+	 *
+	 * @param sort if true, each line is followed by the line with the closest endpoint. Otherwise, the lines
+	 *             are kept in order.
+	 */
 	public void sortGrid(LatLong lastpnt, boolean sort) throws Exception {
-		while (grid.size() > 0) {
-			if (sort) {				
-				LineLatLong closestLine = LineTools.findClosestLineToPoint(lastpnt, grid);
-				LatLong secondWp = processOneGridLine(closestLine, lastpnt, sort);
-				lastpnt = secondWp;
-			}else{
-				LineLatLong closestLine = grid.get(0);
-				LatLong secondWp = processOneGridLine(closestLine, lastpnt, sort);
-				lastpnt = secondWp;
+		double lastLat = lastpnt.getLatitude();
+		double lastLon = lastpnt.getLongitude();
+
+		EndpointIndex index = sort ? new EndpointIndex(lines, lineCount) : null;
+		for (int i = 0; i < lineCount; i++) {
+			if ((i & 0x3F) == 0) {
+				GridBuilder.checkInterrupted();
 			}
-		}
-	}
 
-	private LatLong processOneGridLine(LineLatLong closestLine, LatLong lastpnt, boolean sort)
-			throws Exception {
-		LatLong firstWP, secondWp;
-		firstWP = closestLine.getClosestEndpointTo(lastpnt);
-		secondWp = closestLine.getFarthestEndpointTo(lastpnt);
+			int line = sort ? index.removeClosestLine(lastLat, lastLon) : i;
 
-		grid.remove(closestLine);
+			//Fly the line from its endpoint closest to the previous one.
+			int first = line * 4;
+			int second = line * 4 + 2;
+			if (distance(lastLat, lastLon, lines[first], lines[first + 1])
+					>= distance(lastLat, lastLon, lines[second], lines[second + 1])) {
+				first = second;
+				second = line * 4;
+			}
 
+			processOneGridLine(new LatLong(lines[first], lines[first + 1]),
+					new LatLong(lines[second], lines[second + 1]));
+			lastLat = lines[second];
+			lastLon = lines[second + 1];
+		}
+	}
+
+	private void processOneGridLine(LatLong firstWP, LatLong secondWp) throws Exception {
 		updateCameraLocations(firstWP, secondWp);
 		gridPoints.add(firstWP);
 		gridPoints.add(secondWp);
-		
-		if (cameraLocations.size() > MAX_NUMBER_OF_CAMERAS) {
+
+		if (cameraLocations.size() > maxNumberOfCameras) {
 			throw new Exception("Too many camera positions");
 		}
-		return secondWp;
 	}
 
 	private void updateCameraLocations(LatLong firstWP, LatLong secondWp) {
@@ -67,4 +99,141 @@ public class EndpointSorter {
 		return cameraLocations;
 	}
 
+	/**
+	 * Same metric as {@link org.droidplanner.services.android.impl.core.helpers.geoTools.GeoTools#getAproximatedDistance(LatLong, LatLong)}.
+	 */
+	private static double distance(double lat1, double lon1, double lat2, double lon2) {
+		return Math.hypot(lat1 - lat2, lon1 - lon2);
+	}
+
+	/**
+	 * Uniform grid of cells over the lines endpoints, used to find the line closest to a point by only
+	 * looking at the cells around it.
+	 */
+	static class EndpointIndex {
+		private final double[] lines;
+
+		private final double minLat;
+		private final double minLon;
+		private final double cellSize;
+		private final int rows;
+		private final int columns;
+
+		/*
+		 * Endpoints of each cell, as a linked list. Endpoint 2 * i is the start of line i, and 2 * i + 1 its end.
+		 */
+		private final int[] cellHeads;
+		private final int[] nextEndpoints;
+		private final boolean[] removedLines;
+
+		EndpointIndex(double[] lines, int lineCount) {
+			this.lines = lines;
+
+			double minLat = Double.MAX_VALUE, minLon = Double.MAX_VALUE;
+			double maxLat = -Double.MAX_VALUE, maxLon = -Double.MAX_VALUE;
+			for (int i = 0; i < lineCount * 4; i += 2) {
+				minLat = Math.min(minLat, lines[i]);
+				maxLat = Math.max(maxLat, lines[i]);
+				minLon = Math.min(minLon, lines[i + 1]);
+				maxLon = Math.max(maxLon, lines[i + 1]);
+			}
+			this.minLat = minLat;
+			this.minLon = minLon;
+
+			//About one endpoint per cell.
+			final int endpointCount = lineCount * 2;
+			final int side = Math.max(1, (int) Math.ceil(Math.sqrt(endpointCount)));
+			final double extent = Math.max(maxLat - minLat, maxLon - minLon);
+			this.cellSize = extent > 0 ? extent / side : 1;
+			this.rows = lineCount == 0 ? 1 : (int) ((maxLat - minLat) / cellSize) + 1;
+			this.columns = lineCount == 0 ? 1 : (int) ((maxLon - minLon) / cellSize) + 1;
+
+			cellHeads = new int[rows * columns];
+			Arrays.fill(cellHeads, -1);
+			nextEndpoints = new int[endpointCount];
+			removedLines = new boolean[lineCount];
+
+			for (int endpoint = endpointCount - 1; endpoint >= 0; endpoint--) {
+				final int cell = getRow(lines[endpoint * 2]) * columns + getColumn(lines[endpoint * 2 + 1]);
+				nextEndpoints[endpoint] = cellHeads[cell];
+				cellHeads[cell] = endpoint;
+			}
+		}
+
+		private int getRow(double lat) {
+			return Math.max(0, Math.min(rows - 1, (int) Math.floor((lat - minLat) / cellSize)));
+		}
+
+		private int getColumn(double lon) {
+			return Math.max(0, Math.min(columns - 1, (int) Math.floor((lon - minLon) / cellSize)));
+		}
+
+		/**
+		 * Removes, and returns the line with the endpoint closest to the given point. Ties go to the line
+		 * with the lowest index.
+		 *
+		 * @return the index of the removed line, or -1 if all the lines were removed.
+		 */
+		int removeClosestLine(double lat, double lon) {
+			final int row = getRow(lat);
+			final int column = getColumn(lon);
+
+			int bestLine = -1;
+			double bestDistance = Double.MAX_VALUE;
+			for (int ring = 0; ; ring++) {
+				if (row - ring < 0 && column - ring < 0 && row + ring >= rows && column + ring >= columns) {
+					break;
+				}
+
+				for (int r = row - ring; r <= row + ring; r++) {
+					if (r < 0 || r >= rows) {
+						continue;
+					}
+
+					//Only the cells on the ring perimeter are new.
+					final boolean isRingEdge = r == row - ring || r == row + ring;
+					final int step = isRingEdge ? 1 : Math.max(1, 2 * ring);
+					for (int c = column - ring; c <= column + ring; c += step) {
+						if (c < 0 || c >= columns) {
+							continue;
+						}
+
+						int previous = -1;
+						int endpoint = cellHeads[r * columns + c];
+						while (endpoint != -1) {
+							final int next = nextEndpoints[endpoint];
+							final int line = endpoint >> 1;
+							if (removedLines[line]) {
+								//Unlink the endpoints of the removed lines as they are met.
+								if (previous == -1) {
+									cellHeads[r * columns + c] = next;
+								} else {
+									nextEndpoints[previous] = next;
+								}
+							} else {
+								final double distance = distance(lat, lon, lines[endpoint * 2], lines[endpoint * 2 + 1]);
+								if (distance < bestDistance || (distance == bestDistance && line < bestLine)) {
+									bestDistance = distance;
+									bestLine = line;
+								}
+								previous = endpoint;
+							}
+							endpoint = next;
+						}
+					}
+				}
+
+				//Endpoints beyond this ring are at least that far.
+				if (bestLine != -1 && bestDistance < ring * cellSize) {
+					break;
+				}
+			}
+
+			if (bestLine != -1) {
+				removedLines[bestLine] = true;
+			}
+			return bestLine;
+		}
+	}
+
 }
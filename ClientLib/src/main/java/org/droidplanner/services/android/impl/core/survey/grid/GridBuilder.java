@@ -14,6 +14,8 @@ public class GridBuilder {
 	private Double lineDist;
 	private LatLong origin;
 	private Double wpDistance;
+	private int maxNumberOfLines = CircumscribedGrid.DEFAULT_MAX_NUMBER_OF_LINES;
+	private int maxNumberOfCameras = EndpointSorter.DEFAULT_MAX_NUMBER_OF_CAMERAS;
 
 	private Grid grid;
 
@@ -37,17 +39,51 @@ public class GridBuilder {
 		angle = newAngle;
 	}
 
+	/**
+	 * Sets the maximum number of lines of the circumscribed grid, above which the generation fails.
+	 */
+	public void setMaxNumberOfLines(int maxNumberOfLines) {
+		this.maxNumberOfLines = maxNumberOfLines;
+	}
+
+	/**
+	 * Sets the maximum number of camera locations, above which the generation fails.
+	 */
+	public void setMaxNumberOfCameras(int maxNumberOfCameras) {
+		this.maxNumberOfCameras = maxNumberOfCameras;
+	}
+
+	/**
+	 * Generates the grid, or returns the one last generated from the same inputs.
+	 * <p/>
+	 * The generation stops with an {@link InterruptedException} if the calling thread is interrupted.
+	 */
 	public Grid generate(boolean sort) throws Exception {
+		GridCache.Key key = new GridCache.Key(poly, angle, lineDist, wpDistance, origin, sort, maxNumberOfLines,
+				maxNumberOfCameras);
+		grid = GridCache.get(key);
+		if (grid != null) {
+			return grid;
+		}
+
 		List<LatLong> polygonPoints = poly.getPoints();
 
-		List<LineLatLong> circumscribedGrid = new CircumscribedGrid(polygonPoints, angle, lineDist)
+		List<LineLatLong> circumscribedGrid = new CircumscribedGrid(polygonPoints, angle, lineDist, maxNumberOfLines)
 				.getGrid();
-		List<LineLatLong> trimedGrid = new Trimmer(circumscribedGrid, poly.getLines())
+		checkInterrupted();
+		List<LineLatLong> trimedGrid = new Trimmer(circumscribedGrid, poly.getLinesWithHoles())
 				.getTrimmedGrid();
-		EndpointSorter gridSorter = new EndpointSorter(trimedGrid, wpDistance);
+		checkInterrupted();
+		EndpointSorter gridSorter = new EndpointSorter(trimedGrid, wpDistance, maxNumberOfCameras);
 		gridSorter.sortGrid(origin, sort);
-		grid = new Grid(gridSorter.getSortedGrid(), gridSorter.getCameraLocations());
+		grid = GridCache.put(key, new Grid(gridSorter.getSortedGrid(), gridSorter.getCameraLocations()));
 		return grid;
 	}
 
+	static void checkInterrupted() throws InterruptedException {
+		if (Thread.currentThread().isInterrupted()) {
+			throw new InterruptedException("Grid generation cancelled.");
+		}
+	}
+
 }
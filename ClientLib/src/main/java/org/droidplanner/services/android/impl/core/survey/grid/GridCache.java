@@ -0,0 +1,138 @@
+package org.droidplanner.services.android.impl.core.survey.grid;
+
+import org.droidplanner.services.android.impl.core.polygon.Polygon;
+import com.o3dr.services.android.lib.coordinate.LatLong;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Keeps the most recently generated grids, keyed by the inputs they were generated from, so rebuilding a
+ * survey whose polygon and camera settings didn't change costs nothing.
+ * <p/>
+ * The cache is bounded by its count of entries and by the total count of points it holds, since every edit of
+ * a survey polygon yields a new key and a single survey may hold tens of thousands of camera locations. It's
+ * cleared when the mission is emptied and when the last vehicle connection is torn down.
+ * <p/>
+ * The cached grids are shared between their users, so their lists are read only.
+ */
+public class GridCache {
+
+	private static final int MAX_ENTRIES = 4;
+
+	/**
+	 * Maximum count of grid points and camera locations held by all the cached grids together.
+	 */
+	static final int MAX_POINTS = 50000;
+
+	private static final LinkedHashMap<Key, Grid> grids = new LinkedHashMap<>(MAX_ENTRIES + 1, 0.75f, true);
+	private static int pointCount;
+
+	//Private to prevent instantiation
+	private GridCache() {
+	}
+
+	static synchronized Grid get(Key key) {
+		return grids.get(key);
+	}
+
+	static Grid put(Key key, Grid grid) {
+		final Grid sharedGrid = new Grid(Collections.unmodifiableList(grid.gridPoints),
+				Collections.unmodifiableList(grid.getCameraLocations()));
+		final int gridPointCount = getPointCount(sharedGrid);
+		if (gridPointCount > MAX_POINTS) {
+			return sharedGrid;
+		}
+
+		synchronized (GridCache.class) {
+			final Grid previousGrid = grids.put(key, sharedGrid);
+			if (previousGrid != null) {
+				pointCount -= getPointCount(previousGrid);
+			}
+			pointCount += gridPointCount;
+
+			//Evict the least recently used grids.
+			final Iterator<Grid> iterator = grids.values().iterator();
+			while (grids.size() > MAX_ENTRIES || pointCount > MAX_POINTS) {
+				pointCount -= getPointCount(iterator.next());
+				iterator.remove();
+			}
+		}
+		return sharedGrid;
+	}
+
+	public static synchronized void clear() {
+		grids.clear();
+		pointCount = 0;
+	}
+
+	static synchronized int size() {
+		return grids.size();
+	}
+
+	static synchronized int getPointCount() {
+		return pointCount;
+	}
+
+	private static int getPointCount(Grid grid) {
+		return grid.gridPoints.size() + grid.getCameraLocations().size();
+	}
+
+	/**
+	 * Grid generation inputs. The values are compared as a whole, the hash only picks the bucket.
+	 */
+	static final class Key {
+		private final double[] values;
+		private final int hash;
+
+		Key(Polygon polygon, double angle, double lineDist, double wpDistance, LatLong origin, boolean sort,
+			int maxNumberOfLines, int maxNumberOfCameras) {
+			final List<LatLong> points = polygon.getPoints();
+			final List<List<LatLong>> holes = polygon.getHoles();
+
+			int size = 9 + points.size() * 2;
+			for (List<LatLong> hole : holes) {
+				size += 1 + hole.size() * 2;
+			}
+
+			values = new double[size];
+			int index = 0;
+			values[index++] = angle;
+			values[index++] = lineDist;
+			values[index++] = wpDistance;
+			values[index++] = origin.getLatitude();
+			values[index++] = origin.getLongitude();
+			values[index++] = sort ? 1 : 0;
+			values[index++] = maxNumberOfLines;
+			values[index++] = maxNumberOfCameras;
+			index = addRing(points, index);
+			for (List<LatLong> hole : holes) {
+				index = addRing(hole, index);
+			}
+
+			hash = Arrays.hashCode(values);
+		}
+
+		private int addRing(List<LatLong> ring, int index) {
+			values[index++] = ring.size();
+			for (LatLong point : ring) {
+				values[index++] = point.getLatitude();
+				values[index++] = point.getLongitude();
+			}
+			return index;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return this == o || (o instanceof Key && hash == ((Key) o).hash && Arrays.equals(values, ((Key) o).values));
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}
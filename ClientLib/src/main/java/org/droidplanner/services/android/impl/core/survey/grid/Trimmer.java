@@ -1,45 +1,100 @@
 package org.droidplanner.services.android.impl.core.survey.grid;
 
 import org.droidplanner.services.android.impl.core.helpers.geoTools.LineLatLong;
-import org.droidplanner.services.android.impl.core.helpers.geoTools.LineTools;
 import com.o3dr.services.android.lib.coordinate.LatLong;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Clips the grid lines to the inside of the polygon.
+ * <p/>
+ * Each grid line is treated as a scanline: its crossings with the polygon edges are sorted along the line,
+ * and every other span between two crossings is inside the polygon (even-odd rule). Concave polygons and
+ * polygons with holes, whose edges are given along with the outline, thus yield several segments per line.
+ */
 public class Trimmer {
 	List<LineLatLong> trimedGrid = new ArrayList<LineLatLong>();
 
+	/*
+	 * Polygon edges, stored as start latitude, start longitude, end latitude, end longitude for each edge.
+	 */
+	private final double[] edges;
+	private double[] crossings = new double[8];
+
 	public Trimmer(List<LineLatLong> grid, List<LineLatLong> polygon) {
+		edges = new double[polygon.size() * 4];
+		for (int i = 0; i < polygon.size(); i++) {
+			LineLatLong edge = polygon.get(i);
+			edges[i * 4] = edge.getStart().getLatitude();
+			edges[i * 4 + 1] = edge.getStart().getLongitude();
+			edges[i * 4 + 2] = edge.getEnd().getLatitude();
+			edges[i * 4 + 3] = edge.getEnd().getLongitude();
+		}
+
 		for (LineLatLong gridLine : grid) {
-			ArrayList<LatLong> crosses = findCrossings(polygon, gridLine);
-			processCrossings(crosses, gridLine);
+			clipLine(gridLine);
 		}
 	}
 
-	private ArrayList<LatLong> findCrossings(List<LineLatLong> polygon, LineLatLong gridLine) {
-
-		ArrayList<LatLong> crossings = new ArrayList<LatLong>();
-		for (LineLatLong polyLine : polygon) {
-            LatLong intersection = LineTools.FindLineIntersection(polyLine, gridLine);
-            if(intersection != null)
-                crossings.add(intersection);
+	private void clipLine(LineLatLong gridLine) {
+		final double startLat = gridLine.getStart().getLatitude();
+		final double startLon = gridLine.getStart().getLongitude();
+		final double deltaLat = gridLine.getEnd().getLatitude() - startLat;
+		final double deltaLon = gridLine.getEnd().getLongitude() - startLon;
+		final double squaredLength = deltaLat * deltaLat + deltaLon * deltaLon;
+		if (squaredLength == 0) {
+			return;
 		}
 
-		return crossings;
+		final int count = findCrossings(startLat, startLon, deltaLat, deltaLon, squaredLength);
+		Arrays.sort(crossings, 0, count);
+
+		for (int i = 0; i + 1 < count; i += 2) {
+			final double from = crossings[i];
+			final double to = crossings[i + 1];
+			if (to > from) {
+				trimedGrid.add(new LineLatLong(new LatLong(startLat + from * deltaLat, startLon + from * deltaLon),
+						new LatLong(startLat + to * deltaLat, startLon + to * deltaLon)));
+			}
+		}
 	}
 
-	private void processCrossings(ArrayList<LatLong> crosses, LineLatLong gridLine) {
-		switch (crosses.size()) {
-		case 0:
-		case 1:
-			break;
-		case 2:
-			trimedGrid.add(new LineLatLong(crosses.get(0), crosses.get(1)));
-			break;
-		default: // TODO handle multiple crossings in a better way
-			trimedGrid.add(LineTools.findExternalPoints(crosses));
+	/**
+	 * Collects the position along the grid line of its crossings with the polygon edges, as a fraction of the
+	 * line length.
+	 * <p/>
+	 * An edge is crossed if its endpoints lie on opposite sides of the line, with points on the line counted on
+	 * the positive side. A line going through a vertex thus crosses exactly one of the two edges sharing it,
+	 * or none if it only touches the polygon.
+	 *
+	 * @return the count of crossings
+	 */
+	private int findCrossings(double startLat, double startLon, double deltaLat, double deltaLon,
+							  double squaredLength) {
+		int count = 0;
+		for (int i = 0; i < edges.length; i += 4) {
+			final double sideA = deltaLat * (edges[i + 1] - startLon) - deltaLon * (edges[i] - startLat);
+			final double sideB = deltaLat * (edges[i + 3] - startLon) - deltaLon * (edges[i + 2] - startLat);
+			if ((sideA >= 0) == (sideB >= 0)) {
+				continue;
+			}
+
+			final double ratio = sideA / (sideA - sideB);
+			final double crossLat = edges[i] + ratio * (edges[i + 2] - edges[i]);
+			final double crossLon = edges[i + 1] + ratio * (edges[i + 3] - edges[i + 1]);
+			final double position = ((crossLat - startLat) * deltaLat + (crossLon - startLon) * deltaLon) / squaredLength;
+			if (position < 0 || position > 1) {
+				continue;
+			}
+
+			if (count == crossings.length) {
+				crossings = Arrays.copyOf(crossings, count * 2);
+			}
+			crossings[count++] = position;
 		}
+		return count;
 	}
 
 	public List<LineLatLong> getTrimmedGrid() {
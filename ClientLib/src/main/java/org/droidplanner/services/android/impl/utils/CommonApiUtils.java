@@ -19,7 +19,9 @@ import com.o3dr.services.android.lib.drone.calibration.magnetometer.Magnetometer
 import com.o3dr.services.android.lib.drone.calibration.magnetometer.MagnetometerCalibrationResult;
 import com.o3dr.services.android.lib.drone.calibration.magnetometer.MagnetometerCalibrationStatus;
 import com.o3dr.services.android.lib.drone.mission.Mission;
+import com.o3dr.services.android.lib.drone.mission.MissionChange;
 import com.o3dr.services.android.lib.drone.mission.MissionItemType;
+import com.o3dr.services.android.lib.drone.mission.MissionPaging;
 import com.o3dr.services.android.lib.drone.mission.item.MissionItem;
 import com.o3dr.services.android.lib.drone.mission.item.complex.CameraDetail;
 import com.o3dr.services.android.lib.drone.mission.item.complex.StructureScanner;
@@ -62,12 +64,14 @@ import org.droidplanner.services.android.impl.core.mission.survey.SplineSurveyIm
 import org.droidplanner.services.android.impl.core.mission.survey.SurveyImpl;
 import org.droidplanner.services.android.impl.core.mission.waypoints.StructureScannerImpl;
 import org.droidplanner.services.android.impl.core.survey.Footprint;
+import org.droidplanner.services.android.impl.core.survey.grid.GridCache;
 
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 import timber.log.Timber;
 
@@ -76,6 +80,12 @@ import timber.log.Timber;
  */
 public class CommonApiUtils {
 
+    /**
+     * Above that many inserted or changed mission items, clients are asked to reload the mission rather than
+     * receiving the items with the mission update.
+     */
+    private static final int MAX_MISSION_CHANGE_ITEMS = 100;
+
     //Private to prevent instantiation
     private CommonApiUtils() {
     }
@@ -422,6 +432,64 @@ public class CommonApiUtils {
         return proxyMission;
     }
 
+    /**
+     * @param offset      index of the first mission item in the page
+     * @param maxPageSize maximum size in bytes of the page, once parcelled
+     * @return a page of the mission items, holding at least one item unless the offset is past the end of
+     * the mission.
+     */
+    public static Mission getMissionPage(MavLinkDrone drone, int offset, int maxPageSize) {
+        Mission proxyMission = new Mission();
+        if (drone == null)
+            return proxyMission;
+
+        List<MissionItemImpl> droneMissionItemImpls = drone.getMission().getComponentItems();
+        proxyMission.setCurrentMissionItem((short) drone.getMissionStats().getCurrentWP());
+
+        final int count = droneMissionItemImpls.size();
+        int pageSize = 0;
+        for (int i = Math.max(0, offset); i < count; i++) {
+            MissionItem proxyItem = ProxyUtils.getProxyMissionItem(droneMissionItemImpls.get(i));
+            pageSize += MissionPaging.getParcelledSize(proxyItem);
+            if (pageSize > maxPageSize && i > offset)
+                break;
+
+            proxyMission.addMissionItem(proxyItem);
+        }
+
+        return proxyMission;
+    }
+
+    /**
+     * @return the last update of the mission component items, or a reset if it would take too many items to
+     * describe.
+     */
+    public static MissionChange getMissionChange(MavLinkDrone drone) {
+        if (drone == null)
+            return MissionChange.reset(0);
+
+        MissionImpl droneMissionImpl = drone.getMission();
+        List<MissionItemImpl> componentItems = droneMissionImpl.getComponentItems();
+        MissionImpl.ComponentsChange lastChange = droneMissionImpl.getLastChange();
+        if (lastChange.isReset() || lastChange.getInsertedCount() > MAX_MISSION_CHANGE_ITEMS)
+            return MissionChange.reset(componentItems.size());
+
+        final int start = lastChange.getStart();
+        final int changedCount = Math.min(lastChange.getRemovedCount(), lastChange.getInsertedCount());
+        final List<MissionItem> proxyItems = new ArrayList<>(lastChange.getInsertedCount());
+        for (MissionItemImpl item : componentItems.subList(start, start + lastChange.getInsertedCount())) {
+            proxyItems.add(ProxyUtils.getProxyMissionItem(item));
+        }
+
+        MissionChange missionChange = new MissionChange(componentItems.size());
+        missionChange.addRange(MissionChange.RANGE_CHANGED, start, changedCount, proxyItems.subList(0, changedCount));
+        missionChange.addRange(MissionChange.RANGE_REMOVED, start + changedCount,
+            lastChange.getRemovedCount() - changedCount, null);
+        missionChange.addRange(MissionChange.RANGE_INSERTED, start + changedCount,
+            lastChange.getInsertedCount() - changedCount, proxyItems.subList(changedCount, proxyItems.size()));
+        return missionChange;
+    }
+
     public static Type getType(MavLinkDrone drone) {
         if (drone == null)
             return new Type();
@@ -586,12 +654,24 @@ public class CommonApiUtils {
             return;
 
         MissionImpl droneMissionImpl = drone.getMission();
-        droneMissionImpl.clearMissionItems();
+        final List<MissionItemImpl> itemImpls;
+        try {
+            itemImpls = ProxyUtils.getMissionItemImpls(droneMissionImpl, mission.getMissionItems());
+        } catch (CancellationException e) {
+            Timber.d("Mission update superseded by a newer one.");
+            return;
+        }
 
-        List<MissionItem> itemsList = mission.getMissionItems();
-        for (MissionItem item : itemsList) {
-            droneMissionImpl.addMissionItem(ProxyUtils.getMissionItemImpl(droneMissionImpl, item));
+        droneMissionImpl.beginChanges();
+        droneMissionImpl.clearMissionItems();
+        for (MissionItemImpl itemImpl : itemImpls) {
+            droneMissionImpl.addMissionItem(itemImpl);
         }
+        droneMissionImpl.commitChanges();
+
+        //The survey grids generated so far won't be asked for again.
+        if (itemImpls.isEmpty())
+            GridCache.clear();
 
         if (pushToDrone)
             droneMissionImpl.sendMissionToAPM();
@@ -29,20 +29,18 @@ import org.droidplanner.services.android.impl.core.mission.waypoints.LandImpl;
 import org.droidplanner.services.android.impl.core.mission.waypoints.RegionOfInterestImpl;
 import org.droidplanner.services.android.impl.core.mission.waypoints.SplineWaypointImpl;
 import org.droidplanner.services.android.impl.core.mission.waypoints.WaypointImpl;
+import org.droidplanner.services.android.impl.utils.file.IO.MissionBinaryFormat;
+import org.droidplanner.services.android.impl.utils.file.IO.QgcPlanReader;
+import org.droidplanner.services.android.impl.utils.file.IO.WaypointFileFormat;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.OutputStream;
-import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Collections;
-import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Map;
 
 import timber.log.Timber;
 
@@ -52,52 +50,29 @@ import timber.log.Timber;
 public class MissionUtils {
 
     /**
-     * Waypoint file format:
-     *
-     * * QGC WPL <VERSION> <INDEX> <CURRENT WP> <COORD FRAME> <COMMAND> <PARAM1>
-     * <PARAM2> <PARAM3> <PARAM4> <PARAM5/X/LONGITUDE> <PARAM6/Y/LATITUDE>
-     * <PARAM7/Z/ALTITUDE> <AUTOCONTINUE>
-     *
-     * See http://qgroundcontrol.org/mavlink/waypoint_protocol for details
+     * Missions saved to an uri with this extension use the binary mission format. Files with this extension
+     * written with the deprecated parcel based format can still be loaded.
      */
-    private static final String WAYPOINT_PROTOCOL_HEADER = "QGC WPL 110";
+    private static final String BINARY_MISSION_FILE_EXTENSION = ".dpwp";
+
+    /**
+     * Bytes looked at to find out the format of a mission file.
+     */
+    private static final int FILE_HEADER_SIZE = 64;
 
     private MissionUtils(){}
 
     public static void saveMission(Context context, Mission mission, Uri saveUri, ICommandListener listener){
-        saveMissionToWPL(context, mission, saveUri, listener);
-    }
-
-    public static Mission loadMission(Context context, Uri loadUri){
-        // Attempt to load the mission using the waypoint file format.
-        Mission mission = loadMissionFromWPL(context, loadUri);
-        if(mission == null){
-            // Attempt to load using the deprecated dpwp formt
-            mission = loadMissionFromDpwp(context, loadUri);
-        }
-        return mission;
-    }
-
-    private static void saveMissionToWPL(Context context, Mission mission, Uri saveUri, ICommandListener listener){
         try {
             OutputStream saveOut = UriUtils.getOutputStream(context, saveUri);
             try {
-                String header = WAYPOINT_PROTOCOL_HEADER + "\n";
-                saveOut.write(header.getBytes());
-
                 // Get the list of msg mission item
                 List<msg_mission_item> rawMissionItems = fromMission(mission);
-                for (int i = 0, msgMissionItemsSize = rawMissionItems.size(); i < msgMissionItemsSize; i++) {
-                    final msg_mission_item msg = rawMissionItems.get(i);
-
-                    // write msg (TAB delimited)
-                    saveOut.write(String.format(Locale.ENGLISH,
-                            "%d\t%d\t%d\t%d\t%f\t%f\t%f\t%f\t%f\t%f\t%f\t%d\n",
-                            i,
-                            i == 0 ? 1 : 0, // set CURRENT_WP = 1 for 'home' - msg[0], 0
-                            // for all others
-                            msg.frame, msg.command, msg.param1, msg.param2, msg.param3, msg.param4, msg.x,
-                            msg.y, msg.z, msg.autocontinue).getBytes());
+                String path = saveUri.getPath();
+                if (path != null && path.endsWith(BINARY_MISSION_FILE_EXTENSION)) {
+                    MissionBinaryFormat.write(saveOut, rawMissionItems);
+                } else {
+                    WaypointFileFormat.write(saveOut, rawMissionItems);
                 }
 
                 CommonApiUtils.postSuccessEvent(listener);
@@ -110,100 +85,91 @@ public class MissionUtils {
         }
     }
 
-    private static void saveMissionToDpwp(Context context, Mission mission, Uri saveUri, ICommandListener listener){
-        try{
-            OutputStream saveOut = UriUtils.getOutputStream(context, saveUri);
-            try{
-                byte[] missionBytes = ParcelableUtils.marshall(mission);
-                saveOut.write(missionBytes);
-                CommonApiUtils.postSuccessEvent(listener);
-            }finally{
-                saveOut.close();
-            }
-
-        } catch(IOException e){
-            Timber.e(e, "Unable to write to uri %s", saveUri);
-            CommonApiUtils.postErrorEvent(CommandExecutionError.COMMAND_FAILED, listener);
-        }
-    }
-
-    private static Mission loadMissionFromDpwp(Context context, Uri loadUri){
-        try{
-            InputStream loadIn = UriUtils.getInputStream(context, loadUri);
-            try{
-                Map<byte[], Integer> bytesList = new LinkedHashMap<>();
-                int length = 0;
-                while(loadIn.available() > 0){
-                    byte[] missionBytes = new byte[2048];
-                    int bufferSize = loadIn.read(missionBytes);
-                    bytesList.put(missionBytes, bufferSize);
-                    length += bufferSize;
-                }
+    public static Mission loadMission(Context context, Uri loadUri){
+        List<msg_mission_item> rawMissionItems = null;
+        boolean isKnownFormat = true;
+        try {
+            InputStream loadIn = new BufferedInputStream(UriUtils.getInputStream(context, loadUri));
+            try {
+                byte[] header = new byte[FILE_HEADER_SIZE];
+                loadIn.mark(FILE_HEADER_SIZE);
+                int headerLength = readHeader(loadIn, header);
+                loadIn.reset();
 
-                ByteBuffer fullBuffer = ByteBuffer.allocate(length);
-                for(Map.Entry<byte[], Integer> entry : bytesList.entrySet()){
-                    fullBuffer.put(entry.getKey(), 0, entry.getValue());
+                if (MissionBinaryFormat.isBinaryMission(header, headerLength)) {
+                    rawMissionItems = MissionBinaryFormat.read(loadIn);
+                } else if (isJsonObject(header, headerLength)) {
+                    rawMissionItems = QgcPlanReader.read(loadIn);
+                } else if (WaypointFileFormat.isWaypointFile(header, headerLength)) {
+                    rawMissionItems = WaypointFileFormat.read(loadIn);
+                } else {
+                    isKnownFormat = false;
                 }
-
-                Mission mission = ParcelableUtils.unmarshall(fullBuffer.array(), 0, length, Mission.CREATOR);
-                return mission;
-            }finally{
+            } finally {
                 loadIn.close();
             }
-        }catch(IOException e){
-            Timber.e(e, "Unable to read from uri %s", loadUri);
+        } catch (IOException e) {
+            Timber.e(e, "Unable to load mission from uri %s", loadUri);
             return null;
         }
-    }
-    
-    private static Mission loadMissionFromWPL(Context context, Uri loadUri) {
-        try {
-            InputStream loadIn = UriUtils.getInputStream(context, loadUri);
-            try {
-                BufferedReader reader = new BufferedReader(new InputStreamReader(loadIn));
-
-                if (!reader.readLine().contains(WAYPOINT_PROTOCOL_HEADER)) {
-                    // Invalid file header.
-                    Timber.w("Invalid waypoint file format for %s", loadUri);
-                    return null;
-                }
 
-                List<msg_mission_item> rawMissionItems = new LinkedList<>();
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    // parse line (TAB delimited)
-                    final String[] rowData = line.split("\t");
+        if (!isKnownFormat) {
+            String path = loadUri.getPath();
+            if (path != null && path.endsWith(BINARY_MISSION_FILE_EXTENSION)) {
+                // Attempt to load using the deprecated dpwp format
+                return loadMissionFromDpwp(context, loadUri);
+            }
 
-                    final msg_mission_item msg = new msg_mission_item();
-                    msg.seq = (Short.parseShort(rowData[0]));
-                    msg.current = (Byte.parseByte(rowData[1]));
-                    msg.frame = (Byte.parseByte(rowData[2]));
-                    msg.command = (Short.parseShort(rowData[3]));
+            Timber.w("Unrecognized mission file format for %s", loadUri);
+            return null;
+        }
 
-                    msg.param1 = (Float.parseFloat(rowData[4]));
-                    msg.param2 = (Float.parseFloat(rowData[5]));
-                    msg.param3 = (Float.parseFloat(rowData[6]));
-                    msg.param4 = (Float.parseFloat(rowData[7]));
+        if (rawMissionItems == null) {
+            Timber.w("Invalid mission file %s", loadUri);
+            return null;
+        }
+        return fromRawMissionItems(rawMissionItems);
+    }
 
-                    msg.x = (Float.parseFloat(rowData[8]));
-                    msg.y = (Float.parseFloat(rowData[9]));
-                    msg.z = (Float.parseFloat(rowData[10]));
+    private static int readHeader(InputStream in, byte[] header) throws IOException {
+        int length = 0;
+        int read;
+        while (length < header.length && (read = in.read(header, length, header.length - length)) != -1) {
+            length += read;
+        }
+        return length;
+    }
 
-                    msg.autocontinue = (Byte.parseByte(rowData[11]));
+    private static boolean isJsonObject(byte[] header, int length) {
+        for (int i = 0; i < length; i++) {
+            if (!Character.isWhitespace(header[i])) {
+                return header[i] == '{';
+            }
+        }
+        return false;
+    }
 
-                    rawMissionItems.add(msg);
+    private static Mission loadMissionFromDpwp(Context context, Uri loadUri){
+        try{
+            InputStream loadIn = UriUtils.getInputStream(context, loadUri);
+            try{
+                ByteArrayOutputStream missionBytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int bufferSize;
+                while ((bufferSize = loadIn.read(buffer)) != -1) {
+                    missionBytes.write(buffer, 0, bufferSize);
                 }
 
-                return fromRawMissionItems(rawMissionItems);
+                return ParcelableUtils.unmarshall(missionBytes.toByteArray(), 0, missionBytes.size(), Mission.CREATOR);
             }finally{
                 loadIn.close();
             }
-        } catch (IOException e) {
-            Timber.e(e, "Unable to load mission from uri %s", loadUri);
+        }catch(IOException e){
+            Timber.e(e, "Unable to read from uri %s", loadUri);
             return null;
         }
     }
-    
+
     private static List<msg_mission_item> fromMission(Mission mission){
         if(mission == null)
             return null;
@@ -26,6 +26,7 @@ import com.o3dr.services.android.lib.drone.mission.item.spatial.RegionOfInterest
 import com.o3dr.services.android.lib.drone.mission.item.spatial.SplineWaypoint;
 import com.o3dr.services.android.lib.drone.mission.item.spatial.Waypoint;
 
+import org.droidplanner.services.android.impl.core.mission.MissionBuildEngine;
 import org.droidplanner.services.android.impl.core.mission.MissionImpl;
 import org.droidplanner.services.android.impl.core.mission.MissionItemImpl;
 import org.droidplanner.services.android.impl.core.mission.commands.CameraTriggerImpl;
@@ -49,6 +50,11 @@ import org.droidplanner.services.android.impl.core.mission.waypoints.WaypointImp
 import org.droidplanner.services.android.impl.core.survey.CameraInfo;
 import org.droidplanner.services.android.impl.core.survey.SurveyData;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+
 /**
  * Created by fhuya on 11/10/14.
  */
@@ -309,6 +315,50 @@ public class ProxyUtils {
         return missionItemImpl;
     }
 
+    /**
+     * Converts the given proxy items, building the complex ones in parallel.
+     *
+     * @throws java.util.concurrent.CancellationException if a newer conversion for the same mission started
+     *                                                    in the meantime.
+     */
+    public static List<MissionItemImpl> getMissionItemImpls(final MissionImpl missionImpl, List<MissionItem> proxyItems) {
+        final int itemsCount = proxyItems.size();
+        final List<MissionItemImpl> itemImpls = new ArrayList<>(itemsCount);
+        final List<Integer> complexItemsIndexes = new ArrayList<>();
+        final List<Callable<MissionItemImpl>> complexItemsTasks = new ArrayList<>();
+
+        for (int i = 0; i < itemsCount; i++) {
+            final MissionItem proxyItem = proxyItems.get(i);
+            if (proxyItem instanceof MissionItem.ComplexItem) {
+                itemImpls.add(null);
+                complexItemsIndexes.add(i);
+                complexItemsTasks.add(new Callable<MissionItemImpl>() {
+                    @Override
+                    public MissionItemImpl call() {
+                        return getMissionItemImpl(missionImpl, proxyItem);
+                    }
+                });
+            } else {
+                itemImpls.add(getMissionItemImpl(missionImpl, proxyItem));
+            }
+        }
+
+        if (!complexItemsTasks.isEmpty()) {
+            final List<MissionItemImpl> complexItemImpls;
+            try {
+                complexItemImpls = MissionBuildEngine.invokeAll(missionImpl, complexItemsTasks);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Unable to build the complex mission items.", e.getCause());
+            }
+
+            for (int i = 0; i < complexItemImpls.size(); i++) {
+                itemImpls.set(complexItemsIndexes.get(i), complexItemImpls.get(i));
+            }
+        }
+
+        return itemImpls;
+    }
+
     public static MissionItem getProxyMissionItem(MissionItemImpl itemImpl) {
         if (itemImpl == null)
             return null;
@@ -34,6 +34,14 @@ public class DirectoryPath {
 		return getPublicDataPath(context) + "/CameraInfo/";
 	}
 
+	/**
+	 * Storage folder for the cached vehicles parameters. Kept in internal storage, which is always
+	 * available.
+	 */
+	public static String getParameterCachePath(Context context) {
+		return context.getFilesDir().getAbsolutePath() + "/param_cache/";
+	}
+
 	/**
 	 * Storage folder for stacktraces
 	 */
@@ -0,0 +1,206 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import com.MAVLink.common.msg_mission_item;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact binary format for mission files. Items are read and written one at a time, so a file is never
+ * buffered whole in memory.
+ * <p/>
+ * Format (big endian):
+ * <pre>
+ * int    magic ('DPMB')
+ * byte   format version
+ * varint item count
+ * item   flags byte, followed by the fields the flags call for:
+ *        varint command, unsigned byte frame,
+ *        float param1..4 for each non-zero param,
+ *        zigzag varint latitude and longitude in 1e-7 degrees, as delta from the previous such coordinate,
+ *        or float x and y if they don't fit this encoding,
+ *        float z if non-zero.
+ * </pre>
+ * The sequence number of each item is its position in the file.
+ */
+public class MissionBinaryFormat {
+
+    public static final int MAGIC = 0x44504D42; // 'DPMB'
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int FLAG_PARAM1 = 0x01;
+    private static final int FLAG_PARAM2 = 0x02;
+    private static final int FLAG_PARAM3 = 0x04;
+    private static final int FLAG_PARAM4 = 0x08;
+    private static final int FLAG_FIXED_COORDINATE = 0x10;
+    private static final int FLAG_RAW_COORDINATE = 0x20;
+    private static final int FLAG_Z = 0x40;
+    private static final int FLAG_AUTOCONTINUE = 0x80;
+
+    private static final double FIXED_COORDINATE_SCALE = 1e7;
+
+    //Private to prevent instantiation
+    private MissionBinaryFormat() {
+    }
+
+    /**
+     * @return true if the given file header is the one of a binary mission file.
+     */
+    public static boolean isBinaryMission(byte[] header, int length) {
+        return length >= 4
+            && ((header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16 | (header[2] & 0xFF) << 8 | (header[3] & 0xFF)) == MAGIC;
+    }
+
+    public static void write(OutputStream out, List<msg_mission_item> items) throws IOException {
+        final DataOutputStream dataOut = new DataOutputStream(new BufferedOutputStream(out));
+        dataOut.writeInt(MAGIC);
+        dataOut.writeByte(FORMAT_VERSION);
+        writeVarint(dataOut, items.size());
+
+        int lastLatitude = 0;
+        int lastLongitude = 0;
+        for (msg_mission_item item : items) {
+            int flags = 0;
+            if (Float.floatToRawIntBits(item.param1) != 0) flags |= FLAG_PARAM1;
+            if (Float.floatToRawIntBits(item.param2) != 0) flags |= FLAG_PARAM2;
+            if (Float.floatToRawIntBits(item.param3) != 0) flags |= FLAG_PARAM3;
+            if (Float.floatToRawIntBits(item.param4) != 0) flags |= FLAG_PARAM4;
+            if (Float.floatToRawIntBits(item.z) != 0) flags |= FLAG_Z;
+            if (item.autocontinue != 0) flags |= FLAG_AUTOCONTINUE;
+
+            final long latitude = toFixed(item.x);
+            final long longitude = toFixed(item.y);
+            if (Float.floatToRawIntBits(item.x) != 0 || Float.floatToRawIntBits(item.y) != 0) {
+                flags |= latitude == Long.MIN_VALUE || longitude == Long.MIN_VALUE
+                    ? FLAG_RAW_COORDINATE
+                    : FLAG_FIXED_COORDINATE;
+            }
+
+            dataOut.writeByte(flags);
+            writeVarint(dataOut, item.command);
+            dataOut.writeByte(item.frame);
+
+            if ((flags & FLAG_PARAM1) != 0) dataOut.writeFloat(item.param1);
+            if ((flags & FLAG_PARAM2) != 0) dataOut.writeFloat(item.param2);
+            if ((flags & FLAG_PARAM3) != 0) dataOut.writeFloat(item.param3);
+            if ((flags & FLAG_PARAM4) != 0) dataOut.writeFloat(item.param4);
+
+            if ((flags & FLAG_FIXED_COORDINATE) != 0) {
+                writeVarint(dataOut, zigzag((int) latitude - lastLatitude));
+                writeVarint(dataOut, zigzag((int) longitude - lastLongitude));
+                lastLatitude = (int) latitude;
+                lastLongitude = (int) longitude;
+            } else if ((flags & FLAG_RAW_COORDINATE) != 0) {
+                dataOut.writeFloat(item.x);
+                dataOut.writeFloat(item.y);
+            }
+
+            if ((flags & FLAG_Z) != 0) dataOut.writeFloat(item.z);
+        }
+        dataOut.flush();
+    }
+
+    public static List<msg_mission_item> read(InputStream in) throws IOException {
+        final DataInputStream dataIn = new DataInputStream(new BufferedInputStream(in));
+        if (dataIn.readInt() != MAGIC) {
+            throw new IOException("Not a binary mission file.");
+        }
+
+        final int version = dataIn.readUnsignedByte();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported binary mission format version " + version);
+        }
+
+        final int count = readVarint(dataIn);
+        if (count < 0) {
+            throw new IOException("Invalid mission items count " + count);
+        }
+
+        //Don't trust the count for the allocation, the file may be truncated.
+        final List<msg_mission_item> items = new ArrayList<>(Math.min(count, 1024));
+
+        int lastLatitude = 0;
+        int lastLongitude = 0;
+        for (int i = 0; i < count; i++) {
+            final int flags = dataIn.readUnsignedByte();
+
+            final msg_mission_item item = new msg_mission_item();
+            item.seq = i;
+            item.current = (short) (i == 0 ? 1 : 0);
+            item.command = readVarint(dataIn);
+            item.frame = (short) dataIn.readUnsignedByte();
+            item.autocontinue = (short) ((flags & FLAG_AUTOCONTINUE) != 0 ? 1 : 0);
+
+            if ((flags & FLAG_PARAM1) != 0) item.param1 = dataIn.readFloat();
+            if ((flags & FLAG_PARAM2) != 0) item.param2 = dataIn.readFloat();
+            if ((flags & FLAG_PARAM3) != 0) item.param3 = dataIn.readFloat();
+            if ((flags & FLAG_PARAM4) != 0) item.param4 = dataIn.readFloat();
+
+            if ((flags & FLAG_FIXED_COORDINATE) != 0) {
+                lastLatitude += unzigzag(readVarint(dataIn));
+                lastLongitude += unzigzag(readVarint(dataIn));
+                item.x = (float) (lastLatitude / FIXED_COORDINATE_SCALE);
+                item.y = (float) (lastLongitude / FIXED_COORDINATE_SCALE);
+            } else if ((flags & FLAG_RAW_COORDINATE) != 0) {
+                item.x = dataIn.readFloat();
+                item.y = dataIn.readFloat();
+            }
+
+            if ((flags & FLAG_Z) != 0) item.z = dataIn.readFloat();
+
+            items.add(item);
+        }
+        return items;
+    }
+
+    /**
+     * @return the coordinate in 1e-7 degrees, or Long.MIN_VALUE if it can't be restored exactly from it.
+     */
+    private static long toFixed(float coordinate) {
+        if (Float.isNaN(coordinate) || Math.abs(coordinate) > 180) {
+            return Long.MIN_VALUE;
+        }
+
+        final long fixed = Math.round(coordinate * FIXED_COORDINATE_SCALE);
+        if (Float.floatToRawIntBits((float) (fixed / FIXED_COORDINATE_SCALE)) != Float.floatToRawIntBits(coordinate)) {
+            return Long.MIN_VALUE;
+        }
+        return fixed;
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarint(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarint(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new EOFException("Malformed varint.");
+    }
+}
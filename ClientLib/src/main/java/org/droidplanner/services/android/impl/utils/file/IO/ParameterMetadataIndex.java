@@ -0,0 +1,171 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.content.res.AssetManager;
+
+import org.droidplanner.services.android.impl.core.drone.profiles.ParameterMetadata;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+import timber.log.Timber;
+
+/**
+ * Read-only view of the parameters metadata of a firmware group, compiled at build time from
+ * ParameterMetaData.xml by the 'compileParameterMetadata' gradle task.
+ * <p/>
+ * The asset is memory-mapped, and each metadata is only decoded when it's looked up. Apps bundling
+ * the library must store it uncompressed (aaptOptions { noCompress 'pmeta' }) for it to be mapped,
+ * otherwise it's read whole into memory.
+ * <p/>
+ * Format (big endian):
+ * <pre>
+ * int    magic ('DPM1')
+ * int    format version
+ * int    metadata count
+ * int[]  offset of each metadata record, sorted by parameter name
+ * record name, display name, description, units, range, values. Each as an unsigned short byte
+ *        length followed by the utf-8 bytes. A length of 0xFFFF stands for a missing property.
+ * </pre>
+ */
+public class ParameterMetadataIndex {
+
+    private static final String PARAMETER_METADATA_PATH = "Parameters/";
+    private static final String PARAMETER_METADATA_EXTENSION = ".pmeta";
+
+    private static final int MAGIC = 0x44504D31; // 'DPM1'
+    private static final int FORMAT_VERSION = 1;
+
+    private static final int HEADER_SIZE = 12;
+    private static final int NULL_LENGTH = 0xFFFF;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ByteBuffer buffer;
+    private final int count;
+
+    ParameterMetadataIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != FORMAT_VERSION) {
+            throw new IOException("Unsupported parameters metadata format.");
+        }
+
+        this.count = buffer.getInt(8);
+        if (count < 0 || HEADER_SIZE + 4L * count > buffer.limit()) {
+            throw new IOException("Corrupted parameters metadata.");
+        }
+    }
+
+    /**
+     * Opens the compiled metadata of the given firmware group.
+     *
+     * @throws FileNotFoundException if no compiled metadata is bundled for the group.
+     */
+    public static ParameterMetadataIndex open(Context context, String metadataType) throws IOException {
+        final String path = PARAMETER_METADATA_PATH + metadataType + PARAMETER_METADATA_EXTENSION;
+        final AssetManager assets = context.getAssets();
+
+        AssetFileDescriptor assetFd;
+        try {
+            assetFd = assets.openFd(path);
+        } catch (FileNotFoundException e) {
+            //The asset is missing, or was compressed and can't be mapped.
+            final InputStream in = assets.open(path);
+            Timber.w("%s is compressed, reading it whole. Add noCompress 'pmeta' to the app aaptOptions to map it.",
+                path);
+            return new ParameterMetadataIndex(ByteBuffer.wrap(readFully(in)));
+        }
+
+        try {
+            final FileInputStream in = assetFd.createInputStream();
+            try {
+                final FileChannel channel = in.getChannel();
+                return new ParameterMetadataIndex(channel.map(FileChannel.MapMode.READ_ONLY,
+                    assetFd.getStartOffset(), assetFd.getLength()));
+            } finally {
+                in.close();
+            }
+        } finally {
+            assetFd.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        try {
+            final ByteArrayOutputStream out = new ByteArrayOutputStream(in.available());
+            final byte[] chunk = new byte[8192];
+            int readCount;
+            while ((readCount = in.read(chunk)) != -1) {
+                out.write(chunk, 0, readCount);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * @return count of metadata in the group.
+     */
+    public int size() {
+        return count;
+    }
+
+    /**
+     * @param name parameter name
+     * @return the metadata for the given parameter, or null if none.
+     */
+    public ParameterMetadata get(String name) {
+        if (name == null) {
+            return null;
+        }
+
+        //Each lookup works on its own view, so concurrent lookups don't share a position.
+        final ByteBuffer view = buffer.duplicate();
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            view.position(getRecordOffset(middle));
+
+            final int comparison = readString(view).compareTo(name);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                final ParameterMetadata metadata = new ParameterMetadata();
+                metadata.setName(name);
+                metadata.setDisplayName(readString(view));
+                metadata.setDescription(readString(view));
+                metadata.setUnits(readString(view));
+                metadata.setRange(readString(view));
+                metadata.setValues(readString(view));
+                return metadata;
+            }
+        }
+        return null;
+    }
+
+    private int getRecordOffset(int index) {
+        return buffer.getInt(HEADER_SIZE + 4 * index);
+    }
+
+    private static String readString(ByteBuffer view) {
+        final int length = view.getShort() & 0xFFFF;
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        view.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+}
@@ -0,0 +1,202 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import android.util.JsonReader;
+import android.util.JsonToken;
+
+import com.MAVLink.common.msg_mission_item;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import timber.log.Timber;
+
+/**
+ * Streams the mission items out of a QGroundControl plan file (.plan), without loading the json document in
+ * memory.
+ * <p/>
+ * Simple items are read as is. Survey and corridor scan items are flattened to the simple items QGroundControl
+ * generated for them. Other complex items, the geofence and the rally points are skipped.
+ */
+public class QgcPlanReader {
+
+    private static final String KEY_MISSION = "mission";
+    private static final String KEY_ITEMS = "items";
+    private static final String KEY_TYPE = "type";
+    private static final String KEY_COMMAND = "command";
+    private static final String KEY_FRAME = "frame";
+    private static final String KEY_PARAMS = "params";
+    private static final String KEY_COORDINATE = "coordinate";
+    private static final String KEY_AUTOCONTINUE = "autoContinue";
+    private static final String KEY_TRANSECT_STYLE_ITEM = "TransectStyleComplexItem";
+    private static final String KEY_TRANSECT_ITEMS = "Items";
+
+    private static final String TYPE_SIMPLE_ITEM = "SimpleItem";
+
+    private final List<msg_mission_item> items = new ArrayList<>();
+
+    /**
+     * @return the plan mission items, or null if the stream isn't a QGroundControl plan.
+     */
+    public static List<msg_mission_item> read(InputStream in) throws IOException {
+        final JsonReader reader = new JsonReader(new InputStreamReader(in, "UTF-8"));
+        try {
+            if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+                return null;
+            }
+
+            final QgcPlanReader planReader = new QgcPlanReader();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (KEY_MISSION.equals(reader.nextName())) {
+                    planReader.readMission(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            return planReader.items;
+        } catch (IllegalStateException | NumberFormatException e) {
+            Timber.w(e, "Invalid plan file.");
+            return null;
+        }
+    }
+
+    private QgcPlanReader() {
+    }
+
+    private void readMission(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (KEY_ITEMS.equals(reader.nextName())) {
+                readItems(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private void readItems(JsonReader reader) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            readItem(reader);
+        }
+        reader.endArray();
+    }
+
+    private void readItem(JsonReader reader) throws IOException {
+        final msg_mission_item msg = new msg_mission_item();
+        msg.autocontinue = 1;
+        String type = null;
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case KEY_TYPE:
+                    type = reader.nextString();
+                    break;
+
+                case KEY_COMMAND:
+                    msg.command = reader.nextInt();
+                    break;
+
+                case KEY_FRAME:
+                    msg.frame = (short) reader.nextInt();
+                    break;
+
+                case KEY_AUTOCONTINUE:
+                    msg.autocontinue = (short) (reader.nextBoolean() ? 1 : 0);
+                    break;
+
+                case KEY_PARAMS:
+                    readParams(reader, msg);
+                    break;
+
+                case KEY_COORDINATE:
+                    //Plan format version 1 kept the coordinate apart from the params.
+                    reader.beginArray();
+                    msg.x = readFloat(reader);
+                    msg.y = readFloat(reader);
+                    msg.z = readFloat(reader);
+                    while (reader.hasNext()) {
+                        reader.skipValue();
+                    }
+                    reader.endArray();
+                    break;
+
+                case KEY_TRANSECT_STYLE_ITEM:
+                    readTransectStyleItem(reader);
+                    break;
+
+                default:
+                    reader.skipValue();
+                    break;
+            }
+        }
+        reader.endObject();
+
+        if (TYPE_SIMPLE_ITEM.equals(type)) {
+            msg.seq = items.size();
+            items.add(msg);
+        }
+    }
+
+    private void readTransectStyleItem(JsonReader reader) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (KEY_TRANSECT_ITEMS.equals(reader.nextName())) {
+                readItems(reader);
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readParams(JsonReader reader, msg_mission_item msg) throws IOException {
+        reader.beginArray();
+        int index = 0;
+        while (reader.hasNext()) {
+            final float value = readFloat(reader);
+            switch (index++) {
+                case 0:
+                    msg.param1 = value;
+                    break;
+                case 1:
+                    msg.param2 = value;
+                    break;
+                case 2:
+                    msg.param3 = value;
+                    break;
+                case 3:
+                    msg.param4 = value;
+                    break;
+                case 4:
+                    msg.x = value;
+                    break;
+                case 5:
+                    msg.y = value;
+                    break;
+                case 6:
+                    msg.z = value;
+                    break;
+            }
+        }
+        reader.endArray();
+    }
+
+    /**
+     * QGroundControl writes NaN values as null.
+     */
+    private static float readFloat(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return Float.NaN;
+        }
+        return (float) reader.nextDouble();
+    }
+}
@@ -0,0 +1,177 @@
+package org.droidplanner.services.android.impl.utils.file.IO;
+
+import com.MAVLink.common.msg_mission_item;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import timber.log.Timber;
+
+/**
+ * Reads and writes the QGC waypoint file format:
+ * <p/>
+ * QGC WPL <VERSION>
+ * <INDEX> <CURRENT WP> <COORD FRAME> <COMMAND> <PARAM1> <PARAM2> <PARAM3> <PARAM4>
+ * <PARAM5/X/LATITUDE> <PARAM6/Y/LONGITUDE> <PARAM7/Z/ALTITUDE> <AUTOCONTINUE>
+ * <p/>
+ * See http://qgroundcontrol.org/mavlink/waypoint_protocol for details
+ */
+public class WaypointFileFormat {
+
+    public static final String WAYPOINT_PROTOCOL_HEADER = "QGC WPL 110";
+
+    private static final Charset ASCII = Charset.forName("US-ASCII");
+
+    private static final int FIELDS_COUNT = 12;
+    private static final long DECIMALS_SCALE = 1000000L;
+
+    //Private to prevent instantiation
+    private WaypointFileFormat() {
+    }
+
+    public static void write(OutputStream out, List<msg_mission_item> items) throws IOException {
+        final Writer writer = new BufferedWriter(new OutputStreamWriter(out, ASCII));
+        writer.write(WAYPOINT_PROTOCOL_HEADER);
+        writer.write('\n');
+
+        final StringBuilder line = new StringBuilder(128);
+        for (int i = 0, itemsCount = items.size(); i < itemsCount; i++) {
+            final msg_mission_item msg = items.get(i);
+
+            // write msg (TAB delimited)
+            line.setLength(0);
+            line.append(i).append('\t')
+                .append(i == 0 ? 1 : 0).append('\t') // set CURRENT_WP = 1 for 'home' - msg[0], 0 for all others
+                .append(msg.frame).append('\t')
+                .append(msg.command).append('\t');
+            appendDecimal(line, msg.param1).append('\t');
+            appendDecimal(line, msg.param2).append('\t');
+            appendDecimal(line, msg.param3).append('\t');
+            appendDecimal(line, msg.param4).append('\t');
+            appendDecimal(line, msg.x).append('\t');
+            appendDecimal(line, msg.y).append('\t');
+            appendDecimal(line, msg.z).append('\t');
+            line.append(msg.autocontinue).append('\n');
+
+            writer.append(line);
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return true if the first line of the given file header is the waypoint file header.
+     */
+    public static boolean isWaypointFile(byte[] header, int length) {
+        int lineLength = 0;
+        while (lineLength < length && header[lineLength] != '\n' && header[lineLength] != '\r') {
+            lineLength++;
+        }
+        return new String(header, 0, lineLength, ASCII).contains(WAYPOINT_PROTOCOL_HEADER);
+    }
+
+    /**
+     * @return the parsed mission items, or null if the stream isn't a valid waypoint file.
+     */
+    public static List<msg_mission_item> read(InputStream in) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(in, ASCII));
+
+        final String header = reader.readLine();
+        if (header == null || !header.contains(WAYPOINT_PROTOCOL_HEADER)) {
+            return null;
+        }
+
+        final List<msg_mission_item> items = new ArrayList<>();
+        final String[] fields = new String[FIELDS_COUNT];
+        String line;
+        while ((line = reader.readLine()) != null) {
+            final int fieldsCount = splitFields(line, fields);
+            if (fieldsCount == 0) {
+                continue;
+            }
+
+            if (fieldsCount < FIELDS_COUNT) {
+                Timber.w("Invalid waypoint line: %s", line);
+                return null;
+            }
+
+            try {
+                final msg_mission_item msg = new msg_mission_item();
+                msg.seq = Integer.parseInt(fields[0]);
+                msg.current = Short.parseShort(fields[1]);
+                msg.frame = Short.parseShort(fields[2]);
+                msg.command = Integer.parseInt(fields[3]);
+
+                msg.param1 = Float.parseFloat(fields[4]);
+                msg.param2 = Float.parseFloat(fields[5]);
+                msg.param3 = Float.parseFloat(fields[6]);
+                msg.param4 = Float.parseFloat(fields[7]);
+
+                msg.x = Float.parseFloat(fields[8]);
+                msg.y = Float.parseFloat(fields[9]);
+                msg.z = Float.parseFloat(fields[10]);
+
+                msg.autocontinue = Short.parseShort(fields[11]);
+
+                items.add(msg);
+            } catch (NumberFormatException e) {
+                Timber.w(e, "Invalid waypoint line: %s", line);
+                return null;
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Splits the line on tabs and spaces, without going through a regex.
+     *
+     * @return the count of fields found, up to the size of the fields array.
+     */
+    private static int splitFields(String line, String[] fields) {
+        final int length = line.length();
+        int count = 0;
+        int start = -1;
+        for (int i = 0; i <= length && count < fields.length; i++) {
+            final boolean isSeparator = i == length || line.charAt(i) == '\t' || line.charAt(i) == ' ';
+            if (isSeparator) {
+                if (start != -1) {
+                    fields[count++] = line.substring(start, i);
+                    start = -1;
+                }
+            } else if (start == -1) {
+                start = i;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Appends the value with six decimals, as the '%f' format would.
+     */
+    private static StringBuilder appendDecimal(StringBuilder builder, double value) {
+        if (Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= Long.MAX_VALUE / DECIMALS_SCALE) {
+            return builder.append(String.format(Locale.ENGLISH, "%f", value));
+        }
+
+        final long scaled = Math.round(Math.abs(value) * DECIMALS_SCALE);
+        if (Double.doubleToRawLongBits(value) < 0) {
+            builder.append('-');
+        }
+
+        builder.append(scaled / DECIMALS_SCALE).append('.');
+        final String decimals = Long.toString(scaled % DECIMALS_SCALE);
+        for (int i = decimals.length(); i < 6; i++) {
+            builder.append('0');
+        }
+        return builder.append(decimals);
+    }
+}
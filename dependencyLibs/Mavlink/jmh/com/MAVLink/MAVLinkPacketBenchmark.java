@@ -0,0 +1,74 @@
+package com.MAVLink;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the decoding ({@link MAVLinkPacket#unpack()}) and encoding ({@link MAVLinkMessage#pack()},
+ * {@link MAVLinkPacket#encodePacket()}) costs for each message family.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MAVLinkPacketBenchmark {
+
+    @Param({
+            MAVLinkStreams.HEARTBEAT,
+            MAVLinkStreams.ATTITUDE,
+            MAVLinkStreams.GLOBAL_POSITION_INT,
+            MAVLinkStreams.GPS_RAW_INT,
+            MAVLinkStreams.SYS_STATUS,
+            MAVLinkStreams.PARAM_VALUE,
+            MAVLinkStreams.MISSION_ITEM,
+            MAVLinkStreams.STATUSTEXT
+    })
+    public String family;
+
+    private MAVLinkMessage message;
+    private MAVLinkPacket packet;
+
+    @Setup
+    public void createPacket() {
+        message = MAVLinkStreams.createMessage(family);
+        packet = MAVLinkStreams.createPacket(family);
+    }
+
+    @Benchmark
+    public MAVLinkMessage unpack() {
+        return packet.unpack();
+    }
+
+    @Benchmark
+    public MAVLinkPacket pack() {
+        return message.pack();
+    }
+
+    @Benchmark
+    public byte[] encodePacket() {
+        return packet.encodePacket();
+    }
+
+    /**
+     * Full send path: message to bytes on the wire.
+     */
+    @Benchmark
+    public byte[] packAndEncode() {
+        return message.pack().encodePacket();
+    }
+}
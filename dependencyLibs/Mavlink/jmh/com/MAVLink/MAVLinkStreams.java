@@ -0,0 +1,288 @@
+package com.MAVLink;
+
+import com.MAVLink.Messages.MAVLinkMessage;
+import com.MAVLink.common.msg_attitude;
+import com.MAVLink.common.msg_global_position_int;
+import com.MAVLink.common.msg_gps_raw_int;
+import com.MAVLink.common.msg_heartbeat;
+import com.MAVLink.common.msg_mission_item;
+import com.MAVLink.common.msg_param_value;
+import com.MAVLink.common.msg_rc_channels_raw;
+import com.MAVLink.common.msg_statustext;
+import com.MAVLink.common.msg_sys_status;
+import com.MAVLink.common.msg_vfr_hud;
+import com.MAVLink.enums.MAV_AUTOPILOT;
+import com.MAVLink.enums.MAV_CMD;
+import com.MAVLink.enums.MAV_FRAME;
+import com.MAVLink.enums.MAV_PARAM_TYPE;
+import com.MAVLink.enums.MAV_TYPE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Test streams for the codec benchmarks.
+ * A captured stream can be supplied through the 'mavlink.stream' system property, either as a tlog
+ * (8 bytes timestamp before each frame) or as raw mavlink bytes. Otherwise a stream mimicking the
+ * default ArduCopter telemetry rates is generated.
+ */
+public class MAVLinkStreams {
+
+    public static final String STREAM_PROPERTY = "mavlink.stream";
+
+    /**
+     * Duration of the generated stream in seconds.
+     */
+    private static final int GENERATED_STREAM_DURATION = 60;
+
+    /**
+     * Message families used by the per message benchmarks.
+     */
+    public static final String HEARTBEAT = "heartbeat";
+    public static final String ATTITUDE = "attitude";
+    public static final String GLOBAL_POSITION_INT = "global_position_int";
+    public static final String GPS_RAW_INT = "gps_raw_int";
+    public static final String SYS_STATUS = "sys_status";
+    public static final String PARAM_VALUE = "param_value";
+    public static final String MISSION_ITEM = "mission_item";
+    public static final String STATUSTEXT = "statustext";
+    public static final String VFR_HUD = "vfr_hud";
+    public static final String RC_CHANNELS_RAW = "rc_channels_raw";
+
+    private MAVLinkStreams() {
+    }
+
+    /**
+     * @return the bytes of the stream to parse.
+     */
+    public static byte[] loadStream() throws IOException {
+        final String streamPath = System.getProperty(STREAM_PROPERTY);
+        if (streamPath == null || streamPath.isEmpty()) {
+            return generateStream();
+        }
+
+        final byte[] data = readFile(new File(streamPath));
+        return streamPath.endsWith(".tlog") ? stripTimestamps(data) : data;
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream((int) file.length());
+        final InputStream in = new FileInputStream(file);
+        try {
+            final byte[] buffer = new byte[8192];
+            int length;
+            while ((length = in.read(buffer)) != -1) {
+                out.write(buffer, 0, length);
+            }
+        } finally {
+            in.close();
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Removes the tlog timestamps, keeping the mavlink frames.
+     */
+    private static byte[] stripTimestamps(byte[] tlog) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(tlog.length);
+        int position = 0;
+        while (position + 8 + 8 <= tlog.length) {
+            final int frameOffset = position + 8;
+            final int frameLength = 6 + (tlog[frameOffset + 1] & 0xFF) + 2;
+            if ((tlog[frameOffset] & 0xFF) != MAVLinkPacket.MAVLINK_STX || frameOffset + frameLength > tlog.length) {
+                //Corrupted record. Resynchronize on the next byte.
+                position++;
+                continue;
+            }
+
+            out.write(tlog, frameOffset, frameLength);
+            position = frameOffset + frameLength;
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Generates a stream using the default ArduCopter stream rates.
+     */
+    private static byte[] generateStream() {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int seq = 0;
+        for (int tick = 0; tick < GENERATED_STREAM_DURATION * 10; tick++) {
+            //10Hz
+            seq = write(out, createMessage(ATTITUDE), seq);
+            seq = write(out, createMessage(GLOBAL_POSITION_INT), seq);
+            seq = write(out, createMessage(VFR_HUD), seq);
+
+            if (tick % 2 == 0) {
+                //5Hz
+                seq = write(out, createMessage(RC_CHANNELS_RAW), seq);
+            }
+
+            if (tick % 5 == 0) {
+                //2Hz
+                seq = write(out, createMessage(GPS_RAW_INT), seq);
+                seq = write(out, createMessage(SYS_STATUS), seq);
+            }
+
+            if (tick % 10 == 0) {
+                //1Hz
+                seq = write(out, createMessage(HEARTBEAT), seq);
+            }
+
+            if (tick % 100 == 0) {
+                seq = write(out, createMessage(STATUSTEXT), seq);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static int write(ByteArrayOutputStream out, MAVLinkMessage message, int seq) {
+        final MAVLinkPacket packet = message.pack();
+        packet.sysid = 1;
+        packet.compid = 1;
+        packet.seq = seq;
+
+        final byte[] frame = packet.encodePacket();
+        out.write(frame, 0, frame.length);
+        return (seq + 1) & 0xFF;
+    }
+
+    /**
+     * Builds a message of the given family, with realistic field values.
+     */
+    public static MAVLinkMessage createMessage(String family) {
+        switch (family) {
+            case HEARTBEAT: {
+                msg_heartbeat msg = new msg_heartbeat();
+                msg.type = MAV_TYPE.MAV_TYPE_QUADROTOR;
+                msg.autopilot = MAV_AUTOPILOT.MAV_AUTOPILOT_ARDUPILOTMEGA;
+                msg.base_mode = 81;
+                msg.custom_mode = 5;
+                msg.system_status = 4;
+                msg.mavlink_version = 3;
+                return msg;
+            }
+
+            case ATTITUDE: {
+                msg_attitude msg = new msg_attitude();
+                msg.time_boot_ms = 1234567;
+                msg.roll = 0.05f;
+                msg.pitch = -0.02f;
+                msg.yaw = 1.57f;
+                msg.rollspeed = 0.001f;
+                msg.pitchspeed = 0.002f;
+                msg.yawspeed = -0.003f;
+                return msg;
+            }
+
+            case GLOBAL_POSITION_INT: {
+                msg_global_position_int msg = new msg_global_position_int();
+                msg.time_boot_ms = 1234567;
+                msg.lat = 377749000;
+                msg.lon = -1224194000;
+                msg.alt = 25000;
+                msg.relative_alt = 10000;
+                msg.vx = 120;
+                msg.vy = -45;
+                msg.hdg = 9000;
+                return msg;
+            }
+
+            case GPS_RAW_INT: {
+                msg_gps_raw_int msg = new msg_gps_raw_int();
+                msg.time_usec = 1234567890L;
+                msg.lat = 377749000;
+                msg.lon = -1224194000;
+                msg.alt = 25000;
+                msg.eph = 120;
+                msg.epv = 180;
+                msg.vel = 500;
+                msg.cog = 9000;
+                msg.fix_type = 3;
+                msg.satellites_visible = 12;
+                return msg;
+            }
+
+            case SYS_STATUS: {
+                msg_sys_status msg = new msg_sys_status();
+                msg.onboard_control_sensors_present = 0x0FFFFFFFL;
+                msg.onboard_control_sensors_enabled = 0x0FFFFFFFL;
+                msg.onboard_control_sensors_health = 0x0FFFFFFFL;
+                msg.load = 350;
+                msg.voltage_battery = 12600;
+                msg.current_battery = 1500;
+                msg.battery_remaining = 87;
+                return msg;
+            }
+
+            case PARAM_VALUE: {
+                msg_param_value msg = new msg_param_value();
+                msg.setParam_Id("WPNAV_SPEED");
+                msg.param_value = 500;
+                msg.param_type = MAV_PARAM_TYPE.MAV_PARAM_TYPE_REAL32;
+                msg.param_count = 650;
+                msg.param_index = 42;
+                return msg;
+            }
+
+            case MISSION_ITEM: {
+                msg_mission_item msg = new msg_mission_item();
+                msg.seq = 3;
+                msg.command = MAV_CMD.MAV_CMD_NAV_WAYPOINT;
+                msg.frame = MAV_FRAME.MAV_FRAME_GLOBAL_RELATIVE_ALT;
+                msg.x = 37.7749f;
+                msg.y = -122.4194f;
+                msg.z = 20;
+                msg.autocontinue = 1;
+                msg.target_system = 1;
+                msg.target_component = 1;
+                return msg;
+            }
+
+            case STATUSTEXT: {
+                msg_statustext msg = new msg_statustext();
+                msg.severity = 6;
+                msg.setText("APM:Copter V3.3 (d6053245)");
+                return msg;
+            }
+
+            case VFR_HUD: {
+                msg_vfr_hud msg = new msg_vfr_hud();
+                msg.airspeed = 5;
+                msg.groundspeed = 5;
+                msg.heading = 90;
+                msg.throttle = 45;
+                msg.alt = 10;
+                msg.climb = 0.1f;
+                return msg;
+            }
+
+            case RC_CHANNELS_RAW: {
+                msg_rc_channels_raw msg = new msg_rc_channels_raw();
+                msg.time_boot_ms = 1234567;
+                msg.chan1_raw = 1500;
+                msg.chan2_raw = 1500;
+                msg.chan3_raw = 1200;
+                msg.chan4_raw = 1500;
+                msg.rssi = 255;
+                return msg;
+            }
+
+            default:
+                throw new IllegalArgumentException("Unknown message family " + family);
+        }
+    }
+
+    /**
+     * Packs a message of the given family into a packet, as received from a vehicle.
+     */
+    public static MAVLinkPacket createPacket(String family) {
+        final MAVLinkPacket packet = createMessage(family).pack();
+        packet.sysid = 1;
+        packet.compid = 1;
+        return packet;
+    }
+}
@@ -0,0 +1,135 @@
+package com.MAVLink.Messages;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the {@link MAVLinkPayload} getters and putters. Scores are reported per accessed field.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class MAVLinkPayloadBenchmark {
+
+    private static final int FIELD_COUNT = 16;
+
+    private MAVLinkPayload payload;
+
+    @Setup
+    public void fillPayload() {
+        payload = new MAVLinkPayload(MAVLinkPayload.MAX_PAYLOAD_SIZE);
+        for (int i = 0; i < MAVLinkPayload.MAX_PAYLOAD_SIZE / 8; i++) {
+            payload.putLong(0x0123456789ABCDEFL + i);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public void getByte(Blackhole blackhole) {
+        payload.resetIndex();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            blackhole.consume(payload.getUnsignedByte());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public void getShort(Blackhole blackhole) {
+        payload.resetIndex();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            blackhole.consume(payload.getUnsignedShort());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public void getInt(Blackhole blackhole) {
+        payload.resetIndex();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            blackhole.consume(payload.getInt());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public void getFloat(Blackhole blackhole) {
+        payload.resetIndex();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            blackhole.consume(payload.getFloat());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public void getLong(Blackhole blackhole) {
+        payload.resetIndex();
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            blackhole.consume(payload.getLong());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public MAVLinkPayload putByte() {
+        final MAVLinkPayload out = new MAVLinkPayload(FIELD_COUNT);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            out.putUnsignedByte((short) i);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public MAVLinkPayload putShort() {
+        final MAVLinkPayload out = new MAVLinkPayload(FIELD_COUNT * 2);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            out.putUnsignedShort(i);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public MAVLinkPayload putInt() {
+        final MAVLinkPayload out = new MAVLinkPayload(FIELD_COUNT * 4);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            out.putInt(i);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public MAVLinkPayload putFloat() {
+        final MAVLinkPayload out = new MAVLinkPayload(FIELD_COUNT * 4);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            out.putFloat(i);
+        }
+        return out;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FIELD_COUNT)
+    public MAVLinkPayload putLong() {
+        final MAVLinkPayload out = new MAVLinkPayload(FIELD_COUNT * 8);
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            out.putLong(i);
+        }
+        return out;
+    }
+}
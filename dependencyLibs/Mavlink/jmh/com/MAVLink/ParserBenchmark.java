@@ -0,0 +1,72 @@
+package com.MAVLink;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link Parser#mavlink_parse_char(int)} over a captured (or generated) telemetry stream.
+ * Scores are reported per parsed byte.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+    /**
+     * Number of bytes parsed per invocation. The stream is replayed from the start as needed.
+     */
+    private static final int BYTES_PER_INVOCATION = 64 * 1024;
+
+    private byte[] stream;
+    private int position;
+    private Parser parser;
+
+    @Setup(Level.Trial)
+    public void loadStream() throws IOException {
+        stream = MAVLinkStreams.loadStream();
+        if (stream.length == 0) {
+            throw new IllegalStateException("Empty mavlink stream.");
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void resetParser() {
+        parser = new Parser();
+        position = 0;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(BYTES_PER_INVOCATION)
+    public void parseStream(Blackhole blackhole) {
+        final byte[] data = stream;
+        int index = position;
+        for (int i = 0; i < BYTES_PER_INVOCATION; i++) {
+            if (index == data.length) {
+                index = 0;
+            }
+
+            MAVLinkPacket packet = parser.mavlink_parse_char(data[index++] & 0xFF);
+            if (packet != null) {
+                blackhole.consume(packet);
+            }
+        }
+        position = index;
+    }
+}
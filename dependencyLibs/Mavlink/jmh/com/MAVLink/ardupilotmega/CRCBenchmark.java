@@ -0,0 +1,82 @@
+package com.MAVLink.ardupilotmega;
+
+import com.MAVLink.MAVLinkPacket;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the checksum computation over frames of various sizes.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+public class CRCBenchmark {
+
+    /**
+     * Payload length. 9 is a heartbeat, 28 an attitude, 255 the largest possible payload.
+     */
+    @Param({"9", "28", "255"})
+    public int payloadLength;
+
+    private byte[] frame;
+    private int msgId;
+    private final CRC crc = new CRC();
+
+    private MAVLinkPacket packet;
+
+    @Setup
+    public void createFrame() {
+        frame = new byte[5 + payloadLength];
+        new Random(0).nextBytes(frame);
+        frame[0] = (byte) payloadLength;
+        msgId = frame[4] & 0xFF;
+
+        //Same header and payload as the raw frame.
+        packet = new MAVLinkPacket(payloadLength);
+        packet.seq = frame[1] & 0xFF;
+        packet.sysid = frame[2] & 0xFF;
+        packet.compid = frame[3] & 0xFF;
+        packet.msgid = msgId;
+        for (int i = 5; i < frame.length; i++) {
+            packet.payload.add(frame[i]);
+        }
+    }
+
+    /**
+     * Raw checksum over the frame header and payload.
+     */
+    @Benchmark
+    public int checksum() {
+        crc.start_checksum();
+        for (byte b : frame) {
+            crc.update_checksum(b & 0xFF);
+        }
+        crc.finish_checksum(msgId);
+        return crc.getLSB() | (crc.getMSB() << 8);
+    }
+
+    /**
+     * Checksum as computed by the packet, reading back the payload buffer.
+     */
+    @Benchmark
+    public CRC generatePacketCRC() {
+        packet.generateCRC();
+        return packet.crc;
+    }
+}